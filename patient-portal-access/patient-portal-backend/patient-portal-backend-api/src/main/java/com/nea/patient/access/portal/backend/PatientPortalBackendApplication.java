@@ -2,13 +2,21 @@ package com.nea.patient.access.portal.backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableJpaRepositories
+@EnableScheduling
 public class PatientPortalBackendApplication {
 
+  private static final int STARTUP_TIMELINE_CAPACITY = 10000;
+
   public static void main(final String[] args) {
-    SpringApplication.run(PatientPortalBackendApplication.class, args);
+    SpringApplication application = new SpringApplication(PatientPortalBackendApplication.class);
+    // Records the startup steps reported by StartupTimelineReport.
+    application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_TIMELINE_CAPACITY));
+    application.run(args);
   }
 }
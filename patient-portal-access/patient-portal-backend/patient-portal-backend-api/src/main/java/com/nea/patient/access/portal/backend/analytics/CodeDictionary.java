@@ -0,0 +1,25 @@
+package com.nea.patient.access.portal.backend.analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps sparse reference codes onto dense indexes, so counts can be kept in arrays sized by the
+ * number of distinct codes seen.
+ */
+final class CodeDictionary {
+
+  private final Map<Integer, Integer> indexes = new HashMap<>();
+  private final IntColumn codes = new IntColumn();
+
+  int encode(final int code) {
+    return indexes.computeIfAbsent(code, newCode -> {
+      codes.add(newCode);
+      return codes.size() - 1;
+    });
+  }
+
+  int[] toArray() {
+    return codes.toArray();
+  }
+}
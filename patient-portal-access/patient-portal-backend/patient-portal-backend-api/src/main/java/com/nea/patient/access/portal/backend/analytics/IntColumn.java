@@ -0,0 +1,27 @@
+package com.nea.patient.access.portal.backend.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive int column used while a snapshot is being loaded.
+ */
+final class IntColumn {
+
+  private int[] values = new int[1024];
+  private int size;
+
+  void add(final int value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+    }
+    values[size++] = value;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
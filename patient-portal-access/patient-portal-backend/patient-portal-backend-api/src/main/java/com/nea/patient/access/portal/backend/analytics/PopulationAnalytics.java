@@ -0,0 +1,314 @@
+package com.nea.patient.access.portal.backend.analytics;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nea.patient.access.portal.backend.api.model.AgeBandPrevalence;
+import com.nea.patient.access.portal.backend.api.model.IllnessPrevalenceResponse;
+import com.nea.patient.access.portal.backend.api.model.PharmacyPrescriptionVolume;
+import com.nea.patient.access.portal.backend.api.model.PrescriptionVolumeResponse;
+import com.nea.patient.access.portal.backend.api.model.VaccinationCoverage;
+import com.nea.patient.access.portal.backend.api.model.VaccinationCoverageResponse;
+import com.nea.patient.access.portal.backend.reference.ReferenceDictionary;
+
+/**
+ * Population level counts answered from a periodically refreshed {@link PopulationSnapshot}
+ * rather than the OLTP tables. The snapshot is loaded with a few streamed scalar queries and
+ * swapped in atomically; every aggregation is a parallel scan over its primitive columns.
+ */
+@Component
+public class PopulationAnalytics {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PopulationAnalytics.class);
+
+  private static final int MAX_BANDED_AGE = 100;
+  private static final int FETCH_SIZE = 1000;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+  @Autowired
+  private ReferenceDictionary referenceDictionary;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private volatile PopulationSnapshot snapshot;
+
+  public PopulationAnalytics(final PlatformTransactionManager transactionManager) {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+  }
+
+  @Scheduled(fixedDelayString = "${patient.portal.analytics.refresh-interval-millis:900000}")
+  public void refresh() {
+    long started = System.currentTimeMillis();
+    PopulationSnapshot refreshedSnapshot = transactionTemplate.execute(status -> load());
+    snapshot = refreshedSnapshot;
+    LOGGER.info("Analytics snapshot of {} patients refreshed in {}ms",
+        refreshedSnapshot.patientCount(), System.currentTimeMillis() - started);
+  }
+
+  /**
+   * Distinct patients with each illness type per age band, ages taken as of today.
+   */
+  public Optional<IllnessPrevalenceResponse> getIllnessPrevalence(final int bandYears) {
+    PopulationSnapshot currentSnapshot = snapshot;
+    if (currentSnapshot == null) {
+      return Optional.empty();
+    }
+
+    // A patient is at least (b + 1) * bandYears old when born on or before thresholds[b].
+    LocalDate today = LocalDate.now();
+    int bandCount = MAX_BANDED_AGE / bandYears + 1;
+    long[] thresholds = new long[bandCount - 1];
+    for (int band = 0; band < thresholds.length; band++) {
+      thresholds[band] = today.minusYears((long) (band + 1) * bandYears).toEpochDay();
+    }
+    int[] patientBand = new int[currentSnapshot.patientCount()];
+    IntStream.range(0, patientBand.length).parallel().forEach(row ->
+        patientBand[row] = toAgeBand(currentSnapshot.patientBirthDay[row], thresholds));
+
+    int typeCount = currentSnapshot.illnessTypeCodes.length;
+    int[] bandPatients = parallelCount(patientBand.length, bandCount, row -> patientBand[row]);
+    int[] bandCases = parallelCount(currentSnapshot.illnessPatientRow.length, bandCount * typeCount,
+        row -> {
+          int band = patientBand[currentSnapshot.illnessPatientRow[row]];
+          return band < 0 ? -1 : band * typeCount + currentSnapshot.illnessType[row];
+        });
+
+    IllnessPrevalenceResponse prevalenceResponse = IllnessPrevalenceResponse.builder()
+        .snapshotTime(currentSnapshot.snapshotTime)
+        .build();
+    for (int band = 0; band < bandCount; band++) {
+      AgeBandPrevalence ageBandPrevalence = AgeBandPrevalence.builder()
+          .ageBand(band == bandCount - 1 ? band * bandYears + "+"
+              : band * bandYears + "-" + ((band + 1) * bandYears - 1))
+          .patients(bandPatients[band])
+          .build();
+      for (int type = 0; type < typeCount; type++) {
+        int cases = bandCases[band * typeCount + type];
+        if (cases > 0) {
+          String illness = toLabel(currentSnapshot.illnessTypeCodes[type]);
+          ageBandPrevalence.getCases().put(illness, cases);
+          ageBandPrevalence.getPrevalence().put(illness, (double) cases / bandPatients[band]);
+        }
+      }
+      prevalenceResponse.getAgeBands().add(ageBandPrevalence);
+    }
+    return Optional.of(prevalenceResponse);
+  }
+
+  /**
+   * Share of all patients vaccinated against each type, counting only vaccinations on or after
+   * {@code since} when given.
+   */
+  public Optional<VaccinationCoverageResponse> getVaccinationCoverage(final LocalDate since) {
+    PopulationSnapshot currentSnapshot = snapshot;
+    if (currentSnapshot == null) {
+      return Optional.empty();
+    }
+
+    long sinceDay = since != null ? since.toEpochDay() : Long.MIN_VALUE;
+    int[] vaccinated = parallelCount(currentSnapshot.vaccinationType.length,
+        currentSnapshot.vaccinationTypeCodes.length,
+        row -> currentSnapshot.vaccinationDay[row] >= sinceDay ? currentSnapshot.vaccinationType[row] : -1);
+
+    int totalPatients = currentSnapshot.patientCount();
+    List<VaccinationCoverage> vaccinations = IntStream.range(0, vaccinated.length)
+        .filter(type -> vaccinated[type] > 0)
+        .mapToObj(type -> VaccinationCoverage.builder()
+            .type(toLabel(currentSnapshot.vaccinationTypeCodes[type]))
+            .vaccinatedPatients(vaccinated[type])
+            .coverage((double) vaccinated[type] / totalPatients)
+            .build())
+        .sorted(Comparator.comparingInt(VaccinationCoverage::getVaccinatedPatients).reversed())
+        .collect(Collectors.toList());
+    return Optional.of(VaccinationCoverageResponse.builder()
+        .snapshotTime(currentSnapshot.snapshotTime)
+        .totalPatients(totalPatients)
+        .vaccinations(vaccinations)
+        .build());
+  }
+
+  /**
+   * Prescriptions per preferred pharmacy, last prescribed within {@code [from, to]} when given.
+   */
+  public Optional<PrescriptionVolumeResponse> getPrescriptionVolume(final LocalDate from,
+      final LocalDate to) {
+    PopulationSnapshot currentSnapshot = snapshot;
+    if (currentSnapshot == null) {
+      return Optional.empty();
+    }
+
+    long fromDay = from != null ? from.toEpochDay() : Long.MIN_VALUE;
+    long toDay = to != null ? to.toEpochDay() : Long.MAX_VALUE;
+    boolean unbounded = from == null && to == null;
+    int[] volumes = parallelCount(currentSnapshot.prescriptionPharmacy.length,
+        currentSnapshot.pharmacies.length, row -> {
+          int day = currentSnapshot.prescriptionDay[row];
+          // Undated prescriptions only count when no date range is asked for.
+          boolean inRange = unbounded || (day != PopulationSnapshot.NO_DATE && day >= fromDay && day <= toDay);
+          return inRange ? currentSnapshot.prescriptionPharmacy[row] : -1;
+        });
+
+    List<PharmacyPrescriptionVolume> pharmacies = IntStream.range(0, volumes.length)
+        .filter(pharmacy -> volumes[pharmacy] > 0)
+        .mapToObj(pharmacy -> PharmacyPrescriptionVolume.builder()
+            .pharmacy(currentSnapshot.pharmacies[pharmacy])
+            .prescriptions(volumes[pharmacy])
+            .build())
+        .sorted(Comparator.comparingInt(PharmacyPrescriptionVolume::getPrescriptions).reversed())
+        .collect(Collectors.toList());
+    return Optional.of(PrescriptionVolumeResponse.builder()
+        .snapshotTime(currentSnapshot.snapshotTime)
+        .pharmacies(pharmacies)
+        .build());
+  }
+
+  private PopulationSnapshot load() {
+    Date snapshotTime = new Date();
+
+    IntColumn patientIdColumn = new IntColumn();
+    IntColumn birthDayColumn = new IntColumn();
+    try (Stream<Object[]> rows = stream("select p.id, p.dateOfBirth from Patient p order by p.id")) {
+      rows.forEach(row -> {
+        patientIdColumn.add((Integer) row[0]);
+        birthDayColumn.add(toEpochDay((Date) row[1]));
+      });
+    }
+    int[] patientIds = patientIdColumn.toArray();
+
+    CodeDictionary illnessTypes = new CodeDictionary();
+    Set<Long> illnesses = new HashSet<>();
+    try (Stream<Object[]> rows = stream("select p.id, i.typeCode from Patient p "
+        + "join p.medicalHistory m join m.illnesses i where i.typeCode is not null")) {
+      rows.forEach(row -> {
+        int patientRow = Arrays.binarySearch(patientIds, (Integer) row[0]);
+        if (patientRow >= 0) {
+          illnesses.add(toPairKey(patientRow, illnessTypes.encode((Integer) row[1])));
+        }
+      });
+    }
+    IntColumn illnessPatientRow = new IntColumn();
+    IntColumn illnessType = new IntColumn();
+    illnesses.forEach(pairKey -> {
+      illnessPatientRow.add((int) (pairKey >>> 32));
+      illnessType.add((int) (long) pairKey);
+    });
+
+    CodeDictionary vaccinationTypes = new CodeDictionary();
+    Map<Long, Integer> latestVaccinations = new HashMap<>();
+    try (Stream<Object[]> rows = stream("select p.id, v.typeCode, v.datePerformed from Patient p "
+        + "join p.medicalHistory m join m.vaccinations v where v.typeCode is not null")) {
+      rows.forEach(row -> {
+        int patientRow = Arrays.binarySearch(patientIds, (Integer) row[0]);
+        if (patientRow >= 0) {
+          latestVaccinations.merge(toPairKey(patientRow, vaccinationTypes.encode((Integer) row[1])),
+              toEpochDay((Date) row[2]), Math::max);
+        }
+      });
+    }
+    IntColumn vaccinationPatientRow = new IntColumn();
+    IntColumn vaccinationType = new IntColumn();
+    IntColumn vaccinationDay = new IntColumn();
+    latestVaccinations.forEach((pairKey, day) -> {
+      vaccinationPatientRow.add((int) (pairKey >>> 32));
+      vaccinationType.add((int) (long) pairKey);
+      vaccinationDay.add(day);
+    });
+
+    StringDictionary pharmacies = new StringDictionary();
+    IntColumn prescriptionPharmacy = new IntColumn();
+    IntColumn prescriptionDay = new IntColumn();
+    try (Stream<Object[]> rows = stream("select pr.preferredPharmacy, pr.lastPrescribed from Prescription pr")) {
+      rows.forEach(row -> {
+        prescriptionPharmacy.add(pharmacies.encode((String) row[0]));
+        prescriptionDay.add(toEpochDay((Date) row[1]));
+      });
+    }
+
+    return new PopulationSnapshot(snapshotTime, birthDayColumn.toArray(),
+        illnessPatientRow.toArray(), illnessType.toArray(), illnessTypes.toArray(),
+        vaccinationPatientRow.toArray(), vaccinationType.toArray(), vaccinationDay.toArray(),
+        vaccinationTypes.toArray(), prescriptionPharmacy.toArray(), prescriptionDay.toArray(),
+        pharmacies.toArray());
+  }
+
+  private String toLabel(final int code) {
+    String label = referenceDictionary.getLabel(code);
+    return label != null ? label : StringDictionary.UNKNOWN;
+  }
+
+  private Stream<Object[]> stream(final String jpql) {
+    return entityManager.createQuery(jpql, Object[].class)
+        .setHint("org.hibernate.fetchSize", FETCH_SIZE)
+        .setHint("org.hibernate.readOnly", true)
+        .getResultStream();
+  }
+
+  /**
+   * Counts rows per bucket in parallel, each worker filling its own array before they are summed.
+   * Rows mapped to a negative bucket are skipped.
+   */
+  private static int[] parallelCount(final int rows, final int buckets, final IntUnaryOperator bucketOfRow) {
+    return IntStream.range(0, rows).parallel().collect(() -> new int[buckets],
+        (counts, row) -> {
+          int bucket = bucketOfRow.applyAsInt(row);
+          if (bucket >= 0) {
+            counts[bucket]++;
+          }
+        },
+        (counts, otherCounts) -> {
+          for (int bucket = 0; bucket < buckets; bucket++) {
+            counts[bucket] += otherCounts[bucket];
+          }
+        });
+  }
+
+  private static int toAgeBand(final int birthDay, final long[] thresholds) {
+    if (birthDay == PopulationSnapshot.NO_DATE) {
+      return -1;
+    }
+    int band = 0;
+    while (band < thresholds.length && birthDay <= thresholds[band]) {
+      band++;
+    }
+    return band;
+  }
+
+  private static long toPairKey(final int patientRow, final int code) {
+    return ((long) patientRow << 32) | code;
+  }
+
+  private static int toEpochDay(final Date date) {
+    if (date == null) {
+      return PopulationSnapshot.NO_DATE;
+    }
+    return (int) Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault())
+        .toLocalDate().toEpochDay();
+  }
+}
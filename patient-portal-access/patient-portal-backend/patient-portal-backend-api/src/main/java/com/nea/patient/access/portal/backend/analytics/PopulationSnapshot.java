@@ -0,0 +1,57 @@
+package com.nea.patient.access.portal.backend.analytics;
+
+import java.util.Date;
+
+/**
+ * Immutable column-oriented copy of the fields the population analytics need. Every column is a
+ * primitive array, strings and reference codes are dictionary indexes and dates are epoch days, so
+ * aggregations scan contiguous memory without touching entities. Child rows reference patients by
+ * row index.
+ */
+final class PopulationSnapshot {
+
+  static final int NO_DATE = Integer.MIN_VALUE;
+
+  final Date snapshotTime;
+
+  final int[] patientBirthDay;
+
+  // One row per distinct (patient, illness type).
+  final int[] illnessPatientRow;
+  final int[] illnessType;
+  // Reference code of each illness type index.
+  final int[] illnessTypeCodes;
+
+  // One row per distinct (patient, vaccine type), holding the latest vaccination.
+  final int[] vaccinationPatientRow;
+  final int[] vaccinationType;
+  final int[] vaccinationDay;
+  final int[] vaccinationTypeCodes;
+
+  final int[] prescriptionPharmacy;
+  final int[] prescriptionDay;
+  final String[] pharmacies;
+
+  PopulationSnapshot(final Date snapshotTime, final int[] patientBirthDay,
+      final int[] illnessPatientRow, final int[] illnessType, final int[] illnessTypeCodes,
+      final int[] vaccinationPatientRow, final int[] vaccinationType, final int[] vaccinationDay,
+      final int[] vaccinationTypeCodes, final int[] prescriptionPharmacy,
+      final int[] prescriptionDay, final String[] pharmacies) {
+    this.snapshotTime = snapshotTime;
+    this.patientBirthDay = patientBirthDay;
+    this.illnessPatientRow = illnessPatientRow;
+    this.illnessType = illnessType;
+    this.illnessTypeCodes = illnessTypeCodes;
+    this.vaccinationPatientRow = vaccinationPatientRow;
+    this.vaccinationType = vaccinationType;
+    this.vaccinationDay = vaccinationDay;
+    this.vaccinationTypeCodes = vaccinationTypeCodes;
+    this.prescriptionPharmacy = prescriptionPharmacy;
+    this.prescriptionDay = prescriptionDay;
+    this.pharmacies = pharmacies;
+  }
+
+  int patientCount() {
+    return patientBirthDay.length;
+  }
+}
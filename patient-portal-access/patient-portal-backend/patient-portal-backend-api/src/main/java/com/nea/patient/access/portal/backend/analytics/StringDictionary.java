@@ -0,0 +1,30 @@
+package com.nea.patient.access.portal.backend.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for a string column, each distinct value is stored once and rows hold its
+ * int code.
+ */
+final class StringDictionary {
+
+  static final String UNKNOWN = "Unknown";
+
+  private final Map<String, Integer> codes = new HashMap<>();
+  private final List<String> values = new ArrayList<>();
+
+  int encode(final String value) {
+    String key = value == null || value.trim().isEmpty() ? UNKNOWN : value.trim();
+    return codes.computeIfAbsent(key, newValue -> {
+      values.add(newValue);
+      return values.size() - 1;
+    });
+  }
+
+  String[] toArray() {
+    return values.toArray(new String[0]);
+  }
+}
@@ -0,0 +1,67 @@
+package com.nea.patient.access.portal.backend.api;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.nea.patient.access.portal.backend.analytics.PopulationAnalytics;
+import com.nea.patient.access.portal.backend.api.model.IllnessPrevalenceResponse;
+import com.nea.patient.access.portal.backend.api.model.PrescriptionVolumeResponse;
+import com.nea.patient.access.portal.backend.api.model.VaccinationCoverageResponse;
+
+/**
+ * Population reports served from the analytics snapshot, so figures may lag writes by up to one
+ * refresh interval. Returns 503 until the first snapshot has been built.
+ */
+@RestController
+@RequestMapping("/api")
+public class AnalyticsController {
+
+  @Autowired
+  private PopulationAnalytics populationAnalytics;
+
+  @GetMapping(path = "/analytics/illness-prevalence",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<IllnessPrevalenceResponse> getIllnessPrevalence(
+      @RequestParam(value = "bandYears", defaultValue = "10") final int bandYears) {
+    if (bandYears <= 0) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    return toResponse(populationAnalytics.getIllnessPrevalence(bandYears));
+  }
+
+  @GetMapping(path = "/analytics/vaccination-coverage",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<VaccinationCoverageResponse> getVaccinationCoverage(
+      @RequestParam(value = "sinceDays", required = false) final Integer sinceDays) {
+    if (sinceDays != null && sinceDays < 0) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    LocalDate since = sinceDays != null ? LocalDate.now().minusDays(sinceDays) : null;
+    return toResponse(populationAnalytics.getVaccinationCoverage(since));
+  }
+
+  @GetMapping(path = "/analytics/prescription-volume",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<PrescriptionVolumeResponse> getPrescriptionVolume(
+      @RequestParam(value = "from", required = false) final LocalDate from,
+      @RequestParam(value = "to", required = false) final LocalDate to) {
+    if (from != null && to != null && from.isAfter(to)) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    return toResponse(populationAnalytics.getPrescriptionVolume(from, to));
+  }
+
+  private static <T> ResponseEntity<T> toResponse(final Optional<T> report) {
+    return report.map(ResponseEntity::ok)
+        .orElseGet(() -> new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE));
+  }
+}
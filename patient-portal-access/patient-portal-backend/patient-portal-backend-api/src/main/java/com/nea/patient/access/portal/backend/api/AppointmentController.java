@@ -0,0 +1,223 @@
+package com.nea.patient.access.portal.backend.api;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Optional;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.nea.patient.access.portal.backend.api.model.AppointmentBookingRequest;
+import com.nea.patient.access.portal.backend.api.model.AppointmentDayListEntry;
+import com.nea.patient.access.portal.backend.api.model.AppointmentDayListResponse;
+import com.nea.patient.access.portal.backend.api.model.AppointmentSlot;
+import com.nea.patient.access.portal.backend.audit.AuditAction;
+import com.nea.patient.access.portal.backend.audit.AuditLog;
+import com.nea.patient.access.portal.backend.cache.PatientDocumentCache;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.AppointmentRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.PatientRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ChangeEventType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.outbox.ChangeEventRecorder;
+import com.nea.patient.access.portal.backend.scheduling.AppointmentScheduler;
+import com.nea.patient.access.portal.backend.writebehind.WriteBehindQueue;
+import com.nea.patient.access.portal.backend.writebehind.WriteBehindQueueFullException;
+
+@RestController
+@RequestMapping("/api")
+public class AppointmentController {
+
+  private static final String WRITE_BEHIND_RETRY_AFTER_SECONDS = "5";
+
+  @Value("${patient.portal.appointments.day-list.max-page-size:200}")
+  private int dayListMaxPageSize;
+
+  @Autowired
+  private AppointmentScheduler appointmentScheduler;
+  @Autowired
+  private AppointmentRepository appointmentRepository;
+  @Autowired
+  private PatientRepository patientRepository;
+  @Autowired
+  private PatientDocumentCache patientDocumentCache;
+  @Autowired
+  private WriteBehindQueue writeBehindQueue;
+  @Autowired
+  private ChangeEventRecorder changeEventRecorder;
+  @Autowired
+  private AuditLog auditLog;
+
+  @GetMapping(path = "/appointments",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<AppointmentDayListResponse> getClinicianDayList(
+      @RequestParam(value = "clinician") final String clinician,
+      @RequestParam(value = "from", required = false)
+      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime from,
+      @RequestParam(value = "to", required = false)
+      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime to,
+      @RequestParam(value = "page", defaultValue = "0") final int page,
+      @RequestParam(value = "size", defaultValue = "50") final int size) {
+    // Defaults to the whole of today.
+    LocalDateTime rangeFrom = from != null ? from : LocalDate.now().atStartOfDay();
+    LocalDateTime rangeTo = to != null ? to : rangeFrom.toLocalDate().plusDays(1).atStartOfDay();
+    if (StringUtils.isBlank(clinician) || !rangeFrom.isBefore(rangeTo) || page < 0 || size <= 0
+        || size > dayListMaxPageSize) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    Slice<AppointmentDayListEntry> dayList = appointmentRepository.findDayList(clinician.trim(),
+        toDate(rangeFrom), toDate(rangeTo), PageRequest.of(page, size));
+    AppointmentDayListResponse dayListResponse = AppointmentDayListResponse.builder()
+        .appointments(dayList.getContent())
+        .page(page)
+        .size(size)
+        .hasMore(dayList.hasNext())
+        .build();
+    dayList.getContent().stream()
+        .map(AppointmentDayListEntry::getPatientId)
+        .distinct()
+        .forEach(patientId -> auditLog.record(patientId, AuditAction.VIEW));
+    return ResponseEntity.ok(dayListResponse);
+  }
+
+  @GetMapping(path = "/appointments/next-free-slot",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<AppointmentSlot> findNextFreeSlot(
+      @RequestParam(value = "clinician") final String clinician,
+      @RequestParam(value = "from", required = false)
+      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime from,
+      @RequestParam(value = "durationMinutes", required = false) final Integer durationMinutes) {
+    int slotDuration = durationMinutes != null ? durationMinutes : appointmentScheduler.getSlotMinutes();
+    if (StringUtils.isBlank(clinician) || slotDuration <= 0) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    Optional<LocalDateTime> freeSlot = appointmentScheduler.findNextFreeSlot(clinician.trim(),
+        from != null ? from : LocalDateTime.now(), slotDuration);
+    if (!freeSlot.isPresent()) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    AppointmentSlot appointmentSlot = AppointmentSlot.builder()
+        .clinician(clinician.trim())
+        .start(toDate(freeSlot.get()))
+        .end(toDate(freeSlot.get().plusMinutes(slotDuration)))
+        .build();
+    return ResponseEntity.ok(appointmentSlot);
+  }
+
+  @PostMapping(path = "/appointments",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  @Transactional
+  public ResponseEntity<Appointment> bookAppointment(
+      @RequestBody final AppointmentBookingRequest bookingRequest) {
+    int durationMinutes = bookingRequest.getDurationMinutes() != null
+        ? bookingRequest.getDurationMinutes() : appointmentScheduler.getSlotMinutes();
+    if (bookingRequest.getPatientId() == null || StringUtils.isBlank(bookingRequest.getClinician())
+        || bookingRequest.getStart() == null || !appointmentScheduler.isWithinWorkingHours(
+            toLocalDateTime(bookingRequest.getStart()), durationMinutes)) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    Optional<Patient> patient = patientRepository.findById(bookingRequest.getPatientId());
+    if (!patient.isPresent()) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    Appointment appointment = Appointment.builder()
+        .scheduledWith(bookingRequest.getClinician().trim())
+        .datetime(bookingRequest.getStart())
+        .durationMinutes(durationMinutes)
+        .attended(false)
+        .cancelled(false)
+        .build();
+    if (!appointmentScheduler.book(patient.get(), appointment)) {
+      return new ResponseEntity<>(HttpStatus.CONFLICT);
+    }
+    changeEventRecorder.record(ChangeEventType.PATIENT_UPDATED, patient.get());
+    patientDocumentCache.refreshAfterCommit(patient.get().getId());
+    auditLog.recordAfterCommit(patient.get().getId(), AuditAction.UPDATE);
+    return new ResponseEntity<>(appointment, HttpStatus.CREATED);
+  }
+
+  @PostMapping(path = "/appointments/{id}/cancel",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  @Transactional
+  public ResponseEntity<Appointment> cancelAppointment(@PathVariable("id") final Integer id) {
+    Optional<Appointment> appointment = appointmentRepository.findById(id);
+    if (!appointment.isPresent()) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    appointment.get().setCancelled(true);
+    appointmentScheduler.releaseAfterCommit(id);
+    appointmentRepository.findPatientIdByAppointmentId(id).ifPresent(patientId -> {
+      recordPatientUpdated(patientId);
+      patientDocumentCache.refreshAfterCommit(patientId);
+      auditLog.recordAfterCommit(patientId, AuditAction.UPDATE);
+    });
+    return ResponseEntity.ok(appointment.get());
+  }
+
+  @PostMapping(path = "/appointments/{id}/attend",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  @Transactional
+  public ResponseEntity<Void> markAppointmentAttended(@PathVariable("id") final Integer id) {
+    Optional<Integer> patientId = appointmentRepository.findPatientIdByAppointmentId(id);
+    if (!patientId.isPresent()) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    if (writeBehindQueue.isEnabled()) {
+      writeBehindQueue.enqueueAttendance(patientId.get(), id);
+      auditLog.record(patientId.get(), AuditAction.UPDATE);
+      return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+    appointmentRepository.findById(id).ifPresent(appointment -> appointment.setAttended(true));
+    recordPatientUpdated(patientId.get());
+    patientDocumentCache.refreshAfterCommit(patientId.get());
+    auditLog.recordAfterCommit(patientId.get(), AuditAction.UPDATE);
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  /**
+   * Attendance flags are refused while the write-behind queue is full.
+   */
+  @ExceptionHandler(WriteBehindQueueFullException.class)
+  public ResponseEntity<Void> handleWriteBehindQueueFull() {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, WRITE_BEHIND_RETRY_AFTER_SECONDS)
+        .build();
+  }
+
+  private void recordPatientUpdated(final Integer patientId) {
+    patientRepository.findById(patientId).ifPresent(patient ->
+        changeEventRecorder.record(ChangeEventType.PATIENT_UPDATED, patient));
+  }
+
+  private static LocalDateTime toLocalDateTime(final Date date) {
+    return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+  }
+
+  private static Date toDate(final LocalDateTime dateTime) {
+    return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+  }
+}
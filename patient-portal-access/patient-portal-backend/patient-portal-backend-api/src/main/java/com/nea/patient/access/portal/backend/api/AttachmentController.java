@@ -0,0 +1,273 @@
+package com.nea.patient.access.portal.backend.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.nea.patient.access.portal.backend.api.model.AttachmentListResponse;
+import com.nea.patient.access.portal.backend.attachments.AttachmentStore;
+import com.nea.patient.access.portal.backend.attachments.AttachmentTooLargeException;
+import com.nea.patient.access.portal.backend.audit.AuditAction;
+import com.nea.patient.access.portal.backend.audit.AuditLog;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.AttachmentRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.PatientRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.AttachmentOwnerType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Attachment;
+
+/**
+ * Scan and image attachments of test results and operations.
+ * <p>
+ * Uploads are the raw document as the request body, named by the {@code fileName} parameter and
+ * typed by the request content type. The body is streamed into the {@link AttachmentStore}, never
+ * held in memory. Downloads honour a single byte range and use the content hash as a strong ETag.
+ * The content type is the uploader's, so only PDFs and raster images are served inline under their
+ * own type; anything else is served as an {@code application/octet-stream} download, and sniffing
+ * is turned off, so an uploaded page or script never runs in the portal's origin.
+ * Under Tomcat the file is handed to the connector's sendfile support, which writes it to the
+ * socket with {@code FileChannel.transferTo}, elsewhere it is transferred to the response stream.
+ */
+@RestController
+@RequestMapping("/api")
+public class AttachmentController {
+
+  private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+  // Below this a plain write is cheaper than handing the file to the poller, as Tomcat's own
+  // DefaultServlet does.
+  private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+  private static final String BYTES_UNIT = "bytes";
+  private static final String NO_SNIFF = "nosniff";
+  private static final Set<String> INLINE_CONTENT_TYPES = new HashSet<>(Arrays.asList(
+      MediaType.APPLICATION_PDF_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_JPEG_VALUE,
+      MediaType.IMAGE_GIF_VALUE, "image/bmp", "image/tiff", "image/webp"));
+
+  @Autowired
+  private AttachmentStore attachmentStore;
+  @Autowired
+  private AttachmentRepository attachmentRepository;
+  @Autowired
+  private PatientRepository patientRepository;
+  @Autowired
+  private AuditLog auditLog;
+
+  @GetMapping(path = "/test-results/{id}/attachments",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<AttachmentListResponse> getTestResultAttachments(@PathVariable("id") final Integer id) {
+    return getAttachments(AttachmentOwnerType.TEST_RESULT, id);
+  }
+
+  @GetMapping(path = "/operations/{id}/attachments",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<AttachmentListResponse> getOperationAttachments(@PathVariable("id") final Integer id) {
+    return getAttachments(AttachmentOwnerType.OPERATION, id);
+  }
+
+  @PostMapping(path = "/test-results/{id}/attachments",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<Attachment> uploadTestResultAttachment(@PathVariable("id") final Integer id,
+      @RequestParam("fileName") final String fileName, final HttpServletRequest request) throws IOException {
+    return upload(AttachmentOwnerType.TEST_RESULT, id, fileName, request);
+  }
+
+  @PostMapping(path = "/operations/{id}/attachments",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<Attachment> uploadOperationAttachment(@PathVariable("id") final Integer id,
+      @RequestParam("fileName") final String fileName, final HttpServletRequest request) throws IOException {
+    return upload(AttachmentOwnerType.OPERATION, id, fileName, request);
+  }
+
+  @GetMapping(path = "/attachments/{id}/content")
+  public void getAttachmentContent(@PathVariable("id") final Integer id, final HttpServletRequest request,
+      final HttpServletResponse response) throws IOException {
+    Optional<Attachment> attachment = attachmentRepository.findById(id);
+    Path file = attachment.map(found -> attachmentStore.resolve(found.getContentHash())).orElse(null);
+    if (file == null || !Files.exists(file)) {
+      response.sendError(HttpStatus.NOT_FOUND.value());
+      return;
+    }
+    String etag = "\"" + attachment.get().getContentHash() + "\"";
+    response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+    // Sets the ETag, and answers 304 when it matches If-None-Match.
+    if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+      return;
+    }
+
+    long length = Files.size(file);
+    long start = 0;
+    long end = length - 1;
+    List<HttpRange> ranges = parseRanges(request, etag);
+    if (ranges == null) {
+      response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + length);
+      response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+      return;
+    }
+    // Several ranges would need a multipart body, they are answered with the whole document.
+    if (ranges.size() == 1) {
+      start = ranges.get(0).getRangeStart(length);
+      end = ranges.get(0).getRangeEnd(length);
+      if (start >= length || start > end) {
+        response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + length);
+        response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        return;
+      }
+      response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+      response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " " + start + "-" + end + "/" + length);
+    }
+    // Viewers fetch large documents in several ranges, only the request for the start is audited.
+    if (start == 0) {
+      auditLog.record(attachment.get().getPatientId(), AuditAction.VIEW);
+    }
+    long count = end - start + 1;
+    String inlineContentType = toInlineContentType(attachment.get().getContentType());
+    response.setContentType(inlineContentType != null ? inlineContentType
+        : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    response.setContentLengthLong(count);
+    response.setHeader("X-Content-Type-Options", NO_SNIFF);
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+        ContentDisposition.builder(inlineContentType != null ? "inline" : "attachment")
+            .filename(attachment.get().getFileName(), StandardCharsets.UTF_8)
+            .build()
+            .toString());
+    if (HttpMethod.HEAD.matches(request.getMethod()) || count == 0) {
+      return;
+    }
+
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE)) && count >= SENDFILE_MIN_BYTES) {
+      request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.toFile().getCanonicalPath());
+      request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+      request.setAttribute(SENDFILE_END_ATTRIBUTE, end + 1);
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+      long position = start;
+      long remaining = count;
+      while (remaining > 0) {
+        long transferred = channel.transferTo(position, remaining, output);
+        position += transferred;
+        remaining -= transferred;
+      }
+    }
+  }
+
+  private ResponseEntity<AttachmentListResponse> getAttachments(final AttachmentOwnerType ownerType,
+      final Integer ownerId) {
+    Integer patientId = findPatientId(ownerType, ownerId);
+    if (patientId == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    auditLog.record(patientId, AuditAction.VIEW);
+    return ResponseEntity.ok(AttachmentListResponse.builder()
+        .attachments(attachmentRepository.findByOwnerTypeAndOwnerIdOrderByIdAsc(ownerType, ownerId))
+        .build());
+  }
+
+  private ResponseEntity<Attachment> upload(final AttachmentOwnerType ownerType, final Integer ownerId,
+      final String fileName, final HttpServletRequest request) throws IOException {
+    String baseName = new File(StringUtils.defaultString(fileName)).getName();
+    if (StringUtils.isBlank(baseName)) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    // Checked before the body is read, so a client sending Expect: 100-continue never uploads it.
+    Integer patientId = findPatientId(ownerType, ownerId);
+    if (patientId == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    if (request.getContentLengthLong() > attachmentStore.getMaxSizeBytes()) {
+      return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    AttachmentStore.StoredContent content;
+    try {
+      content = attachmentStore.store(request.getInputStream());
+    } catch (AttachmentTooLargeException e) {
+      return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+    Attachment attachment = attachmentRepository.save(Attachment.builder()
+        .ownerType(ownerType)
+        .ownerId(ownerId)
+        .patientId(patientId)
+        .fileName(baseName)
+        .contentType(StringUtils.defaultIfBlank(request.getContentType(), MediaType.APPLICATION_OCTET_STREAM_VALUE))
+        .contentHash(content.getHash())
+        .size(content.getSize())
+        .uploadedAt(new Date())
+        .build());
+    auditLog.record(patientId, AuditAction.UPDATE);
+    return new ResponseEntity<>(attachment, HttpStatus.CREATED);
+  }
+
+  private Integer findPatientId(final AttachmentOwnerType ownerType, final Integer ownerId) {
+    return ownerType == AttachmentOwnerType.TEST_RESULT
+        ? patientRepository.findIdByTestResultId(ownerId)
+        : patientRepository.findIdByOperationId(ownerId);
+  }
+
+  /**
+   * The stored type without parameters if it may be shown inline, {@code null} otherwise.
+   */
+  private static String toInlineContentType(final String contentType) {
+    try {
+      MediaType mediaType = MediaType.parseMediaType(contentType);
+      String type = mediaType.getType() + "/" + mediaType.getSubtype();
+      return INLINE_CONTENT_TYPES.contains(type) ? type : null;
+    } catch (InvalidMediaTypeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Ranges requested, empty to send the whole document, {@code null} if the Range header is malformed.
+   */
+  private static List<HttpRange> parseRanges(final HttpServletRequest request, final String etag) {
+    String range = request.getHeader(HttpHeaders.RANGE);
+    String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    // A range against another version of the document is ignored.
+    if (range == null || (ifRange != null && !ifRange.equals(etag))) {
+      return Collections.emptyList();
+    }
+    try {
+      return HttpRange.parseRanges(range);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.nea.patient.access.portal.backend.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.Illness;
+import com.nea.patient.access.portal.backend.jpa.domain.model.MedicalHistory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Operation;
+import com.nea.patient.access.portal.backend.jpa.domain.model.TestResult;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Vaccination;
+
+/**
+ * Copies an edited medical history onto the patient's managed one. Rows are matched by id within
+ * the patient's own history, so existing rows keep their identity and an id naming another
+ * patient's row is treated as a new row rather than pulled into this patient.
+ */
+final class MedicalHistoryMerge {
+
+  private MedicalHistoryMerge() {
+  }
+
+  static void merge(final MedicalHistory managed, final MedicalHistory update) {
+    managed.setAllergies(update.getAllergies());
+    mergeRows(managed.getVaccinations(), update.getVaccinations(), Vaccination::getId,
+        Vaccination::setId, (row, edit) -> {
+          row.setTypeCode(edit.getTypeCode());
+          row.setLocation(edit.getLocation());
+          row.setDatePerformed(edit.getDatePerformed());
+        });
+    mergeRows(managed.getOperations(), update.getOperations(), Operation::getId,
+        Operation::setId, (row, edit) -> {
+          row.setDescription(edit.getDescription());
+          row.setLocation(edit.getLocation());
+          row.setPerformedBy(edit.getPerformedBy());
+          row.setAnesthesia(edit.getAnesthesia());
+          row.setDateOfOperation(edit.getDateOfOperation());
+        });
+    mergeRows(managed.getTestResults(), update.getTestResults(), TestResult::getId,
+        TestResult::setId, (row, edit) -> {
+          row.setTypeCode(edit.getTypeCode());
+          row.setAdditionalNotes(edit.getAdditionalNotes());
+          row.setDateOfTest(edit.getDateOfTest());
+        });
+    mergeRows(managed.getIllnesses(), update.getIllnesses(), Illness::getId,
+        Illness::setId, (row, edit) -> {
+          row.setTypeCode(edit.getTypeCode());
+          row.setSeverity(edit.getSeverity());
+          row.setLastReviewed(edit.getLastReviewed());
+          row.setDiagnosedDate(edit.getDiagnosedDate());
+        });
+  }
+
+  private static <T> void mergeRows(final List<T> managedRows, final List<T> editedRows,
+      final Function<T, Integer> getId, final BiConsumer<T, Integer> setId,
+      final BiConsumer<T, T> copy) {
+    Map<Integer, T> managedRowsById = managedRows.stream()
+        .collect(Collectors.toMap(getId, Function.identity()));
+    List<T> mergedRows = new ArrayList<>();
+    if (editedRows != null) {
+      for (T editedRow : editedRows) {
+        T managedRow = managedRowsById.remove(getId.apply(editedRow));
+        if (managedRow != null) {
+          copy.accept(managedRow, editedRow);
+          mergedRows.add(managedRow);
+        } else {
+          setId.accept(editedRow, null);
+          mergedRows.add(editedRow);
+        }
+      }
+    }
+    // Rows left out of the edit are deleted as orphans.
+    managedRows.clear();
+    managedRows.addAll(mergedRows);
+  }
+}
@@ -0,0 +1,28 @@
+package com.nea.patient.access.portal.backend.api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.nea.patient.access.portal.backend.api.model.OutboxStatus;
+import com.nea.patient.access.portal.backend.outbox.OutboxRelay;
+
+@RestController
+@RequestMapping("/api")
+public class OutboxController {
+
+  @Autowired
+  private OutboxRelay outboxRelay;
+
+  /**
+   * Backlog and publish latency of the change event relay.
+   */
+  @GetMapping(path = "/outbox/status",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<OutboxStatus> getOutboxStatus() {
+    return ResponseEntity.ok(outboxRelay.getStatus());
+  }
+}
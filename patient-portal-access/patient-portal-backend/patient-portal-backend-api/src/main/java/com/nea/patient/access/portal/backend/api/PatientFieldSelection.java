@@ -0,0 +1,141 @@
+package com.nea.patient.access.portal.backend.api;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.BeanUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+/**
+ * Sparse fieldset of top level {@code Patient} properties requested through the {@code fields}
+ * parameter. The selection decides what is queried: the selected columns are read in one
+ * projection, and each selected association in a query of its own, so associations that were not
+ * asked for are never loaded, not even the eagerly mapped one-to-ones.
+ */
+public final class PatientFieldSelection {
+
+  private static final String ID_FIELD = "id";
+  private static final Set<String> PATIENT_FIELDS = Collections.unmodifiableSet(
+      Arrays.stream(BeanUtils.getPropertyDescriptors(Patient.class))
+          .filter(propertyDescriptor -> propertyDescriptor.getReadMethod() != null
+              && propertyDescriptor.getWriteMethod() != null)
+          .map(PropertyDescriptor::getName)
+          .collect(Collectors.toSet()));
+  // The @OrderBy of each patient collection, in JPQL.
+  private static final Map<String, String> COLLECTION_ORDER = new HashMap<>();
+
+  static {
+    COLLECTION_ORDER.put("notes", "created desc");
+    COLLECTION_ORDER.put("prescriptions", "lastPrescribed desc");
+    COLLECTION_ORDER.put("appointments", "datetime desc");
+  }
+
+  private final Set<String> fields;
+
+  private PatientFieldSelection(final Set<String> fields) {
+    this.fields = fields;
+  }
+
+  /**
+   * Parses a comma separated list of patient property names. The patient id is always included.
+   *
+   * @throws IllegalArgumentException if a name is not a patient property
+   */
+  public static PatientFieldSelection parse(final String fieldsParameter) {
+    Set<String> fields = new LinkedHashSet<>();
+    fields.add(ID_FIELD);
+    for (String field : StringUtils.split(fieldsParameter, ',')) {
+      String trimmedField = field.trim();
+      if (!PATIENT_FIELDS.contains(trimmedField)) {
+        throw new IllegalArgumentException("Unknown patient field: " + trimmedField);
+      }
+      fields.add(trimmedField);
+    }
+    return new PatientFieldSelection(fields);
+  }
+
+  /**
+   * Loads the selected fields of the patients, in the order of {@code ids}. Ids without a patient
+   * are left out.
+   */
+  public List<ObjectNode> load(final EntityManager entityManager, final ObjectMapper objectMapper,
+      final Collection<Integer> ids) {
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+    EntityType<Patient> patientType = entityManager.getMetamodel().entity(Patient.class);
+    List<String> columns = new ArrayList<>();
+    List<String> associations = new ArrayList<>();
+    List<String> collections = new ArrayList<>();
+    for (String field : fields) {
+      Attribute<? super Patient, ?> attribute = patientType.getAttribute(field);
+      if (attribute.isCollection()) {
+        collections.add(field);
+      } else if (attribute.isAssociation()) {
+        associations.add(field);
+      } else {
+        columns.add(field);
+      }
+    }
+
+    Map<Integer, ObjectNode> patientNodes = new HashMap<>();
+    String columnList = columns.stream().map(column -> "p." + column).collect(Collectors.joining(", "));
+    // A tuple query, as the selection may be the id alone.
+    for (Tuple row : entityManager.createQuery("select " + columnList + " from Patient p where p.id in :ids",
+        Tuple.class).setParameter("ids", ids).getResultList()) {
+      // Fields in the requested order, filled in as the queries below return.
+      ObjectNode patientNode = objectMapper.createObjectNode();
+      fields.forEach(field -> patientNode.set(field, NullNode.getInstance()));
+      for (int index = 0; index < columns.size(); index++) {
+        patientNode.set(columns.get(index), objectMapper.valueToTree(row.get(index)));
+      }
+      patientNodes.put(patientNode.get(ID_FIELD).asInt(), patientNode);
+    }
+    if (patientNodes.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    for (String association : associations) {
+      for (Object[] row : entityManager.createQuery("select p.id, a from Patient p join p." + association
+          + " a where p.id in :ids", Object[].class).setParameter("ids", patientNodes.keySet()).getResultList()) {
+        patientNodes.get((Integer) row[0]).set(association, objectMapper.valueToTree(row[1]));
+      }
+    }
+    for (String collection : collections) {
+      Map<Integer, ArrayNode> elements = new LinkedHashMap<>();
+      patientNodes.forEach((id, patientNode) -> elements.put(id, patientNode.putArray(collection)));
+      String order = COLLECTION_ORDER.containsKey(collection) ? ", c." + COLLECTION_ORDER.get(collection) : "";
+      for (Object[] row : entityManager.createQuery("select p.id, c from Patient p join p." + collection
+          + " c where p.id in :ids order by p.id" + order, Object[].class)
+          .setParameter("ids", patientNodes.keySet()).getResultList()) {
+        elements.get((Integer) row[0]).add(objectMapper.valueToTree(row[1]));
+      }
+    }
+
+    return ids.stream()
+        .map(patientNodes::get)
+        .filter(patientNode -> patientNode != null)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,186 @@
+package com.nea.patient.access.portal.backend.api;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.nea.patient.access.portal.backend.api.model.ThumbnailSize;
+import com.nea.patient.access.portal.backend.attachments.AttachmentStore;
+import com.nea.patient.access.portal.backend.attachments.AttachmentTooLargeException;
+import com.nea.patient.access.portal.backend.audit.AuditAction;
+import com.nea.patient.access.portal.backend.audit.AuditLog;
+import com.nea.patient.access.portal.backend.cache.PatientDocumentCache;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.PatientRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ChangeEventType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.outbox.ChangeEventRecorder;
+import com.nea.patient.access.portal.backend.photos.PhotoThumbnails;
+
+/**
+ * Patient photos. The photo is uploaded as the raw image body and kept in the
+ * {@link AttachmentStore}, its thumbnails are generated in the background by
+ * {@link PhotoThumbnails}.
+ */
+@RestController
+@RequestMapping("/api")
+public class PatientPhotoController {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PatientPhotoController.class);
+
+  // The formats the client's image chooser offers.
+  private static final List<MediaType> PHOTO_MEDIA_TYPES = Arrays.asList(
+      MediaType.IMAGE_JPEG, MediaType.IMAGE_PNG, MediaType.IMAGE_GIF);
+  private static final String RETRY_AFTER_SECONDS = "1";
+
+  @Value("${patient.portal.photos.max-size-bytes:20971520}")
+  private long maxSizeBytes;
+
+  @Autowired
+  private PatientRepository patientRepository;
+  @Autowired
+  private AttachmentStore attachmentStore;
+  @Autowired
+  private PhotoThumbnails photoThumbnails;
+  @Autowired
+  private PatientDocumentCache patientDocumentCache;
+  @Autowired
+  private ChangeEventRecorder changeEventRecorder;
+  @Autowired
+  private AuditLog auditLog;
+
+  private final TransactionTemplate transactionTemplate;
+
+  public PatientPhotoController(final PlatformTransactionManager transactionManager) {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Replaces the patient's photo and returns the patient at its new version.
+   */
+  @PutMapping(path = "/patients/{id}/photo",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<Patient> updatePatientPhoto(@PathVariable("id") final Integer id,
+      final HttpServletRequest request) throws IOException {
+    if (!isPhotoMediaType(request.getContentType())) {
+      return new ResponseEntity<>(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+    if (!patientRepository.existsById(id)) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    if (request.getContentLengthLong() > maxSizeBytes) {
+      return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    // Streamed to the store outside the transaction, so a slow upload holds no connection.
+    String photoHash;
+    try {
+      photoHash = attachmentStore.store(request.getInputStream(), maxSizeBytes).getHash();
+    } catch (AttachmentTooLargeException e) {
+      return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+    if (!photoThumbnails.isSupportedImage(photoHash)) {
+      return new ResponseEntity<>(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+
+    Optional<Patient> savedPatient = transactionTemplate.execute(status ->
+        patientRepository.findById(id).map(patient -> {
+          patient.setPhotoHash(photoHash);
+          Patient saved = patientRepository.save(patient);
+          changeEventRecorder.record(ChangeEventType.PATIENT_UPDATED, saved);
+          auditLog.recordAfterCommit(id, AuditAction.UPDATE);
+          patientDocumentCache.refreshAfterCommit(id);
+          generateThumbnailsAfterCommit(photoHash);
+          return saved;
+        }));
+    return savedPatient.map(ResponseEntity::ok)
+        .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  }
+
+  /**
+   * JPEG thumbnail of the patient's photo. Answers 503 while the thumbnail cannot be generated in
+   * time, clients are expected to retry.
+   */
+  @GetMapping(path = "/patients/{id}/photo/thumbnails/{size}")
+  public ResponseEntity<byte[]> getPatientPhotoThumbnail(@PathVariable("id") final Integer id,
+      @PathVariable("size") final String size, final WebRequest request) throws IOException {
+    ThumbnailSize thumbnailSize;
+    try {
+      thumbnailSize = ThumbnailSize.valueOf(size.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    String photoHash = patientRepository.findPhotoHashById(id);
+    if (photoHash == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    String etag = "\"" + photoHash + "-" + thumbnailSize.name().toLowerCase(Locale.ROOT) + "\"";
+    if (request.checkNotModified(etag)) {
+      return null;
+    }
+
+    Optional<byte[]> thumbnail;
+    try {
+      thumbnail = photoThumbnails.getThumbnail(photoHash, thumbnailSize);
+    } catch (RejectedExecutionException | TimeoutException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+          .build();
+    }
+    return thumbnail.map(bytes -> ResponseEntity.ok()
+        .contentType(MediaType.IMAGE_JPEG)
+        .eTag(etag)
+        .cacheControl(CacheControl.noCache().cachePrivate())
+        .body(bytes))
+        .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+  }
+
+  private static boolean isPhotoMediaType(final String contentType) {
+    try {
+      MediaType mediaType = MediaType.parseMediaType(contentType);
+      return PHOTO_MEDIA_TYPES.stream().anyMatch(photoMediaType -> photoMediaType.includes(mediaType));
+    } catch (InvalidMediaTypeException e) {
+      return false;
+    }
+  }
+
+  private void generateThumbnailsAfterCommit(final String photoHash) {
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        try {
+          photoThumbnails.generate(photoHash);
+        } catch (RejectedExecutionException e) {
+          // Generated on the first thumbnail request instead.
+          LOGGER.info("Thumbnail queue full, deferring thumbnails of photo {}", photoHash);
+        }
+      }
+    });
+  }
+}
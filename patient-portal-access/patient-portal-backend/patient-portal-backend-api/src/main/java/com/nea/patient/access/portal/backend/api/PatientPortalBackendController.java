@@ -1,78 +1,464 @@
 package com.nea.patient.access.portal.backend.api;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nea.patient.access.portal.backend.api.model.MedicalHistoryUpdateRequest;
+import com.nea.patient.access.portal.backend.api.model.PatientArchiveResponse;
+import com.nea.patient.access.portal.backend.api.model.PatientBatchGetRequest;
+import com.nea.patient.access.portal.backend.api.model.PatientBatchGetResponse;
 import com.nea.patient.access.portal.backend.api.model.PatientSearchResponse;
+import com.nea.patient.access.portal.backend.api.model.PatientTimelineResponse;
+import com.nea.patient.access.portal.backend.archive.PatientArchive;
+import com.nea.patient.access.portal.backend.audit.AuditAction;
+import com.nea.patient.access.portal.backend.audit.AuditLog;
+import com.nea.patient.access.portal.backend.cache.PatientDocument;
+import com.nea.patient.access.portal.backend.cache.PatientDocumentCache;
 import com.nea.patient.access.portal.backend.jpa.domain.dao.PatientRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ArchivedEntryType;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ChangeEventType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.MedicalHistory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
 import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.outbox.ChangeEventRecorder;
+import com.nea.patient.access.portal.backend.reference.ReferenceDictionary;
+import com.nea.patient.access.portal.backend.scheduling.AppointmentScheduler;
+import com.nea.patient.access.portal.backend.timeline.PatientTimelineService;
+import com.nea.patient.access.portal.backend.timeline.TimelineCursor;
+import com.nea.patient.access.portal.backend.writebehind.WriteBehindQueue;
+import com.nea.patient.access.portal.backend.writebehind.WriteBehindQueueFullException;
 
 @RestController
 @RequestMapping("/api")
 public class PatientPortalBackendController {
 
+  private static final String GZIP_ENCODING = "gzip";
+  private static final String WRITE_BEHIND_RETRY_AFTER_SECONDS = "5";
+  // Not 409, which on these endpoints means the patient version is stale and the client should
+  // merge and retry; resubmitting cannot resolve a double booking.
+  private static final HttpStatus APPOINTMENT_CONFLICT_STATUS = HttpStatus.UNPROCESSABLE_ENTITY;
+
+  @Value("${patient.portal.batch-get.max-ids:100}")
+  private int batchGetMaxIds;
+  @Value("${patient.portal.search.max-page-size:500}")
+  private int searchMaxPageSize;
+  @Value("${patient.portal.timeline.max-limit:200}")
+  private int timelineMaxLimit;
+  @Value("${patient.portal.archive.max-page-size:100}")
+  private int archiveMaxPageSize;
+
   @Autowired
   private PatientRepository patientRepository;
+  @Autowired
+  private PatientDocumentCache patientDocumentCache;
+  @Autowired
+  private ObjectMapper objectMapper;
+  @Autowired
+  private AppointmentScheduler appointmentScheduler;
+  @Autowired
+  private PatientTimelineService patientTimelineService;
+  @Autowired
+  private PatientArchive patientArchive;
+  @Autowired
+  private ReferenceDictionary referenceDictionary;
+  @Autowired
+  private WriteBehindQueue writeBehindQueue;
+  @Autowired
+  private ChangeEventRecorder changeEventRecorder;
+  @Autowired
+  private AuditLog auditLog;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @GetMapping(path = "/patients/{id}",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<?> getPatientById(@PathVariable("id") final Integer id,
+      @RequestParam(value = "fields", required = false) final String fields,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding) {
+    if (StringUtils.isNotBlank(fields)) {
+      // Partial documents are rendered per request from the entity, the render cache only holds
+      // full patients.
+      Optional<PatientFieldSelection> fieldSelection = parseFieldSelection(fields);
+      if (!fieldSelection.isPresent()) {
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+      }
+      List<ObjectNode> patientNodes = fieldSelection.get().load(entityManager, objectMapper,
+          Collections.singletonList(id));
+      if (patientNodes.isEmpty()) {
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+      }
+      auditLog.record(id, AuditAction.VIEW);
+      return ResponseEntity.ok(patientNodes.get(0));
+    }
 
-  @GetMapping(path = "/patients/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<Patient> getPatientById(@PathVariable("id") final Integer id) {
-    Optional<Patient> patientById = patientRepository.findById(id);
+    Optional<PatientDocument> patientDocument = patientDocumentCache.getDocument(id);
 
-    if (patientById.isPresent()) {
-      return ResponseEntity.ok(patientById.get());
+    if (patientDocument.isPresent()) {
+      auditLog.record(id, AuditAction.VIEW);
+      // Served from pre-serialised bytes, so the encoding is negotiated here rather than by a
+      // message converter.
+      boolean cborPreferred = isCborPreferred(accept);
+      byte[] document = cborPreferred ? patientDocument.get().getCbor() : patientDocument.get().getJson();
+      byte[] compressedDocument = cborPreferred ? patientDocument.get().getCborGzip()
+          : patientDocument.get().getJsonGzip();
+
+      ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+          .contentType(cborPreferred ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON)
+          .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+      if (compressedDocument != null && StringUtils.containsIgnoreCase(acceptEncoding, GZIP_ENCODING)) {
+        return response.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING).body(compressedDocument);
+      }
+      return response.body(document);
     } else {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
   }
 
-  @GetMapping(path = "/patients/search", produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<PatientSearchResponse> seachPatients(
+  @GetMapping(path = "/patients/search",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<?> seachPatients(
       @RequestParam(value = "dateOfBirth") @DateTimeFormat(pattern = "dd-MM-yyyy") final Date dateOfBirth,
-      @RequestParam(value = "lastName", required = false) final String lastName) {
+      @RequestParam(value = "lastName", required = false) final String lastName,
+      @RequestParam(value = "fields", required = false) final String fields,
+      @RequestParam(value = "page", required = false) final Integer page,
+      @RequestParam(value = "size", required = false) final Integer size) {
+    // Without a size every match is returned, as before paging was added.
+    boolean paged = size != null;
+    if (paged && (size <= 0 || size > searchMaxPageSize || (page != null && page < 0))) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    Optional<PatientFieldSelection> fieldSelection = Optional.empty();
+    if (StringUtils.isNotBlank(fields)) {
+      fieldSelection = parseFieldSelection(fields);
+      if (!fieldSelection.isPresent()) {
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+      }
+    }
+
+    if (fieldSelection.isPresent()) {
+      return searchPatientFields(fieldSelection.get(), dateOfBirth, lastName, paged, page, size);
+    }
+
     List<Patient> patients = new ArrayList<>();
-    if (StringUtils.isNotBlank(lastName)) {
+    Page<Patient> patientPage = null;
+    if (paged) {
+      PageRequest pageRequest = PageRequest.of(page != null ? page : 0, size,
+          Sort.by("surname", "firstName", "id"));
+      patientPage = StringUtils.isNotBlank(lastName)
+          ? patientRepository.findByDateOfBirthAndSurname(dateOfBirth, lastName, pageRequest)
+          : patientRepository.findByDateOfBirth(dateOfBirth, pageRequest);
+      patients = patientPage.getContent();
+    } else if (StringUtils.isNotBlank(lastName)) {
       patients = patientRepository.findByDateOfBirthAndSurname(dateOfBirth,
           lastName);
     } else {
       patients = patientRepository.findByDateOfBirth(dateOfBirth);
     }
-    PatientSearchResponse searchResponse = PatientSearchResponse.builder()
-        .patients(patients).build();
-    return ResponseEntity.ok(searchResponse);
+    patients.forEach(patient -> auditLog.record(patient.getId(), AuditAction.VIEW));
+    PatientSearchResponse.PatientSearchResponseBuilder searchResponse = PatientSearchResponse.builder()
+        .patients(patients);
+    if (patientPage != null) {
+      searchResponse.page(patientPage.getNumber())
+          .size(patientPage.getSize())
+          .total(patientPage.getTotalElements());
+    }
+    return ResponseEntity.ok(searchResponse.build());
+  }
+
+  @PostMapping(path = "/patients/batch-get",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<PatientBatchGetResponse> batchGetPatients(
+      @RequestBody final PatientBatchGetRequest batchGetRequest) {
+    List<Integer> requestedIds = batchGetRequest.getIds();
+    if (requestedIds == null || requestedIds.isEmpty() || requestedIds.size() > batchGetMaxIds) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    Map<Integer, Patient> patientsById = new HashMap<>();
+    patientRepository.findAllByIdIn(new HashSet<>(requestedIds))
+        .forEach(patient -> patientsById.put(patient.getId(), patient));
+
+    PatientBatchGetResponse batchGetResponse = PatientBatchGetResponse.builder().build();
+    new LinkedHashSet<>(requestedIds).forEach(id -> {
+      Patient patient = patientsById.get(id);
+      if (patient != null) {
+        auditLog.record(id, AuditAction.VIEW);
+        batchGetResponse.getPatients().add(patient);
+      } else {
+        batchGetResponse.getMissingIds().add(id);
+      }
+    });
+    return ResponseEntity.ok(batchGetResponse);
+  }
+
+  @PostMapping(path = "/patients",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  @Transactional
+  public ResponseEntity<Void> createPatient(@RequestBody final Patient newPatient) {
+    if (!referenceDictionary.isCodedConsistently(newPatient.getMedicalHistory())) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    Patient savedPatient = patientRepository.save(newPatient);
+    if (!appointmentScheduler.reschedule(savedPatient.getId(), savedPatient.getAppointments())) {
+      TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+      return new ResponseEntity<>(APPOINTMENT_CONFLICT_STATUS);
+    }
+    changeEventRecorder.record(ChangeEventType.PATIENT_CREATED, savedPatient);
+    auditLog.recordAfterCommit(savedPatient.getId(), AuditAction.CREATE);
+    patientDocumentCache.refreshAfterCommit(savedPatient.getId());
+    return new ResponseEntity<>(HttpStatus.CREATED);
+  }
+
+  @PutMapping(path = "/patients",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  @Transactional
+  public ResponseEntity<?> updatePatient(@RequestBody final Patient patient) {
+    if (!referenceDictionary.isCodedConsistently(patient.getMedicalHistory())) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    if (patient.getId() != null) {
+      // The current patient goes back with the conflict so the client can merge onto it and retry.
+      Optional<Patient> currentPatient = patientRepository.findById(patient.getId());
+      if (currentPatient.isPresent()
+          && !Objects.equals(currentPatient.get().getVersion(), patient.getVersion())) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(currentPatient.get());
+      }
+      // The photo only changes through its own upload.
+      currentPatient.ifPresent(current -> patient.setPhotoHash(current.getPhotoHash()));
+    }
+    Patient savedPatient = patientRepository.save(patient);
+    if (!appointmentScheduler.reschedule(savedPatient.getId(), savedPatient.getAppointments())) {
+      // New or moved appointments must not double book a clinician, the booking endpoint's rule.
+      TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+      return new ResponseEntity<>(APPOINTMENT_CONFLICT_STATUS);
+    }
+    changeEventRecorder.record(ChangeEventType.PATIENT_UPDATED, savedPatient);
+    auditLog.recordAfterCommit(savedPatient.getId(), AuditAction.UPDATE);
+    patientDocumentCache.refreshAfterCommit(savedPatient.getId());
+    return new ResponseEntity<>(HttpStatus.OK);
   }
 
-  @PostMapping(path = "/patients", consumes = MediaType.APPLICATION_JSON_VALUE,
-      produces = MediaType.APPLICATION_JSON_VALUE)
-  @ResponseStatus(value = HttpStatus.CREATED)
+  @PostMapping(path = "/patients/{id}/notes",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
   @Transactional
-  public void createPatient(@RequestBody final Patient newPatient) {
-    patientRepository.save(newPatient);
+  public ResponseEntity<Void> addPatientNote(@PathVariable("id") final Integer id,
+      @RequestBody final Note note) {
+    if (writeBehindQueue.isEnabled()) {
+      // Acknowledged once durably queued, the flusher applies it shortly after.
+      if (!patientRepository.existsById(id)) {
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+      }
+      writeBehindQueue.enqueueNote(id, note);
+      auditLog.record(id, AuditAction.UPDATE);
+      return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+    Optional<Patient> patient = patientRepository.findById(id);
+    if (!patient.isPresent()) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    note.setId(null);
+    patient.get().getNotes().add(note);
+    Patient savedPatient = patientRepository.save(patient.get());
+    changeEventRecorder.record(ChangeEventType.PATIENT_UPDATED, savedPatient);
+    patientDocumentCache.refreshAfterCommit(id);
+    auditLog.recordAfterCommit(id, AuditAction.UPDATE);
+    return new ResponseEntity<>(HttpStatus.CREATED);
   }
 
-  @PutMapping(path = "/patients", consumes = MediaType.APPLICATION_JSON_VALUE,
-      produces = MediaType.APPLICATION_JSON_VALUE)
-  @ResponseStatus(value = HttpStatus.OK)
+  @PutMapping(path = "/patients/{id}/medical-history",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
   @Transactional
-  public void updatePatient(@RequestBody final Patient patient) {
-    patientRepository.save(patient);
+  public ResponseEntity<?> updatePatientMedicalHistory(@PathVariable("id") final Integer id,
+      @RequestBody final MedicalHistoryUpdateRequest medicalHistoryUpdate) {
+    if (!referenceDictionary.isCodedConsistently(medicalHistoryUpdate.getMedicalHistory())) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    Optional<Patient> patient = patientRepository.findById(id);
+    if (!patient.isPresent()) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    if (!Objects.equals(patient.get().getVersion(), medicalHistoryUpdate.getVersion())) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(patient.get());
+    }
+    patient.get().setNhsNumber(medicalHistoryUpdate.getNhsNumber());
+    patient.get().setBloodType(medicalHistoryUpdate.getBloodType());
+    patient.get().setHeight(medicalHistoryUpdate.getHeight());
+    patient.get().setWeight(medicalHistoryUpdate.getWeight());
+    if (medicalHistoryUpdate.getMedicalHistory() != null) {
+      if (patient.get().getMedicalHistory() == null) {
+        patient.get().setMedicalHistory(MedicalHistory.builder().build());
+      }
+      MedicalHistoryMerge.merge(patient.get().getMedicalHistory(),
+          medicalHistoryUpdate.getMedicalHistory());
+    }
+    // Edits to the history's rows alone leave the patient row untouched, bump its version anyway
+    // so copies read before this save are refused.
+    entityManager.lock(patient.get(), LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+    Patient savedPatient = patientRepository.save(patient.get());
+    changeEventRecorder.record(ChangeEventType.PATIENT_UPDATED, savedPatient);
+    patientDocumentCache.refreshAfterCommit(id);
+    auditLog.recordAfterCommit(id, AuditAction.UPDATE);
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  @GetMapping(path = "/patients/{id}/timeline",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<PatientTimelineResponse> getPatientTimeline(@PathVariable("id") final Integer id,
+      @RequestParam(value = "cursor", required = false) final String cursor,
+      @RequestParam(value = "limit", defaultValue = "50") final int limit) {
+    if (limit <= 0 || limit > timelineMaxLimit) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    TimelineCursor timelineCursor = null;
+    if (cursor != null) {
+      try {
+        timelineCursor = TimelineCursor.decode(cursor);
+      } catch (IllegalArgumentException e) {
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+      }
+    }
+    if (!patientRepository.existsById(id)) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    auditLog.record(id, AuditAction.VIEW);
+    return ResponseEntity.ok(patientTimelineService.getTimeline(id, timelineCursor, limit));
+  }
+
+  /**
+   * Pages through the patient's archived notes, appointments and test results, which are no longer
+   * part of the patient document.
+   */
+  @GetMapping(path = "/patients/{id}/archive",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<PatientArchiveResponse> getPatientArchive(@PathVariable("id") final Integer id,
+      @RequestParam(value = "type", required = false) final ArchivedEntryType type,
+      @RequestParam(value = "page", defaultValue = "0") final int page,
+      @RequestParam(value = "size", defaultValue = "20") final int size) {
+    if (page < 0 || size <= 0 || size > archiveMaxPageSize) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    if (!patientRepository.existsById(id)) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    auditLog.record(id, AuditAction.VIEW);
+    return ResponseEntity.ok(patientArchive.getArchivePage(id, type, page, size));
+  }
+
+  /**
+   * Concurrent writers that slip past the version check, or stale child rows in the request, are
+   * rejected at flush time.
+   */
+  @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+  public ResponseEntity<Void> handleOptimisticLockingFailure() {
+    return new ResponseEntity<>(HttpStatus.CONFLICT);
+  }
+
+  /**
+   * The write-behind queue is full, typically because the database has been unreachable for a
+   * while. Clients back off and retry.
+   */
+  @ExceptionHandler(WriteBehindQueueFullException.class)
+  public ResponseEntity<Void> handleWriteBehindQueueFull() {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, WRITE_BEHIND_RETRY_AFTER_SECONDS)
+        .build();
+  }
+
+  /**
+   * Search answered with only the selected fields, the matching ids are queried and the fields
+   * loaded for them.
+   */
+  private ResponseEntity<?> searchPatientFields(final PatientFieldSelection fieldSelection, final Date dateOfBirth,
+      final String lastName, final boolean paged, final Integer page, final Integer size) {
+    Pageable pageable = paged ? PageRequest.of(page != null ? page : 0, size, Sort.by("surname", "firstName", "id"))
+        : Pageable.unpaged();
+    Page<Integer> idPage = StringUtils.isNotBlank(lastName)
+        ? patientRepository.findIdsByDateOfBirthAndSurname(dateOfBirth, lastName, pageable)
+        : patientRepository.findIdsByDateOfBirth(dateOfBirth, pageable);
+    idPage.forEach(id -> auditLog.record(id, AuditAction.VIEW));
+
+    // Same envelope as PatientSearchResponse, holding only the selected fields of each patient
+    ObjectNode searchResponse = objectMapper.createObjectNode();
+    searchResponse.putArray("patients")
+        .addAll(fieldSelection.load(entityManager, objectMapper, idPage.getContent()));
+    if (paged) {
+      searchResponse.put("page", idPage.getNumber());
+      searchResponse.put("size", idPage.getSize());
+      searchResponse.put("total", idPage.getTotalElements());
+    }
+    return ResponseEntity.ok(searchResponse);
+  }
+
+  private Optional<PatientFieldSelection> parseFieldSelection(final String fields) {
+    try {
+      return Optional.of(PatientFieldSelection.parse(fields));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  private boolean isCborPreferred(final String accept) {
+    if (StringUtils.isBlank(accept)) {
+      return false;
+    }
+    List<MediaType> acceptedMediaTypes = MediaType.parseMediaTypes(accept);
+    MediaType.sortBySpecificityAndQuality(acceptedMediaTypes);
+    for (MediaType acceptedMediaType : acceptedMediaTypes) {
+      // Wildcards match JSON first, which remains the default encoding.
+      if (acceptedMediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+        return false;
+      }
+      if (acceptedMediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+        return true;
+      }
+    }
+    return false;
   }
 }
@@ -0,0 +1,24 @@
+package com.nea.patient.access.portal.backend.api;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+@Configuration
+public class PatientPortalBackendWebConfiguration {
+
+  /**
+   * Registers CBOR as a compact binary alternative to JSON for all {@code /api} endpoints. The
+   * mapper is created from the Boot configured builder so it shares the {@code spring.jackson}
+   * settings used for JSON.
+   */
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+      final Jackson2ObjectMapperBuilder objectMapperBuilder) {
+    return new MappingJackson2CborHttpMessageConverter(
+        objectMapperBuilder.createXmlMapper(false).factory(new CBORFactory()).build());
+  }
+}
@@ -0,0 +1,62 @@
+package com.nea.patient.access.portal.backend.api;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.nea.patient.access.portal.backend.api.model.ReferenceDictionaryResponse;
+import com.nea.patient.access.portal.backend.api.model.ReferenceTermRequest;
+import com.nea.patient.access.portal.backend.jpa.domain.model.ReferenceTerm;
+import com.nea.patient.access.portal.backend.reference.ReferenceDictionary;
+
+@RestController
+@RequestMapping("/api")
+public class ReferenceDataController {
+
+  @Autowired
+  private ReferenceDictionary referenceDictionary;
+
+  /**
+   * Serves the whole dictionary with its version as a strong ETag. Clients holding the current
+   * version get a 304 without a body.
+   */
+  @GetMapping(path = "/reference-data",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<ReferenceDictionaryResponse> getReferenceDictionary(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch) {
+    // One snapshot so the ETag and body always describe the same terms.
+    ReferenceDictionary.Terms terms = referenceDictionary.getSnapshot();
+    String etag = "\"" + terms.getVersion() + "\"";
+    if (etag.equals(ifNoneMatch)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+    ReferenceDictionaryResponse dictionaryResponse = ReferenceDictionaryResponse.builder()
+        .version(terms.getVersion())
+        .terms(terms.getTerms())
+        .build();
+    return ResponseEntity.ok().eTag(etag).body(dictionaryResponse);
+  }
+
+  @PostMapping(path = "/reference-data",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE},
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<ReferenceTerm> registerReferenceTerm(
+      @RequestBody final ReferenceTermRequest termRequest) {
+    if (termRequest.getCategory() == null || StringUtils.isBlank(termRequest.getLabel())) {
+      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+    boolean existing = referenceDictionary.findCode(termRequest.getCategory(), termRequest.getLabel())
+        .isPresent();
+    ReferenceTerm term = referenceDictionary.register(termRequest.getCategory(), termRequest.getLabel());
+    return new ResponseEntity<>(term, existing ? HttpStatus.OK : HttpStatus.CREATED);
+  }
+}
@@ -0,0 +1,28 @@
+package com.nea.patient.access.portal.backend.api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.nea.patient.access.portal.backend.api.model.WriteBehindStatus;
+import com.nea.patient.access.portal.backend.writebehind.WriteBehindQueue;
+
+@RestController
+@RequestMapping("/api")
+public class WriteBehindController {
+
+  @Autowired
+  private WriteBehindQueue writeBehindQueue;
+
+  /**
+   * Queue depth and flush latency of the write-behind path.
+   */
+  @GetMapping(path = "/write-behind/status",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+  public ResponseEntity<WriteBehindStatus> getWriteBehindStatus() {
+    return ResponseEntity.ok(writeBehindQueue.getStatus());
+  }
+}
@@ -0,0 +1,269 @@
+package com.nea.patient.access.portal.backend.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nea.patient.access.portal.backend.api.model.ArchivedRecord;
+import com.nea.patient.access.portal.backend.api.model.PatientArchiveResponse;
+import com.nea.patient.access.portal.backend.cache.PatientDocumentCache;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.ArchivedEntryRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ArchivedEntryType;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.AttachmentOwnerType;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ChangeEventType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.jpa.domain.model.ArchivedEntry;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.jpa.domain.model.TestResult;
+import com.nea.patient.access.portal.backend.outbox.ChangeEventRecorder;
+
+/**
+ * Cold tier for old notes, appointments and test results. Records older than the configured age
+ * are periodically moved out of the patient graph into {@code ArchivedEntry} rows holding gzip
+ * compressed JSON, which keeps patient reads and the render cache limited to recent history.
+ * Archived records are only read back a page at a time on request.
+ */
+@Component
+public class PatientArchive {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PatientArchive.class);
+
+  private static final Map<ArchivedEntryType, ArchiveSource> SOURCES = new EnumMap<>(ArchivedEntryType.class);
+
+  static {
+    SOURCES.put(ArchivedEntryType.NOTE, new ArchiveSource("join p.notes e", "created", "",
+        Note.class, entity -> ((Note) entity).getCreated()));
+    SOURCES.put(ArchivedEntryType.APPOINTMENT, new ArchiveSource("join p.appointments e", "datetime", "",
+        Appointment.class, entity -> ((Appointment) entity).getDatetime()));
+    // Test results with attachments stay live, the attachments are looked up through them.
+    SOURCES.put(ArchivedEntryType.TEST_RESULT, new ArchiveSource("join p.medicalHistory m join m.testResults e",
+        "dateOfTest", " and not exists (select a.id from Attachment a where a.ownerType = "
+            + AttachmentOwnerType.class.getName() + "." + AttachmentOwnerType.TEST_RESULT
+            + " and a.ownerId = e.id)",
+        TestResult.class, entity -> ((TestResult) entity).getDateOfTest()));
+  }
+
+  @Value("${patient.portal.archive.enabled:true}")
+  private boolean enabled;
+  @Value("${patient.portal.archive.max-age-days:730}")
+  private int maxAgeDays;
+  @Value("${patient.portal.archive.batch-size:500}")
+  private int batchSize;
+
+  @Autowired
+  private ArchivedEntryRepository archivedEntryRepository;
+  @Autowired
+  private PatientDocumentCache patientDocumentCache;
+  @Autowired
+  private ObjectMapper objectMapper;
+  @Autowired
+  private ChangeEventRecorder changeEventRecorder;
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private final TransactionTemplate transactionTemplate;
+
+  public PatientArchive(final PlatformTransactionManager transactionManager) {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @Scheduled(cron = "${patient.portal.archive.cron:0 30 2 * * *}")
+  public void archiveExpiredEntries() {
+    if (enabled) {
+      LocalDate cutoffDay = LocalDate.now().minusDays(maxAgeDays);
+      archiveEntriesOlderThan(Date.from(cutoffDay.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+    }
+  }
+
+  /**
+   * Moves every archivable record dated before {@code cutoff} into the archive, one batch per
+   * transaction so the patient tables are never locked for long.
+   *
+   * @return the number of records archived
+   */
+  public int archiveEntriesOlderThan(final Date cutoff) {
+    int archivedCount = 0;
+    for (Map.Entry<ArchivedEntryType, ArchiveSource> source : SOURCES.entrySet()) {
+      int batchCount;
+      do {
+        Set<Integer> patientIds = new HashSet<>();
+        batchCount = transactionTemplate.execute(status ->
+            archiveBatch(source.getKey(), source.getValue(), cutoff, patientIds));
+        // The archived records are gone from these patients' graphs.
+        patientIds.forEach(patientDocumentCache::evict);
+        archivedCount += batchCount;
+      } while (batchCount == batchSize);
+    }
+    if (archivedCount > 0) {
+      LOGGER.info("Archived {} patient records dated before {}", archivedCount, cutoff);
+    }
+    return archivedCount;
+  }
+
+  /**
+   * Reads a page of the patient's archived records, newest first, optionally of one type only.
+   */
+  @Transactional(readOnly = true)
+  public PatientArchiveResponse getArchivePage(final Integer patientId,
+      final ArchivedEntryType entryType, final int page, final int size) {
+    PageRequest pageRequest = PageRequest.of(page, size);
+    Slice<ArchivedEntry> archivedEntries = entryType != null
+        ? archivedEntryRepository.findByPatientIdAndEntryTypeOrderByEntryDateDescIdDesc(patientId,
+            entryType, pageRequest)
+        : archivedEntryRepository.findByPatientIdOrderByEntryDateDescIdDesc(patientId, pageRequest);
+
+    List<ArchivedRecord> records = archivedEntries.getContent().stream()
+        .map(this::toArchivedRecord)
+        .collect(Collectors.toList());
+    return PatientArchiveResponse.builder()
+        .records(records)
+        .page(page)
+        .size(size)
+        .hasMore(archivedEntries.hasNext())
+        .build();
+  }
+
+  private int archiveBatch(final ArchivedEntryType entryType, final ArchiveSource source,
+      final Date cutoff, final Set<Integer> patientIds) {
+    String date = "e." + source.dateAttribute;
+    List<Object[]> rows = entityManager.createQuery("select p.id, e from Patient p " + source.join
+        + " where " + date + " < :cutoff" + source.condition + " order by e.id", Object[].class)
+        .setParameter("cutoff", cutoff)
+        .setMaxResults(batchSize)
+        .getResultList();
+    if (rows.isEmpty()) {
+      return 0;
+    }
+
+    Date archivedAt = new Date();
+    List<Integer> originalIds = new ArrayList<>(rows.size());
+    for (Object[] row : rows) {
+      Integer patientId = (Integer) row[0];
+      Object entity = row[1];
+      Integer originalId = (Integer) entityManager.getEntityManagerFactory().getPersistenceUnitUtil()
+          .getIdentifier(entity);
+      archivedEntryRepository.save(ArchivedEntry.builder()
+          .patientId(patientId)
+          .entryType(entryType)
+          .originalId(originalId)
+          .entryDate(source.dateAccessor.apply(entity))
+          .archivedAt(archivedAt)
+          .payload(compress(entity))
+          .build());
+      originalIds.add(originalId);
+      patientIds.add(patientId);
+    }
+
+    // The owning collections were never loaded here, so a bulk delete cannot leave them stale.
+    entityManager.createQuery("delete from " + source.entityClass.getSimpleName()
+        + " e where e.id in :ids")
+        .setParameter("ids", originalIds)
+        .executeUpdate();
+    // A copy read before archiving would otherwise pass the version check on PUT and re-insert
+    // the archived records.
+    entityManager.createQuery("update Patient p set p.version = p.version + 1 where p.id in :ids")
+        .setParameter("ids", patientIds)
+        .executeUpdate();
+    // Reloaded after the bulk statements so each event carries the bumped version and the graph
+    // without the archived records.
+    entityManager.clear();
+    for (Integer patientId : patientIds) {
+      changeEventRecorder.record(ChangeEventType.PATIENT_UPDATED,
+          entityManager.find(Patient.class, patientId));
+    }
+    return rows.size();
+  }
+
+  private ArchivedRecord toArchivedRecord(final ArchivedEntry archivedEntry) {
+    ArchivedRecord archivedRecord = ArchivedRecord.builder()
+        .type(archivedEntry.getEntryType())
+        .originalId(archivedEntry.getOriginalId())
+        .entryDate(archivedEntry.getEntryDate())
+        .archivedAt(archivedEntry.getArchivedAt())
+        .build();
+    Class<?> entityClass = SOURCES.get(archivedEntry.getEntryType()).entityClass;
+    Object entity = decompress(archivedEntry.getPayload(), entityClass);
+    switch (archivedEntry.getEntryType()) {
+      case NOTE:
+        archivedRecord.setNote((Note) entity);
+        break;
+      case APPOINTMENT:
+        archivedRecord.setAppointment((Appointment) entity);
+        break;
+      case TEST_RESULT:
+        archivedRecord.setTestResult((TestResult) entity);
+        break;
+      default:
+        break;
+    }
+    return archivedRecord;
+  }
+
+  private byte[] compress(final Object entity) {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      objectMapper.writeValue(gzip, entity);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+
+  private <T> T decompress(final byte[] payload, final Class<T> entityClass) {
+    try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+      return objectMapper.readValue(gzip, entityClass);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static final class ArchiveSource {
+
+    private final String join;
+    private final String dateAttribute;
+    private final String condition;
+    private final Class<?> entityClass;
+    private final Function<Object, Date> dateAccessor;
+
+    private ArchiveSource(final String join, final String dateAttribute, final String condition,
+        final Class<?> entityClass, final Function<Object, Date> dateAccessor) {
+      this.join = join;
+      this.dateAttribute = dateAttribute;
+      this.condition = condition;
+      this.entityClass = entityClass;
+      this.dateAccessor = dateAccessor;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package com.nea.patient.access.portal.backend.attachments;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Content addressed attachment files on the local filesystem. Each distinct content is stored once
+ * as {@code <dir>/<first two hash characters>/<hash>}, so uploading the same scan twice, or to
+ * another record, costs no extra space.
+ * <p>
+ * Uploads are copied through a fixed size buffer into a temporary file while they are hashed, then
+ * forced to disk and moved into place atomically. A file under its hash is therefore always
+ * complete, a crash only leaves a temporary file behind, which is removed on the next start.
+ */
+@Component
+public class AttachmentStore {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentStore.class);
+
+  private static final String TEMPORARY_DIR = "tmp";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+  @Value("${patient.portal.attachments.dir:logs/attachments}")
+  private String dir;
+  @Value("${patient.portal.attachments.max-size-bytes:1073741824}")
+  private long maxSizeBytes;
+
+  @PostConstruct
+  public void removeIncompleteUploads() throws IOException {
+    Path temporaryDirectory = getDirectory().resolve(TEMPORARY_DIR);
+    Files.createDirectories(temporaryDirectory);
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(temporaryDirectory)) {
+      for (Path file : files) {
+        LOGGER.warn("Removing incomplete attachment upload {}", file);
+        Files.delete(file);
+      }
+    }
+  }
+
+  public Path getDirectory() {
+    return Paths.get(dir);
+  }
+
+  public long getMaxSizeBytes() {
+    return maxSizeBytes;
+  }
+
+  /**
+   * Stores the content read from {@code content} until its end.
+   *
+   * @throws AttachmentTooLargeException if the content is longer than
+   *         {@code patient.portal.attachments.max-size-bytes}, nothing is stored
+   */
+  public StoredContent store(final InputStream content) throws IOException {
+    return store(content, maxSizeBytes);
+  }
+
+  /**
+   * Stores the content read from {@code content} until its end.
+   *
+   * @throws AttachmentTooLargeException if the content is longer than {@code maxSizeBytes},
+   *         nothing is stored
+   */
+  public StoredContent store(final InputStream content, final long maxSizeBytes) throws IOException {
+    MessageDigest digest = newDigest();
+    Path temporaryFile = getDirectory().resolve(TEMPORARY_DIR).resolve(UUID.randomUUID().toString());
+    long size = 0;
+    try {
+      try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.WRITE)) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+          size += read;
+          if (size > maxSizeBytes) {
+            throw new AttachmentTooLargeException(maxSizeBytes);
+          }
+          digest.update(buffer, 0, read);
+          ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+          while (bytes.hasRemaining()) {
+            channel.write(bytes);
+          }
+        }
+        channel.force(false);
+      }
+
+      String hash = String.format("%064x", new BigInteger(1, digest.digest()));
+      Path file = resolve(hash);
+      if (Files.exists(file)) {
+        Files.delete(temporaryFile);
+      } else {
+        Files.createDirectories(file.getParent());
+        // Concurrent uploads of the same content replace each other with identical bytes.
+        Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+      }
+      return new StoredContent(hash, size);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temporaryFile);
+      throw e;
+    }
+  }
+
+  /**
+   * File holding the content with the given hash, which may not exist.
+   *
+   * @throws IllegalArgumentException if {@code hash} is not a lower case hex SHA-256
+   */
+  public Path resolve(final String hash) {
+    if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+      throw new IllegalArgumentException("Not a content hash: " + hash);
+    }
+    return getDirectory().resolve(hash.substring(0, 2)).resolve(hash);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static class StoredContent {
+
+    private final String hash;
+
+    private final long size;
+  }
+}
@@ -0,0 +1,12 @@
+package com.nea.patient.access.portal.backend.attachments;
+
+import java.io.IOException;
+
+public class AttachmentTooLargeException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public AttachmentTooLargeException(final long maxSizeBytes) {
+    super("Attachment exceeds " + maxSizeBytes + " bytes");
+  }
+}
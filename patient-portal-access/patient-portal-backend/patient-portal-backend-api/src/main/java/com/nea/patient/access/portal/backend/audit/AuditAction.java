@@ -0,0 +1,30 @@
+package com.nea.patient.access.portal.backend.audit;
+
+/**
+ * What was done to a patient record. The code is what gets written to the audit segments, so
+ * existing codes must never be renumbered.
+ */
+public enum AuditAction {
+  VIEW(1),
+  CREATE(2),
+  UPDATE(3);
+
+  private final byte code;
+
+  AuditAction(final int code) {
+    this.code = (byte) code;
+  }
+
+  public byte getCode() {
+    return code;
+  }
+
+  public static AuditAction fromCode(final byte code) {
+    for (AuditAction action : values()) {
+      if (action.code == code) {
+        return action;
+      }
+    }
+    throw new IllegalArgumentException("Unknown audit action code: " + code);
+  }
+}
@@ -0,0 +1,236 @@
+package com.nea.patient.access.portal.backend.audit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Records who viewed and changed which patient to the append-only audit segments, see
+ * {@link AuditSegmentFormat}. Request threads only queue the record, a single writer thread
+ * assigns the sequence, extends the hash chain and forces each drained batch to disk. The queue is
+ * bounded, when the writer falls behind requests wait up to
+ * {@code patient.portal.audit.enqueue-timeout-millis} and then fail with
+ * {@link AuditLogFullException} rather than records being dropped. Changes reserve their place in
+ * the queue before the transaction commits, so a full queue rolls the change back instead of
+ * failing a request whose change is already committed. A batch the writer fails to write is kept
+ * and retried.
+ * <p>
+ * The user is the authenticated principal of the request, followed by the request's remote address
+ * ({@code user@address}). Without an authenticated principal the name in the header configured by
+ * {@code patient.portal.audit.user-header} is recorded as {@code claimed:user@address}; the header
+ * is set by the client and not verified, so it only says who the caller claims to be.
+ * Use {@link AuditLogReader} to query or verify the log.
+ */
+@Component
+public class AuditLog {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AuditLog.class);
+
+  private static final String ANONYMOUS_USER = "anonymous";
+  private static final String SYSTEM_USER = "system";
+  private static final String CLAIMED_USER_PREFIX = "claimed:";
+  private static final int MAX_BATCH_SIZE = 1024;
+  private static final long POLL_MILLIS = 100;
+
+  @Value("${patient.portal.audit.enabled:true}")
+  private boolean enabled;
+  @Value("${patient.portal.audit.dir:logs/audit}")
+  private String dir;
+  @Value("${patient.portal.audit.segment-size-bytes:16777216}")
+  private int segmentSizeBytes;
+  @Value("${patient.portal.audit.queue-capacity:10000}")
+  private int queueCapacity;
+  @Value("${patient.portal.audit.enqueue-timeout-millis:5000}")
+  private long enqueueTimeoutMillis;
+  @Value("${patient.portal.audit.user-header:X-Patient-Portal-User}")
+  private String userHeader;
+
+  private BlockingQueue<AuditRecord> queue;
+  // One permit per free queue slot, taken before a record is built and returned once the writer
+  // has taken the record off the queue.
+  private Semaphore freeSlots;
+  private AuditSegmentWriter segmentWriter;
+  private Thread writerThread;
+  private volatile boolean running;
+  private volatile long writtenSequence;
+
+  @PostConstruct
+  public void start() throws IOException {
+    if (!enabled) {
+      return;
+    }
+    segmentWriter = new AuditSegmentWriter(getDirectory(), segmentSizeBytes);
+    writtenSequence = segmentWriter.getNextSequence() - 1;
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    freeSlots = new Semaphore(queueCapacity);
+    running = true;
+    writerThread = new Thread(this::writeQueued, "audit-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  public Path getDirectory() {
+    return Paths.get(dir);
+  }
+
+  /**
+   * Sequence of the last record forced to disk.
+   */
+  public long getWrittenSequence() {
+    return writtenSequence;
+  }
+
+  public void record(final Integer patientId, final AuditAction action) {
+    if (!enabled || patientId == null) {
+      return;
+    }
+    reserveSlot(patientId, action);
+    queue.add(AuditRecord.builder()
+        .timestamp(System.currentTimeMillis())
+        .patientId(patientId)
+        .action(action)
+        .user(currentUser())
+        .build());
+  }
+
+  /**
+   * Records the change once the surrounding transaction commits, or straight away outside one.
+   * The queue slot is reserved up front, so {@link AuditLogFullException} is thrown here while the
+   * transaction can still roll back.
+   */
+  public void recordAfterCommit(final Integer patientId, final AuditAction action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      record(patientId, action);
+      return;
+    }
+    if (!enabled || patientId == null) {
+      return;
+    }
+    reserveSlot(patientId, action);
+    // Resolved now, the request may be gone by the time a deferred record is built.
+    String user = currentUser();
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(final int status) {
+        if (status == STATUS_COMMITTED) {
+          queue.add(AuditRecord.builder()
+              .timestamp(System.currentTimeMillis())
+              .patientId(patientId)
+              .action(action)
+              .user(user)
+              .build());
+        } else {
+          freeSlots.release();
+        }
+      }
+    });
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException, IOException {
+    if (!enabled) {
+      return;
+    }
+    running = false;
+    writerThread.join();
+    segmentWriter.close();
+  }
+
+  /**
+   * Takes a queue slot for one record, a record holding a slot can always be added to the queue.
+   */
+  private void reserveSlot(final Integer patientId, final AuditAction action) {
+    boolean reserved;
+    try {
+      reserved = freeSlots.tryAcquire(enqueueTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      reserved = false;
+    }
+    if (!reserved) {
+      LOGGER.error("Unable to audit {} of patient {} by {}, the audit queue is full", action,
+          patientId, currentUser());
+      throw new AuditLogFullException("Audit queue holds its maximum of " + queueCapacity + " records");
+    }
+  }
+
+  private void writeQueued() {
+    Deque<AuditRecord> batch = new ArrayDeque<>();
+    // Records appended to the segment but not yet forced to disk.
+    boolean unforced = false;
+    while (running || !queue.isEmpty() || !batch.isEmpty() || unforced) {
+      try {
+        if (batch.isEmpty() && !unforced) {
+          AuditRecord first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+          batch.add(first);
+          freeSlots.release();
+        }
+        freeSlots.release(queue.drainTo(batch, MAX_BATCH_SIZE - batch.size()));
+        // Records leave the batch once appended, so a failed batch is retried from the first
+        // record that is not in the segment yet.
+        while (!batch.isEmpty()) {
+          AuditRecord record = batch.peek();
+          segmentWriter.append(record.getTimestamp(), record.getPatientId(), record.getAction(),
+              AuditSegmentFormat.encodeUser(record.getUser()));
+          batch.poll();
+          unforced = true;
+        }
+        segmentWriter.force();
+        unforced = false;
+        writtenSequence = segmentWriter.getNextSequence() - 1;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (IOException | RuntimeException e) {
+        if (!running) {
+          LOGGER.error("Unable to write {} audit records before shutdown", batch.size(), e);
+          return;
+        }
+        LOGGER.error("Unable to write {} audit records, retrying", batch.size(), e);
+        try {
+          Thread.sleep(POLL_MILLIS);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private String currentUser() {
+    RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+    if (!(requestAttributes instanceof ServletRequestAttributes)) {
+      return SYSTEM_USER;
+    }
+    HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
+    if (request.getUserPrincipal() != null) {
+      return request.getUserPrincipal().getName() + "@" + request.getRemoteAddr();
+    }
+    String claimedUser = StringUtils.defaultIfBlank(request.getHeader(userHeader), ANONYMOUS_USER);
+    return CLAIMED_USER_PREFIX + claimedUser + "@" + request.getRemoteAddr();
+  }
+}
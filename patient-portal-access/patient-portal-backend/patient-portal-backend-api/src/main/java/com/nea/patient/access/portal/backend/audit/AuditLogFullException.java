@@ -0,0 +1,18 @@
+package com.nea.patient.access.portal.backend.audit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A patient view or change could not be audited because the writer fell behind for longer than
+ * {@code patient.portal.audit.enqueue-timeout-millis}.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AuditLogFullException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public AuditLogFullException(final String message) {
+    super(message);
+  }
+}
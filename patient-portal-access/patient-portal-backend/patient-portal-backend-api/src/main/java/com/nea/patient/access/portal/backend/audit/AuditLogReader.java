@@ -0,0 +1,125 @@
+package com.nea.patient.access.portal.backend.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the audit segments written by {@link AuditLog}, safe to run alongside the writer.
+ * <p>
+ * Patient queries only scan the segments whose index lists the patient, starting at the patient's
+ * first record, plus the active segment which has no index yet. {@link #verify()} walks the whole
+ * hash chain across segments.
+ * <p>
+ * From the command line: {@code AuditLogReader <audit dir> <patient id>} prints the patient's
+ * records, {@code AuditLogReader <audit dir> --verify} checks the chain.
+ */
+public class AuditLogReader {
+
+  private static final String VERIFY_OPTION = "--verify";
+
+  private final Path directory;
+
+  public AuditLogReader(final Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * @throws IllegalStateException if a segment read for the patient does not verify
+   */
+  public List<AuditRecord> findByPatientId(final int patientId) throws IOException {
+    List<AuditRecord> records = new ArrayList<>();
+    for (Path segmentFile : AuditSegmentFormat.listSegments(directory)) {
+      Path indexFile = AuditSegmentFormat.indexFile(segmentFile);
+      int remaining = Integer.MAX_VALUE;
+      int offset = AuditSegmentFormat.HEADER_LENGTH;
+      if (Files.exists(indexFile)) {
+        int[] indexEntry = AuditSegmentFormat.readIndexEntry(indexFile, patientId);
+        if (indexEntry == null) {
+          continue;
+        }
+        offset = indexEntry[0];
+        remaining = indexEntry[1];
+      }
+
+      try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+        ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        AuditSegmentCursor cursor = new AuditSegmentCursor(segment);
+        cursor.seek(offset);
+        while (remaining > 0 && cursor.next()) {
+          if (cursor.getRecord().getPatientId() == patientId) {
+            records.add(cursor.getRecord());
+            remaining--;
+          }
+        }
+        if (cursor.isBroken() && remaining > 0) {
+          throw new IllegalStateException("Audit segment " + segmentFile.getFileName()
+              + " does not verify at offset " + segment.position());
+        }
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Checks every record of every segment against the hash chain and the sequence.
+   *
+   * @return the number of records verified
+   * @throws IllegalStateException at the first record or segment boundary that does not verify
+   */
+  public long verify() throws IOException {
+    byte[] previousHash = AuditSegmentFormat.GENESIS_HASH;
+    long expectedSequence = 1;
+    long verified = 0;
+    for (Path segmentFile : AuditSegmentFormat.listSegments(directory)) {
+      try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+        ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        AuditSegmentCursor cursor = new AuditSegmentCursor(segment);
+        if (cursor.getFirstSequence() != expectedSequence
+            || !MessageDigest.isEqual(cursor.getPreviousSegmentHash(), previousHash)) {
+          throw new IllegalStateException("Audit segment " + segmentFile.getFileName()
+              + " does not continue the chain of the previous segment");
+        }
+        while (cursor.next()) {
+          verified++;
+        }
+        if (cursor.isBroken()) {
+          throw new IllegalStateException("Audit segment " + segmentFile.getFileName()
+              + " does not verify at offset " + segment.position());
+        }
+        previousHash = cursor.getHash();
+        expectedSequence = cursor.getExpectedSequence();
+      }
+    }
+    return verified;
+  }
+
+  public static void main(final String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: AuditLogReader <audit dir> <patient id> | --verify");
+      System.exit(2);
+    }
+    AuditLogReader reader = new AuditLogReader(Paths.get(args[0]));
+    try {
+      if (VERIFY_OPTION.equals(args[1])) {
+        System.out.println("Verified " + reader.verify() + " audit records");
+        return;
+      }
+      for (AuditRecord record : reader.findByPatientId(Integer.parseInt(args[1]))) {
+        System.out.println(record.getSequence() + "\t" + Instant.ofEpochMilli(record.getTimestamp())
+            + "\t" + record.getAction() + "\t" + record.getUser());
+      }
+    } catch (IllegalStateException e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.nea.patient.access.portal.backend.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditRecord {
+
+  // Assigned by the writer, gapless across segments.
+  private long sequence;
+
+  private long timestamp;
+
+  private int patientId;
+
+  private AuditAction action;
+
+  private String user;
+}
@@ -0,0 +1,139 @@
+package com.nea.patient.access.portal.backend.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Walks the records of a mapped segment, verifying the hash chain as it goes. Iteration stops at
+ * the end of the written records, or at the first record that does not verify, in which case
+ * {@link #isBroken()} is set and the position is left at that record.
+ */
+final class AuditSegmentCursor {
+
+  private final ByteBuffer segment;
+  private final MessageDigest digest = AuditSegmentFormat.newDigest();
+  private final long firstSequence;
+  private final byte[] previousSegmentHash;
+
+  private byte[] hash;
+  private long expectedSequence;
+  private int recordOffset;
+  private AuditRecord record;
+  private boolean broken;
+
+  /**
+   * @throws IllegalArgumentException if the segment does not start with a valid header
+   */
+  AuditSegmentCursor(final ByteBuffer segment) {
+    this.segment = segment;
+    if (segment.limit() < AuditSegmentFormat.HEADER_LENGTH
+        || segment.getInt(0) != AuditSegmentFormat.MAGIC
+        || segment.getInt(4) != AuditSegmentFormat.FORMAT_VERSION) {
+      throw new IllegalArgumentException("Not an audit segment");
+    }
+    firstSequence = segment.getLong(8);
+    previousSegmentHash = new byte[AuditSegmentFormat.HASH_LENGTH];
+    segment.position(16);
+    segment.get(previousSegmentHash);
+    hash = previousSegmentHash;
+    expectedSequence = firstSequence;
+  }
+
+  /**
+   * Continues from the record at {@code offset}, taken from a segment index. The record before it
+   * is trusted as the start of the chain.
+   */
+  void seek(final int offset) {
+    if (offset == AuditSegmentFormat.HEADER_LENGTH) {
+      hash = previousSegmentHash;
+      expectedSequence = firstSequence;
+    } else {
+      hash = new byte[AuditSegmentFormat.HASH_LENGTH];
+      segment.position(offset - AuditSegmentFormat.HASH_LENGTH);
+      segment.get(hash);
+      expectedSequence = -1;
+    }
+    segment.position(offset);
+  }
+
+  boolean next() {
+    int offset = segment.position();
+    if (segment.remaining() < AuditSegmentFormat.RECORD_FIXED_LENGTH + AuditSegmentFormat.HASH_LENGTH) {
+      return false;
+    }
+    int length = segment.getInt(offset);
+    if (length == 0) {
+      return false;
+    }
+    int userLength = length - AuditSegmentFormat.RECORD_FIXED_LENGTH - AuditSegmentFormat.HASH_LENGTH;
+    if (userLength < 0 || length > segment.remaining()
+        || (segment.getShort(offset + AuditSegmentFormat.RECORD_FIXED_LENGTH - 2) & 0xFFFF) != userLength) {
+      broken = true;
+      return false;
+    }
+
+    int fieldsLength = length - 4 - AuditSegmentFormat.HASH_LENGTH;
+    byte[] recordHash = AuditSegmentFormat.chainHash(digest, hash, segment, offset + 4, fieldsLength);
+    byte[] storedHash = new byte[AuditSegmentFormat.HASH_LENGTH];
+    segment.position(offset + length - AuditSegmentFormat.HASH_LENGTH);
+    segment.get(storedHash);
+    long sequence = segment.getLong(offset + 4);
+    if (!MessageDigest.isEqual(recordHash, storedHash)
+        || (expectedSequence != -1 && sequence != expectedSequence)) {
+      segment.position(offset);
+      broken = true;
+      return false;
+    }
+
+    byte[] user = new byte[userLength];
+    segment.position(offset + AuditSegmentFormat.RECORD_FIXED_LENGTH);
+    segment.get(user);
+    record = AuditRecord.builder()
+        .sequence(sequence)
+        .timestamp(segment.getLong(offset + 12))
+        .patientId(segment.getInt(offset + 20))
+        .action(AuditAction.fromCode(segment.get(offset + 24)))
+        .user(new String(user, StandardCharsets.UTF_8))
+        .build();
+    segment.position(offset + length);
+    hash = storedHash;
+    expectedSequence = sequence + 1;
+    recordOffset = offset;
+    return true;
+  }
+
+  AuditRecord getRecord() {
+    return record;
+  }
+
+  int getRecordOffset() {
+    return recordOffset;
+  }
+
+  long getFirstSequence() {
+    return firstSequence;
+  }
+
+  byte[] getPreviousSegmentHash() {
+    return previousSegmentHash;
+  }
+
+  /**
+   * Hash of the last record read, or of the previous segment before the first.
+   */
+  byte[] getHash() {
+    return hash;
+  }
+
+  /**
+   * Sequence the next record is expected to carry, {@code -1} after a seek until a record is read.
+   */
+  long getExpectedSequence() {
+    return expectedSequence;
+  }
+
+  boolean isBroken() {
+    return broken;
+  }
+}
@@ -0,0 +1,154 @@
+package com.nea.patient.access.portal.backend.audit;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Layout of the audit segment and index files.
+ * <p>
+ * A segment starts with a header (magic, format version, sequence of its first record and the hash
+ * of the last record of the previous segment) followed by records of
+ * {@code [length][sequence][timestamp][patient id][action][user length][user][hash]}. The hash is
+ * SHA-256 over the previous record's hash and this record's fields, so altering, removing or
+ * reordering any record breaks the chain from that point on. The unused tail of a segment is zero
+ * filled, a zero length marks the end of the written records.
+ * <p>
+ * A sealed segment has an index file listing, per patient, the offset of the patient's first record
+ * in the segment and the number of records, sorted by patient id.
+ */
+final class AuditSegmentFormat {
+
+  static final int MAGIC = 0x50504155;
+  static final int FORMAT_VERSION = 1;
+  static final int HASH_LENGTH = 32;
+  static final int HEADER_LENGTH = 4 + 4 + 8 + HASH_LENGTH;
+  // Length, sequence, timestamp, patient id, action and user length.
+  static final int RECORD_FIXED_LENGTH = 4 + 8 + 8 + 4 + 1 + 2;
+  static final int MAX_USER_LENGTH = 255;
+  static final byte[] GENESIS_HASH = new byte[HASH_LENGTH];
+  // Patient id, offset of the first record and record count.
+  static final int INDEX_ENTRY_LENGTH = 4 + 4 + 4;
+
+  private static final String SEGMENT_PREFIX = "audit-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String INDEX_SUFFIX = ".idx";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+
+  private AuditSegmentFormat() {
+  }
+
+  static Path segmentFile(final Path directory, final long firstSequence) {
+    return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+  }
+
+  static Path indexFile(final Path segmentFile) {
+    String fileName = segmentFile.getFileName().toString();
+    return segmentFile.resolveSibling(
+        fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+  }
+
+  /**
+   * Segment files of the directory, oldest first.
+   */
+  static List<Path> listSegments(final Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return new ArrayList<>();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+              && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  static byte[] encodeUser(final String user) {
+    byte[] encodedUser = user.getBytes(StandardCharsets.UTF_8);
+    return encodedUser.length <= MAX_USER_LENGTH ? encodedUser : Arrays.copyOf(encodedUser, MAX_USER_LENGTH);
+  }
+
+  /**
+   * Hash of a record whose fields (everything between the length and the hash) are the
+   * {@code length} bytes of {@code buffer} at {@code offset}.
+   */
+  static byte[] chainHash(final MessageDigest digest, final byte[] previousHash, final ByteBuffer buffer,
+      final int offset, final int length) {
+    ByteBuffer fields = buffer.duplicate();
+    fields.limit(offset + length);
+    fields.position(offset);
+    digest.reset();
+    digest.update(previousHash);
+    digest.update(fields);
+    return digest.digest();
+  }
+
+  static void writeIndex(final Path segmentFile, final Map<Integer, int[]> index) throws IOException {
+    Path indexFile = indexFile(segmentFile);
+    Path temporaryFile = indexFile.resolveSibling(indexFile.getFileName() + TEMPORARY_SUFFIX);
+    List<Integer> patientIds = index.keySet().stream().sorted().collect(Collectors.toList());
+    try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+      output.writeInt(patientIds.size());
+      for (Integer patientId : patientIds) {
+        int[] entry = index.get(patientId);
+        output.writeInt(patientId);
+        output.writeInt(entry[0]);
+        output.writeInt(entry[1]);
+      }
+    }
+    Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Looks a patient up in a segment index.
+   *
+   * @return the offset of the patient's first record and the record count, or {@code null} if the
+   *         segment holds no records for the patient
+   */
+  static int[] readIndexEntry(final Path indexFile, final int patientId) throws IOException {
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      int low = 0;
+      int high = index.getInt(0) - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int entry = 4 + middle * INDEX_ENTRY_LENGTH;
+        int entryPatientId = index.getInt(entry);
+        if (entryPatientId < patientId) {
+          low = middle + 1;
+        } else if (entryPatientId > patientId) {
+          high = middle - 1;
+        } else {
+          return new int[] {index.getInt(entry + 4), index.getInt(entry + 8)};
+        }
+      }
+      return null;
+    }
+  }
+}
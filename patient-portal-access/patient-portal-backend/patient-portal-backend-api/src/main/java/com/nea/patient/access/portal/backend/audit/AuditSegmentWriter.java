@@ -0,0 +1,177 @@
+package com.nea.patient.access.portal.backend.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends records to the active memory-mapped segment, rotating to a new segment when it is full.
+ * Not thread safe, owned by the audit writer thread.
+ */
+final class AuditSegmentWriter implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AuditSegmentWriter.class);
+
+  private static final String BROKEN_SUFFIX = ".broken";
+
+  private final Path directory;
+  private final int segmentSize;
+  private final MessageDigest digest = AuditSegmentFormat.newDigest();
+
+  // Patient id to {offset of the first record, record count} within the active segment.
+  private final Map<Integer, int[]> segmentIndex = new HashMap<>();
+
+  private Path segmentFile;
+  private FileChannel channel;
+  private MappedByteBuffer segment;
+  private byte[] lastHash;
+  private long nextSequence;
+
+  AuditSegmentWriter(final Path directory, final int segmentSize) throws IOException {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    Files.createDirectories(directory);
+
+    List<Path> segments = AuditSegmentFormat.listSegments(directory);
+    // A crash between creating a segment and writing its header leaves it uninitialised.
+    if (!segments.isEmpty() && isUninitialised(segments.get(segments.size() - 1))) {
+      Files.delete(segments.remove(segments.size() - 1));
+    }
+    for (int index = 0; index < segments.size() - 1; index++) {
+      if (!Files.exists(AuditSegmentFormat.indexFile(segments.get(index)))) {
+        seal(segments.get(index));
+      }
+    }
+
+    if (segments.isEmpty()) {
+      lastHash = AuditSegmentFormat.GENESIS_HASH;
+      nextSequence = 1;
+      openSegment();
+    } else {
+      recover(segments.get(segments.size() - 1));
+    }
+  }
+
+  long getNextSequence() {
+    return nextSequence;
+  }
+
+  void append(final long timestamp, final int patientId, final AuditAction action, final byte[] user)
+      throws IOException {
+    int length = AuditSegmentFormat.RECORD_FIXED_LENGTH + user.length + AuditSegmentFormat.HASH_LENGTH;
+    if (segment.remaining() < length) {
+      rotate();
+    }
+    int offset = segment.position();
+    segment.position(offset + 4);
+    segment.putLong(nextSequence);
+    segment.putLong(timestamp);
+    segment.putInt(patientId);
+    segment.put(action.getCode());
+    segment.putShort((short) user.length);
+    segment.put(user);
+    byte[] hash = AuditSegmentFormat.chainHash(digest, lastHash, segment, offset + 4,
+        length - 4 - AuditSegmentFormat.HASH_LENGTH);
+    segment.put(hash);
+    // The length goes in last, readers treat a zero length as the end of the segment.
+    segment.putInt(offset, length);
+
+    lastHash = hash;
+    nextSequence++;
+    segmentIndex.computeIfAbsent(patientId, id -> new int[] {offset, 0})[1]++;
+  }
+
+  void force() {
+    segment.force();
+  }
+
+  @Override
+  public void close() throws IOException {
+    segment.force();
+    channel.close();
+  }
+
+  private void rotate() throws IOException {
+    segment.force();
+    channel.close();
+    AuditSegmentFormat.writeIndex(segmentFile, segmentIndex);
+    segmentIndex.clear();
+    // Logged so the chain can be checked against an independent copy of its head.
+    LOGGER.info("Sealed audit segment {} ending at sequence {} with hash {}", segmentFile.getFileName(),
+        nextSequence - 1, String.format("%064x", new BigInteger(1, lastHash)));
+    openSegment();
+  }
+
+  private void openSegment() throws IOException {
+    segmentFile = AuditSegmentFormat.segmentFile(directory, nextSequence);
+    channel = FileChannel.open(segmentFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    segment.putInt(AuditSegmentFormat.MAGIC);
+    segment.putInt(AuditSegmentFormat.FORMAT_VERSION);
+    segment.putLong(nextSequence);
+    segment.put(lastHash);
+    segment.force();
+  }
+
+  private void recover(final Path lastSegment) throws IOException {
+    segmentFile = lastSegment;
+    channel = FileChannel.open(segmentFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    AuditSegmentCursor cursor = new AuditSegmentCursor(segment);
+    while (cursor.next()) {
+      segmentIndex.computeIfAbsent(cursor.getRecord().getPatientId(),
+          id -> new int[] {cursor.getRecordOffset(), 0})[1]++;
+    }
+    lastHash = cursor.getHash();
+    nextSequence = cursor.getExpectedSequence();
+    // Appended to again, so an index left by an interrupted rotation no longer covers it.
+    Files.deleteIfExists(AuditSegmentFormat.indexFile(segmentFile));
+    if (cursor.isBroken()) {
+      // Usually a record torn by a crash. The segment is sealed at the last verified record and
+      // left as it is, so the break stays visible when the chain is verified.
+      LOGGER.warn("Audit segment {} does not verify from offset {}, starting a new segment", segmentFile,
+          segment.position());
+      if (segmentIndex.isEmpty()) {
+        channel.close();
+        Files.move(segmentFile, segmentFile.resolveSibling(segmentFile.getFileName() + BROKEN_SUFFIX));
+        openSegment();
+      } else {
+        rotate();
+      }
+    }
+  }
+
+  private static boolean isUninitialised(final Path segmentFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(4);
+      return channel.read(magic, 0) < 4 || magic.getInt(0) == 0;
+    }
+  }
+
+  private static void seal(final Path segmentFile) throws IOException {
+    Map<Integer, int[]> index = new HashMap<>();
+    try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+      AuditSegmentCursor cursor = new AuditSegmentCursor(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      while (cursor.next()) {
+        index.computeIfAbsent(cursor.getRecord().getPatientId(),
+            id -> new int[] {cursor.getRecordOffset(), 0})[1]++;
+      }
+    }
+    AuditSegmentFormat.writeIndex(segmentFile, index);
+  }
+}
@@ -0,0 +1,23 @@
+package com.nea.patient.access.portal.backend.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Pre-serialised encodings of a single patient version. The gzip variants are only populated when
+ * pre-compression is enabled and the encoding is large enough to be worth compressing.
+ */
+@Getter
+@AllArgsConstructor
+public class PatientDocument {
+
+  private final long version;
+
+  private final byte[] json;
+
+  private final byte[] jsonGzip;
+
+  private final byte[] cbor;
+
+  private final byte[] cborGzip;
+}
@@ -0,0 +1,237 @@
+package com.nea.patient.access.portal.backend.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.PatientRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+/**
+ * Render cache of pre-serialised patient documents, so a {@code GET /patients/{id}} hit is served
+ * straight from bytes without loading entities or running Jackson.
+ * <p>
+ * Every committed write bumps the patient's version and evicts its document, which is then
+ * rebuilt in the background. The committing request still holds its database connection, so
+ * rebuilding on its thread would need a second connection and could exhaust the pool under load.
+ * A document built by a concurrent read miss is only stored if no write committed while it was
+ * being built, so a stale graph can never overwrite a newer one.
+ */
+@Component
+public class PatientDocumentCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PatientDocumentCache.class);
+
+  @Value("${patient.portal.render-cache.max-entries:10000}")
+  private int maxEntries;
+  @Value("${patient.portal.render-cache.precompress:true}")
+  private boolean precompress;
+  @Value("${patient.portal.render-cache.precompress-min-size:2048}")
+  private int precompressMinSize;
+  @Value("${patient.portal.render-cache.refresh-threads:2}")
+  private int refreshThreads;
+
+  @Autowired
+  private PatientRepository patientRepository;
+  @Autowired
+  private ObjectMapper objectMapper;
+  @Autowired
+  private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final ConcurrentMap<Integer, PatientDocument> documents = new ConcurrentHashMap<>();
+  // Versions come from one sequence, so a patient whose version has been dropped from the map can
+  // report the highest version dropped so far. That is newer than any build started before the
+  // drop, which keeps the map bounded without letting a stale build be stored.
+  private final ConcurrentMap<Integer, Long> versions = new ConcurrentHashMap<>();
+  private final AtomicLong versionSequence = new AtomicLong();
+  private final AtomicLong forgottenVersion = new AtomicLong();
+  private final Set<Integer> pendingRefreshes = ConcurrentHashMap.newKeySet();
+
+  private ExecutorService refreshExecutor;
+
+  public PatientDocumentCache(final PlatformTransactionManager transactionManager) {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    transactionTemplate.setReadOnly(true);
+  }
+
+  @PostConstruct
+  public void start() {
+    AtomicInteger threadNumber = new AtomicInteger();
+    refreshExecutor = Executors.newFixedThreadPool(refreshThreads, runnable -> {
+      Thread thread = new Thread(runnable, "patient-document-refresh-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void stop() {
+    refreshExecutor.shutdownNow();
+  }
+
+  /**
+   * Returns the cached document for the patient, building it on a miss. Empty if no patient
+   * exists with the given id.
+   */
+  public Optional<PatientDocument> getDocument(final Integer patientId) {
+    PatientDocument document = documents.get(patientId);
+    if (document != null) {
+      return Optional.of(document);
+    }
+    return Optional.ofNullable(buildAndStore(patientId, currentVersion(patientId)));
+  }
+
+  /**
+   * Invalidates the patient's document once the current transaction commits and rebuilds it in the
+   * background, or does both immediately if there is no transaction.
+   */
+  public void refreshAfterCommit(final Integer patientId) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          evict(patientId);
+          // Several writes to the same patient before the rebuild runs need only one rebuild.
+          if (pendingRefreshes.add(patientId)) {
+            refreshExecutor.execute(() -> {
+              pendingRefreshes.remove(patientId);
+              rebuild(patientId);
+            });
+          }
+        }
+      });
+    } else {
+      refresh(patientId);
+    }
+  }
+
+  public void evict(final Integer patientId) {
+    versions.put(patientId, versionSequence.incrementAndGet());
+    documents.remove(patientId);
+    trimVersions();
+  }
+
+  private void refresh(final Integer patientId) {
+    evict(patientId);
+    rebuild(patientId);
+  }
+
+  private void rebuild(final Integer patientId) {
+    try {
+      buildAndStore(patientId, currentVersion(patientId));
+    } catch (RuntimeException e) {
+      // The next read will rebuild the document, so a failed refresh is not fatal.
+      LOGGER.warn("Unable to rebuild cached document for patient {}: {}", patientId, e.getMessage());
+    }
+  }
+
+  private long currentVersion(final Integer patientId) {
+    Long version = versions.get(patientId);
+    return version != null ? version : forgottenVersion.get();
+  }
+
+  private void forgetVersion(final Integer patientId) {
+    Long version = versions.get(patientId);
+    if (version != null) {
+      // Raise the floor before dropping the entry so the patient never reports an older version.
+      forgottenVersion.accumulateAndGet(version, Math::max);
+      versions.remove(patientId, version);
+    }
+  }
+
+  private void trimVersions() {
+    // Writes to patients that are not cached leave versions behind, cap those too.
+    Iterator<Integer> patientIds = versions.keySet().iterator();
+    while (versions.size() > maxEntries && patientIds.hasNext()) {
+      Integer patientId = patientIds.next();
+      if (!documents.containsKey(patientId)) {
+        forgetVersion(patientId);
+      }
+    }
+  }
+
+  private PatientDocument buildAndStore(final Integer patientId, final long version) {
+    PatientDocument document = transactionTemplate.execute(status ->
+        patientRepository.findById(patientId)
+            .map(patient -> render(patient, version))
+            .orElse(null));
+    if (document == null) {
+      return null;
+    }
+
+    documents.compute(patientId, (id, existing) -> {
+      if (currentVersion(id) != version) {
+        return existing;
+      }
+      if (existing != null && existing.getVersion() > version) {
+        return existing;
+      }
+      return document;
+    });
+    trimToMaxEntries();
+    return document;
+  }
+
+  private PatientDocument render(final Patient patient, final long version) {
+    try {
+      byte[] json = objectMapper.writeValueAsBytes(patient);
+      byte[] cbor = cborHttpMessageConverter.getObjectMapper().writeValueAsBytes(patient);
+      return new PatientDocument(version, json, gzip(json), cbor, gzip(cbor));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to serialise patient " + patient.getId(), e);
+    }
+  }
+
+  private byte[] gzip(final byte[] document) {
+    if (!precompress || document.length < precompressMinSize) {
+      return null;
+    }
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(document.length / 4);
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+      gzipOutputStream.write(document);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+
+  private void trimToMaxEntries() {
+    // Approximate bound, evicting arbitrary entries is enough to cap memory use.
+    Iterator<Integer> patientIds = documents.keySet().iterator();
+    while (documents.size() > maxEntries && patientIds.hasNext()) {
+      Integer patientId = patientIds.next();
+      patientIds.remove();
+      forgetVersion(patientId);
+    }
+  }
+}
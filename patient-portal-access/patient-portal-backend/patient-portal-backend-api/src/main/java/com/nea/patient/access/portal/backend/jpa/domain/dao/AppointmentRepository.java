@@ -0,0 +1,41 @@
+package com.nea.patient.access.portal.backend.jpa.domain.dao;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.nea.patient.access.portal.backend.api.model.AppointmentDayListEntry;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.scheduling.ScheduledAppointment;
+
+@Repository
+public interface AppointmentRepository extends CrudRepository<Appointment, Integer> {
+
+  @Query("select new com.nea.patient.access.portal.backend.scheduling.ScheduledAppointment(p.id, a) "
+      + "from Patient p join p.appointments a "
+      + "where a.datetime >= :from and (a.cancelled is null or a.cancelled = false)")
+  List<ScheduledAppointment> findScheduledFrom(@Param("from") final Date from);
+
+  /**
+   * A page of the clinician's appointments in {@code [from, to)} projected straight onto patient
+   * summary fields, walking the (scheduledWith, datetime) index in a single query.
+   */
+  @Query("select new com.nea.patient.access.portal.backend.api.model.AppointmentDayListEntry("
+      + "a.id, a.datetime, a.durationMinutes, a.scheduledWith, a.attended, a.cancelled, "
+      + "p.id, p.title, p.firstName, p.surname, p.dateOfBirth) "
+      + "from Patient p join p.appointments a "
+      + "where a.scheduledWith = :clinician and a.datetime >= :from and a.datetime < :to "
+      + "order by a.datetime, a.id")
+  Slice<AppointmentDayListEntry> findDayList(@Param("clinician") final String clinician,
+      @Param("from") final Date from, @Param("to") final Date to, final Pageable pageable);
+
+  @Query("select p.id from Patient p join p.appointments a where a.id = :appointmentId")
+  Optional<Integer> findPatientIdByAppointmentId(@Param("appointmentId") final Integer appointmentId);
+}
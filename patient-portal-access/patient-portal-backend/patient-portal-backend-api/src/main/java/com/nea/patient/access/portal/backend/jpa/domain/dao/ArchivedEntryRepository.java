@@ -0,0 +1,19 @@
+package com.nea.patient.access.portal.backend.jpa.domain.dao;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ArchivedEntryType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.ArchivedEntry;
+
+@Repository
+public interface ArchivedEntryRepository extends CrudRepository<ArchivedEntry, Integer> {
+
+  Slice<ArchivedEntry> findByPatientIdOrderByEntryDateDescIdDesc(final Integer patientId,
+      final Pageable pageable);
+
+  Slice<ArchivedEntry> findByPatientIdAndEntryTypeOrderByEntryDateDescIdDesc(final Integer patientId,
+      final ArchivedEntryType entryType, final Pageable pageable);
+}
@@ -0,0 +1,16 @@
+package com.nea.patient.access.portal.backend.jpa.domain.dao;
+
+import java.util.List;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.AttachmentOwnerType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Attachment;
+
+@Repository
+public interface AttachmentRepository extends CrudRepository<Attachment, Integer> {
+
+  List<Attachment> findByOwnerTypeAndOwnerIdOrderByIdAsc(final AttachmentOwnerType ownerType,
+      final Integer ownerId);
+}
@@ -0,0 +1,23 @@
+package com.nea.patient.access.portal.backend.jpa.domain.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.OutboxEvent;
+
+@Repository
+public interface OutboxEventRepository extends CrudRepository<OutboxEvent, Long> {
+
+  List<OutboxEvent> findByOrderByIdAsc(final Pageable pageable);
+
+  @Modifying
+  @Query("delete from OutboxEvent e where e.id in :ids")
+  int deleteByIdIn(@Param("ids") final Collection<Long> ids);
+}
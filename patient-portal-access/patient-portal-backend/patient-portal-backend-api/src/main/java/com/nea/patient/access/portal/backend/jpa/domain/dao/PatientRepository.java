@@ -1,9 +1,14 @@
 package com.nea.patient.access.portal.backend.jpa.domain.dao;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
@@ -14,4 +19,38 @@ public interface PatientRepository extends CrudRepository<Patient, Integer> {
   List<Patient> findByDateOfBirth(final Date dateOfBirth);
 
   List<Patient> findByDateOfBirthAndSurname(final Date dateOfBirth, final String surname);
+
+  Page<Patient> findByDateOfBirth(final Date dateOfBirth, final Pageable pageable);
+
+  Page<Patient> findByDateOfBirthAndSurname(final Date dateOfBirth, final String surname,
+      final Pageable pageable);
+
+  /**
+   * Ids of the matching patients only, for sparse fieldsets that load the selected fields
+   * themselves.
+   */
+  @Query("select p.id from Patient p where p.dateOfBirth = :dateOfBirth")
+  Page<Integer> findIdsByDateOfBirth(@Param("dateOfBirth") final Date dateOfBirth, final Pageable pageable);
+
+  @Query("select p.id from Patient p where p.dateOfBirth = :dateOfBirth and p.surname = :surname")
+  Page<Integer> findIdsByDateOfBirthAndSurname(@Param("dateOfBirth") final Date dateOfBirth,
+      @Param("surname") final String surname, final Pageable pageable);
+
+  /**
+   * Loads many patients in a single {@code IN} query, joining the one-to-one associations so they
+   * are not selected per patient. Child collections are left lazy and initialised in batches via
+   * {@code hibernate.default_batch_fetch_size}.
+   */
+  @Query("select p from Patient p join fetch p.currentAddress left join fetch p.emergencyContact "
+      + "left join fetch p.medicalHistory where p.id in :ids")
+  List<Patient> findAllByIdIn(@Param("ids") final Collection<Integer> ids);
+
+  @Query("select p.photoHash from Patient p where p.id = :id")
+  String findPhotoHashById(@Param("id") final Integer id);
+
+  @Query("select p.id from Patient p join p.medicalHistory m join m.testResults t where t.id = :testResultId")
+  Integer findIdByTestResultId(@Param("testResultId") final Integer testResultId);
+
+  @Query("select p.id from Patient p join p.medicalHistory m join m.operations o where o.id = :operationId")
+  Integer findIdByOperationId(@Param("operationId") final Integer operationId);
 }
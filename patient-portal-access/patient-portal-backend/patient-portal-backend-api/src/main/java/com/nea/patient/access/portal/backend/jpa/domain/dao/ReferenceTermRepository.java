@@ -0,0 +1,14 @@
+package com.nea.patient.access.portal.backend.jpa.domain.dao;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.ReferenceTerm;
+
+@Repository
+public interface ReferenceTermRepository extends CrudRepository<ReferenceTerm, Integer> {
+
+  @Query("select coalesce(max(r.code), 0) from ReferenceTerm r")
+  int findMaxCode();
+}
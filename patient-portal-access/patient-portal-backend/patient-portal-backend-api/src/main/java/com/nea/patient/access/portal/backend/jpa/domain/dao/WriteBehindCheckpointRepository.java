@@ -0,0 +1,10 @@
+package com.nea.patient.access.portal.backend.jpa.domain.dao;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.WriteBehindCheckpoint;
+
+@Repository
+public interface WriteBehindCheckpointRepository extends CrudRepository<WriteBehindCheckpoint, Integer> {
+}
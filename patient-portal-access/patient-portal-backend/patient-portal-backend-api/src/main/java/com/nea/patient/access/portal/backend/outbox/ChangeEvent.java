@@ -0,0 +1,37 @@
+package com.nea.patient.access.portal.backend.outbox;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ChangeEventType;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A patient change as handed to a {@link ChangeEventSink}. Consumers can drop redelivered events by
+ * {@code id}, or by {@code patientVersion} per patient.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChangeEvent {
+
+  private Long id;
+
+  private ChangeEventType type;
+
+  private Integer patientId;
+
+  private Integer patientVersion;
+
+  private Date occurredAt;
+
+  @JsonRawValue
+  private String patient;
+}
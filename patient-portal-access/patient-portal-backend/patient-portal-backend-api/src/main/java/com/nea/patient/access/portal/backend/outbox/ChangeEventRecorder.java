@@ -0,0 +1,53 @@
+package com.nea.patient.access.portal.backend.outbox;
+
+import java.util.Date;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.OutboxEventRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ChangeEventType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.OutboxEvent;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+/**
+ * Records patient changes to the outbox table. Must join the transaction making the change, so the
+ * event commits or rolls back with it.
+ */
+@Component
+public class ChangeEventRecorder {
+
+  @Autowired
+  private OutboxEventRepository outboxEventRepository;
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void record(final ChangeEventType eventType, final Patient patient) {
+    // Flushed first so the event carries the version this change is committed at.
+    entityManager.flush();
+    String payload;
+    try {
+      payload = objectMapper.writeValueAsString(patient);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to serialise patient " + patient.getId(), e);
+    }
+    outboxEventRepository.save(OutboxEvent.builder()
+        .eventType(eventType)
+        .patientId(patient.getId())
+        .patientVersion(patient.getVersion())
+        .occurredAt(new Date())
+        .payload(payload)
+        .build());
+  }
+}
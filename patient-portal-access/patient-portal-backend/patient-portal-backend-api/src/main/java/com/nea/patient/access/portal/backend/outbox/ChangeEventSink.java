@@ -0,0 +1,19 @@
+package com.nea.patient.access.portal.backend.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the change events relayed from the outbox. Delivery is at-least-once: a batch is
+ * only removed from the outbox once {@link #publish(List)} returns, so a sink must have made the
+ * events durable by then and may see an event again after a failure or restart.
+ */
+public interface ChangeEventSink {
+
+  /**
+   * Publishes the events, in the order given.
+   *
+   * @throws IOException if the batch could not be published, the relay backs off and retries it
+   */
+  void publish(List<ChangeEvent> events) throws IOException;
+}
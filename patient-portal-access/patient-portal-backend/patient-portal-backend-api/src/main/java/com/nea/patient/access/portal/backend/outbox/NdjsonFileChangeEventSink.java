@@ -0,0 +1,68 @@
+package com.nea.patient.access.portal.backend.outbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Appends change events to a local file, one JSON document per line. Each batch is forced to disk
+ * before it is acknowledged.
+ */
+public class NdjsonFileChangeEventSink implements ChangeEventSink {
+
+  private static final byte NEW_LINE = '\n';
+
+  private final Path file;
+  private final ObjectMapper objectMapper;
+
+  private FileChannel channel;
+
+  public NdjsonFileChangeEventSink(final Path file, final ObjectMapper objectMapper) {
+    this.file = file;
+    this.objectMapper = objectMapper;
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  @Override
+  public synchronized void publish(final List<ChangeEvent> events) throws IOException {
+    ByteArrayOutputStream lines = new ByteArrayOutputStream();
+    for (ChangeEvent event : events) {
+      objectMapper.writeValue(lines, event);
+      lines.write(NEW_LINE);
+    }
+    FileChannel fileChannel = open();
+    ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+    while (buffer.hasRemaining()) {
+      fileChannel.write(buffer);
+    }
+    fileChannel.force(false);
+  }
+
+  public synchronized void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  private FileChannel open() throws IOException {
+    if (channel == null) {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND);
+    }
+    return channel;
+  }
+}
@@ -0,0 +1,25 @@
+package com.nea.patient.access.portal.backend.outbox;
+
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Configuration
+public class OutboxConfiguration {
+
+  /**
+   * Local NDJSON file sink, used unless another {@link ChangeEventSink} bean is defined.
+   */
+  @Bean(destroyMethod = "close")
+  @ConditionalOnMissingBean(ChangeEventSink.class)
+  public NdjsonFileChangeEventSink changeEventSink(
+      @Value("${patient.portal.outbox.sink-file:logs/change-events.ndjson}") final String sinkFile,
+      final ObjectMapper objectMapper) {
+    return new NdjsonFileChangeEventSink(Paths.get(sinkFile), objectMapper);
+  }
+}
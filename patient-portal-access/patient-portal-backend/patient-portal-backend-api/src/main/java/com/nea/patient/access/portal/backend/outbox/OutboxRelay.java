@@ -0,0 +1,139 @@
+package com.nea.patient.access.portal.backend.outbox;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nea.patient.access.portal.backend.api.model.OutboxStatus;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.OutboxEventRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.model.OutboxEvent;
+
+/**
+ * Publishes outbox events to the {@link ChangeEventSink} in id order and removes them once the
+ * sink has acknowledged the batch.
+ * <p>
+ * The relay pulls the next batch only after the previous one was acknowledged and stops after a
+ * bounded number of batches per run, so a slow sink holds events back in the outbox rather than
+ * in memory. When the sink fails the batch stays in the outbox and the relay backs off
+ * exponentially before retrying it. Changes to one patient are serialised by its version, so their
+ * events are always published in commit order.
+ */
+@Component
+public class OutboxRelay {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRelay.class);
+
+  @Value("${patient.portal.outbox.batch-size:200}")
+  private int batchSize;
+  @Value("${patient.portal.outbox.max-batches-per-run:10}")
+  private int maxBatchesPerRun;
+  @Value("${patient.portal.outbox.relay-interval-millis:500}")
+  private long relayIntervalMillis;
+  @Value("${patient.portal.outbox.max-backoff-millis:30000}")
+  private long maxBackoffMillis;
+
+  @Autowired
+  private OutboxEventRepository outboxEventRepository;
+  @Autowired
+  private ChangeEventSink changeEventSink;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private long backoffMillis;
+  private long nextAttemptAt;
+
+  private volatile long lastPublishedEventId;
+  private volatile int lastBatchSize;
+  private volatile long lastPublishMillis;
+  private final AtomicLong publishedEvents = new AtomicLong();
+  private final AtomicLong failedPublishes = new AtomicLong();
+
+  public OutboxRelay(final PlatformTransactionManager transactionManager) {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  public OutboxStatus getStatus() {
+    long currentBackoffMillis;
+    synchronized (this) {
+      currentBackoffMillis = backoffMillis;
+    }
+    return OutboxStatus.builder()
+        .pendingEvents(outboxEventRepository.count())
+        .lastPublishedEventId(lastPublishedEventId)
+        .lastBatchSize(lastBatchSize)
+        .lastPublishMillis(lastPublishMillis)
+        .publishedEvents(publishedEvents.get())
+        .failedPublishes(failedPublishes.get())
+        .backoffMillis(currentBackoffMillis)
+        .build();
+  }
+
+  /**
+   * Publishes pending events until the outbox is empty, the sink fails or the per run batch limit
+   * is reached.
+   */
+  @Scheduled(fixedDelayString = "${patient.portal.outbox.relay-interval-millis:500}")
+  public synchronized void relay() {
+    if (System.currentTimeMillis() < nextAttemptAt) {
+      return;
+    }
+    for (int batches = 0; batches < maxBatchesPerRun; batches++) {
+      List<OutboxEvent> batch = transactionTemplate.execute(
+          status -> outboxEventRepository.findByOrderByIdAsc(PageRequest.of(0, batchSize)));
+      if (batch.isEmpty()) {
+        return;
+      }
+
+      long started = System.nanoTime();
+      try {
+        changeEventSink.publish(batch.stream().map(OutboxRelay::toChangeEvent)
+            .collect(Collectors.toList()));
+      } catch (IOException | RuntimeException e) {
+        failedPublishes.incrementAndGet();
+        backoffMillis = backoffMillis == 0
+            ? relayIntervalMillis : Math.min(backoffMillis * 2, maxBackoffMillis);
+        nextAttemptAt = System.currentTimeMillis() + backoffMillis;
+        LOGGER.error("Unable to publish {} change events, retrying in {} ms", batch.size(),
+            backoffMillis, e);
+        return;
+      }
+      backoffMillis = 0;
+
+      // A failure here only means the batch is published again.
+      List<Long> publishedIds = batch.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+      transactionTemplate.executeWithoutResult(
+          status -> outboxEventRepository.deleteByIdIn(publishedIds));
+
+      lastPublishedEventId = publishedIds.get(publishedIds.size() - 1);
+      lastBatchSize = batch.size();
+      lastPublishMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+      publishedEvents.addAndGet(batch.size());
+      if (batch.size() < batchSize) {
+        return;
+      }
+    }
+  }
+
+  private static ChangeEvent toChangeEvent(final OutboxEvent outboxEvent) {
+    return ChangeEvent.builder()
+        .id(outboxEvent.getId())
+        .type(outboxEvent.getEventType())
+        .patientId(outboxEvent.getPatientId())
+        .patientVersion(outboxEvent.getPatientVersion())
+        .occurredAt(outboxEvent.getOccurredAt())
+        .patient(outboxEvent.getPayload())
+        .build();
+  }
+}
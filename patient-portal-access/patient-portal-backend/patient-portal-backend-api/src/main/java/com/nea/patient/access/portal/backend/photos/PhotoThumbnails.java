@@ -0,0 +1,344 @@
+package com.nea.patient.access.portal.backend.photos;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.nea.patient.access.portal.backend.api.model.ThumbnailSize;
+import com.nea.patient.access.portal.backend.attachments.AttachmentStore;
+
+/**
+ * JPEG thumbnails of patient photos at every {@link ThumbnailSize}.
+ * <p>
+ * Thumbnails are generated on a small fixed pool with a bounded queue, so decoding large photos
+ * never runs on more threads than configured. When the queue is full generation is refused rather
+ * than queued without limit. Generated thumbnails are kept in a size bounded disk cache, keyed by
+ * the photo's content hash so they never go stale, and the most recently served ones in a size
+ * bounded memory cache in front of it. A thumbnail evicted from disk is generated again on the
+ * next request. Photos larger than {@code patient.portal.photos.max-pixels} are never decoded, their
+ * dimensions are read from the header first.
+ */
+@Component
+public class PhotoThumbnails {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PhotoThumbnails.class);
+
+  private static final String THUMBNAIL_SUFFIX = ".jpg";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  private static final String JPEG_FORMAT = "jpg";
+  // Disk eviction trims to this share of the budget, so it does not run on every write.
+  private static final double DISK_TRIM_RATIO = 0.9;
+
+  @Value("${patient.portal.photos.dir:logs/photo-thumbnails}")
+  private String dir;
+  @Value("${patient.portal.photos.thumbnail-threads:2}")
+  private int thumbnailThreads;
+  @Value("${patient.portal.photos.queue-capacity:64}")
+  private int queueCapacity;
+  @Value("${patient.portal.photos.wait-millis:5000}")
+  private long waitMillis;
+  @Value("${patient.portal.photos.memory-cache-bytes:16777216}")
+  private long memoryCacheBytes;
+  @Value("${patient.portal.photos.disk-cache-bytes:268435456}")
+  private long diskCacheBytes;
+  @Value("${patient.portal.photos.max-pixels:50000000}")
+  private long maxPixels;
+
+  @Autowired
+  private AttachmentStore attachmentStore;
+
+  private ThreadPoolExecutor executor;
+  private final ConcurrentMap<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+  private final AtomicLong diskUsedBytes = new AtomicLong();
+  private final Object diskTrimLock = new Object();
+
+  // Access ordered, guarded by itself.
+  private final LinkedHashMap<String, byte[]> memoryCache = new LinkedHashMap<>(64, 0.75f, true);
+  private long memoryUsedBytes;
+
+  @PostConstruct
+  public void start() throws IOException {
+    Files.createDirectories(getDirectory());
+    try (Stream<Path> files = Files.list(getDirectory())) {
+      for (Path file : files.collect(Collectors.toList())) {
+        if (file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+          Files.delete(file);
+        } else {
+          diskUsedBytes.addAndGet(Files.size(file));
+        }
+      }
+    }
+    AtomicInteger threadNumber = new AtomicInteger();
+    executor = new ThreadPoolExecutor(thumbnailThreads, thumbnailThreads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+          Thread thread = new Thread(runnable, "photo-thumbnails-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  @PreDestroy
+  public void stop() {
+    executor.shutdownNow();
+  }
+
+  public Path getDirectory() {
+    return Paths.get(dir);
+  }
+
+  /**
+   * Whether the stored content has a format ImageIO can decode and no more than
+   * {@code patient.portal.photos.max-pixels} pixels, checked from its header only.
+   */
+  public boolean isSupportedImage(final String photoHash) throws IOException {
+    try (ImageInputStream imageInput = ImageIO.createImageInputStream(attachmentStore.resolve(photoHash).toFile())) {
+      ImageReader reader = findReader(imageInput);
+      if (reader == null) {
+        return false;
+      }
+      try {
+        return isWithinPixelLimit(reader);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Queues generation of the photo's thumbnails, joining a generation already queued for it.
+   *
+   * @throws RejectedExecutionException if the queue is full
+   */
+  public CompletableFuture<Void> generate(final String photoHash) {
+    CompletableFuture<Void> generation = new CompletableFuture<>();
+    CompletableFuture<Void> existing = pending.putIfAbsent(photoHash, generation);
+    if (existing != null) {
+      return existing;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          writeThumbnails(photoHash);
+          generation.complete(null);
+        } catch (IOException | RuntimeException e) {
+          generation.completeExceptionally(e);
+        } finally {
+          pending.remove(photoHash, generation);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      pending.remove(photoHash, generation);
+      throw e;
+    }
+    return generation;
+  }
+
+  /**
+   * Returns the thumbnail, generating the photo's thumbnails first if they are not on disk.
+   *
+   * @return empty if the photo is not a decodable image
+   * @throws RejectedExecutionException if generation is needed and the queue is full
+   * @throws TimeoutException if generation did not finish within {@code patient.portal.photos.wait-millis}
+   */
+  public Optional<byte[]> getThumbnail(final String photoHash, final ThumbnailSize size)
+      throws IOException, TimeoutException {
+    String key = photoHash + "-" + size.name();
+    synchronized (memoryCache) {
+      byte[] thumbnail = memoryCache.get(key);
+      if (thumbnail != null) {
+        return Optional.of(thumbnail);
+      }
+    }
+
+    Path file = thumbnailFile(photoHash, size);
+    if (!Files.exists(file)) {
+      try {
+        generate(photoHash).get(waitMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new TimeoutException("Interrupted waiting for thumbnails of " + photoHash);
+      } catch (ExecutionException e) {
+        LOGGER.warn("Unable to generate thumbnails of photo {}: {}", photoHash, e.getCause().getMessage());
+        return Optional.empty();
+      }
+    }
+    byte[] thumbnail;
+    try {
+      thumbnail = Files.readAllBytes(file);
+      // The modification time orders disk eviction, so it is moved on as the thumbnail is used.
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (NoSuchFileException e) {
+      // Evicted from disk since it was generated, the next request generates it again.
+      throw new TimeoutException("Thumbnail " + key + " was evicted before it was read");
+    }
+    cache(key, thumbnail);
+    return Optional.of(thumbnail);
+  }
+
+  private void writeThumbnails(final String photoHash) throws IOException {
+    ThumbnailSize[] sizes = ThumbnailSize.values();
+    boolean complete = true;
+    for (ThumbnailSize size : sizes) {
+      complete &= Files.exists(thumbnailFile(photoHash, size));
+    }
+    if (complete) {
+      return;
+    }
+
+    BufferedImage image = readImage(photoHash);
+    // Largest first, each size is scaled down from the one before.
+    for (int index = sizes.length - 1; index >= 0; index--) {
+      image = scale(image, sizes[index].getMaxDimension());
+      ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+      ImageIO.write(image, JPEG_FORMAT, jpeg);
+      Path file = thumbnailFile(photoHash, sizes[index]);
+      Path temporaryFile = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+      Files.write(temporaryFile, jpeg.toByteArray());
+      // A concurrent generation or an earlier partial run may have left this size behind.
+      long replacedBytes = Files.exists(file) ? Files.size(file) : 0;
+      Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      diskUsedBytes.addAndGet(jpeg.size() - replacedBytes);
+    }
+    if (diskUsedBytes.get() > diskCacheBytes) {
+      trimDisk();
+    }
+  }
+
+  private BufferedImage readImage(final String photoHash) throws IOException {
+    try (ImageInputStream imageInput = ImageIO.createImageInputStream(attachmentStore.resolve(photoHash).toFile())) {
+      ImageReader reader = findReader(imageInput);
+      if (reader == null) {
+        throw new IllegalArgumentException("Photo " + photoHash + " is not a supported image");
+      }
+      try {
+        if (!isWithinPixelLimit(reader)) {
+          throw new IllegalArgumentException("Photo " + photoHash + " has more than " + maxPixels + " pixels");
+        }
+        return reader.read(0);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private boolean isWithinPixelLimit(final ImageReader reader) throws IOException {
+    return (long) reader.getWidth(0) * reader.getHeight(0) <= maxPixels;
+  }
+
+  private static ImageReader findReader(final ImageInputStream imageInput) {
+    Iterator<ImageReader> readers = imageInput == null ? null : ImageIO.getImageReaders(imageInput);
+    if (readers == null || !readers.hasNext()) {
+      return null;
+    }
+    ImageReader reader = readers.next();
+    reader.setInput(imageInput, true, true);
+    return reader;
+  }
+
+  private void trimDisk() throws IOException {
+    synchronized (diskTrimLock) {
+      List<Path> files;
+      try (Stream<Path> listed = Files.list(getDirectory())) {
+        files = listed.filter(file -> file.getFileName().toString().endsWith(THUMBNAIL_SUFFIX))
+            .collect(Collectors.toList());
+      }
+      Map<Path, Long> lastUsed = new LinkedHashMap<>();
+      for (Path file : files) {
+        lastUsed.put(file, Files.getLastModifiedTime(file).toMillis());
+      }
+      files.sort(Comparator.comparing(lastUsed::get));
+      long target = (long) (diskCacheBytes * DISK_TRIM_RATIO);
+      for (Path file : files) {
+        if (diskUsedBytes.get() <= target) {
+          break;
+        }
+        long size = Files.size(file);
+        if (Files.deleteIfExists(file)) {
+          diskUsedBytes.addAndGet(-size);
+        }
+      }
+    }
+  }
+
+  private void cache(final String key, final byte[] thumbnail) {
+    synchronized (memoryCache) {
+      byte[] replaced = memoryCache.put(key, thumbnail);
+      memoryUsedBytes += thumbnail.length - (replaced == null ? 0 : replaced.length);
+      Iterator<byte[]> eldest = memoryCache.values().iterator();
+      while (memoryUsedBytes > memoryCacheBytes && eldest.hasNext()) {
+        memoryUsedBytes -= eldest.next().length;
+        eldest.remove();
+      }
+    }
+  }
+
+  private Path thumbnailFile(final String photoHash, final ThumbnailSize size) {
+    return getDirectory()
+        .resolve(photoHash + "-" + size.name().toLowerCase(Locale.ROOT) + THUMBNAIL_SUFFIX);
+  }
+
+  private static BufferedImage scale(final BufferedImage image, final int maxDimension) {
+    double factor = Math.min(1.0, (double) maxDimension / Math.max(image.getWidth(), image.getHeight()));
+    int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
+    int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
+    BufferedImage scaled = image;
+    int width = image.getWidth();
+    int height = image.getHeight();
+    // Halving in steps keeps bilinear filtering from skipping pixels on large reductions. The first
+    // step always runs, converting to opaque RGB on white as JPEG has no alpha.
+    do {
+      width = Math.max(targetWidth, width / 2);
+      height = Math.max(targetHeight, height / 2);
+      BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = step.createGraphics();
+      graphics.setColor(Color.WHITE);
+      graphics.fillRect(0, 0, width, height);
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.drawImage(scaled, 0, 0, width, height, null);
+      graphics.dispose();
+      scaled = step;
+    } while (width != targetWidth || height != targetHeight);
+    return scaled;
+  }
+}
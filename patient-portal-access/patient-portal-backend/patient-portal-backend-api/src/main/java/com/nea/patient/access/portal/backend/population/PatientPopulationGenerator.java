@@ -0,0 +1,282 @@
+package com.nea.patient.access.portal.backend.population;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.SplittableRandom;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.Gender;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.MaritalStatus;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.jpa.domain.model.CurrentAddress;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Illness;
+import com.nea.patient.access.portal.backend.jpa.domain.model.MedicalHistory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Prescription;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Vaccination;
+
+/**
+ * Generates synthetic patient graphs for load and scale testing.
+ * <p>
+ * Patient {@code n} of a population only depends on the seed and {@code n}, so a population is
+ * the same whichever thread generates which patient. Ages follow a practice list age profile,
+ * with a share of dates of birth recorded as 1 January as with migrated records, surnames follow a
+ * Zipf distribution over common surnames with a long tail of rare ones, and the number of notes,
+ * prescriptions, appointments, illnesses and vaccinations grows with age. Appointments are dated
+ * before {@code today} like the rest of the history. The clinician calendars only hold days from
+ * the current date on, so a population generated for a {@code today} no later than the current
+ * date books no clinician time.
+ * <p>
+ * Thread safe, instances hold no mutable state.
+ */
+public final class PatientPopulationGenerator {
+
+  private static final String[] SURNAMES = {"Smith", "Jones", "Williams", "Taylor", "Brown", "Davies",
+      "Evans", "Wilson", "Thomas", "Johnson", "Roberts", "Robinson", "Thompson", "Wright", "Walker",
+      "White", "Edwards", "Hughes", "Green", "Hall", "Lewis", "Harris", "Clarke", "Patel", "Jackson",
+      "Wood", "Turner", "Martin", "Cooper", "Hill", "Ward", "Morris", "Moore", "Clark", "Lee", "King",
+      "Baker", "Harrison", "Morgan", "Allen", "James", "Scott", "Phillips", "Watson", "Davis", "Parker",
+      "Price", "Bennett", "Young", "Griffiths", "Mitchell", "Kelly", "Cook", "Carter", "Richardson",
+      "Bailey", "Collins", "Bell", "Shaw", "Murphy", "Miller", "Cox", "Richards", "Khan", "Marshall",
+      "Anderson", "Simpson", "Ellis", "Adams", "Singh", "Begum", "Wilkinson", "Foster", "Chapman",
+      "Powell", "Webb", "Rogers", "Gray", "Mason", "Ali", "Hunt", "Hussain", "Campbell", "Matthews",
+      "Owen", "Palmer", "Holmes", "Mills", "Barnes", "Knight", "Lloyd", "Butler", "Russell", "Barker",
+      "Fisher", "Stevens", "Jenkins", "Murray", "Dixon", "Harvey"};
+  private static final String[] SURNAME_SYLLABLES = {"ash", "brook", "by", "cliff", "dale", "ford",
+      "gate", "ham", "hurst", "ley", "low", "mere", "ridge", "stead", "thorn", "ton", "well", "wick",
+      "worth", "yard"};
+  private static final String[] FEMALE_FIRST_NAMES = {"Olivia", "Amelia", "Isla", "Ava", "Mia", "Ivy",
+      "Lily", "Isabella", "Sophia", "Grace", "Margaret", "Susan", "Patricia", "Priya", "Harjit",
+      "Amrit", "Fatima", "Aisha", "Emily", "Jessica"};
+  private static final String[] MALE_FIRST_NAMES = {"Noah", "Oliver", "George", "Arthur", "Leo",
+      "Harry", "Oscar", "Jack", "Charlie", "Thomas", "David", "John", "Michael", "Peter", "Gavindeep",
+      "Kuldip", "Mohammed", "Ahmed", "James", "William"};
+  private static final String[] TOWNS = {"Coventry", "Leicester", "Birmingham", "Nottingham", "Derby",
+      "Warwick", "Rugby", "Nuneaton", "Solihull", "Kenilworth"};
+  private static final String[] STREETS = {"High Street", "Station Road", "Church Lane", "Park Avenue",
+      "Victoria Road", "Mill Lane", "The Green", "London Road", "Queens Road", "Manor Close"};
+  private static final String[] CLINICIANS = {"Dr Smith", "Dr Patel", "Dr Jones", "Dr Khan",
+      "Nurse Taylor", "Nurse Evans"};
+  private static final String[] PRESCRIPTION_ITEMS = {"Amlodipine", "Atorvastatin", "Metformin",
+      "Omeprazole", "Salbutamol", "Levothyroxine", "Ramipril", "Sertraline", "Lansoprazole",
+      "Paracetamol"};
+  private static final String[] PHARMACIES = {"Central Pharmacy", "Boots", "Lloyds Pharmacy",
+      "Well Pharmacy", "Superdrug Pharmacy"};
+  private static final String[] NOTES = {"Reviewed medication, no changes", "Blood pressure checked",
+      "Discussed test results", "Referred to physiotherapy", "Follow up in two weeks",
+      "Telephone consultation", "Repeat prescription requested", "Annual review completed"};
+  private static final String[] ALLERGIES = {"Penicillin", "Peanuts", "Latex", "Aspirin", "Pollen"};
+
+  // Share of the population per ten year age band, 0-9 to 90-99.
+  private static final double[] AGE_BAND_WEIGHTS = {11.5, 11.5, 13, 13.5, 12.5, 13.5, 11, 8.5, 4, 1};
+  private static final double[] AGE_BAND_CUMULATIVE = cumulative(AGE_BAND_WEIGHTS);
+  // Zipf weights 1/rank for the common surnames.
+  private static final double[] SURNAME_CUMULATIVE = cumulative(zipfWeights(SURNAMES.length));
+  private static final double RARE_SURNAME_SHARE = 0.1;
+  private static final double FIRST_OF_JANUARY_SHARE = 0.02;
+  private static final int MAX_CHILD_RECORDS = 200;
+  private static final long PATIENT_SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private final long seed;
+  private final LocalDate today;
+  private final int[] illnessCodes;
+  private final int[] vaccinationCodes;
+
+  /**
+   * @param today the date ages and record dates are relative to, fixed so a population does not
+   *        drift from day to day
+   * @param illnessCodes reference codes illnesses are coded with, none are generated if empty
+   * @param vaccinationCodes reference codes vaccinations are coded with, none are generated if empty
+   */
+  public PatientPopulationGenerator(final long seed, final LocalDate today, final int[] illnessCodes,
+      final int[] vaccinationCodes) {
+    this.seed = seed;
+    this.today = today;
+    this.illnessCodes = illnessCodes.clone();
+    this.vaccinationCodes = vaccinationCodes.clone();
+  }
+
+  /**
+   * The unsaved graph of patient {@code index} of the population.
+   */
+  public Patient generate(final long index) {
+    SplittableRandom random = new SplittableRandom(seed + index * PATIENT_SEED_GAMMA);
+    boolean female = random.nextInt(100) < 51;
+    LocalDate dateOfBirth = randomDateOfBirth(random);
+    int age = Math.max(0, today.getYear() - dateOfBirth.getYear());
+    String surname = randomSurname(random);
+
+    Patient patient = Patient.builder()
+        .title(title(random, female, age))
+        .firstName(pick(random, female ? FEMALE_FIRST_NAMES : MALE_FIRST_NAMES))
+        .surname(surname)
+        .gender(female ? Gender.FEMALE : Gender.MALE)
+        .maritalStatus(age < 18 ? null : randomMaritalStatus(random, age))
+        .dateOfBirth(toDate(dateOfBirth))
+        .contactNumber(String.format("07%09d", random.nextInt(1_000_000_000)))
+        .email(random.nextInt(100) < 60 ? surname.toLowerCase() + index + "@example.com" : null)
+        .height(age < 18 ? 50 + age * 7 : 150 + random.nextInt(45))
+        .weight(age < 18 ? 3 + age * 4 : 50 + random.nextInt(60))
+        .nhsNumber(String.format("%010d", Math.floorMod(seed + index, 10_000_000_000L)))
+        .currentAddress(CurrentAddress.builder()
+            .addressLine1((1 + random.nextInt(250)) + " " + pick(random, STREETS))
+            .town(pick(random, TOWNS))
+            .postcode(String.format("CV%d %d%c%c", 1 + random.nextInt(40), random.nextInt(10),
+                (char) ('A' + random.nextInt(26)), (char) ('A' + random.nextInt(26))))
+            .build())
+        .build();
+
+    LocalDate firstRecordDate = dateOfBirth.isAfter(today.minusYears(10)) ? dateOfBirth : today.minusYears(10);
+    int recordDays = (int) Math.max(1, today.toEpochDay() - firstRecordDate.toEpochDay());
+    for (int count = childRecordCount(random, 1 + age / 10.0); count > 0; count--) {
+      patient.getNotes().add(Note.builder()
+          .description(pick(random, NOTES))
+          .created(toDate(randomDateTime(random, firstRecordDate, recordDays)))
+          .build());
+    }
+    for (int count = childRecordCount(random, 2 + age / 8.0); count > 0; count--) {
+      boolean cancelled = random.nextInt(100) < 5;
+      String clinician = pick(random, CLINICIANS);
+      patient.getAppointments().add(Appointment.builder()
+          .scheduledWith(clinician)
+          .seenBy(cancelled ? null : clinician)
+          .cancelled(cancelled)
+          .attended(!cancelled && random.nextInt(100) < 92)
+          .datetime(toDate(randomDateTime(random, firstRecordDate, recordDays)))
+          .durationMinutes(random.nextInt(100) < 80 ? 15 : 30)
+          .build());
+    }
+    for (int count = childRecordCount(random, age < 40 ? 0.5 : age / 15.0); count > 0; count--) {
+      patient.getPrescriptions().add(Prescription.builder()
+          .item(pick(random, PRESCRIPTION_ITEMS))
+          .recommendedDosage(random.nextBoolean() ? "Once daily" : "Twice daily")
+          .preferredPharmacy(pick(random, PHARMACIES))
+          .repeat(random.nextInt(100) < 40)
+          .lastPrescribed(toDate(randomDateTime(random, firstRecordDate, recordDays)))
+          .build());
+    }
+    if (random.nextInt(100) < 70) {
+      patient.setMedicalHistory(randomMedicalHistory(random, age, dateOfBirth));
+    }
+    return patient;
+  }
+
+  private MedicalHistory randomMedicalHistory(final SplittableRandom random, final int age,
+      final LocalDate dateOfBirth) {
+    MedicalHistory medicalHistory = MedicalHistory.builder()
+        .allergies(random.nextInt(100) < 20 ? pick(random, ALLERGIES) : null)
+        .build();
+    int lifeDays = (int) Math.max(1, today.toEpochDay() - dateOfBirth.toEpochDay());
+    if (illnessCodes.length > 0) {
+      for (int count = childRecordCount(random, age / 25.0); count > 0; count--) {
+        LocalDateTime diagnosed = randomDateTime(random, dateOfBirth, lifeDays);
+        medicalHistory.getIllnesses().add(Illness.builder()
+            .typeCode(illnessCodes[random.nextInt(illnessCodes.length)])
+            .severity(random.nextInt(100) < 70 ? "Mild" : "Severe")
+            .diagnosedDate(toDate(diagnosed))
+            .lastReviewed(toDate(diagnosed.plusDays(random.nextInt(365))))
+            .build());
+      }
+    }
+    if (vaccinationCodes.length > 0) {
+      for (int count = childRecordCount(random, 2 + age / 20.0); count > 0; count--) {
+        medicalHistory.getVaccinations().add(Vaccination.builder()
+            .typeCode(vaccinationCodes[random.nextInt(vaccinationCodes.length)])
+            .location("Left arm")
+            .datePerformed(toDate(randomDateTime(random, dateOfBirth, lifeDays)))
+            .build());
+      }
+    }
+    return medicalHistory;
+  }
+
+  private LocalDate randomDateOfBirth(final SplittableRandom random) {
+    int band = Arrays.binarySearch(AGE_BAND_CUMULATIVE, random.nextDouble());
+    band = band < 0 ? -band - 1 : band;
+    int ageDays = band * 3652 + random.nextInt(3652);
+    LocalDate dateOfBirth = today.minusDays(ageDays);
+    if (random.nextDouble() < FIRST_OF_JANUARY_SHARE) {
+      return dateOfBirth.withDayOfYear(1);
+    }
+    return dateOfBirth;
+  }
+
+  private static String randomSurname(final SplittableRandom random) {
+    if (random.nextDouble() < RARE_SURNAME_SHARE) {
+      String surname = pick(random, SURNAME_SYLLABLES) + pick(random, SURNAME_SYLLABLES);
+      return Character.toUpperCase(surname.charAt(0)) + surname.substring(1);
+    }
+    int rank = Arrays.binarySearch(SURNAME_CUMULATIVE, random.nextDouble());
+    return SURNAMES[rank < 0 ? -rank - 1 : rank];
+  }
+
+  private static MaritalStatus randomMaritalStatus(final SplittableRandom random, final int age) {
+    int draw = random.nextInt(100);
+    if (age < 30) {
+      return draw < 70 ? MaritalStatus.SINGLE : draw < 85 ? MaritalStatus.COHABITING : MaritalStatus.MARRIED;
+    }
+    if (age > 75 && draw < 30) {
+      return MaritalStatus.WIDOWED;
+    }
+    return draw < 50 ? MaritalStatus.MARRIED : draw < 65 ? MaritalStatus.SINGLE
+        : draw < 80 ? MaritalStatus.COHABITING : draw < 92 ? MaritalStatus.DIVORCED : MaritalStatus.SEPARATED;
+  }
+
+  private static String title(final SplittableRandom random, final boolean female, final int age) {
+    if (age < 18) {
+      return female ? "Miss" : "Master";
+    }
+    if (random.nextInt(100) < 3) {
+      return "Dr";
+    }
+    return female ? (random.nextBoolean() ? "Mrs" : "Ms") : "Mr";
+  }
+
+  /**
+   * Exponentially distributed with the given mean, so most patients have a few records and some
+   * have many.
+   */
+  private static int childRecordCount(final SplittableRandom random, final double mean) {
+    return (int) Math.min(MAX_CHILD_RECORDS, -mean * Math.log(1 - random.nextDouble()));
+  }
+
+  private static LocalDateTime randomDateTime(final SplittableRandom random, final LocalDate from,
+      final int days) {
+    return from.plusDays(random.nextInt(days)).atTime(8 + random.nextInt(10), random.nextInt(4) * 15);
+  }
+
+  private static String pick(final SplittableRandom random, final String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  private static double[] zipfWeights(final int count) {
+    double[] weights = new double[count];
+    for (int rank = 0; rank < count; rank++) {
+      weights[rank] = 1.0 / (rank + 1);
+    }
+    return weights;
+  }
+
+  private static double[] cumulative(final double[] weights) {
+    double total = Arrays.stream(weights).sum();
+    double[] cumulative = new double[weights.length];
+    double sum = 0;
+    for (int index = 0; index < weights.length; index++) {
+      sum += weights[index];
+      cumulative[index] = sum / total;
+    }
+    cumulative[weights.length - 1] = 1;
+    return cumulative;
+  }
+
+  private static Date toDate(final LocalDate date) {
+    return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+
+  private static Date toDate(final LocalDateTime dateTime) {
+    return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+  }
+}
@@ -0,0 +1,147 @@
+package com.nea.patient.access.portal.backend.population;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nea.patient.access.portal.backend.analytics.PopulationAnalytics;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.PatientRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ReferenceCategory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.reference.ReferenceDictionary;
+
+/**
+ * Fills the database with a synthetic population from {@link PatientPopulationGenerator}, so
+ * production-scale volumes can be reproduced locally. Only created with the
+ * {@value #PROFILE} profile active, see {@code application-synthetic-population.yml}, which loads
+ * {@code patient.portal.population.size} patients on startup into an empty database. Without the
+ * profile no deployment can be filled with synthetic patients by setting a property.
+ * <p>
+ * This is a bulk path: each thread saves chunks of patients in a transaction per chunk straight
+ * through the repository, without change events, audit records or cached documents. Every entity
+ * has an identity key so inserts are not batched by Hibernate, chunking keeps the transactions and
+ * persistence contexts small instead. Run with {@code spring.jpa.show-sql=false} for large loads.
+ */
+@Component
+@Profile(PatientPopulationLoader.PROFILE)
+public class PatientPopulationLoader {
+
+  public static final String PROFILE = "synthetic-population";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PatientPopulationLoader.class);
+
+  private static final int PROGRESS_INTERVAL = 100_000;
+
+  @Value("${patient.portal.population.size:0}")
+  private int size;
+  @Value("${patient.portal.population.seed:20220601}")
+  private long seed;
+  @Value("${patient.portal.population.threads:4}")
+  private int threads;
+  @Value("${patient.portal.population.chunk-size:500}")
+  private int chunkSize;
+
+  @Autowired
+  private PatientRepository patientRepository;
+  @Autowired
+  private ReferenceDictionary referenceDictionary;
+  @Autowired
+  private PopulationAnalytics populationAnalytics;
+
+  private final TransactionTemplate transactionTemplate;
+
+  public PatientPopulationLoader(final PlatformTransactionManager transactionManager) {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadConfiguredPopulation() throws InterruptedException {
+    if (size <= 0) {
+      return;
+    }
+    if (patientRepository.count() > 0) {
+      LOGGER.info("Not loading a synthetic population, the database already holds patients");
+      return;
+    }
+    load(0, size);
+    populationAnalytics.refresh();
+  }
+
+  /**
+   * The generator of the configured population, coded with the current reference terms.
+   */
+  public PatientPopulationGenerator newGenerator() {
+    return new PatientPopulationGenerator(seed, LocalDate.now(), referenceCodes(ReferenceCategory.ILLNESS),
+        referenceCodes(ReferenceCategory.VACCINATION));
+  }
+
+  /**
+   * Generates and saves patients {@code firstIndex} to {@code firstIndex + count - 1} of the
+   * configured population.
+   *
+   * @throws IllegalStateException if a chunk cannot be saved, chunks already saved are kept
+   */
+  public void load(final long firstIndex, final int count) throws InterruptedException {
+    PatientPopulationGenerator generator = newGenerator();
+    AtomicInteger threadNumber = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "population-loader-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    AtomicLong saved = new AtomicLong();
+    long startNanos = System.nanoTime();
+    try {
+      List<Future<?>> chunks = new ArrayList<>();
+      for (long chunkStart = firstIndex; chunkStart < firstIndex + count; chunkStart += chunkSize) {
+        long chunkEnd = Math.min(firstIndex + count, chunkStart + chunkSize);
+        long start = chunkStart;
+        chunks.add(executor.submit(() -> {
+          List<Patient> patients = new ArrayList<>((int) (chunkEnd - start));
+          for (long index = start; index < chunkEnd; index++) {
+            patients.add(generator.generate(index));
+          }
+          transactionTemplate.executeWithoutResult(status -> patientRepository.saveAll(patients));
+          long total = saved.addAndGet(patients.size());
+          if (total / PROGRESS_INTERVAL != (total - patients.size()) / PROGRESS_INTERVAL) {
+            LOGGER.info("Saved {} of {} synthetic patients", total, count);
+          }
+        }));
+      }
+      for (Future<?> chunk : chunks) {
+        chunk.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to save synthetic patients", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+    LOGGER.info("Saved {} synthetic patients from seed {} in {} ms, {} patients per second", saved.get(), seed,
+        elapsedMillis, saved.get() * 1000 / elapsedMillis);
+  }
+
+  private int[] referenceCodes(final ReferenceCategory category) {
+    return referenceDictionary.getTerms().stream()
+        .filter(term -> category == term.getCategory())
+        .mapToInt(term -> term.getCode())
+        .toArray();
+  }
+}
@@ -0,0 +1,231 @@
+package com.nea.patient.access.portal.backend.reference;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nea.patient.access.portal.backend.jpa.domain.dao.ReferenceTermRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ReferenceCategory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Illness;
+import com.nea.patient.access.portal.backend.jpa.domain.model.MedicalHistory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.ReferenceTerm;
+import com.nea.patient.access.portal.backend.jpa.domain.model.TestResult;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Vaccination;
+
+/**
+ * In-memory copy of the reference terms, the only place codes are turned back into labels.
+ * <p>
+ * Terms are read once at startup, seeding the defaults into an empty database, and held in an
+ * immutable snapshot that is replaced whenever a term is registered. The version is a checksum of
+ * the snapshot, so it is stable across restarts and only changes with the terms themselves.
+ */
+@Component
+public class ReferenceDictionary {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceDictionary.class);
+
+  private static final String DEFAULT_TERMS_RESOURCE = "reference-terms.csv";
+
+  @Autowired
+  private ReferenceTermRepository referenceTermRepository;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private volatile Terms terms = new Terms(Collections.emptyList());
+
+  public ReferenceDictionary(final PlatformTransactionManager transactionManager) {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  @PostConstruct
+  public void load() {
+    transactionTemplate.executeWithoutResult(status -> {
+      if (referenceTermRepository.count() == 0) {
+        seedDefaults();
+      }
+      List<ReferenceTerm> storedTerms = new ArrayList<>();
+      referenceTermRepository.findAll().forEach(storedTerms::add);
+      terms = new Terms(storedTerms);
+    });
+    LOGGER.info("Loaded {} reference terms, version {}", terms.ordered.size(), terms.version);
+  }
+
+  /**
+   * The current terms and their version, read together so they always describe the same set.
+   */
+  public Terms getSnapshot() {
+    return terms;
+  }
+
+  public String getVersion() {
+    return terms.version;
+  }
+
+  /**
+   * All terms ordered by category then label.
+   */
+  public List<ReferenceTerm> getTerms() {
+    return terms.ordered;
+  }
+
+  /**
+   * Label for the code, or null if the code is unknown.
+   */
+  public String getLabel(final Integer code) {
+    ReferenceTerm term = code != null ? terms.byCode.get(code) : null;
+    return term != null ? term.getLabel() : null;
+  }
+
+  public Optional<Integer> findCode(final ReferenceCategory category, final String label) {
+    ReferenceTerm term = terms.byLabel.get(category).get(normalise(label));
+    return term != null ? Optional.of(term.getCode()) : Optional.empty();
+  }
+
+  public boolean isKnown(final ReferenceCategory category, final Integer code) {
+    ReferenceTerm term = terms.byCode.get(code);
+    return term != null && term.getCategory() == category;
+  }
+
+  /**
+   * Whether every coded row in the medical history refers to a term of the right category. Rows
+   * without a code are allowed.
+   */
+  public boolean isCodedConsistently(final MedicalHistory medicalHistory) {
+    if (medicalHistory == null) {
+      return true;
+    }
+    for (Illness illness : medicalHistory.getIllnesses()) {
+      if (illness.getTypeCode() != null && !isKnown(ReferenceCategory.ILLNESS, illness.getTypeCode())) {
+        return false;
+      }
+    }
+    for (Vaccination vaccination : medicalHistory.getVaccinations()) {
+      if (vaccination.getTypeCode() != null
+          && !isKnown(ReferenceCategory.VACCINATION, vaccination.getTypeCode())) {
+        return false;
+      }
+    }
+    for (TestResult testResult : medicalHistory.getTestResults()) {
+      if (testResult.getTypeCode() != null
+          && !isKnown(ReferenceCategory.TEST_RESULT, testResult.getTypeCode())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the term with the given label, adding it under the next free code if it is new.
+   * Writers are serialised so two requests cannot allocate the same code.
+   */
+  public synchronized ReferenceTerm register(final ReferenceCategory category, final String label) {
+    String normalisedLabel = normalise(label);
+    ReferenceTerm existingTerm = terms.byLabel.get(category).get(normalisedLabel);
+    if (existingTerm != null) {
+      return existingTerm;
+    }
+
+    ReferenceTerm newTerm = transactionTemplate.execute(status -> referenceTermRepository.save(
+        ReferenceTerm.builder()
+            .code(referenceTermRepository.findMaxCode() + 1)
+            .category(category)
+            .label(label.trim())
+            .build()));
+    List<ReferenceTerm> updatedTerms = new ArrayList<>(terms.ordered);
+    updatedTerms.add(newTerm);
+    terms = new Terms(updatedTerms);
+    return newTerm;
+  }
+
+  private void seedDefaults() {
+    int code = 0;
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new ClassPathResource(DEFAULT_TERMS_RESOURCE).getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] columns = line.split(",", 2);
+        referenceTermRepository.save(ReferenceTerm.builder()
+            .code(++code)
+            .category(ReferenceCategory.valueOf(columns[0].trim()))
+            .label(columns[1].trim())
+            .build());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read " + DEFAULT_TERMS_RESOURCE, e);
+    }
+  }
+
+  private static String normalise(final String label) {
+    return label == null ? "" : label.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Immutable snapshot of the terms, replaced as a whole when a term is registered.
+   */
+  public static final class Terms {
+
+    private final List<ReferenceTerm> ordered;
+    private final Map<Integer, ReferenceTerm> byCode = new HashMap<>();
+    private final Map<ReferenceCategory, Map<String, ReferenceTerm>> byLabel =
+        new EnumMap<>(ReferenceCategory.class);
+    private final String version;
+
+    private Terms(final Collection<ReferenceTerm> terms) {
+      List<ReferenceTerm> sortedTerms = new ArrayList<>(terms);
+      sortedTerms.sort(Comparator.comparing(ReferenceTerm::getCategory)
+          .thenComparing(ReferenceTerm::getLabel, String.CASE_INSENSITIVE_ORDER));
+      ordered = Collections.unmodifiableList(sortedTerms);
+
+      for (ReferenceCategory category : ReferenceCategory.values()) {
+        byLabel.put(category, new HashMap<>());
+      }
+      CRC32 checksum = new CRC32();
+      for (ReferenceTerm term : ordered) {
+        byCode.put(term.getCode(), term);
+        byLabel.get(term.getCategory()).put(normalise(term.getLabel()), term);
+        checksum.update((term.getCode() + ":" + term.getCategory() + ":" + term.getLabel() + "\n")
+            .getBytes(StandardCharsets.UTF_8));
+      }
+      version = Long.toHexString(checksum.getValue());
+    }
+
+    public String getVersion() {
+      return version;
+    }
+
+    /**
+     * All terms ordered by category then label.
+     */
+    public List<ReferenceTerm> getTerms() {
+      return ordered;
+    }
+  }
+}
@@ -0,0 +1,415 @@
+package com.nea.patient.access.portal.backend.scheduling;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.nea.patient.access.portal.backend.jpa.domain.dao.AppointmentRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+/**
+ * In-memory clinician calendars, one {@link IntervalTree} per clinician per day, so slot searches
+ * and double-booking checks never touch the database. The calendars are rebuilt from upcoming
+ * appointments on startup and kept in step with every committed appointment write. Only days from
+ * today on are held: past appointments written with a patient are neither checked nor reserved,
+ * and days that have passed are dropped each night.
+ * <p>
+ * Bookings, and appointments written through the full patient document, are checked and reserved
+ * under the lock of the clinician's day, then released again if the surrounding transaction rolls
+ * back.
+ */
+@Component
+public class AppointmentScheduler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AppointmentScheduler.class);
+
+  @Value("${patient.portal.scheduling.day-start:09:00}")
+  private String dayStart;
+  @Value("${patient.portal.scheduling.day-end:17:00}")
+  private String dayEnd;
+  @Value("${patient.portal.scheduling.slot-minutes:15}")
+  private int slotMinutes;
+  @Value("${patient.portal.scheduling.search-days:28}")
+  private int searchDays;
+
+  @Autowired
+  private AppointmentRepository appointmentRepository;
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private final ConcurrentMap<CalendarDay, IntervalTree> calendars = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Integer, BookedInterval> bookedIntervals = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Integer, Set<Integer>> patientAppointmentIds = new ConcurrentHashMap<>();
+
+  private int dayStartMinute;
+  private int dayEndMinute;
+
+  @PostConstruct
+  public void rebuildCalendars() {
+    dayStartMinute = toMinuteOfDay(LocalTime.parse(dayStart));
+    dayEndMinute = toMinuteOfDay(LocalTime.parse(dayEnd));
+
+    calendars.clear();
+    bookedIntervals.clear();
+    patientAppointmentIds.clear();
+    List<ScheduledAppointment> scheduledAppointments = appointmentRepository
+        .findScheduledFrom(toDate(LocalDate.now().atStartOfDay()));
+    scheduledAppointments.stream()
+        .filter(scheduledAppointment -> isBooked(scheduledAppointment.getAppointment()))
+        .forEach(scheduledAppointment -> track(toBookedInterval(
+            scheduledAppointment.getPatientId(), scheduledAppointment.getAppointment())));
+    LOGGER.info("Rebuilt {} clinician calendars from {} appointments", calendars.size(),
+        scheduledAppointments.size());
+  }
+
+  /**
+   * Drops the calendars of days before today.
+   */
+  @Scheduled(cron = "${patient.portal.scheduling.prune-cron:0 5 0 * * *}")
+  public void pruneCalendars() {
+    LocalDate today = LocalDate.now();
+    List<Integer> pastAppointmentIds = bookedIntervals.values().stream()
+        .filter(bookedInterval -> bookedInterval.calendarDay.day.isBefore(today))
+        .map(bookedInterval -> bookedInterval.appointmentId)
+        .collect(Collectors.toList());
+    pastAppointmentIds.forEach(this::release);
+    calendars.keySet().removeIf(calendarDay -> calendarDay.day.isBefore(today));
+    LOGGER.debug("Dropped {} appointments of past days from the clinician calendars", pastAppointmentIds.size());
+  }
+
+  public int getSlotMinutes() {
+    return slotMinutes;
+  }
+
+  /**
+   * Whether an appointment of the given length starting at {@code start} lies within the
+   * clinic's working hours of a single day.
+   */
+  public boolean isWithinWorkingHours(final LocalDateTime start, final int durationMinutes) {
+    int startMinute = toMinuteOfDay(start.toLocalTime());
+    return durationMinutes > 0 && startMinute >= dayStartMinute
+        && startMinute + durationMinutes <= dayEndMinute;
+  }
+
+  /**
+   * Earliest free slot of the given length with the clinician at or after {@code from}, searching
+   * forward a configured number of days.
+   */
+  public Optional<LocalDateTime> findNextFreeSlot(final String clinician, final LocalDateTime from,
+      final int durationMinutes) {
+    LocalDate firstDay = from.toLocalDate();
+    for (int dayOffset = 0; dayOffset < searchDays; dayOffset++) {
+      LocalDate day = firstDay.plusDays(dayOffset);
+      int fromMinute = dayOffset == 0
+          ? Math.max(dayStartMinute, toMinuteOfDay(from.toLocalTime())) : dayStartMinute;
+      int freeMinute = -1;
+      IntervalTree calendar = calendars.get(new CalendarDay(clinician, day));
+      if (calendar == null) {
+        freeMinute = ((fromMinute + slotMinutes - 1) / slotMinutes) * slotMinutes;
+        freeMinute = freeMinute + durationMinutes <= dayEndMinute ? freeMinute : -1;
+      } else {
+        synchronized (calendar) {
+          freeMinute = calendar.findFirstGap(fromMinute, durationMinutes, slotMinutes, dayEndMinute);
+        }
+      }
+      if (freeMinute >= 0) {
+        return Optional.of(day.atStartOfDay().plusMinutes(freeMinute));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Books the appointment with the patient if the clinician is free for its whole duration. Must
+   * be called inside the transaction that owns {@code patient}; the appointment is flushed to
+   * obtain its id while the clinician's day is locked.
+   *
+   * @return false if the slot overlaps an existing booking
+   */
+  public boolean book(final Patient patient, final Appointment appointment) {
+    BookedInterval bookedInterval = toBookedInterval(patient.getId(), appointment);
+    IntervalTree calendar = calendars.computeIfAbsent(bookedInterval.calendarDay,
+        calendarDay -> new IntervalTree());
+    synchronized (calendar) {
+      if (calendar.overlaps(bookedInterval.startMinute, bookedInterval.endMinute)) {
+        return false;
+      }
+      patient.getAppointments().add(appointment);
+      entityManager.flush();
+      bookedInterval.appointmentId = appointment.getId();
+      calendar.insert(bookedInterval.startMinute, bookedInterval.endMinute, appointment.getId());
+    }
+    index(bookedInterval);
+
+    runAfterRollback(() -> release(appointment.getId()));
+    return true;
+  }
+
+  /**
+   * Frees the appointment's slot once the current transaction commits.
+   */
+  public void releaseAfterCommit(final Integer appointmentId) {
+    runAfterCommit(() -> release(appointmentId));
+  }
+
+  /**
+   * Replaces the tracked slots of a patient with the appointments written through the full
+   * patient document. Must be called inside the transaction that saved them, once they have ids;
+   * the patient's previous slots are restored if the transaction rolls back.
+   *
+   * @return false, leaving the calendars unchanged, if a new or moved appointment overlaps another
+   *     booking
+   */
+  public boolean reschedule(final Integer patientId, final Collection<Appointment> appointments) {
+    Map<Integer, BookedInterval> previousIntervals = new HashMap<>();
+    patientAppointmentIds.getOrDefault(patientId, Collections.emptySet()).forEach(appointmentId ->
+        Optional.ofNullable(bookedIntervals.get(appointmentId))
+            .ifPresent(bookedInterval -> previousIntervals.put(appointmentId, bookedInterval)));
+
+    List<BookedInterval> changedIntervals = new ArrayList<>();
+    Set<Integer> unchangedIds = new HashSet<>();
+    LocalDate today = LocalDate.now();
+    for (Appointment appointment : appointments) {
+      if (!isBooked(appointment)) {
+        continue;
+      }
+      BookedInterval bookedInterval = toBookedInterval(patientId, appointment);
+      // Past appointments are history, not bookings, as when the calendars are rebuilt.
+      if (bookedInterval.calendarDay.day.isBefore(today)) {
+        continue;
+      }
+      if (bookedInterval.isSameSlot(previousIntervals.get(appointment.getId()))) {
+        unchangedIds.add(appointment.getId());
+      } else {
+        changedIntervals.add(bookedInterval);
+      }
+    }
+    List<BookedInterval> replacedIntervals = previousIntervals.values().stream()
+        .filter(bookedInterval -> !unchangedIds.contains(bookedInterval.appointmentId))
+        .collect(Collectors.toList());
+    if (changedIntervals.isEmpty() && replacedIntervals.isEmpty()) {
+      return true;
+    }
+
+    // Check every new slot before changing anything, so a refused write leaves no trace.
+    Set<Integer> replacedIds = replacedIntervals.stream()
+        .map(bookedInterval -> bookedInterval.appointmentId)
+        .collect(Collectors.toSet());
+    for (int i = 0; i < changedIntervals.size(); i++) {
+      BookedInterval changedInterval = changedIntervals.get(i);
+      for (int j = 0; j < i; j++) {
+        if (changedInterval.overlaps(changedIntervals.get(j))) {
+          return false;
+        }
+      }
+      IntervalTree calendar = calendars.get(changedInterval.calendarDay);
+      if (calendar != null) {
+        synchronized (calendar) {
+          if (calendar.overlaps(changedInterval.startMinute, changedInterval.endMinute, replacedIds)) {
+            return false;
+          }
+        }
+      }
+    }
+
+    replacedIntervals.forEach(bookedInterval -> release(bookedInterval.appointmentId));
+    List<BookedInterval> reservedIntervals = new ArrayList<>();
+    for (BookedInterval changedInterval : changedIntervals) {
+      if (!reserve(changedInterval)) {
+        // A concurrent booking took the slot since the check.
+        reservedIntervals.forEach(bookedInterval -> release(bookedInterval.appointmentId));
+        replacedIntervals.forEach(this::track);
+        return false;
+      }
+      reservedIntervals.add(changedInterval);
+    }
+    runAfterRollback(() -> {
+      reservedIntervals.forEach(bookedInterval -> release(bookedInterval.appointmentId));
+      replacedIntervals.forEach(this::track);
+    });
+    return true;
+  }
+
+  private static boolean isBooked(final Appointment appointment) {
+    return appointment.getId() != null && appointment.getDatetime() != null
+        && appointment.getScheduledWith() != null && !Boolean.TRUE.equals(appointment.getCancelled());
+  }
+
+  private boolean reserve(final BookedInterval bookedInterval) {
+    IntervalTree calendar = calendars.computeIfAbsent(bookedInterval.calendarDay,
+        calendarDay -> new IntervalTree());
+    synchronized (calendar) {
+      if (calendar.overlaps(bookedInterval.startMinute, bookedInterval.endMinute)) {
+        return false;
+      }
+      calendar.insert(bookedInterval.startMinute, bookedInterval.endMinute,
+          bookedInterval.appointmentId);
+    }
+    index(bookedInterval);
+    return true;
+  }
+
+  private void track(final BookedInterval bookedInterval) {
+    IntervalTree calendar = calendars.computeIfAbsent(bookedInterval.calendarDay,
+        calendarDay -> new IntervalTree());
+    synchronized (calendar) {
+      calendar.insert(bookedInterval.startMinute, bookedInterval.endMinute,
+          bookedInterval.appointmentId);
+    }
+    index(bookedInterval);
+  }
+
+  private void index(final BookedInterval bookedInterval) {
+    bookedIntervals.put(bookedInterval.appointmentId, bookedInterval);
+    patientAppointmentIds.computeIfAbsent(bookedInterval.patientId,
+        patientId -> ConcurrentHashMap.newKeySet()).add(bookedInterval.appointmentId);
+  }
+
+  private void release(final Integer appointmentId) {
+    BookedInterval bookedInterval = bookedIntervals.remove(appointmentId);
+    if (bookedInterval == null) {
+      return;
+    }
+    patientAppointmentIds.computeIfPresent(bookedInterval.patientId, (patientId, appointmentIds) -> {
+      appointmentIds.remove(appointmentId);
+      return appointmentIds.isEmpty() ? null : appointmentIds;
+    });
+    IntervalTree calendar = calendars.get(bookedInterval.calendarDay);
+    if (calendar != null) {
+      synchronized (calendar) {
+        calendar.remove(bookedInterval.startMinute, appointmentId);
+      }
+    }
+  }
+
+  private BookedInterval toBookedInterval(final Integer patientId, final Appointment appointment) {
+    LocalDateTime start = LocalDateTime.ofInstant(appointment.getDatetime().toInstant(),
+        ZoneId.systemDefault());
+    int durationMinutes = appointment.getDurationMinutes() != null
+        ? appointment.getDurationMinutes() : slotMinutes;
+    int startMinute = toMinuteOfDay(start.toLocalTime());
+    BookedInterval bookedInterval = new BookedInterval(patientId,
+        new CalendarDay(appointment.getScheduledWith().trim(), start.toLocalDate()),
+        startMinute, startMinute + durationMinutes);
+    bookedInterval.appointmentId = appointment.getId();
+    return bookedInterval;
+  }
+
+  private void runAfterRollback(final Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(final int status) {
+          if (status != STATUS_COMMITTED) {
+            action.run();
+          }
+        }
+      });
+    }
+  }
+
+  private void runAfterCommit(final Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    } else {
+      action.run();
+    }
+  }
+
+  private static int toMinuteOfDay(final LocalTime time) {
+    return time.getHour() * 60 + time.getMinute();
+  }
+
+  private static Date toDate(final LocalDateTime dateTime) {
+    return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+  private static final class CalendarDay {
+
+    private final String clinician;
+    private final LocalDate day;
+
+    private CalendarDay(final String clinician, final LocalDate day) {
+      this.clinician = clinician;
+      this.day = day;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof CalendarDay)) {
+        return false;
+      }
+      CalendarDay otherDay = (CalendarDay) other;
+      return clinician.equals(otherDay.clinician) && day.equals(otherDay.day);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(clinician, day);
+    }
+  }
+
+  private static final class BookedInterval {
+
+    private final Integer patientId;
+    private final CalendarDay calendarDay;
+    private final int startMinute;
+    private final int endMinute;
+    private Integer appointmentId;
+
+    private BookedInterval(final Integer patientId, final CalendarDay calendarDay,
+        final int startMinute, final int endMinute) {
+      this.patientId = patientId;
+      this.calendarDay = calendarDay;
+      this.startMinute = startMinute;
+      this.endMinute = endMinute;
+    }
+
+    private boolean isSameSlot(final BookedInterval other) {
+      return other != null && calendarDay.equals(other.calendarDay)
+          && startMinute == other.startMinute && endMinute == other.endMinute;
+    }
+
+    private boolean overlaps(final BookedInterval other) {
+      return calendarDay.equals(other.calendarDay)
+          && startMinute < other.endMinute && other.startMinute < endMinute;
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package com.nea.patient.access.portal.backend.scheduling;
+
+import java.util.Set;
+
+/**
+ * AVL tree of half-open {@code [start, end)} intervals ordered by start, each node augmented with
+ * the largest end in its subtree so overlap and free-gap queries can skip whole subtrees. Times
+ * are minutes from midnight and every interval carries the id of the appointment occupying it.
+ * <p>
+ * Not thread safe, callers synchronise on the tree.
+ */
+class IntervalTree {
+
+  private Node root;
+  private int size;
+
+  int size() {
+    return size;
+  }
+
+  void insert(final int start, final int end, final int id) {
+    root = insert(root, new Node(start, end, id));
+    size++;
+  }
+
+  boolean remove(final int start, final int id) {
+    int sizeBefore = size;
+    root = remove(root, start, id);
+    return size < sizeBefore;
+  }
+
+  boolean overlaps(final int start, final int end) {
+    Node node = root;
+    while (node != null) {
+      if (node.start < end && start < node.end) {
+        return true;
+      }
+      // Intervals on the left all start earlier, so they can only overlap if one ends after start.
+      if (node.left != null && node.left.maxEnd > start) {
+        node = node.left;
+      } else if (node.start < end) {
+        node = node.right;
+      } else {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether {@code [start, end)} overlaps any interval other than those of the given appointments.
+   */
+  boolean overlaps(final int start, final int end, final Set<Integer> ignoredIds) {
+    return overlaps(root, start, end, ignoredIds);
+  }
+
+  /**
+   * Returns the earliest start at or after {@code from}, aligned to {@code granularity}, where an
+   * interval of {@code duration} fits without overlapping and ends by {@code limit}, or -1 if
+   * there is no such gap.
+   */
+  int findFirstGap(final int from, final int duration, final int granularity, final int limit) {
+    int[] candidate = {alignUp(from, granularity)};
+    findGap(root, candidate, duration, granularity);
+    return candidate[0] + duration <= limit ? candidate[0] : -1;
+  }
+
+  private boolean findGap(final Node node, final int[] candidate, final int duration,
+      final int granularity) {
+    if (node == null || node.maxEnd <= candidate[0]) {
+      // Nothing in this subtree ends after the candidate, so nothing here can block it.
+      return false;
+    }
+    if (findGap(node.left, candidate, duration, granularity)) {
+      return true;
+    }
+    if (node.start >= candidate[0] + duration) {
+      // Everything after this node starts later still, the gap is proven.
+      return true;
+    }
+    candidate[0] = Math.max(candidate[0], alignUp(node.end, granularity));
+    return findGap(node.right, candidate, duration, granularity);
+  }
+
+  private static boolean overlaps(final Node node, final int start, final int end,
+      final Set<Integer> ignoredIds) {
+    if (node == null || node.maxEnd <= start) {
+      return false;
+    }
+    if (node.start < end && start < node.end && !ignoredIds.contains(node.id)) {
+      return true;
+    }
+    // An ignored overlap can hide others on either side, so both subtrees may need searching.
+    return overlaps(node.left, start, end, ignoredIds)
+        || (node.start < end && overlaps(node.right, start, end, ignoredIds));
+  }
+
+  private static int alignUp(final int minutes, final int granularity) {
+    return ((minutes + granularity - 1) / granularity) * granularity;
+  }
+
+  private Node insert(final Node node, final Node newNode) {
+    if (node == null) {
+      return newNode;
+    }
+    if (compare(newNode.start, newNode.id, node) < 0) {
+      node.left = insert(node.left, newNode);
+    } else {
+      node.right = insert(node.right, newNode);
+    }
+    return rebalance(node);
+  }
+
+  private Node remove(final Node node, final int start, final int id) {
+    if (node == null) {
+      return null;
+    }
+    int comparison = compare(start, id, node);
+    if (comparison < 0) {
+      node.left = remove(node.left, start, id);
+    } else if (comparison > 0) {
+      node.right = remove(node.right, start, id);
+    } else {
+      size--;
+      if (node.left == null) {
+        return node.right;
+      }
+      if (node.right == null) {
+        return node.left;
+      }
+      Node successor = node.right;
+      while (successor.left != null) {
+        successor = successor.left;
+      }
+      successor.right = removeMinimum(node.right);
+      successor.left = node.left;
+      return rebalance(successor);
+    }
+    return rebalance(node);
+  }
+
+  private Node removeMinimum(final Node node) {
+    if (node.left == null) {
+      return node.right;
+    }
+    node.left = removeMinimum(node.left);
+    return rebalance(node);
+  }
+
+  private static int compare(final int start, final int id, final Node node) {
+    int comparison = Integer.compare(start, node.start);
+    return comparison != 0 ? comparison : Integer.compare(id, node.id);
+  }
+
+  private static Node rebalance(final Node node) {
+    update(node);
+    int balance = height(node.left) - height(node.right);
+    if (balance > 1) {
+      if (height(node.left.left) < height(node.left.right)) {
+        node.left = rotateLeft(node.left);
+      }
+      return rotateRight(node);
+    }
+    if (balance < -1) {
+      if (height(node.right.right) < height(node.right.left)) {
+        node.right = rotateRight(node.right);
+      }
+      return rotateLeft(node);
+    }
+    return node;
+  }
+
+  private static Node rotateRight(final Node node) {
+    Node pivot = node.left;
+    node.left = pivot.right;
+    pivot.right = node;
+    update(node);
+    update(pivot);
+    return pivot;
+  }
+
+  private static Node rotateLeft(final Node node) {
+    Node pivot = node.right;
+    node.right = pivot.left;
+    pivot.left = node;
+    update(node);
+    update(pivot);
+    return pivot;
+  }
+
+  private static void update(final Node node) {
+    node.height = 1 + Math.max(height(node.left), height(node.right));
+    node.maxEnd = Math.max(node.end, Math.max(maxEnd(node.left), maxEnd(node.right)));
+  }
+
+  private static int height(final Node node) {
+    return node == null ? 0 : node.height;
+  }
+
+  private static int maxEnd(final Node node) {
+    return node == null ? Integer.MIN_VALUE : node.maxEnd;
+  }
+
+  private static final class Node {
+
+    private final int start;
+    private final int end;
+    private final int id;
+    private int maxEnd;
+    private int height = 1;
+    private Node left;
+    private Node right;
+
+    private Node(final int start, final int end, final int id) {
+      this.start = start;
+      this.end = end;
+      this.id = id;
+      this.maxEnd = end;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.nea.patient.access.portal.backend.scheduling;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An appointment together with the id of the patient it belongs to, which the appointment itself
+ * does not map.
+ */
+@Getter
+@AllArgsConstructor
+public class ScheduledAppointment {
+
+  private final Integer patientId;
+
+  private final Appointment appointment;
+}
@@ -0,0 +1,23 @@
+package com.nea.patient.access.portal.backend.startup;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.nea.patient.access.portal.backend.audit.AuditLog;
+import com.nea.patient.access.portal.backend.writebehind.WriteBehindQueue;
+
+@Configuration
+public class StartupConfiguration {
+
+  /**
+   * Beans created at startup even when {@code spring.main.lazy-initialization} is set, as in the
+   * {@code fast-startup} profile. The write-behind queue replays unapplied writes and the audit
+   * log recovers and seals its segments when they start, which must not wait for the first request
+   * that happens to use them. Scheduled beans are kept eager by Spring Boot already.
+   */
+  @Bean
+  public static LazyInitializationExcludeFilter recoveringBeansLazyInitializationExcludeFilter() {
+    return LazyInitializationExcludeFilter.forBeanTypes(WriteBehindQueue.class, AuditLog.class);
+  }
+}
@@ -0,0 +1,72 @@
+package com.nea.patient.access.portal.backend.startup;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.stereotype.Component;
+
+/**
+ * Logs how long after the JVM started the backend was ready to serve requests and, when
+ * {@code patient.portal.startup.report-steps} is set, the slowest steps of the startup timeline
+ * recorded by the {@link BufferingApplicationStartup} installed in
+ * {@code PatientPortalBackendApplication}. Step durations include their nested steps.
+ * <p>
+ * With {@code patient.portal.startup.exit-when-ready} the application exits once ready, used by the
+ * {@code fast-startup} build profile to record the classes loaded during startup in an AppCDS
+ * archive.
+ */
+@Component
+public class StartupTimelineReport {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StartupTimelineReport.class);
+
+  @Value("${patient.portal.startup.report-steps:0}")
+  private int reportSteps;
+  @Value("${patient.portal.startup.exit-when-ready:false}")
+  private boolean exitWhenReady;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void report(final ApplicationReadyEvent event) {
+    LOGGER.info("Ready to serve requests {} ms after the JVM started",
+        ManagementFactory.getRuntimeMXBean().getUptime());
+
+    ConfigurableApplicationContext context = event.getApplicationContext();
+    ApplicationStartup applicationStartup = context.getApplicationStartup();
+    if (applicationStartup instanceof BufferingApplicationStartup) {
+      // Drained so the recorded steps are not held for the lifetime of the application.
+      StartupTimeline timeline = ((BufferingApplicationStartup) applicationStartup).drainBufferedTimeline();
+      if (reportSteps > 0) {
+        LOGGER.info("Slowest of {} startup steps:{}", timeline.getEvents().size(), timeline.getEvents().stream()
+            .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+            .limit(reportSteps)
+            .map(this::describe)
+            .collect(Collectors.joining()));
+      }
+    }
+
+    if (exitWhenReady) {
+      System.exit(SpringApplication.exit(context));
+    }
+  }
+
+  private String describe(final StartupTimeline.TimelineEvent event) {
+    String tags = StreamSupport.stream(event.getStartupStep().getTags().spliterator(), false)
+        .map(tag -> tag.getKey() + "=" + tag.getValue())
+        .collect(Collectors.joining(", "));
+    Duration duration = event.getDuration();
+    return String.format("%n%8d ms  %s %s", duration.toMillis(), event.getStartupStep().getName(), tags);
+  }
+}
@@ -0,0 +1,175 @@
+package com.nea.patient.access.portal.backend.timeline;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.nea.patient.access.portal.backend.api.model.PatientTimelineResponse;
+import com.nea.patient.access.portal.backend.api.model.TimelineEntry;
+import com.nea.patient.access.portal.backend.api.model.TimelineEntryType;
+import com.nea.patient.access.portal.backend.reference.ReferenceDictionary;
+
+/**
+ * Builds a patient's timeline, a single newest-first feed over every dated child record.
+ * <p>
+ * Each record type is read by its own query, already sorted and positioned after the cursor, and
+ * limited to one page. The sorted streams are then k-way merged through a heap holding the head
+ * of each stream, so at most a page per type is ever read and nothing is sorted in memory.
+ */
+@Component
+public class PatientTimelineService {
+
+  // Newest first, then by type and id so entries sharing a date have a stable order.
+  private static final Comparator<TimelineEntry> TIMELINE_ORDER = Comparator
+      .comparing((TimelineEntry entry) -> entry.getDate().getTime(), Comparator.reverseOrder())
+      .thenComparing(TimelineEntry::getType)
+      .thenComparing(TimelineEntry::getId, Comparator.reverseOrder());
+
+  private static final Map<TimelineEntryType, TimelineSource> SOURCES = new EnumMap<>(TimelineEntryType.class);
+
+  static {
+    SOURCES.put(TimelineEntryType.APPOINTMENT, new TimelineSource("join p.appointments e", "datetime", "scheduledWith", false));
+    SOURCES.put(TimelineEntryType.NOTE, new TimelineSource("join p.notes e", "created", "description", false));
+    SOURCES.put(TimelineEntryType.PRESCRIPTION, new TimelineSource("join p.prescriptions e", "lastPrescribed", "item", false));
+    SOURCES.put(TimelineEntryType.TEST_RESULT, new TimelineSource("join p.medicalHistory m join m.testResults e", "dateOfTest", "typeCode", true));
+    SOURCES.put(TimelineEntryType.VACCINATION, new TimelineSource("join p.medicalHistory m join m.vaccinations e", "datePerformed", "typeCode", true));
+    SOURCES.put(TimelineEntryType.OPERATION, new TimelineSource("join p.medicalHistory m join m.operations e", "dateOfOperation", "description", false));
+    SOURCES.put(TimelineEntryType.ILLNESS, new TimelineSource("join p.medicalHistory m join m.illnesses e", "diagnosedDate", "typeCode", true));
+  }
+
+  @PersistenceContext
+  private EntityManager entityManager;
+  @Autowired
+  private ReferenceDictionary referenceDictionary;
+
+  /**
+   * Reads the page of the patient's timeline following {@code timelineCursor}, or the first page
+   * when the cursor is null. Records without a date are not part of the timeline.
+   */
+  @Transactional(readOnly = true)
+  public PatientTimelineResponse getTimeline(final Integer patientId, final TimelineCursor timelineCursor,
+      final int limit) {
+
+    List<Stream<TimelineEntry>> streams = new ArrayList<>();
+    PriorityQueue<StreamHead> heads = new PriorityQueue<>(SOURCES.size(),
+        Comparator.comparing(StreamHead::getEntry, TIMELINE_ORDER));
+    try {
+      for (Map.Entry<TimelineEntryType, TimelineSource> source : SOURCES.entrySet()) {
+        // One row beyond the page tells us whether another page exists.
+        Stream<TimelineEntry> stream = query(source.getKey(), source.getValue(), patientId,
+            timelineCursor, limit + 1);
+        streams.add(stream);
+        StreamHead head = new StreamHead(stream.iterator());
+        if (head.advance()) {
+          heads.add(head);
+        }
+      }
+
+      PatientTimelineResponse timelineResponse = PatientTimelineResponse.builder().build();
+      List<TimelineEntry> entries = timelineResponse.getEntries();
+      while (!heads.isEmpty() && entries.size() <= limit) {
+        StreamHead head = heads.poll();
+        entries.add(head.getEntry());
+        if (head.advance()) {
+          heads.add(head);
+        }
+      }
+      if (entries.size() > limit) {
+        entries.remove(limit);
+        timelineResponse.setNextCursor(TimelineCursor.of(entries.get(limit - 1)).encode());
+      }
+      return timelineResponse;
+    } finally {
+      streams.forEach(Stream::close);
+    }
+  }
+
+  private Stream<TimelineEntry> query(final TimelineEntryType type, final TimelineSource source,
+      final Integer patientId, final TimelineCursor cursor, final int maxResults) {
+    String date = "e." + source.dateAttribute;
+    // Reference codes are selected as text and swapped for their label as the rows stream out.
+    String summary = source.coded ? "str(e." + source.summaryAttribute + ")" : "e." + source.summaryAttribute;
+    StringBuilder jpql = new StringBuilder("select new ")
+        .append(TimelineEntry.class.getName())
+        .append("(e.id, ").append(date).append(", ").append(summary).append(") ")
+        .append("from Patient p ").append(source.join)
+        .append(" where p.id = :patientId and ").append(date).append(" is not null");
+    if (cursor != null) {
+      // Entries sorting after the cursor: older, or the same date and later in type/id order.
+      int typeComparison = type.compareTo(cursor.getType());
+      if (typeComparison < 0) {
+        jpql.append(" and ").append(date).append(" < :cursorDate");
+      } else if (typeComparison == 0) {
+        jpql.append(" and (").append(date).append(" < :cursorDate or (").append(date)
+            .append(" = :cursorDate and e.id < :cursorId))");
+      } else {
+        jpql.append(" and ").append(date).append(" <= :cursorDate");
+      }
+    }
+    jpql.append(" order by ").append(date).append(" desc, e.id desc");
+
+    TypedQuery<TimelineEntry> query = entityManager.createQuery(jpql.toString(), TimelineEntry.class)
+        .setParameter("patientId", patientId)
+        .setMaxResults(maxResults);
+    if (cursor != null) {
+      query.setParameter("cursorDate", cursor.getDate());
+      if (type == cursor.getType()) {
+        query.setParameter("cursorId", cursor.getId());
+      }
+    }
+    return query.getResultStream().peek(entry -> {
+      entry.setType(type);
+      if (source.coded && entry.getSummary() != null) {
+        entry.setSummary(referenceDictionary.getLabel(Integer.valueOf(entry.getSummary())));
+      }
+    });
+  }
+
+  private static final class TimelineSource {
+
+    private final String join;
+    private final String dateAttribute;
+    private final String summaryAttribute;
+    private final boolean coded;
+
+    private TimelineSource(final String join, final String dateAttribute,
+        final String summaryAttribute, final boolean coded) {
+      this.join = join;
+      this.dateAttribute = dateAttribute;
+      this.summaryAttribute = summaryAttribute;
+      this.coded = coded;
+    }
+  }
+
+  private static final class StreamHead {
+
+    private final Iterator<TimelineEntry> iterator;
+    private TimelineEntry entry;
+
+    private StreamHead(final Iterator<TimelineEntry> iterator) {
+      this.iterator = iterator;
+    }
+
+    private boolean advance() {
+      entry = iterator.hasNext() ? iterator.next() : null;
+      return entry != null;
+    }
+
+    private TimelineEntry getEntry() {
+      return entry;
+    }
+  }
+}
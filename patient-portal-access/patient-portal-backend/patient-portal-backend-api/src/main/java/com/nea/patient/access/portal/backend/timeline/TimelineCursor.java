@@ -0,0 +1,63 @@
+package com.nea.patient.access.portal.backend.timeline;
+
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.nea.patient.access.portal.backend.api.model.TimelineEntry;
+import com.nea.patient.access.portal.backend.api.model.TimelineEntryType;
+
+/**
+ * Position in the timeline, the sort key (date, type, id) of the last entry returned. Encoded as
+ * {@code <epochMillis>:<type>:<id>} and treated as opaque by clients.
+ */
+public final class TimelineCursor {
+
+  private static final String SEPARATOR = ":";
+
+  private final Date date;
+  private final TimelineEntryType type;
+  private final Integer id;
+
+  private TimelineCursor(final Date date, final TimelineEntryType type, final Integer id) {
+    this.date = date;
+    this.type = type;
+    this.id = id;
+  }
+
+  static TimelineCursor of(final TimelineEntry entry) {
+    return new TimelineCursor(entry.getDate(), entry.getType(), entry.getId());
+  }
+
+  /**
+   * @throws IllegalArgumentException if the value is not a cursor produced by {@link #encode()}
+   */
+  public static TimelineCursor decode(final String value) {
+    String[] parts = StringUtils.split(value, SEPARATOR);
+    if (parts == null || parts.length != 3) {
+      throw new IllegalArgumentException("Malformed timeline cursor: " + value);
+    }
+    try {
+      return new TimelineCursor(new Date(Long.parseLong(parts[0])),
+          TimelineEntryType.valueOf(parts[1]), Integer.valueOf(parts[2]));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed timeline cursor: " + value, e);
+    }
+  }
+
+  String encode() {
+    return date.getTime() + SEPARATOR + type.name() + SEPARATOR + id;
+  }
+
+  Date getDate() {
+    return date;
+  }
+
+  TimelineEntryType getType() {
+    return type;
+  }
+
+  Integer getId() {
+    return id;
+  }
+}
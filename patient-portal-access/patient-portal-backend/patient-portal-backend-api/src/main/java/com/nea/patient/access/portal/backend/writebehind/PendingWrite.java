@@ -0,0 +1,36 @@
+package com.nea.patient.access.portal.backend.writebehind;
+
+import java.util.Date;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A write acknowledged to the caller but not yet applied, as stored in the write-behind log.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PendingWrite {
+
+  private long sequence;
+
+  private PendingWriteType type;
+
+  private Integer patientId;
+
+  // Set for ADD_NOTE.
+  private Note note;
+
+  // Set for MARK_ATTENDED.
+  private Integer appointmentId;
+
+  private Date enqueuedAt;
+}
@@ -0,0 +1,6 @@
+package com.nea.patient.access.portal.backend.writebehind;
+
+public enum PendingWriteType {
+  ADD_NOTE,
+  MARK_ATTENDED;
+}
@@ -0,0 +1,134 @@
+package com.nea.patient.access.portal.backend.writebehind;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of length and CRC framed records.
+ * <p>
+ * Appends are split into {@link #write} and {@link #sync} so callers can write under their own
+ * ordering lock and fsync outside it: a sync covers every record written before it started, so
+ * concurrent appenders share one {@code force} rather than queueing for one each.
+ */
+final class WriteBehindLog implements AutoCloseable {
+
+  private static final int HEADER_BYTES = Integer.BYTES * 2;
+
+  private final Path file;
+  private final FileChannel channel;
+  private final Object syncLock = new Object();
+
+  // Bytes ever written and ever forced. Never reset by truncation, so they only grow.
+  private volatile long writtenBytes;
+  private long syncedBytes;
+
+  WriteBehindLog(final Path file) throws IOException {
+    this.file = file;
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Reads back every intact record. A torn or corrupt record, left by a crash part way through an
+   * append, ends the log and is cut off along with anything after it.
+   */
+  List<byte[]> recover() throws IOException {
+    List<byte[]> records = new ArrayList<>();
+    long position = 0;
+    long size = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    while (position + HEADER_BYTES <= size) {
+      header.clear();
+      readFully(header, position);
+      header.flip();
+      int length = header.getInt();
+      int checksum = header.getInt();
+      if (length < 0 || position + HEADER_BYTES + length > size) {
+        break;
+      }
+      ByteBuffer payload = ByteBuffer.allocate(length);
+      readFully(payload, position + HEADER_BYTES);
+      CRC32 crc = new CRC32();
+      crc.update(payload.array());
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+      records.add(payload.array());
+      position += HEADER_BYTES + length;
+    }
+    if (position < size) {
+      channel.truncate(position);
+      channel.force(true);
+    }
+    channel.position(position);
+    return records;
+  }
+
+  /**
+   * Appends a record without forcing it to disk. Callers must serialise writes themselves.
+   */
+  void write(final byte[] payload) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+    record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+    while (record.hasRemaining()) {
+      channel.write(record);
+    }
+    writtenBytes += record.capacity();
+  }
+
+  /**
+   * Returns once every record written before the call is on disk.
+   */
+  void sync() throws IOException {
+    long target = writtenBytes;
+    synchronized (syncLock) {
+      if (syncedBytes >= target) {
+        // Another appender's force already covered this record.
+        return;
+      }
+      long covered = writtenBytes;
+      channel.force(false);
+      syncedBytes = covered;
+    }
+  }
+
+  /**
+   * Empties the log once every record in it has been applied. Callers must hold the same lock as
+   * for {@link #write}.
+   */
+  void truncate() throws IOException {
+    channel.truncate(0);
+    channel.position(0);
+    channel.force(true);
+  }
+
+  Path getFile() {
+    return file;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void readFully(final ByteBuffer buffer, final long position) throws IOException {
+    long readPosition = position;
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, readPosition);
+      if (read < 0) {
+        throw new IOException("Unexpected end of " + file);
+      }
+      readPosition += read;
+    }
+  }
+}
@@ -0,0 +1,390 @@
+package com.nea.patient.access.portal.backend.writebehind;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nea.patient.access.portal.backend.api.model.WriteBehindStatus;
+import com.nea.patient.access.portal.backend.cache.PatientDocumentCache;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.PatientRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.WriteBehindCheckpointRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ChangeEventType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.jpa.domain.model.WriteBehindCheckpoint;
+import com.nea.patient.access.portal.backend.outbox.ChangeEventRecorder;
+
+/**
+ * Write-behind path for small, high-frequency patient writes (new notes and attendance flags).
+ * <p>
+ * A write is acknowledged once it is durable in the local {@link WriteBehindLog}. A scheduled
+ * flusher then drains the queue, groups the writes by patient so each patient graph is loaded and
+ * saved once, and applies the batch in one transaction together with the checkpoint of the last
+ * sequence applied. On startup any logged writes beyond the checkpoint are queued again. The log
+ * is emptied whenever the flusher has caught up with it.
+ * <p>
+ * A batch that fails for any reason other than the database being unreachable is retried one write
+ * per transaction, in sequence order, so the checkpoint stays a high-water mark. A write that keeps
+ * failing is moved to a dead-letter file rather than holding up the writes behind it. New writes
+ * are refused once the queue is full, so an outage cannot grow it without bound.
+ */
+@Component
+public class WriteBehindQueue {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+  private static final String LOG_FILE_NAME = "pending-writes.log";
+  private static final String DEAD_LETTER_FILE_NAME = "dead-letters.ndjson";
+
+  @Value("${patient.portal.write-behind.enabled:false}")
+  private boolean enabled;
+  @Value("${patient.portal.write-behind.log-dir:logs/write-behind}")
+  private String logDir;
+  @Value("${patient.portal.write-behind.max-batch-size:500}")
+  private int maxBatchSize;
+  @Value("${patient.portal.write-behind.max-queue-depth:10000}")
+  private int maxQueueDepth;
+  @Value("${patient.portal.write-behind.max-attempts:3}")
+  private int maxAttempts;
+
+  @Autowired
+  private PatientRepository patientRepository;
+  @Autowired
+  private WriteBehindCheckpointRepository checkpointRepository;
+  @Autowired
+  private PatientDocumentCache patientDocumentCache;
+  @Autowired
+  private ObjectMapper objectMapper;
+  @Autowired
+  private ChangeEventRecorder changeEventRecorder;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final BlockingDeque<PendingWrite> pending = new LinkedBlockingDeque<>();
+  // Guards sequence allocation, log writes and truncation so the log is always in sequence order.
+  private final Object appendLock = new Object();
+
+  // Failed attempts of writes that failed on their own, only touched by the flusher.
+  private final Map<Long, Integer> failedAttempts = new HashMap<>();
+
+  private WriteBehindLog log;
+  private Path deadLetterFile;
+  private long lastEnqueuedSequence;
+  private volatile long appliedSequence;
+
+  private volatile int lastFlushSize;
+  private volatile long lastFlushMillis;
+  private volatile long maxFlushMillis;
+  private final AtomicLong flushedWrites = new AtomicLong();
+  private final AtomicLong failedFlushes = new AtomicLong();
+  private final AtomicLong deadLetteredWrites = new AtomicLong();
+  private final AtomicLong rejectedWrites = new AtomicLong();
+
+  public WriteBehindQueue(final PlatformTransactionManager transactionManager) {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @PostConstruct
+  public void recover() throws IOException {
+    log = new WriteBehindLog(Paths.get(logDir, LOG_FILE_NAME));
+    deadLetterFile = Paths.get(logDir, DEAD_LETTER_FILE_NAME);
+    appliedSequence = transactionTemplate.execute(status -> checkpointRepository
+        .findById(WriteBehindCheckpoint.SINGLETON_ID)
+        .map(WriteBehindCheckpoint::getAppliedSequence)
+        .orElse(0L));
+
+    long lastSequence = appliedSequence;
+    int recovered = 0;
+    for (byte[] record : log.recover()) {
+      PendingWrite write = objectMapper.readValue(record, PendingWrite.class);
+      if (write.getSequence() > appliedSequence) {
+        pending.add(write);
+        recovered++;
+      }
+      lastSequence = Math.max(lastSequence, write.getSequence());
+    }
+    synchronized (appendLock) {
+      lastEnqueuedSequence = lastSequence;
+    }
+    if (recovered > 0) {
+      LOGGER.info("Recovered {} unapplied writes from {}", recovered, log.getFile());
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Durably queues a note for the patient. The patient is expected to exist, writes for patients
+   * that have since gone are dropped when flushed.
+   *
+   * @throws WriteBehindQueueFullException if the queue already holds its maximum depth
+   */
+  public void enqueueNote(final Integer patientId, final Note note) {
+    note.setId(null);
+    enqueue(PendingWrite.builder()
+        .type(PendingWriteType.ADD_NOTE)
+        .patientId(patientId)
+        .note(note)
+        .build());
+  }
+
+  /**
+   * Durably queues marking the patient's appointment as attended.
+   *
+   * @throws WriteBehindQueueFullException if the queue already holds its maximum depth
+   */
+  public void enqueueAttendance(final Integer patientId, final Integer appointmentId) {
+    enqueue(PendingWrite.builder()
+        .type(PendingWriteType.MARK_ATTENDED)
+        .patientId(patientId)
+        .appointmentId(appointmentId)
+        .build());
+  }
+
+  public WriteBehindStatus getStatus() {
+    long enqueuedSequence;
+    synchronized (appendLock) {
+      enqueuedSequence = lastEnqueuedSequence;
+    }
+    return WriteBehindStatus.builder()
+        .enabled(enabled)
+        .queueDepth(pending.size())
+        .lastEnqueuedSequence(enqueuedSequence)
+        .appliedSequence(appliedSequence)
+        .lastFlushSize(lastFlushSize)
+        .lastFlushMillis(lastFlushMillis)
+        .maxFlushMillis(maxFlushMillis)
+        .flushedWrites(flushedWrites.get())
+        .failedFlushes(failedFlushes.get())
+        .deadLetteredWrites(deadLetteredWrites.get())
+        .rejectedWrites(rejectedWrites.get())
+        .build();
+  }
+
+  /**
+   * Applies up to one batch of queued writes. A batch the database could not be reached for is put
+   * back at the head of the queue and retried on the next run, any other failure is retried one
+   * write at a time.
+   */
+  @Scheduled(fixedDelayString = "${patient.portal.write-behind.flush-interval-millis:200}")
+  public synchronized void flush() {
+    List<PendingWrite> batch = new ArrayList<>();
+    pending.drainTo(batch, maxBatchSize);
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    long started = System.nanoTime();
+    long batchSequence = batch.get(batch.size() - 1).getSequence();
+    try {
+      transactionTemplate.executeWithoutResult(status -> apply(batch, batchSequence));
+    } catch (RuntimeException e) {
+      failedFlushes.incrementAndGet();
+      if (isDatabaseUnavailable(e)) {
+        requeue(batch);
+        LOGGER.error("Unable to apply {} queued writes, will retry", batch.size(), e);
+      } else {
+        LOGGER.warn("Unable to apply {} queued writes together, applying them one at a time",
+            batch.size(), e);
+        applyIndividually(batch);
+      }
+      return;
+    }
+    appliedSequence = batchSequence;
+    failedAttempts.clear();
+
+    long flushMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    lastFlushSize = batch.size();
+    lastFlushMillis = flushMillis;
+    maxFlushMillis = Math.max(maxFlushMillis, flushMillis);
+    flushedWrites.addAndGet(batch.size());
+    truncateIfCaughtUp();
+  }
+
+  @PreDestroy
+  public void shutdown() throws IOException {
+    // Drain while flushes succeed, anything left is replayed from the log on the next start.
+    long failuresBefore = failedFlushes.get();
+    while (!pending.isEmpty() && failedFlushes.get() == failuresBefore) {
+      flush();
+    }
+    log.close();
+  }
+
+  /**
+   * Applies the writes in sequence order, each in its own transaction advancing the checkpoint to
+   * it. Stops at the first write that fails, putting it and the rest back, unless it has now failed
+   * too often, in which case it is dead-lettered and skipped.
+   */
+  private void applyIndividually(final List<PendingWrite> batch) {
+    for (int index = 0; index < batch.size(); index++) {
+      PendingWrite write = batch.get(index);
+      try {
+        transactionTemplate.executeWithoutResult(status ->
+            apply(Collections.singletonList(write), write.getSequence()));
+        flushedWrites.incrementAndGet();
+      } catch (RuntimeException e) {
+        int attempts = failedAttempts.merge(write.getSequence(), 1, Integer::sum);
+        if (isDatabaseUnavailable(e) || attempts < maxAttempts || !deadLetter(write, e)) {
+          requeue(batch.subList(index, batch.size()));
+          return;
+        }
+      }
+      appliedSequence = write.getSequence();
+      failedAttempts.remove(write.getSequence());
+    }
+    truncateIfCaughtUp();
+  }
+
+  /**
+   * Records the write in the dead-letter file and moves the checkpoint past it.
+   *
+   * @return false if either step failed, leaving the write to be retried
+   */
+  private boolean deadLetter(final PendingWrite write, final RuntimeException failure) {
+    ObjectNode deadLetter = objectMapper.createObjectNode();
+    deadLetter.set("write", objectMapper.valueToTree(write));
+    deadLetter.put("error", String.valueOf(failure.getMessage()));
+    deadLetter.put("deadLetteredAt", new Date().getTime());
+    try {
+      byte[] line = (objectMapper.writeValueAsString(deadLetter) + "\n").getBytes(StandardCharsets.UTF_8);
+      Files.write(deadLetterFile, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+          StandardOpenOption.SYNC);
+      transactionTemplate.executeWithoutResult(status -> saveCheckpoint(write.getSequence()));
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Unable to dead-letter queued write {}", write.getSequence(), e);
+      return false;
+    }
+    deadLetteredWrites.incrementAndGet();
+    LOGGER.error("Dead-lettered queued write {} for patient {} after {} attempts: {}",
+        write.getSequence(), write.getPatientId(), maxAttempts, failure.getMessage());
+    return true;
+  }
+
+  private void requeue(final List<PendingWrite> writes) {
+    for (int index = writes.size() - 1; index >= 0; index--) {
+      pending.addFirst(writes.get(index));
+    }
+  }
+
+  private static boolean isDatabaseUnavailable(final RuntimeException e) {
+    return e instanceof CannotCreateTransactionException
+        || e instanceof TransientDataAccessException
+        || e instanceof RecoverableDataAccessException
+        || e instanceof DataAccessResourceFailureException;
+  }
+
+  private void truncateIfCaughtUp() {
+    synchronized (appendLock) {
+      if (lastEnqueuedSequence == appliedSequence) {
+        try {
+          log.truncate();
+        } catch (IOException e) {
+          // Harmless, the applied records are skipped on recovery.
+          LOGGER.warn("Unable to truncate {}", log.getFile(), e);
+        }
+      }
+    }
+  }
+
+  private void enqueue(final PendingWrite write) {
+    write.setEnqueuedAt(new Date());
+    try {
+      synchronized (appendLock) {
+        if (pending.size() >= maxQueueDepth) {
+          rejectedWrites.incrementAndGet();
+          throw new WriteBehindQueueFullException(maxQueueDepth);
+        }
+        write.setSequence(lastEnqueuedSequence + 1);
+        log.write(objectMapper.writeValueAsBytes(write));
+        lastEnqueuedSequence = write.getSequence();
+        pending.add(write);
+      }
+      // Outside the lock, so concurrent writers share one fsync.
+      log.sync();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to append to " + log.getFile(), e);
+    }
+  }
+
+  private void apply(final List<PendingWrite> batch, final long batchSequence) {
+    Map<Integer, List<PendingWrite>> writesByPatient = batch.stream()
+        .collect(Collectors.groupingBy(PendingWrite::getPatientId, LinkedHashMap::new, Collectors.toList()));
+    Map<Integer, Patient> patients = patientRepository.findAllByIdIn(writesByPatient.keySet()).stream()
+        .collect(Collectors.toMap(Patient::getId, patient -> patient));
+
+    for (Map.Entry<Integer, List<PendingWrite>> patientWrites : writesByPatient.entrySet()) {
+      Patient patient = patients.get(patientWrites.getKey());
+      if (patient == null) {
+        LOGGER.warn("Dropping {} queued writes for missing patient {}", patientWrites.getValue().size(),
+            patientWrites.getKey());
+        continue;
+      }
+      for (PendingWrite write : patientWrites.getValue()) {
+        if (write.getType() == PendingWriteType.ADD_NOTE) {
+          patient.getNotes().add(write.getNote());
+        } else {
+          markAttended(patient, write.getAppointmentId());
+        }
+      }
+      changeEventRecorder.record(ChangeEventType.PATIENT_UPDATED, patient);
+      patientDocumentCache.refreshAfterCommit(patient.getId());
+    }
+    saveCheckpoint(batchSequence);
+  }
+
+  private void saveCheckpoint(final long sequence) {
+    checkpointRepository.save(WriteBehindCheckpoint.builder()
+        .id(WriteBehindCheckpoint.SINGLETON_ID)
+        .appliedSequence(sequence)
+        .build());
+  }
+
+  private static void markAttended(final Patient patient, final Integer appointmentId) {
+    for (Appointment appointment : patient.getAppointments()) {
+      if (appointment.getId().equals(appointmentId)) {
+        appointment.setAttended(true);
+        return;
+      }
+    }
+    LOGGER.warn("Dropping attendance for missing appointment {} of patient {}", appointmentId,
+        patient.getId());
+  }
+}
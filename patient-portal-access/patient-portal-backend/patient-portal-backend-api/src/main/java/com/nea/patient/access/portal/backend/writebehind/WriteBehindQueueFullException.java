@@ -0,0 +1,10 @@
+package com.nea.patient.access.portal.backend.writebehind;
+
+public class WriteBehindQueueFullException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public WriteBehindQueueFullException(final int maxQueueDepth) {
+    super("Write-behind queue holds its maximum of " + maxQueueDepth + " unapplied writes");
+  }
+}
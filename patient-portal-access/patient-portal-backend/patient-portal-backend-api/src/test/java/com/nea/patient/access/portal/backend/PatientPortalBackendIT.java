@@ -1,35 +1,122 @@
 package com.nea.patient.access.portal.backend;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
+import javax.imageio.ImageIO;
+import javax.persistence.EntityManagerFactory;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.nea.patient.access.portal.backend.api.model.AppointmentBookingRequest;
+import com.nea.patient.access.portal.backend.api.model.AttachmentListResponse;
+import com.nea.patient.access.portal.backend.api.model.AppointmentDayListResponse;
+import com.nea.patient.access.portal.backend.api.model.AppointmentSlot;
+import com.nea.patient.access.portal.backend.api.model.MedicalHistoryUpdateRequest;
+import com.nea.patient.access.portal.backend.api.model.PatientArchiveResponse;
+import com.nea.patient.access.portal.backend.api.model.PatientBatchGetRequest;
+import com.nea.patient.access.portal.backend.api.model.PatientBatchGetResponse;
+import com.nea.patient.access.portal.backend.api.model.PatientSearchResponse;
+import com.nea.patient.access.portal.backend.api.model.PatientTimelineResponse;
+import com.nea.patient.access.portal.backend.analytics.PopulationAnalytics;
+import com.nea.patient.access.portal.backend.api.model.AgeBandPrevalence;
+import com.nea.patient.access.portal.backend.api.model.IllnessPrevalenceResponse;
+import com.nea.patient.access.portal.backend.api.model.PharmacyPrescriptionVolume;
+import com.nea.patient.access.portal.backend.api.model.PrescriptionVolumeResponse;
+import com.nea.patient.access.portal.backend.api.model.OutboxStatus;
+import com.nea.patient.access.portal.backend.api.model.ReferenceDictionaryResponse;
+import com.nea.patient.access.portal.backend.api.model.ReferenceTermRequest;
+import com.nea.patient.access.portal.backend.api.model.VaccinationCoverage;
+import com.nea.patient.access.portal.backend.api.model.VaccinationCoverageResponse;
+import com.nea.patient.access.portal.backend.api.model.WriteBehindStatus;
+import com.nea.patient.access.portal.backend.archive.PatientArchive;
+import com.nea.patient.access.portal.backend.audit.AuditAction;
+import com.nea.patient.access.portal.backend.audit.AuditLog;
+import com.nea.patient.access.portal.backend.audit.AuditLogReader;
+import com.nea.patient.access.portal.backend.audit.AuditRecord;
 import com.nea.patient.access.portal.backend.jpa.domain.dao.PatientRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.WriteBehindCheckpointRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ArchivedEntryType;
 import com.nea.patient.access.portal.backend.jpa.domain.enums.Gender;
 import com.nea.patient.access.portal.backend.jpa.domain.enums.MaritalStatus;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ReferenceCategory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Attachment;
 import com.nea.patient.access.portal.backend.jpa.domain.model.CurrentAddress;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Illness;
+import com.nea.patient.access.portal.backend.jpa.domain.model.MedicalHistory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
 import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Prescription;
+import com.nea.patient.access.portal.backend.jpa.domain.model.ReferenceTerm;
+import com.nea.patient.access.portal.backend.jpa.domain.model.TestResult;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Vaccination;
+import com.nea.patient.access.portal.backend.jpa.domain.model.WriteBehindCheckpoint;
+import com.nea.patient.access.portal.backend.outbox.NdjsonFileChangeEventSink;
+import com.nea.patient.access.portal.backend.outbox.OutboxRelay;
+import com.nea.patient.access.portal.backend.population.PatientPopulationGenerator;
+import com.nea.patient.access.portal.backend.population.PatientPopulationLoader;
+import com.nea.patient.access.portal.backend.reference.ReferenceDictionary;
+import com.nea.patient.access.portal.backend.writebehind.PendingWrite;
+import com.nea.patient.access.portal.backend.writebehind.PendingWriteType;
+import com.nea.patient.access.portal.backend.writebehind.WriteBehindQueue;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
     classes = {PatientPortalBackendApplication.class})
 public class PatientPortalBackendIT {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(PatientPortalBackendIT.class);
+
   private URL base;
 
   @LocalServerPort
@@ -41,6 +128,42 @@ public class PatientPortalBackendIT {
   @Autowired
   private TestRestTemplate template;
 
+  @Autowired
+  private PatientArchive patientArchive;
+
+  @Autowired
+  private PopulationAnalytics populationAnalytics;
+
+  @Autowired
+  private ReferenceDictionary referenceDictionary;
+
+  @Autowired
+  private WriteBehindQueue writeBehindQueue;
+
+  @Autowired
+  private WriteBehindCheckpointRepository checkpointRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private ApplicationContext applicationContext;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private OutboxRelay outboxRelay;
+
+  @Autowired
+  private NdjsonFileChangeEventSink changeEventSink;
+
+  @Autowired
+  private AuditLog auditLog;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
   @BeforeEach
   public void setUp() throws Exception {
     base = new URL("http://localhost:" + port + "/");
@@ -110,6 +233,993 @@ public class PatientPortalBackendIT {
     // assertEquals(fromDate, returnedPatient.getCurrentAddress().getFromDate());
   }
 
+  @Test
+  public void negotiateBinaryAndCompressedPatientDocuments() throws Exception {
+    Patient patient = Patient.builder()
+        .title("Mrs")
+        .firstName("Harpreet")
+        .surname("Kaur")
+        .gender(Gender.FEMALE)
+        .dateOfBirth(generateDate(1975, 3, 21))
+        .currentAddress(CurrentAddress.builder()
+            .addressLine1("1 Priory Street")
+            .town("Coventry")
+            .postcode("CV1 5FB")
+            .build())
+        .build();
+    for (int note = 0; note < 200; note++) {
+      patient.getNotes().add(Note.builder()
+          .description("Follow up review number " + note)
+          .created(generateDate(2020, 1 + note % 12, 1 + note % 28))
+          .build());
+    }
+    Patient savedPatient = patientRepository.save(patient);
+
+    byte[] jsonDocument = getPatientDocument(savedPatient.getId(), MediaType.APPLICATION_JSON);
+    byte[] cborDocument = getPatientDocument(savedPatient.getId(), MediaType.APPLICATION_CBOR);
+    assertTrue(cborDocument.length < jsonDocument.length);
+
+    ObjectMapper jsonMapper = new ObjectMapper();
+    ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+    Patient jsonPatient = jsonMapper.readValue(jsonDocument, Patient.class);
+    Patient cborPatient = cborMapper.readValue(cborDocument, Patient.class);
+    assertEquals(jsonPatient.getNotes().size(), cborPatient.getNotes().size());
+    assertEquals(jsonPatient.getSurname(), cborPatient.getSurname());
+
+    LOGGER.info("Patient document size: json={} bytes, cbor={} bytes", jsonDocument.length,
+        cborDocument.length);
+    LOGGER.info("Patient serialisation time over 1000 iterations: json={}ms, cbor={}ms",
+        timeSerialisation(jsonMapper, jsonPatient), timeSerialisation(cborMapper, cborPatient));
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+    headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    ResponseEntity<byte[]> compressedResponse = template.exchange(base + "/api/patients/{id}",
+        HttpMethod.GET, new HttpEntity<>(headers), byte[].class, savedPatient.getId());
+    assertEquals("gzip", compressedResponse.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertTrue(compressedResponse.getBody().length < jsonDocument.length);
+  }
+
+  @Test
+  public void cachedPatientDocumentIsRebuiltAfterUpdate() {
+    Patient patient = Patient.builder()
+        .title("Mr")
+        .firstName("Arjun")
+        .surname("Bains")
+        .gender(Gender.MALE)
+        .dateOfBirth(generateDate(1988, 7, 14))
+        .currentAddress(CurrentAddress.builder()
+            .addressLine1("7 Far Gosford Street")
+            .town("Coventry")
+            .postcode("CV1 5DT")
+            .build())
+        .build();
+    Patient savedPatient = patientRepository.save(patient);
+
+    Patient cachedPatient = template.getForObject(base + "/api/patients/{id}", Patient.class,
+        savedPatient.getId());
+    assertNotNull(cachedPatient);
+    assertEquals(0, cachedPatient.getNotes().size());
+
+    cachedPatient.setEmail("arjun.bains@example.com");
+    cachedPatient.getNotes().add(Note.builder()
+        .description("Updated contact details")
+        .created(generateDate(2021, 2, 1))
+        .build());
+    template.put(base + "/api/patients", cachedPatient);
+
+    Patient updatedPatient = template.getForObject(base + "/api/patients/{id}", Patient.class,
+        savedPatient.getId());
+    assertNotNull(updatedPatient);
+    assertEquals("arjun.bains@example.com", updatedPatient.getEmail());
+    assertEquals(1, updatedPatient.getNotes().size());
+  }
+
+  @Test
+  public void staleVersionUpdateIsRejectedWithTheCurrentPatient() {
+    Integer patientId = patientRepository.save(buildPatient("Gurpreet", "Sidhu")).getId();
+    Patient firstCopy = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    Patient secondCopy = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    assertNotNull(firstCopy.getVersion());
+
+    firstCopy.setEmail("gurpreet.sidhu@example.com");
+    ResponseEntity<Patient> firstUpdate = template.exchange(base + "/api/patients", HttpMethod.PUT,
+        new HttpEntity<>(firstCopy), Patient.class);
+    assertEquals(HttpStatus.OK, firstUpdate.getStatusCode());
+
+    secondCopy.setContactNumber("07700 900123");
+    ResponseEntity<Patient> staleUpdate = template.exchange(base + "/api/patients", HttpMethod.PUT,
+        new HttpEntity<>(secondCopy), Patient.class);
+    assertEquals(HttpStatus.CONFLICT, staleUpdate.getStatusCode());
+    Patient currentPatient = staleUpdate.getBody();
+    assertNotNull(currentPatient);
+    assertTrue(currentPatient.getVersion() > secondCopy.getVersion());
+    assertEquals("gurpreet.sidhu@example.com", currentPatient.getEmail());
+
+    currentPatient.setContactNumber("07700 900123");
+    ResponseEntity<Patient> retriedUpdate = template.exchange(base + "/api/patients",
+        HttpMethod.PUT, new HttpEntity<>(currentPatient), Patient.class);
+    assertEquals(HttpStatus.OK, retriedUpdate.getStatusCode());
+    Patient mergedPatient = patientRepository.findById(patientId).get();
+    assertEquals("gurpreet.sidhu@example.com", mergedPatient.getEmail());
+    assertEquals("07700 900123", mergedPatient.getContactNumber());
+  }
+
+  @Test
+  public void medicalHistoryUpdateIsVersionedAndKeepsExistingRows() {
+    Patient patient = buildPatient("Harjit", "Dhaliwal");
+    MedicalHistory medicalHistory = MedicalHistory.builder().allergies("Penicillin").build();
+    medicalHistory.getVaccinations().add(Vaccination.builder()
+        .typeCode(referenceCode(ReferenceCategory.VACCINATION, "Influenza"))
+        .location("Coventry")
+        .datePerformed(generateDate(2020, 10, 1))
+        .build());
+    patient.setMedicalHistory(medicalHistory);
+    Integer patientId = patientRepository.save(patient).getId();
+    Patient loadedPatient = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    Integer vaccinationId = loadedPatient.getMedicalHistory().getVaccinations().get(0).getId();
+
+    MedicalHistory editedHistory = loadedPatient.getMedicalHistory();
+    editedHistory.setAllergies("Penicillin, latex");
+    editedHistory.getVaccinations().get(0).setLocation("Warwick");
+    editedHistory.getIllnesses().add(Illness.builder()
+        .typeCode(referenceCode(ReferenceCategory.ILLNESS, "Asthma")).build());
+    MedicalHistoryUpdateRequest medicalHistoryUpdate = MedicalHistoryUpdateRequest.builder()
+        .version(loadedPatient.getVersion())
+        .nhsNumber("4857773456")
+        .bloodType("O+")
+        .height(165)
+        .weight(60)
+        .medicalHistory(editedHistory)
+        .build();
+    ResponseEntity<Patient> update = template.exchange(base + "/api/patients/{id}/medical-history",
+        HttpMethod.PUT, new HttpEntity<>(medicalHistoryUpdate), Patient.class, patientId);
+    assertEquals(HttpStatus.OK, update.getStatusCode());
+
+    Patient updatedPatient = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    assertTrue(updatedPatient.getVersion() > loadedPatient.getVersion());
+    assertEquals("Penicillin, latex", updatedPatient.getMedicalHistory().getAllergies());
+    assertEquals(1, updatedPatient.getMedicalHistory().getVaccinations().size());
+    assertEquals(vaccinationId, updatedPatient.getMedicalHistory().getVaccinations().get(0).getId());
+    assertEquals("Warwick", updatedPatient.getMedicalHistory().getVaccinations().get(0).getLocation());
+    assertEquals(1, updatedPatient.getMedicalHistory().getIllnesses().size());
+
+    // Replaying the same edit against the version it was made at is refused.
+    ResponseEntity<Patient> staleUpdate = template.exchange(base + "/api/patients/{id}/medical-history",
+        HttpMethod.PUT, new HttpEntity<>(medicalHistoryUpdate), Patient.class, patientId);
+    assertEquals(HttpStatus.CONFLICT, staleUpdate.getStatusCode());
+    assertEquals(updatedPatient.getVersion(), staleUpdate.getBody().getVersion());
+  }
+
+  @Test
+  public void batchGetReturnsPatientsInRequestOrderAndReportsMissingIds() {
+    Integer firstId = patientRepository.save(buildPatient("Simran", "Gill")).getId();
+    Integer secondId = patientRepository.save(buildPatient("Manpreet", "Dhillon")).getId();
+    Integer missingId = Integer.MAX_VALUE;
+
+    PatientBatchGetRequest batchGetRequest = PatientBatchGetRequest.builder()
+        .ids(Arrays.asList(secondId, missingId, firstId, secondId))
+        .build();
+    ResponseEntity<PatientBatchGetResponse> responseEntity = template.postForEntity(
+        base + "/api/patients/batch-get", batchGetRequest, PatientBatchGetResponse.class);
+    assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+
+    PatientBatchGetResponse batchGetResponse = responseEntity.getBody();
+    assertNotNull(batchGetResponse);
+    assertEquals(2, batchGetResponse.getPatients().size());
+    assertEquals(secondId, batchGetResponse.getPatients().get(0).getId());
+    assertEquals(firstId, batchGetResponse.getPatients().get(1).getId());
+    assertEquals("CV1 2GT", batchGetResponse.getPatients().get(1).getCurrentAddress().getPostcode());
+    assertEquals(Collections.singletonList(missingId), batchGetResponse.getMissingIds());
+  }
+
+  @Test
+  public void fieldSelectionReturnsOnlyRequestedPatientFields() throws Exception {
+    Patient savedPatient = patientRepository.save(buildPatient("Harleen", "Sandhu"));
+
+    ResponseEntity<String> notesResponse = template.postForEntity(
+        base + "/api/patients/{id}/notes", Note.builder()
+            .description("Annual review booked")
+            .created(generateDate(2021, 3, 9))
+            .build(),
+        String.class, savedPatient.getId());
+    assertEquals(HttpStatus.CREATED, notesResponse.getStatusCode());
+
+    ResponseEntity<String> partialResponse = template.getForEntity(
+        base + "/api/patients/{id}?fields=firstName,notes", String.class, savedPatient.getId());
+    assertEquals(HttpStatus.OK, partialResponse.getStatusCode());
+    JsonNode partialPatient = new ObjectMapper().readTree(partialResponse.getBody());
+    assertEquals(3, partialPatient.size());
+    assertEquals(savedPatient.getId().intValue(), partialPatient.get("id").asInt());
+    assertEquals("Harleen", partialPatient.get("firstName").asText());
+    assertEquals("Annual review booked", partialPatient.get("notes").get(0).get("description").asText());
+
+    ResponseEntity<String> searchResponse = template.getForEntity(
+        base + "/api/patients/search?dateOfBirth=02-05-1990&lastName=Sandhu&fields=surname",
+        String.class);
+    assertEquals(HttpStatus.OK, searchResponse.getStatusCode());
+    JsonNode searchedPatient = new ObjectMapper().readTree(searchResponse.getBody())
+        .get("patients").get(0);
+    assertEquals(2, searchedPatient.size());
+    assertEquals("Sandhu", searchedPatient.get("surname").asText());
+
+    // Unselected associations are not even loaded. A patient of its own, so no cached document is
+    // being rebuilt meanwhile.
+    Integer unreadPatientId = patientRepository.save(buildPatient("Gurpreet", "Sandhu")).getId();
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+    statistics.clear();
+    try {
+      ResponseEntity<String> nameResponse = template.getForEntity(
+          base + "/api/patients/{id}?fields=firstName", String.class, unreadPatientId);
+      assertEquals("Gurpreet", new ObjectMapper().readTree(nameResponse.getBody()).get("firstName").asText());
+      assertEquals(0, statistics.getEntityStatistics(CurrentAddress.class.getName()).getLoadCount());
+    } finally {
+      statistics.setStatisticsEnabled(false);
+    }
+
+    ResponseEntity<String> addressResponse = template.getForEntity(
+        base + "/api/patients/{id}?fields=currentAddress,appointments", String.class, savedPatient.getId());
+    JsonNode addressPatient = new ObjectMapper().readTree(addressResponse.getBody());
+    assertEquals(savedPatient.getCurrentAddress().getPostcode(),
+        addressPatient.get("currentAddress").get("postcode").asText());
+    assertEquals(0, addressPatient.get("appointments").size());
+
+    ResponseEntity<String> unknownFieldResponse = template.getForEntity(
+        base + "/api/patients/{id}?fields=password", String.class, savedPatient.getId());
+    assertEquals(HttpStatus.BAD_REQUEST, unknownFieldResponse.getStatusCode());
+  }
+
+  @Test
+  public void searchIsPagedInNameOrderWithTheTotalMatches() {
+    for (String firstName : Arrays.asList("Simran", "Amrit", "Jasleen")) {
+      patientRepository.save(buildPatient(firstName, "Virdee"));
+    }
+
+    String searchUrl = base + "/api/patients/search?dateOfBirth=02-05-1990&lastName=Virdee&size=2&page={page}";
+    PatientSearchResponse firstPage = template.getForObject(searchUrl, PatientSearchResponse.class, 0);
+    assertEquals(2, firstPage.getPatients().size());
+    assertEquals("Amrit", firstPage.getPatients().get(0).getFirstName());
+    assertEquals("Jasleen", firstPage.getPatients().get(1).getFirstName());
+    assertEquals(Long.valueOf(3), firstPage.getTotal());
+
+    PatientSearchResponse lastPage = template.getForObject(searchUrl, PatientSearchResponse.class, 1);
+    assertEquals(1, lastPage.getPatients().size());
+    assertEquals("Simran", lastPage.getPatients().get(0).getFirstName());
+    assertEquals(Integer.valueOf(1), lastPage.getPage());
+
+    assertEquals(HttpStatus.BAD_REQUEST, template.getForEntity(
+        base + "/api/patients/search?dateOfBirth=02-05-1990&size=0", String.class).getStatusCode());
+  }
+
+  @Test
+  public void appointmentBookingPreventsDoubleBookingAndFreesCancelledSlots() {
+    Integer patientId = patientRepository.save(buildPatient("Jaspreet", "Kaur")).getId();
+    LocalDateTime nineAm = LocalDate.now().plusDays(1).atTime(9, 0);
+    String freeSlotUrl = base + "/api/appointments/next-free-slot?clinician={clinician}&from={from}";
+
+    AppointmentSlot firstSlot = template.getForObject(freeSlotUrl, AppointmentSlot.class,
+        "Dr Grewal", nineAm);
+    assertEquals(toDate(nineAm), firstSlot.getStart());
+
+    AppointmentBookingRequest bookingRequest = AppointmentBookingRequest.builder()
+        .patientId(patientId)
+        .clinician("Dr Grewal")
+        .start(firstSlot.getStart())
+        .durationMinutes(30)
+        .build();
+    ResponseEntity<Appointment> booking = template.postForEntity(base + "/api/appointments",
+        bookingRequest, Appointment.class);
+    assertEquals(HttpStatus.CREATED, booking.getStatusCode());
+
+    bookingRequest.setStart(toDate(nineAm.plusMinutes(15)));
+    bookingRequest.setDurationMinutes(15);
+    assertEquals(HttpStatus.CONFLICT, template.postForEntity(base + "/api/appointments",
+        bookingRequest, Appointment.class).getStatusCode());
+
+    AppointmentSlot nextSlot = template.getForObject(freeSlotUrl, AppointmentSlot.class,
+        "Dr Grewal", nineAm);
+    assertEquals(toDate(nineAm.plusMinutes(30)), nextSlot.getStart());
+
+    template.postForEntity(base + "/api/appointments/{id}/cancel", null, Appointment.class,
+        booking.getBody().getId());
+    AppointmentSlot freedSlot = template.getForObject(freeSlotUrl, AppointmentSlot.class,
+        "Dr Grewal", nineAm);
+    assertEquals(toDate(nineAm), freedSlot.getStart());
+
+    Patient patient = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    assertEquals(Boolean.TRUE, patient.getAppointments().get(0).getCancelled());
+  }
+
+  @Test
+  public void appointmentsSavedWithThePatientCannotDoubleBook() {
+    Integer bookedPatientId = patientRepository.save(buildPatient("Navdeep", "Sandhu")).getId();
+    LocalDateTime tenAm = LocalDate.now().plusDays(3).atTime(10, 0);
+    ResponseEntity<Appointment> booking = template.postForEntity(base + "/api/appointments",
+        AppointmentBookingRequest.builder()
+            .patientId(bookedPatientId)
+            .clinician("Dr Bhatti")
+            .start(toDate(tenAm))
+            .durationMinutes(30)
+            .build(), Appointment.class);
+    assertEquals(HttpStatus.CREATED, booking.getStatusCode());
+
+    Integer patientId = patientRepository.save(buildPatient("Rupinder", "Sahota")).getId();
+    Patient patient = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    patient.getAppointments().add(Appointment.builder()
+        .scheduledWith("Dr Bhatti")
+        .datetime(toDate(tenAm.plusMinutes(15)))
+        .durationMinutes(15)
+        .build());
+    ResponseEntity<Patient> overlappingUpdate = template.exchange(base + "/api/patients",
+        HttpMethod.PUT, new HttpEntity<>(patient), Patient.class);
+    // Told apart from a stale version, which is 409.
+    assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, overlappingUpdate.getStatusCode());
+    assertTrue(template.getForObject(base + "/api/patients/{id}", Patient.class, patientId)
+        .getAppointments().isEmpty());
+
+    patient.getAppointments().get(0).setDatetime(toDate(tenAm.plusMinutes(30)));
+    ResponseEntity<Patient> update = template.exchange(base + "/api/patients", HttpMethod.PUT,
+        new HttpEntity<>(patient), Patient.class);
+    assertEquals(HttpStatus.OK, update.getStatusCode());
+    AppointmentSlot nextSlot = template.getForObject(
+        base + "/api/appointments/next-free-slot?clinician={clinician}&from={from}",
+        AppointmentSlot.class, "Dr Bhatti", tenAm);
+    assertEquals(toDate(tenAm.plusMinutes(45)), nextSlot.getStart());
+
+    // Past appointments are history, overlapping ones never block a save.
+    for (String firstName : Arrays.asList("Harjit", "Manjit")) {
+      Patient pastPatient = buildPatient(firstName, "Sahota");
+      pastPatient.getAppointments().add(Appointment.builder()
+          .scheduledWith("Dr Bhatti")
+          .datetime(toDate(LocalDateTime.of(2019, 3, 4, 10, 0)))
+          .durationMinutes(30)
+          .attended(true)
+          .cancelled(false)
+          .build());
+      assertEquals(HttpStatus.CREATED,
+          template.postForEntity(base + "/api/patients", pastPatient, Void.class).getStatusCode());
+    }
+    Patient pastPatient = template.getForObject(base + "/api/patients/search?dateOfBirth=02-05-1990&lastName=Sahota",
+        PatientSearchResponse.class).getPatients().stream()
+        .filter(searched -> "Manjit".equals(searched.getFirstName()))
+        .findFirst()
+        .get();
+    pastPatient.setEmail("manjit.sahota@example.com");
+    assertEquals(HttpStatus.OK, template.exchange(base + "/api/patients", HttpMethod.PUT,
+        new HttpEntity<>(pastPatient), Patient.class).getStatusCode());
+  }
+
+  @Test
+  public void clinicianDayListIsPagedInAppointmentOrder() {
+    LocalDateTime dayStart = LocalDate.now().plusDays(2).atStartOfDay();
+    Integer laterPatientId = patientRepository.save(buildPatient("Navdeep", "Sahota")).getId();
+    Integer earlierPatientId = patientRepository.save(buildPatient("Kiran", "Johal")).getId();
+    for (Integer patientId : Arrays.asList(laterPatientId, earlierPatientId)) {
+      AppointmentBookingRequest bookingRequest = AppointmentBookingRequest.builder()
+          .patientId(patientId)
+          .clinician("Dr Bhamra")
+          .start(toDate(dayStart.plusHours(patientId.equals(laterPatientId) ? 11 : 10)))
+          .build();
+      assertEquals(HttpStatus.CREATED, template.postForEntity(base + "/api/appointments",
+          bookingRequest, Appointment.class).getStatusCode());
+    }
+
+    String dayListUrl = base + "/api/appointments?clinician={clinician}&from={from}&to={to}&size=1&page={page}";
+    AppointmentDayListResponse firstPage = template.getForObject(dayListUrl,
+        AppointmentDayListResponse.class, "Dr Bhamra", dayStart, dayStart.plusDays(1), 0);
+    assertEquals(1, firstPage.getAppointments().size());
+    assertEquals("Kiran", firstPage.getAppointments().get(0).getFirstName());
+    assertEquals(earlierPatientId, firstPage.getAppointments().get(0).getPatientId());
+    assertTrue(firstPage.isHasMore());
+
+    AppointmentDayListResponse secondPage = template.getForObject(dayListUrl,
+        AppointmentDayListResponse.class, "Dr Bhamra", dayStart, dayStart.plusDays(1), 1);
+    assertEquals("Sahota", secondPage.getAppointments().get(0).getSurname());
+    assertFalse(secondPage.isHasMore());
+  }
+
+  @Test
+  public void timelineMergesChildRecordsNewestFirstAcrossPages() {
+    Patient patient = buildPatient("Amrit", "Virdi");
+    patient.getNotes().add(Note.builder().description("Follow up").created(generateDate(2021, 3, 1)).build());
+    patient.getNotes().add(Note.builder().description("First visit").created(generateDate(2021, 1, 5)).build());
+    patient.getPrescriptions().add(Prescription.builder().item("Salbutamol")
+        .lastPrescribed(generateDate(2021, 2, 10)).build());
+    MedicalHistory medicalHistory = MedicalHistory.builder().build();
+    medicalHistory.getIllnesses().add(Illness.builder().typeCode(referenceCode(ReferenceCategory.ILLNESS, "Asthma"))
+        .diagnosedDate(generateDate(2021, 3, 1)).build());
+    medicalHistory.getVaccinations().add(Vaccination.builder().typeCode(referenceCode(ReferenceCategory.VACCINATION, "Influenza"))
+        .datePerformed(generateDate(2020, 12, 1)).build());
+    patient.setMedicalHistory(medicalHistory);
+    Integer patientId = patientRepository.save(patient).getId();
+
+    List<String> summaries = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      String timelineUrl = base + "/api/patients/{id}/timeline?limit=2"
+          + (cursor != null ? "&cursor=" + cursor : "");
+      PatientTimelineResponse timelineResponse = template.getForObject(timelineUrl,
+          PatientTimelineResponse.class, patientId);
+      timelineResponse.getEntries().forEach(entry -> summaries.add(entry.getSummary()));
+      cursor = timelineResponse.getNextCursor();
+      pages++;
+    } while (cursor != null);
+
+    assertEquals(3, pages);
+    assertEquals(Arrays.asList("Follow up", "Asthma", "Salbutamol", "First visit", "Influenza"),
+        summaries);
+    assertEquals(HttpStatus.BAD_REQUEST, template.getForEntity(base + "/api/patients/{id}/timeline?cursor=not-a-cursor",
+        PatientTimelineResponse.class, patientId).getStatusCode());
+  }
+
+  @Test
+  public void oldEntriesMoveToArchiveAndLeaveThePatientDocument() throws Exception {
+    Patient patient = buildPatient("Baljit", "Rai");
+    patient.getNotes().add(Note.builder().description("Registered").created(generateDate(2014, 6, 2)).build());
+    patient.getNotes().add(Note.builder().description("Moved house").created(generateDate(2022, 9, 20)).build());
+    MedicalHistory medicalHistory = MedicalHistory.builder().build();
+    medicalHistory.getTestResults().add(TestResult.builder().typeCode(referenceCode(ReferenceCategory.TEST_RESULT, "Blood Count"))
+        .dateOfTest(generateDate(2015, 1, 12)).build());
+    medicalHistory.getTestResults().add(TestResult.builder().typeCode(referenceCode(ReferenceCategory.TEST_RESULT, "X-Ray"))
+        .dateOfTest(generateDate(2015, 3, 4)).build());
+    patient.setMedicalHistory(medicalHistory);
+    Patient savedPatient = patientRepository.save(patient);
+    Integer patientId = savedPatient.getId();
+    Integer attachedTestResultId = savedPatient.getMedicalHistory().getTestResults().stream()
+        .filter(testResult -> testResult.getDateOfTest().equals(generateDate(2015, 3, 4)))
+        .findFirst().get().getId();
+    HttpHeaders uploadHeaders = new HttpHeaders();
+    uploadHeaders.setContentType(MediaType.APPLICATION_PDF);
+    assertEquals(HttpStatus.CREATED, template.postForEntity(
+        base + "/api/test-results/{id}/attachments?fileName=x-ray.pdf",
+        new HttpEntity<>(new byte[] {1, 2, 3}, uploadHeaders), Attachment.class, attachedTestResultId)
+        .getStatusCode());
+    // Warm the render cache so archiving has to evict it.
+    Patient staleCopy = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    outboxRelay.relay();
+    Path sinkFile = changeEventSink.getFile();
+    int offset = Files.exists(sinkFile) ? (int) Files.size(sinkFile) : 0;
+
+    assertTrue(patientArchive.archiveEntriesOlderThan(generateDate(2016, 1, 1)) >= 2);
+
+    Patient recentPatient = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    assertTrue(recentPatient.getVersion() > staleCopy.getVersion());
+    assertEquals(1, recentPatient.getNotes().size());
+    assertEquals("Moved house", recentPatient.getNotes().get(0).getDescription());
+    assertEquals(1, recentPatient.getMedicalHistory().getTestResults().size());
+    assertEquals(attachedTestResultId, recentPatient.getMedicalHistory().getTestResults().get(0).getId());
+    // Subscribers learn about the archived records like any other change.
+    outboxRelay.relay();
+    List<JsonNode> events = readChangeEvents(sinkFile, offset, "Rai");
+    assertFalse(events.isEmpty());
+    JsonNode lastEvent = events.get(events.size() - 1);
+    assertEquals("PATIENT_UPDATED", lastEvent.get("type").asText());
+    assertEquals(recentPatient.getVersion().intValue(), lastEvent.get("patientVersion").asInt());
+    assertEquals(1, lastEvent.get("patient").get("notes").size());
+    assertEquals(1, template.getForObject(base + "/api/test-results/{id}/attachments",
+        AttachmentListResponse.class, attachedTestResultId).getAttachments().size());
+    // A copy read before archiving cannot put the archived records back.
+    assertEquals(HttpStatus.CONFLICT, template.exchange(base + "/api/patients", HttpMethod.PUT,
+        new HttpEntity<>(staleCopy), Patient.class).getStatusCode());
+
+    PatientArchiveResponse archiveResponse = template.getForObject(
+        base + "/api/patients/{id}/archive", PatientArchiveResponse.class, patientId);
+    assertEquals(2, archiveResponse.getRecords().size());
+    assertEquals(ArchivedEntryType.TEST_RESULT, archiveResponse.getRecords().get(0).getType());
+    assertEquals(referenceCode(ReferenceCategory.TEST_RESULT, "Blood Count"),
+        archiveResponse.getRecords().get(0).getTestResult().getTypeCode());
+    assertEquals("Registered", archiveResponse.getRecords().get(1).getNote().getDescription());
+
+    PatientArchiveResponse notesArchive = template.getForObject(
+        base + "/api/patients/{id}/archive?type=NOTE", PatientArchiveResponse.class, patientId);
+    assertEquals(1, notesArchive.getRecords().size());
+  }
+
+  @Test
+  public void populationAnalyticsCountDistinctPatientsFromTheSnapshot() {
+    Patient youngerPatient = buildPatient("Harpreet", "Sandhu");
+    MedicalHistory youngerHistory = MedicalHistory.builder().build();
+    youngerHistory.getIllnesses().add(Illness.builder().typeCode(referenceCode(ReferenceCategory.ILLNESS, "Analytics Gout"))
+        .diagnosedDate(generateDate(2019, 4, 1)).build());
+    youngerHistory.getIllnesses().add(Illness.builder().typeCode(referenceCode(ReferenceCategory.ILLNESS, "Analytics Gout"))
+        .diagnosedDate(generateDate(2022, 8, 1)).build());
+    youngerHistory.getVaccinations().add(Vaccination.builder().typeCode(referenceCode(ReferenceCategory.VACCINATION, "Analytics Shingles"))
+        .datePerformed(generateDate(2010, 3, 3)).build());
+    youngerPatient.setMedicalHistory(youngerHistory);
+    youngerPatient.getPrescriptions().add(Prescription.builder().item("Allopurinol")
+        .preferredPharmacy("Analytics Pharmacy").lastPrescribed(generateDate(2021, 2, 10)).build());
+    patientRepository.save(youngerPatient);
+
+    Patient olderPatient = buildPatient("Kuldip", "Sandhu");
+    olderPatient.setDateOfBirth(generateDate(LocalDate.now().getYear() - 75, 1, 1));
+    MedicalHistory olderHistory = MedicalHistory.builder().build();
+    olderHistory.getIllnesses().add(Illness.builder().typeCode(referenceCode(ReferenceCategory.ILLNESS, "Analytics Gout"))
+        .diagnosedDate(generateDate(2020, 1, 9)).build());
+    olderHistory.getVaccinations().add(Vaccination.builder().typeCode(referenceCode(ReferenceCategory.VACCINATION, "Analytics Shingles"))
+        .datePerformed(toDate(LocalDate.now().minusDays(10).atStartOfDay())).build());
+    olderPatient.setMedicalHistory(olderHistory);
+    olderPatient.getPrescriptions().add(Prescription.builder().item("Colchicine")
+        .preferredPharmacy("Analytics Pharmacy").lastPrescribed(generateDate(2023, 1, 1)).build());
+    patientRepository.save(olderPatient);
+
+    populationAnalytics.refresh();
+
+    IllnessPrevalenceResponse prevalenceResponse = template.getForObject(
+        base + "/api/analytics/illness-prevalence?bandYears=10", IllnessPrevalenceResponse.class);
+    int goutCases = 0;
+    for (AgeBandPrevalence ageBand : prevalenceResponse.getAgeBands()) {
+      goutCases += ageBand.getCases().getOrDefault("Analytics Gout", 0);
+    }
+    assertEquals(2, goutCases);
+    assertEquals(1, (int) prevalenceResponse.getAgeBands().get(7).getCases().get("Analytics Gout"));
+
+    VaccinationCoverageResponse allTimeCoverage = template.getForObject(
+        base + "/api/analytics/vaccination-coverage", VaccinationCoverageResponse.class);
+    assertEquals(2, findVaccinationCoverage(allTimeCoverage, "Analytics Shingles").getVaccinatedPatients());
+    VaccinationCoverageResponse recentCoverage = template.getForObject(
+        base + "/api/analytics/vaccination-coverage?sinceDays=30", VaccinationCoverageResponse.class);
+    assertEquals(1, findVaccinationCoverage(recentCoverage, "Analytics Shingles").getVaccinatedPatients());
+
+    PrescriptionVolumeResponse volumeResponse = template.getForObject(
+        base + "/api/analytics/prescription-volume?from=01-01-2022", PrescriptionVolumeResponse.class);
+    PharmacyPrescriptionVolume pharmacyVolume = volumeResponse.getPharmacies().stream()
+        .filter(volume -> "Analytics Pharmacy".equals(volume.getPharmacy()))
+        .findFirst()
+        .orElse(null);
+    assertNotNull(pharmacyVolume);
+    assertEquals(1, pharmacyVolume.getPrescriptions());
+  }
+
+  private VaccinationCoverage findVaccinationCoverage(final VaccinationCoverageResponse coverageResponse,
+      final String type) {
+    return coverageResponse.getVaccinations().stream()
+        .filter(coverage -> type.equals(coverage.getType()))
+        .findFirst()
+        .orElseThrow(() -> new AssertionError("No coverage for " + type));
+  }
+
+  @Test
+  public void referenceDictionaryIsVersionedAndGuardsMedicalHistoryCodes() {
+    ResponseEntity<ReferenceDictionaryResponse> dictionaryResponse = template.getForEntity(
+        base + "/api/reference-data", ReferenceDictionaryResponse.class);
+    assertEquals(HttpStatus.OK, dictionaryResponse.getStatusCode());
+    String etag = dictionaryResponse.getHeaders().getETag();
+    assertEquals("\"" + dictionaryResponse.getBody().getVersion() + "\"", etag);
+    assertTrue(dictionaryResponse.getBody().getTerms().stream()
+        .anyMatch(term -> term.getCategory() == ReferenceCategory.ILLNESS && "Asthma".equals(term.getLabel())));
+
+    HttpHeaders conditionalHeaders = new HttpHeaders();
+    conditionalHeaders.setIfNoneMatch(etag);
+    ResponseEntity<ReferenceDictionaryResponse> unchangedResponse = template.exchange(
+        base + "/api/reference-data", HttpMethod.GET, new HttpEntity<>(conditionalHeaders),
+        ReferenceDictionaryResponse.class);
+    assertEquals(HttpStatus.NOT_MODIFIED, unchangedResponse.getStatusCode());
+
+    ResponseEntity<ReferenceTerm> registeredTerm = template.postForEntity(base + "/api/reference-data",
+        ReferenceTermRequest.builder().category(ReferenceCategory.ILLNESS).label("Reference Lupus").build(),
+        ReferenceTerm.class);
+    assertEquals(HttpStatus.CREATED, registeredTerm.getStatusCode());
+    ResponseEntity<ReferenceDictionaryResponse> changedResponse = template.exchange(
+        base + "/api/reference-data", HttpMethod.GET, new HttpEntity<>(conditionalHeaders),
+        ReferenceDictionaryResponse.class);
+    assertEquals(HttpStatus.OK, changedResponse.getStatusCode());
+    assertFalse(etag.equals(changedResponse.getHeaders().getETag()));
+
+    // A vaccine code is not a valid illness.
+    Patient patient = buildPatient("Surinder", "Bains");
+    MedicalHistory medicalHistory = MedicalHistory.builder().build();
+    medicalHistory.getIllnesses().add(Illness.builder()
+        .typeCode(referenceCode(ReferenceCategory.VACCINATION, "Influenza")).build());
+    patient.setMedicalHistory(medicalHistory);
+    ResponseEntity<Void> rejectedPatient = template.postForEntity(base + "/api/patients", patient, Void.class);
+    assertEquals(HttpStatus.BAD_REQUEST, rejectedPatient.getStatusCode());
+
+    medicalHistory.getIllnesses().get(0).setTypeCode(registeredTerm.getBody().getCode());
+    ResponseEntity<Void> createdPatient = template.postForEntity(base + "/api/patients", patient, Void.class);
+    assertEquals(HttpStatus.CREATED, createdPatient.getStatusCode());
+  }
+
+  @Test
+  public void queuedWritesAreAppliedPerPatientWhenFlushed() throws Exception {
+    Path sinkFile = changeEventSink.getFile();
+    int offset = Files.exists(sinkFile) ? (int) Files.size(sinkFile) : 0;
+    Patient patient = buildPatient("Jaswinder", "Gill");
+    patient.getAppointments().add(Appointment.builder().scheduledWith("Dr Write Behind")
+        .datetime(generateDate(2021, 4, 6)).attended(false).cancelled(false).build());
+    Patient savedPatient = patientRepository.save(patient);
+    Integer appointmentId = savedPatient.getAppointments().get(0).getId();
+
+    writeBehindQueue.enqueueNote(savedPatient.getId(), Note.builder().description("Queued first")
+        .created(generateDate(2021, 4, 6)).build());
+    writeBehindQueue.enqueueNote(savedPatient.getId(), Note.builder().description("Queued second")
+        .created(generateDate(2021, 4, 7)).build());
+    writeBehindQueue.enqueueAttendance(savedPatient.getId(), appointmentId);
+    writeBehindQueue.flush();
+
+    WriteBehindStatus status = template.getForObject(base + "/api/write-behind/status",
+        WriteBehindStatus.class);
+    assertEquals(status.getLastEnqueuedSequence(), status.getAppliedSequence());
+    assertTrue(status.getFlushedWrites() >= 3);
+
+    Patient flushedPatient = template.getForObject(base + "/api/patients/{id}", Patient.class,
+        savedPatient.getId());
+    assertEquals(2, flushedPatient.getNotes().size());
+    assertTrue(flushedPatient.getAppointments().get(0).getAttended());
+
+    outboxRelay.relay();
+    List<JsonNode> events = readChangeEvents(sinkFile, offset, "Gill");
+    assertFalse(events.isEmpty());
+    assertEquals("PATIENT_UPDATED", events.get(events.size() - 1).get("type").asText());
+  }
+
+  @Test
+  public void queuedWriteThatKeepsFailingIsDeadLettered() {
+    Integer patientId = patientRepository.save(buildPatient("Kiranjit", "Bassi")).getId();
+    long deadLetteredBefore = writeBehindQueue.getStatus().getDeadLetteredWrites();
+
+    // Too long for the description column, so it fails however often it is retried.
+    writeBehindQueue.enqueueNote(patientId, Note.builder().description(StringUtils.repeat('x', 1000))
+        .created(generateDate(2021, 4, 8)).build());
+    writeBehindQueue.enqueueNote(patientId, Note.builder().description("Queued behind")
+        .created(generateDate(2021, 4, 9)).build());
+    // The scheduled flusher retries too, so flush until everything queued has been dealt with.
+    for (int flush = 0; flush < 10 && writeBehindQueue.getStatus().getAppliedSequence()
+        < writeBehindQueue.getStatus().getLastEnqueuedSequence(); flush++) {
+      writeBehindQueue.flush();
+    }
+
+    WriteBehindStatus status = writeBehindQueue.getStatus();
+    assertEquals(deadLetteredBefore + 1, status.getDeadLetteredWrites());
+    assertEquals(status.getLastEnqueuedSequence(), status.getAppliedSequence());
+    Patient flushedPatient = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    assertEquals(1, flushedPatient.getNotes().size());
+    assertEquals("Queued behind", flushedPatient.getNotes().get(0).getDescription());
+  }
+
+  @Test
+  public void writeBehindRecoveryReplaysOnlyTheUnappliedWrites() throws Exception {
+    Integer patientId = patientRepository.save(buildPatient("Manjit", "Johal")).getId();
+    Path logDir = Files.createTempDirectory("write-behind");
+    Path logFile = logDir.resolve("pending-writes.log");
+    ByteArrayOutputStream logContent = new ByteArrayOutputStream();
+    for (long sequence = 1; sequence <= 5; sequence++) {
+      logContent.write(frameLogRecord(objectMapper.writeValueAsBytes(loggedNote(patientId, sequence))));
+    }
+    int intactLength = logContent.size();
+    // A crash part way through the next append leaves a torn record at the tail.
+    byte[] tornRecord = frameLogRecord(objectMapper.writeValueAsBytes(loggedNote(patientId, 6)));
+    logContent.write(tornRecord, 0, tornRecord.length / 2);
+    Files.write(logFile, logContent.toByteArray());
+    // The first three writes were applied before the crash.
+    checkpointRepository.save(WriteBehindCheckpoint.builder()
+        .id(WriteBehindCheckpoint.SINGLETON_ID)
+        .appliedSequence(3L)
+        .build());
+
+    WriteBehindQueue restartedQueue = new WriteBehindQueue(transactionManager);
+    applicationContext.getAutowireCapableBeanFactory().autowireBean(restartedQueue);
+    ReflectionTestUtils.setField(restartedQueue, "logDir", logDir.toString());
+    try {
+      restartedQueue.recover();
+      WriteBehindStatus status = restartedQueue.getStatus();
+      assertEquals(3L, status.getAppliedSequence());
+      assertEquals(5L, status.getLastEnqueuedSequence());
+      assertEquals(2, status.getQueueDepth());
+      assertEquals(intactLength, Files.size(logFile));
+
+      restartedQueue.flush();
+      assertEquals(5L, restartedQueue.getStatus().getAppliedSequence());
+    } finally {
+      restartedQueue.shutdown();
+    }
+
+    Patient recoveredPatient = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    assertEquals(Arrays.asList("Logged 4", "Logged 5"), recoveredPatient.getNotes().stream()
+        .map(Note::getDescription)
+        .sorted()
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  public void patientChangesAreRelayedFromTheOutboxInOrder() throws Exception {
+    Path sinkFile = changeEventSink.getFile();
+    int offset = Files.exists(sinkFile) ? (int) Files.size(sinkFile) : 0;
+
+    ResponseEntity<Void> createdPatient = template.postForEntity(base + "/api/patients",
+        buildPatient("Navdeep", "Cheema"), Void.class);
+    assertEquals(HttpStatus.CREATED, createdPatient.getStatusCode());
+    outboxRelay.relay();
+    List<JsonNode> createdEvents = readChangeEvents(sinkFile, offset, "Cheema");
+    assertEquals(1, createdEvents.size());
+    assertEquals("PATIENT_CREATED", createdEvents.get(0).get("type").asText());
+    Integer patientId = createdEvents.get(0).get("patientId").asInt();
+
+    Patient patient = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    patient.setEmail("navdeep.cheema@example.com");
+    template.put(base + "/api/patients", patient);
+    outboxRelay.relay();
+
+    List<JsonNode> events = readChangeEvents(sinkFile, offset, "Cheema");
+    assertEquals(2, events.size());
+    assertEquals("PATIENT_UPDATED", events.get(1).get("type").asText());
+    assertTrue(events.get(1).get("id").asLong() > events.get(0).get("id").asLong());
+    assertTrue(events.get(1).get("patientVersion").asInt() > events.get(0).get("patientVersion").asInt());
+    assertEquals("navdeep.cheema@example.com", events.get(1).get("patient").get("email").asText());
+
+    ResponseEntity<Void> noteResponse = template.postForEntity(base + "/api/patients/{id}/notes",
+        Note.builder().description("Outbox note").created(generateDate(2021, 5, 2)).build(),
+        Void.class, patientId);
+    assertEquals(HttpStatus.CREATED, noteResponse.getStatusCode());
+    outboxRelay.relay();
+
+    events = readChangeEvents(sinkFile, offset, "Cheema");
+    assertEquals(3, events.size());
+    assertEquals("PATIENT_UPDATED", events.get(2).get("type").asText());
+    assertEquals("Outbox note", events.get(2).get("patient").get("notes").get(0).get("description").asText());
+
+    OutboxStatus status = template.getForObject(base + "/api/outbox/status", OutboxStatus.class);
+    assertEquals(0, status.getPendingEvents());
+    assertTrue(status.getPublishedEvents() >= 3);
+  }
+
+  @Test
+  public void patientViewsAreAuditedToTheChainedSegments() throws Exception {
+    Integer patientId = patientRepository.save(buildPatient("Kamaljit", "Randhawa")).getId();
+    String user = "auditor-" + System.nanoTime();
+    HttpHeaders headers = new HttpHeaders();
+    headers.set("X-Patient-Portal-User", user);
+    ResponseEntity<Patient> response = template.exchange(base + "/api/patients/{id}", HttpMethod.GET,
+        new HttpEntity<>(headers), Patient.class, patientId);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+
+    AuditLogReader reader = new AuditLogReader(auditLog.getDirectory());
+    List<AuditRecord> views = new ArrayList<>();
+    for (int attempt = 0; attempt < 50 && views.isEmpty(); attempt++) {
+      Thread.sleep(100);
+      reader.findByPatientId(patientId).stream()
+          .filter(record -> ("claimed:" + user + "@127.0.0.1").equals(record.getUser()))
+          .forEach(views::add);
+    }
+    assertEquals(1, views.size());
+    assertEquals(AuditAction.VIEW, views.get(0).getAction());
+    assertTrue(reader.verify() >= views.get(0).getSequence());
+  }
+
+  @Test
+  public void changesRollBackWhenTheAuditQueueIsFull() throws Exception {
+    Integer patientId = patientRepository.save(buildPatient("Rajinder", "Grewal")).getId();
+    Patient patient = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    BlockingQueue<?> queue = (BlockingQueue<?>) ReflectionTestUtils.getField(auditLog, "queue");
+    Semaphore freeSlots = (Semaphore) ReflectionTestUtils.getField(auditLog, "freeSlots");
+    Object enqueueTimeoutMillis = ReflectionTestUtils.getField(auditLog, "enqueueTimeoutMillis");
+    ReflectionTestUtils.setField(auditLog, "enqueueTimeoutMillis", 50L);
+    int takenSlots = 0;
+    try {
+      // The writer frees a slot for every record it takes, so wait for it to take the view above.
+      for (int attempt = 0; attempt < 50 && !queue.isEmpty(); attempt++) {
+        Thread.sleep(100);
+      }
+      Thread.sleep(100);
+      takenSlots = freeSlots.drainPermits();
+
+      patient.setEmail("rajinder.grewal@example.com");
+      assertEquals(HttpStatus.SERVICE_UNAVAILABLE, template.exchange(base + "/api/patients", HttpMethod.PUT,
+          new HttpEntity<>(patient), Void.class).getStatusCode());
+    } finally {
+      freeSlots.release(takenSlots);
+      ReflectionTestUtils.setField(auditLog, "enqueueTimeoutMillis", enqueueTimeoutMillis);
+    }
+
+    Patient unchanged = template.getForObject(base + "/api/patients/{id}", Patient.class, patientId);
+    assertEquals(patient.getVersion(), unchanged.getVersion());
+    assertNotEquals("rajinder.grewal@example.com", unchanged.getEmail());
+  }
+
+  @Test
+  public void testResultAttachmentsAreStoredOnceAndServedInRanges() {
+    Patient patient = buildPatient("Simran", "Bains");
+    MedicalHistory medicalHistory = MedicalHistory.builder().build();
+    medicalHistory.getTestResults().add(TestResult.builder().typeCode(referenceCode(ReferenceCategory.TEST_RESULT, "MRI"))
+        .dateOfTest(new Date()).build());
+    patient.setMedicalHistory(medicalHistory);
+    Integer testResultId = patientRepository.save(patient).getMedicalHistory().getTestResults().get(0).getId();
+    byte[] scan = new byte[100_000];
+    new Random(41).nextBytes(scan);
+    HttpHeaders uploadHeaders = new HttpHeaders();
+    uploadHeaders.setContentType(MediaType.APPLICATION_PDF);
+
+    ResponseEntity<Attachment> first = template.postForEntity(base + "/api/test-results/{id}/attachments?fileName=scan.pdf",
+        new HttpEntity<>(scan, uploadHeaders), Attachment.class, testResultId);
+    ResponseEntity<Attachment> second = template.postForEntity(base + "/api/test-results/{id}/attachments?fileName=copy.pdf",
+        new HttpEntity<>(scan, uploadHeaders), Attachment.class, testResultId);
+    assertEquals(HttpStatus.CREATED, first.getStatusCode());
+    assertEquals(first.getBody().getContentHash(), second.getBody().getContentHash());
+    assertEquals(100_000L, first.getBody().getSize().longValue());
+    assertEquals(2, template.getForObject(base + "/api/test-results/{id}/attachments", AttachmentListResponse.class,
+        testResultId).getAttachments().size());
+    assertEquals(HttpStatus.NOT_FOUND, template.postForEntity(base + "/api/test-results/{id}/attachments?fileName=scan.pdf",
+        new HttpEntity<>(scan, uploadHeaders), Attachment.class, -1).getStatusCode());
+
+    String content = base + "/api/attachments/" + first.getBody().getId() + "/content";
+    ResponseEntity<byte[]> whole = template.getForEntity(content, byte[].class);
+    assertEquals(HttpStatus.OK, whole.getStatusCode());
+    assertTrue(Arrays.equals(scan, whole.getBody()));
+    assertEquals(MediaType.APPLICATION_PDF, whole.getHeaders().getContentType());
+    String etag = whole.getHeaders().getETag();
+    assertEquals("\"" + first.getBody().getContentHash() + "\"", etag);
+
+    HttpHeaders rangeHeaders = new HttpHeaders();
+    rangeHeaders.set(HttpHeaders.RANGE, "bytes=1000-1999");
+    ResponseEntity<byte[]> range = template.exchange(content, HttpMethod.GET, new HttpEntity<>(rangeHeaders), byte[].class);
+    assertEquals(HttpStatus.PARTIAL_CONTENT, range.getStatusCode());
+    assertEquals("bytes 1000-1999/100000", range.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    assertTrue(Arrays.equals(Arrays.copyOfRange(scan, 1000, 2000), range.getBody()));
+
+    rangeHeaders.set(HttpHeaders.RANGE, "bytes=200000-");
+    assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE,
+        template.exchange(content, HttpMethod.GET, new HttpEntity<>(rangeHeaders), byte[].class).getStatusCode());
+    HttpHeaders conditionalHeaders = new HttpHeaders();
+    conditionalHeaders.setIfNoneMatch(etag);
+    assertEquals(HttpStatus.NOT_MODIFIED,
+        template.exchange(content, HttpMethod.GET, new HttpEntity<>(conditionalHeaders), byte[].class).getStatusCode());
+    assertEquals("inline", whole.getHeaders().getContentDisposition().getType());
+    assertEquals("nosniff", whole.getHeaders().getFirst("X-Content-Type-Options"));
+
+    HttpHeaders pageHeaders = new HttpHeaders();
+    pageHeaders.setContentType(MediaType.TEXT_HTML);
+    ResponseEntity<Attachment> page = template.postForEntity(base + "/api/test-results/{id}/attachments?fileName=report.html",
+        new HttpEntity<>("<script>alert(1)</script>".getBytes(StandardCharsets.UTF_8), pageHeaders), Attachment.class,
+        testResultId);
+    ResponseEntity<byte[]> download = template.getForEntity(base + "/api/attachments/" + page.getBody().getId() + "/content",
+        byte[].class);
+    assertEquals(MediaType.APPLICATION_OCTET_STREAM, download.getHeaders().getContentType());
+    assertEquals("attachment", download.getHeaders().getContentDisposition().getType());
+    assertEquals("nosniff", download.getHeaders().getFirst("X-Content-Type-Options"));
+  }
+
+  @Test
+  public void uploadedPhotoIsServedAsThumbnails() throws Exception {
+    Patient savedPatient = patientRepository.save(buildPatient("Parminder", "Sidhu"));
+    BufferedImage photo = new BufferedImage(600, 400, BufferedImage.TYPE_INT_ARGB);
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(photo, "png", png);
+    HttpHeaders uploadHeaders = new HttpHeaders();
+    uploadHeaders.setContentType(MediaType.IMAGE_PNG);
+    String thumbnailUrl = base + "/api/patients/{id}/photo/thumbnails/{size}";
+    assertEquals(HttpStatus.NOT_FOUND,
+        template.getForEntity(thumbnailUrl, byte[].class, savedPatient.getId(), "small").getStatusCode());
+
+    ResponseEntity<Patient> uploadResponse = template.exchange(base + "/api/patients/{id}/photo", HttpMethod.PUT,
+        new HttpEntity<>(png.toByteArray(), uploadHeaders), Patient.class, savedPatient.getId());
+    assertEquals(HttpStatus.OK, uploadResponse.getStatusCode());
+    assertNotNull(uploadResponse.getBody().getPhotoHash());
+    assertEquals(savedPatient.getVersion() + 1, uploadResponse.getBody().getVersion().intValue());
+
+    ResponseEntity<byte[]> thumbnail = template.getForEntity(thumbnailUrl, byte[].class, savedPatient.getId(), "small");
+    assertEquals(HttpStatus.OK, thumbnail.getStatusCode());
+    assertEquals(MediaType.IMAGE_JPEG, thumbnail.getHeaders().getContentType());
+    BufferedImage small = ImageIO.read(new ByteArrayInputStream(thumbnail.getBody()));
+    assertEquals(48, small.getWidth());
+    assertEquals(32, small.getHeight());
+    HttpHeaders conditionalHeaders = new HttpHeaders();
+    conditionalHeaders.setIfNoneMatch(thumbnail.getHeaders().getETag());
+    assertEquals(HttpStatus.NOT_MODIFIED, template.exchange(thumbnailUrl, HttpMethod.GET,
+        new HttpEntity<>(conditionalHeaders), byte[].class, savedPatient.getId(), "small").getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST,
+        template.getForEntity(thumbnailUrl, byte[].class, savedPatient.getId(), "huge").getStatusCode());
+
+    // A small file, but more pixels than the configured cap.
+    ByteArrayOutputStream oversizedPng = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(8000, 8000, BufferedImage.TYPE_BYTE_BINARY), "png", oversizedPng);
+    assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, template.exchange(base + "/api/patients/{id}/photo", HttpMethod.PUT,
+        new HttpEntity<>(oversizedPng.toByteArray(), uploadHeaders), Patient.class, savedPatient.getId()).getStatusCode());
+
+    uploadHeaders.setContentType(MediaType.TEXT_PLAIN);
+    assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, template.exchange(base + "/api/patients/{id}/photo", HttpMethod.PUT,
+        new HttpEntity<>(png.toByteArray(), uploadHeaders), Patient.class, savedPatient.getId()).getStatusCode());
+  }
+
+  @Test
+  public void syntheticPopulationIsReproducibleAndSavedInChunks() throws Exception {
+    // Only a bean with the synthetic-population profile active.
+    assertEquals(0, applicationContext.getBeanNamesForType(PatientPopulationLoader.class).length);
+    PatientPopulationLoader populationLoader = new PatientPopulationLoader(transactionManager);
+    applicationContext.getAutowireCapableBeanFactory().autowireBean(populationLoader);
+    PatientPopulationGenerator generator = populationLoader.newGenerator();
+    Patient generated = generator.generate(1_000_042);
+    Patient regenerated = populationLoader.newGenerator().generate(1_000_042);
+    assertEquals(generated.getSurname(), regenerated.getSurname());
+    assertEquals(generated.getDateOfBirth(), regenerated.getDateOfBirth());
+    assertEquals(generated.getContactNumber(), regenerated.getContactNumber());
+    assertEquals(generated.getNotes().size(), regenerated.getNotes().size());
+    assertEquals(generated.getAppointments().size(), regenerated.getAppointments().size());
+
+    long patientsBefore = patientRepository.count();
+    populationLoader.load(1_000_000, 1200);
+    assertEquals(patientsBefore + 1200, patientRepository.count());
+    assertTrue(patientRepository.findByDateOfBirthAndSurname(generated.getDateOfBirth(), generated.getSurname())
+        .stream()
+        .anyMatch(patient -> generated.getContactNumber().equals(patient.getContactNumber())));
+  }
+
+  private List<JsonNode> readChangeEvents(final Path sinkFile, final int offset, final String surname)
+      throws Exception {
+    byte[] published = Files.readAllBytes(sinkFile);
+    List<JsonNode> events = new ArrayList<>();
+    for (String line : new String(published, offset, published.length - offset, StandardCharsets.UTF_8)
+        .split("\n")) {
+      JsonNode event = new ObjectMapper().readTree(line);
+      if (surname.equals(event.get("patient").get("surname").asText())) {
+        events.add(event);
+      }
+    }
+    return events;
+  }
+
+  private PendingWrite loggedNote(final Integer patientId, final long sequence) {
+    return PendingWrite.builder()
+        .sequence(sequence)
+        .type(PendingWriteType.ADD_NOTE)
+        .patientId(patientId)
+        .note(Note.builder().description("Logged " + sequence).created(generateDate(2021, 5, 1)).build())
+        .enqueuedAt(new Date())
+        .build();
+  }
+
+  private static byte[] frameLogRecord(final byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    return ByteBuffer.allocate(Integer.BYTES * 2 + payload.length)
+        .putInt(payload.length)
+        .putInt((int) crc.getValue())
+        .put(payload)
+        .array();
+  }
+
+  private Integer referenceCode(final ReferenceCategory category, final String label) {
+    return referenceDictionary.register(category, label).getCode();
+  }
+
+  private Patient buildPatient(final String firstName, final String surname) {
+    return Patient.builder()
+        .title("Ms")
+        .firstName(firstName)
+        .surname(surname)
+        .gender(Gender.FEMALE)
+        .dateOfBirth(generateDate(1990, 5, 2))
+        .currentAddress(CurrentAddress.builder()
+            .addressLine1("2 Hertford Street")
+            .town("Coventry")
+            .postcode("CV1 2GT")
+            .build())
+        .build();
+  }
+
+  private byte[] getPatientDocument(final Integer patientId, final MediaType mediaType) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setAccept(Collections.singletonList(mediaType));
+    ResponseEntity<byte[]> responseEntity = template.exchange(base + "/api/patients/{id}",
+        HttpMethod.GET, new HttpEntity<>(headers), byte[].class, patientId);
+    assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+    assertTrue(mediaType.isCompatibleWith(responseEntity.getHeaders().getContentType()));
+    return responseEntity.getBody();
+  }
+
+  private long timeSerialisation(final ObjectMapper objectMapper, final Patient patient)
+      throws Exception {
+    long started = System.nanoTime();
+    for (int iteration = 0; iteration < 1000; iteration++) {
+      objectMapper.writeValueAsBytes(patient);
+    }
+    return (System.nanoTime() - started) / 1_000_000;
+  }
+
+  private Date toDate(final LocalDateTime dateTime) {
+    return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+  }
+
   private Date generateDate(final int year, final int month, final int dayOfMonth) {
     LocalDate dateToConvert = LocalDate.of(year, month, dayOfMonth);
     return Date.from(dateToConvert.atStartOfDay()
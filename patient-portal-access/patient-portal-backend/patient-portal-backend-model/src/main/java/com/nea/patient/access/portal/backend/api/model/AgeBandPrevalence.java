@@ -0,0 +1,29 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AgeBandPrevalence {
+
+  private String ageBand;
+
+  private int patients;
+
+  // Patients in the band with each illness type, and that count as a fraction of the band.
+  @Builder.Default
+  private Map<String, Integer> cases = new TreeMap<>();
+
+  @Builder.Default
+  private Map<String, Double> prevalence = new TreeMap<>();
+}
@@ -0,0 +1,26 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppointmentBookingRequest {
+
+  private Integer patientId;
+
+  private String clinician;
+
+  private Date start;
+
+  // Defaults to the configured slot length when not supplied.
+  private Integer durationMinutes;
+}
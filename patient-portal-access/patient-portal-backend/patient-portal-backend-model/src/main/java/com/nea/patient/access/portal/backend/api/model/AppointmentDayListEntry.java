@@ -0,0 +1,42 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One row of a clinician's day list, an appointment joined with the summary fields of its patient.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppointmentDayListEntry {
+
+  private Integer appointmentId;
+
+  private Date datetime;
+
+  private Integer durationMinutes;
+
+  private String scheduledWith;
+
+  private Boolean attended;
+
+  private Boolean cancelled;
+
+  private Integer patientId;
+
+  private String title;
+
+  private String firstName;
+
+  private String surname;
+
+  private Date dateOfBirth;
+}
@@ -0,0 +1,29 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppointmentDayListResponse {
+
+  // Ordered by appointment time.
+  @Builder.Default
+  private List<AppointmentDayListEntry> appointments = new ArrayList<>();
+
+  private int page;
+
+  private int size;
+
+  // True when a further page exists, found without a separate count query.
+  private boolean hasMore;
+}
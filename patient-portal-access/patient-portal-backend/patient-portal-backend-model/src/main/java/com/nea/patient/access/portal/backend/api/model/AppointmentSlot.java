@@ -0,0 +1,23 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppointmentSlot {
+
+  private String clinician;
+
+  private Date start;
+
+  private Date end;
+}
@@ -0,0 +1,37 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.Date;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ArchivedEntryType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
+import com.nea.patient.access.portal.backend.jpa.domain.model.TestResult;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedRecord {
+
+  private ArchivedEntryType type;
+
+  private Integer originalId;
+
+  private Date entryDate;
+
+  private Date archivedAt;
+
+  // Only the field matching the type is populated.
+  private Note note;
+
+  private Appointment appointment;
+
+  private TestResult testResult;
+}
@@ -0,0 +1,24 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.Attachment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AttachmentListResponse {
+
+  // Oldest first.
+  @Builder.Default
+  private List<Attachment> attachments = new ArrayList<>();
+}
@@ -0,0 +1,34 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.MedicalHistory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The slice of a patient edited by the medical history dialog, so it can be saved without
+ * round-tripping the whole patient graph.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MedicalHistoryUpdateRequest {
+
+  // Version of the patient the edit was made against, a stale version is refused with a conflict.
+  private Integer version;
+
+  private String nhsNumber;
+
+  private String bloodType;
+
+  private Integer height;
+
+  private Integer weight;
+
+  private MedicalHistory medicalHistory;
+}
@@ -0,0 +1,31 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxStatus {
+
+  // Events committed but not yet acknowledged by the sink.
+  private long pendingEvents;
+
+  private long lastPublishedEventId;
+
+  private int lastBatchSize;
+
+  private long lastPublishMillis;
+
+  private long publishedEvents;
+
+  private long failedPublishes;
+
+  // Delay before the relay tries the sink again, zero while it is healthy.
+  private long backoffMillis;
+}
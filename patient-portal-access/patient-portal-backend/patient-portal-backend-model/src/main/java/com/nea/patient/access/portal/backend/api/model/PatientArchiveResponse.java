@@ -0,0 +1,28 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PatientArchiveResponse {
+
+  // Newest first.
+  @Builder.Default
+  private List<ArchivedRecord> records = new ArrayList<>();
+
+  private int page;
+
+  private int size;
+
+  private boolean hasMore;
+}
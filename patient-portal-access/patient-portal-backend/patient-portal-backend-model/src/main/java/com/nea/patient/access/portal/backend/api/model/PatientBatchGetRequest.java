@@ -0,0 +1,21 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PatientBatchGetRequest {
+
+  @Builder.Default
+  private List<Integer> ids = new ArrayList<>();
+}
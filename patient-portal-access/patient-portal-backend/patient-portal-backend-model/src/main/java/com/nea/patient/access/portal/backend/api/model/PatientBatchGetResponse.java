@@ -0,0 +1,27 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PatientBatchGetResponse {
+
+  // In the order the ids were requested, duplicates returned once.
+  @Builder.Default
+  private List<Patient> patients = new ArrayList<>();
+
+  @Builder.Default
+  private List<Integer> missingIds = new ArrayList<>();
+}
@@ -18,4 +18,12 @@ import lombok.Setter;
 public class PatientSearchResponse {
 
   private List<Patient> patients;
+
+  // Set when a page was requested, patients are then ordered by surname, first name and id.
+  private Integer page;
+
+  private Integer size;
+
+  // Number of matching patients across all pages.
+  private Long total;
 }
@@ -0,0 +1,25 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PatientTimelineResponse {
+
+  // Newest first.
+  @Builder.Default
+  private List<TimelineEntry> entries = new ArrayList<>();
+
+  // Pass back as the cursor parameter to read the next page, null on the last page.
+  private String nextCursor;
+}
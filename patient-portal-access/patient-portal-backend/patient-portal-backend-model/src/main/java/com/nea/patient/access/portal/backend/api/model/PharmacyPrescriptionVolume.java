@@ -0,0 +1,19 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PharmacyPrescriptionVolume {
+
+  private String pharmacy;
+
+  private int prescriptions;
+}
@@ -0,0 +1,26 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PrescriptionVolumeResponse {
+
+  // When the analytics snapshot answering this was taken.
+  private Date snapshotTime;
+
+  // Busiest pharmacy first.
+  @Builder.Default
+  private List<PharmacyPrescriptionVolume> pharmacies = new ArrayList<>();
+}
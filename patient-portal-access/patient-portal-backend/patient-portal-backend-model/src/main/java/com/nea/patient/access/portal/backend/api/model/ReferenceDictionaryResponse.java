@@ -0,0 +1,27 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.ReferenceTerm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReferenceDictionaryResponse {
+
+  // Changes whenever a term is added, also sent as the response ETag.
+  private String version;
+
+  // Ordered by category then label.
+  @Builder.Default
+  private List<ReferenceTerm> terms = new ArrayList<>();
+}
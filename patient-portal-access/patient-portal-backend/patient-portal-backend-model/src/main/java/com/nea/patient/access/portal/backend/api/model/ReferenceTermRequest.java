@@ -0,0 +1,21 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ReferenceCategory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReferenceTermRequest {
+
+  private ReferenceCategory category;
+
+  private String label;
+}
@@ -0,0 +1,20 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+/**
+ * Sizes patient photo thumbnails are generated at, as the longest side in pixels.
+ */
+public enum ThumbnailSize {
+  SMALL(48),
+  MEDIUM(128),
+  LARGE(320);
+
+  private final int maxDimension;
+
+  ThumbnailSize(final int maxDimension) {
+    this.maxDimension = maxDimension;
+  }
+
+  public int getMaxDimension() {
+    return maxDimension;
+  }
+}
@@ -0,0 +1,35 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TimelineEntry {
+
+  private TimelineEntryType type;
+
+  // Id of the note, appointment, etc. within its own type.
+  private Integer id;
+
+  private Date date;
+
+  private String summary;
+
+  /**
+   * Used by the per-type timeline queries, the type is filled in by the caller.
+   */
+  public TimelineEntry(final Integer id, final Date date, final String summary) {
+    this.id = id;
+    this.date = date;
+    this.summary = summary;
+  }
+}
@@ -0,0 +1,15 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+/**
+ * Kinds of patient record merged into the timeline. The declaration order breaks ties between
+ * entries of different kinds on the same date.
+ */
+public enum TimelineEntryType {
+  APPOINTMENT,
+  NOTE,
+  PRESCRIPTION,
+  TEST_RESULT,
+  VACCINATION,
+  OPERATION,
+  ILLNESS
+}
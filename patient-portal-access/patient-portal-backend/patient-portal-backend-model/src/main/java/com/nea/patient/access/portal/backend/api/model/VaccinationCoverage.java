@@ -0,0 +1,22 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VaccinationCoverage {
+
+  private String type;
+
+  private int vaccinatedPatients;
+
+  // Fraction of all patients vaccinated.
+  private double coverage;
+}
@@ -0,0 +1,40 @@
+package com.nea.patient.access.portal.backend.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WriteBehindStatus {
+
+  // Whether note and attendance writes are currently acknowledged from the log.
+  private boolean enabled;
+
+  private int queueDepth;
+
+  private long lastEnqueuedSequence;
+
+  private long appliedSequence;
+
+  private int lastFlushSize;
+
+  private long lastFlushMillis;
+
+  private long maxFlushMillis;
+
+  private long flushedWrites;
+
+  private long failedFlushes;
+
+  // Writes that kept failing on their own and were moved to the dead-letter file.
+  private long deadLetteredWrites;
+
+  // Writes refused because the queue was full.
+  private long rejectedWrites;
+}
@@ -0,0 +1,6 @@
+package com.nea.patient.access.portal.backend.jpa.domain.enums;
+
+public enum AttachmentOwnerType {
+  TEST_RESULT,
+  OPERATION;
+}
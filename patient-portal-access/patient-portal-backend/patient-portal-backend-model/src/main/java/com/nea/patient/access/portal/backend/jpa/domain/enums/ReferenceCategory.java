@@ -0,0 +1,7 @@
+package com.nea.patient.access.portal.backend.jpa.domain.enums;
+
+public enum ReferenceCategory {
+  ILLNESS,
+  VACCINATION,
+  TEST_RESULT;
+}
@@ -6,9 +6,11 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Version;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,7 +19,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "Appointment")
+@Table(name = "Appointment",
+    indexes = @Index(name = "appointment_scheduled_with_datetime", columnList = "scheduledWith, datetime"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -29,6 +32,9 @@ public class Appointment {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Integer id;
 
+  @Version
+  private Integer version;
+
   private String scheduledWith;
 
   private String seenBy;
@@ -39,4 +45,6 @@ public class Appointment {
 
   @Temporal(TemporalType.TIMESTAMP)
   private Date datetime;
+
+  private Integer durationMinutes;
 }
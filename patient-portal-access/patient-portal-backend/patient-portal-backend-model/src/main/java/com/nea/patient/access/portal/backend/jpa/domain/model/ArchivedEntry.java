@@ -0,0 +1,63 @@
+package com.nea.patient.access.portal.backend.jpa.domain.model;
+
+import java.util.Date;
+
+import javax.persistence.Basic;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ArchivedEntryType;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A note, appointment or test result moved out of the patient graph once it passed the archive
+ * age. The original record is kept as gzip compressed JSON and is only read when archive pages are
+ * requested.
+ */
+@Entity
+@Table(name = "ArchivedEntry",
+    indexes = @Index(name = "archived_entry_patient_type_date", columnList = "patientId, entryType, entryDate"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedEntry {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Integer id;
+
+  private Integer patientId;
+
+  @Enumerated(EnumType.STRING)
+  private ArchivedEntryType entryType;
+
+  // Id the record had before it was archived.
+  private Integer originalId;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date entryDate;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date archivedAt;
+
+  @Lob
+  @Basic(fetch = FetchType.LAZY)
+  private byte[] payload;
+}
@@ -0,0 +1,64 @@
+package com.nea.patient.access.portal.backend.jpa.domain.model;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.AttachmentOwnerType;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A document attached to a test result or operation. Only the metadata is kept in the database,
+ * the content is stored once per distinct SHA-256 hash in the attachment store, so several
+ * attachments may share the same file.
+ */
+@Entity
+@Table(name = "Attachment",
+    indexes = @Index(name = "attachment_owner", columnList = "ownerType, ownerId"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Attachment {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Integer id;
+
+  @Enumerated(EnumType.STRING)
+  private AttachmentOwnerType ownerType;
+
+  private Integer ownerId;
+
+  // Patient the owning record belongs to, kept for auditing downloads.
+  private Integer patientId;
+
+  private String fileName;
+
+  private String contentType;
+
+  // Lower case hex SHA-256 of the content, also used as the ETag.
+  @Column(length = 64)
+  private String contentHash;
+
+  private Long size;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date uploadedAt;
+}
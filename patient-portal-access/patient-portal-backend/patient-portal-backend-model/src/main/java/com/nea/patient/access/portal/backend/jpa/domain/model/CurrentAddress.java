@@ -9,6 +9,7 @@ import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Version;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -29,6 +30,9 @@ public class CurrentAddress {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Integer id;
 
+  @Version
+  private Integer version;
+
   private String addressLine1;
 
   private String district;
@@ -5,6 +5,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -25,6 +26,9 @@ public class EmergencyContact {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Integer id;
 
+  @Version
+  private Integer version;
+
   private String firstName;
 
   private String middleName;
@@ -0,0 +1,54 @@
+package com.nea.patient.access.portal.backend.jpa.domain.model;
+
+import java.util.Date;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ChangeEventType;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A patient change waiting to be published to downstream consumers. Written in the same
+ * transaction as the change itself and removed once the relay has handed it to the sink.
+ */
+@Entity
+@Table(name = "OutboxEvent")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Enumerated(EnumType.STRING)
+  private ChangeEventType eventType;
+
+  private Integer patientId;
+
+  private Integer patientVersion;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date occurredAt;
+
+  // The patient as committed, in JSON.
+  @Lob
+  private String payload;
+}
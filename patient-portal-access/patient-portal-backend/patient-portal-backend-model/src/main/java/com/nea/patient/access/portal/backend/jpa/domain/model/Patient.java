@@ -5,6 +5,7 @@ import java.util.Date;
 import java.util.List;
 
 import javax.persistence.CascadeType;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
@@ -19,6 +20,7 @@ import javax.persistence.OrderBy;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Version;
 
 import com.nea.patient.access.portal.backend.jpa.domain.enums.Gender;
 import com.nea.patient.access.portal.backend.jpa.domain.enums.MaritalStatus;
@@ -42,6 +44,9 @@ public class Patient {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Integer id;
 
+  @Version
+  private Integer version;
+
   private String title;
 
   private String firstName;
@@ -71,6 +76,10 @@ public class Patient {
   
   private String nhsNumber;
 
+  // Content hash of the photo in the attachment store, only set through the photo upload.
+  @Column(length = 64)
+  private String photoHash;
+
   @OneToOne(cascade = CascadeType.ALL, optional = true)
   @JoinColumn(name = "emergencyContactId", referencedColumnName = "id")
   private EmergencyContact emergencyContact;
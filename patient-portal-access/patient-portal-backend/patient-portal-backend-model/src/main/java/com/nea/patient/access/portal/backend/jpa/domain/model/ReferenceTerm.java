@@ -0,0 +1,39 @@
+package com.nea.patient.access.portal.backend.jpa.domain.model;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ReferenceCategory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * An illness, vaccine or test name. Medical history rows hold the integer code rather than the
+ * label, codes are unique across every category.
+ */
+@Entity
+@Table(name = "ReferenceTerm",
+    uniqueConstraints = @UniqueConstraint(name = "reference_term_category_label", columnNames = {"category", "label"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReferenceTerm {
+
+  @Id
+  private Integer code;
+
+  @Enumerated(EnumType.STRING)
+  private ReferenceCategory category;
+
+  private String label;
+}
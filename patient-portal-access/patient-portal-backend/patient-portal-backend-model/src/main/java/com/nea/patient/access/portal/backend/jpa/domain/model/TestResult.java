@@ -9,6 +9,7 @@ import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Version;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -30,7 +31,11 @@ public class TestResult {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Integer id;
 
-  private String type;
+  @Version
+  private Integer version;
+
+  // Code of the ReferenceTerm naming the test.
+  private Integer typeCode;
 
   private String additionalNotes;
 
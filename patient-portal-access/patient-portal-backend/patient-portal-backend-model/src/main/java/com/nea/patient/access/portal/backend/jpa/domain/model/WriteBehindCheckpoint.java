@@ -0,0 +1,32 @@
+package com.nea.patient.access.portal.backend.jpa.domain.model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Sequence number of the last write-behind log record applied to the database. Updated in the
+ * same transaction as the writes, so replaying the log after a crash never applies a write twice.
+ */
+@Entity
+@Table(name = "WriteBehindCheckpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WriteBehindCheckpoint {
+
+  public static final Integer SINGLETON_ID = 1;
+
+  @Id
+  private Integer id;
+
+  private Long appliedSequence;
+}
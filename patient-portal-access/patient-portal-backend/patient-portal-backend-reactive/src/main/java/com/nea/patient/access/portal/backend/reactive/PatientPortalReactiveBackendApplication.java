@@ -0,0 +1,33 @@
+package com.nea.patient.access.portal.backend.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+
+import io.r2dbc.spi.ConnectionFactory;
+
+@SpringBootApplication
+@EnableR2dbcRepositories
+public class PatientPortalReactiveBackendApplication {
+
+  public static void main(final String[] args) {
+    SpringApplication.run(PatientPortalReactiveBackendApplication.class, args);
+  }
+
+  /**
+   * R2DBC has no equivalent of Hibernate's {@code ddl-auto}, so the schema is applied from
+   * {@code schema.sql} on start up.
+   */
+  @Bean
+  public ConnectionFactoryInitializer connectionFactoryInitializer(
+      final ConnectionFactory connectionFactory) {
+    ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
+    initializer.setConnectionFactory(connectionFactory);
+    initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")));
+    return initializer;
+  }
+}
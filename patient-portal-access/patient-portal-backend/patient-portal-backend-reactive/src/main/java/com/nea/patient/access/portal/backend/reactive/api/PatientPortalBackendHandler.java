@@ -0,0 +1,150 @@
+package com.nea.patient.access.portal.backend.reactive.api;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.nea.patient.access.portal.backend.api.model.PatientSearchResponse;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.dao.PatientGraphDao;
+
+import reactor.core.publisher.Mono;
+
+@Component
+public class PatientPortalBackendHandler {
+
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+  @Autowired
+  private PatientGraphDao patientGraphDao;
+  @Autowired
+  private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+  // CBOR is read and written here rather than by codecs, the Jackson2CborEncoder of this Spring
+  // version cannot write a single value.
+  private ObjectMapper cborObjectMapper;
+
+  /**
+   * The CBOR mapper is created from the Boot configured builder so it shares the
+   * {@code spring.jackson} settings used for JSON.
+   */
+  @PostConstruct
+  public void initialise() {
+    cborObjectMapper = objectMapperBuilder.createXmlMapper(false).factory(new CBORFactory()).build();
+  }
+
+  public Mono<ServerResponse> getPatientById(final ServerRequest request) {
+    Integer id;
+    try {
+      id = Integer.valueOf(request.pathVariable("id"));
+    } catch (NumberFormatException e) {
+      return ServerResponse.badRequest().build();
+    }
+    return patientGraphDao.findById(id)
+        .flatMap(patient -> body(ServerResponse.ok(), request, patient))
+        .switchIfEmpty(ServerResponse.notFound().build());
+  }
+
+  public Mono<ServerResponse> searchPatients(final ServerRequest request) {
+    Optional<String> dateOfBirthParameter = request.queryParam("dateOfBirth");
+    if (!dateOfBirthParameter.isPresent()) {
+      return ServerResponse.badRequest().build();
+    }
+    LocalDate dateOfBirth;
+    try {
+      dateOfBirth = LocalDate.parse(dateOfBirthParameter.get(), DATE_FORMATTER);
+    } catch (DateTimeParseException e) {
+      return ServerResponse.badRequest().build();
+    }
+    String lastName = request.queryParam("lastName").orElse(null);
+
+    return patientGraphDao.search(dateOfBirth, lastName)
+        .collectList()
+        .flatMap(patients -> body(ServerResponse.ok(), request,
+            PatientSearchResponse.builder().patients(patients).build()));
+  }
+
+  public Mono<ServerResponse> createPatient(final ServerRequest request) {
+    return readPatient(request)
+        .flatMap(patientGraphDao::create)
+        .flatMap(id -> ServerResponse.status(HttpStatus.CREATED).build());
+  }
+
+  public Mono<ServerResponse> updatePatient(final ServerRequest request) {
+    return readPatient(request)
+        .flatMap(patient -> patientGraphDao.update(patient)
+            .flatMap(id -> ServerResponse.ok().build())
+            .onErrorResume(OptimisticLockingFailureException.class,
+                e -> patientGraphDao.findById(patient.getId())
+                    .flatMap(current -> body(ServerResponse.status(HttpStatus.CONFLICT), request,
+                        current))))
+        .switchIfEmpty(ServerResponse.notFound().build());
+  }
+
+  private Mono<Patient> readPatient(final ServerRequest request) {
+    boolean cbor = request.headers().contentType()
+        .map(MediaType.APPLICATION_CBOR::isCompatibleWith)
+        .orElse(false);
+    if (!cbor) {
+      return request.bodyToMono(Patient.class);
+    }
+    return request.bodyToMono(byte[].class).flatMap(body -> {
+      try {
+        return Mono.just(cborObjectMapper.readValue(body, Patient.class));
+      } catch (IOException e) {
+        return Mono.error(new ServerWebInputException("Unreadable CBOR patient: " + e.getMessage()));
+      }
+    });
+  }
+
+  private Mono<ServerResponse> body(final ServerResponse.BodyBuilder response,
+      final ServerRequest request, final Object body) {
+    MediaType mediaType = responseMediaType(request);
+    if (!MediaType.APPLICATION_CBOR.equals(mediaType)) {
+      return response.contentType(mediaType).bodyValue(body);
+    }
+    try {
+      return response.contentType(mediaType).bodyValue(cborObjectMapper.writeValueAsBytes(body));
+    } catch (JsonProcessingException e) {
+      return Mono.error(e);
+    }
+  }
+
+  /**
+   * Functional endpoints do not negotiate the body encoding themselves, so it is chosen here from
+   * the Accept header. JSON remains the default, CBOR is used when preferred over JSON.
+   */
+  private MediaType responseMediaType(final ServerRequest request) {
+    List<MediaType> acceptedMediaTypes = new ArrayList<>(request.headers().accept());
+    MediaType.sortBySpecificityAndQuality(acceptedMediaTypes);
+    for (MediaType acceptedMediaType : acceptedMediaTypes) {
+      // Wildcards match JSON first.
+      if (acceptedMediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+        return MediaType.APPLICATION_JSON;
+      }
+      if (acceptedMediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+        return MediaType.APPLICATION_CBOR;
+      }
+    }
+    return MediaType.APPLICATION_JSON;
+  }
+}
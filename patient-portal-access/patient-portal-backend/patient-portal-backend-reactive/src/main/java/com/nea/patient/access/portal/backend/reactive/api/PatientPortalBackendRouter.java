@@ -0,0 +1,35 @@
+package com.nea.patient.access.portal.backend.reactive.api;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Functional routes equivalent to {@code PatientPortalBackendController}, reading and writing JSON or
+ * CBOR in the same way. The search route is declared ahead of {@code /patients/{id}} so it is not
+ * captured as an id.
+ */
+@Configuration
+public class PatientPortalBackendRouter {
+
+  @Bean
+  public RouterFunction<ServerResponse> patientRoutes(final PatientPortalBackendHandler handler) {
+    return RouterFunctions.route()
+        .path("/api", builder -> builder
+            .GET("/patients/search", accept(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR),
+                handler::searchPatients)
+            .GET("/patients/{id}", accept(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR),
+                handler::getPatientById)
+            .POST("/patients", contentType(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR),
+                handler::createPatient)
+            .PUT("/patients", contentType(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR),
+                handler::updatePatient))
+        .build();
+  }
+}
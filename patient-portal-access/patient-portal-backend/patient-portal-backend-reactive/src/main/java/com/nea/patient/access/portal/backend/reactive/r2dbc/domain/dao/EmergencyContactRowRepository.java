@@ -0,0 +1,10 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.dao;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.EmergencyContactRow;
+
+@Repository
+public interface EmergencyContactRowRepository extends ReactiveCrudRepository<EmergencyContactRow, Integer> {
+}
@@ -0,0 +1,14 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.dao;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.IllnessRow;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface IllnessRowRepository extends ReactiveCrudRepository<IllnessRow, Integer> {
+
+  Flux<IllnessRow> findByPatientIdOrderByDiagnosedDateDesc(final Integer patientId);
+}
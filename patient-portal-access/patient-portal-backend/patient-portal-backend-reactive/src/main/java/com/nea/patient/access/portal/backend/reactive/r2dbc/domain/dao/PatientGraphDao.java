@@ -0,0 +1,258 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.dao;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.MedicalHistory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.AppointmentRow;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.CurrentAddressRow;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.EmergencyContactRow;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.IllnessRow;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.MedicalHistoryRow;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.NoteRow;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.OperationRow;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.PatientRow;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.PatientRowMapper;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.PrescriptionRow;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.TestResultRow;
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.VaccinationRow;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads and writes whole {@code Patient} graphs over the per table reactive repositories. R2DBC
+ * has no notion of associations, so the child collections are fetched concurrently and stitched
+ * back onto the patient, and writes replay the JPA cascade (including orphan removal) by hand.
+ */
+@Component
+public class PatientGraphDao {
+
+  @Autowired
+  private PatientRowRepository patientRowRepository;
+  @Autowired
+  private CurrentAddressRowRepository currentAddressRowRepository;
+  @Autowired
+  private EmergencyContactRowRepository emergencyContactRowRepository;
+  @Autowired
+  private MedicalHistoryRowRepository medicalHistoryRowRepository;
+  @Autowired
+  private NoteRowRepository noteRowRepository;
+  @Autowired
+  private PrescriptionRowRepository prescriptionRowRepository;
+  @Autowired
+  private AppointmentRowRepository appointmentRowRepository;
+  @Autowired
+  private VaccinationRowRepository vaccinationRowRepository;
+  @Autowired
+  private OperationRowRepository operationRowRepository;
+  @Autowired
+  private TestResultRowRepository testResultRowRepository;
+  @Autowired
+  private IllnessRowRepository illnessRowRepository;
+
+  @Transactional(readOnly = true)
+  public Mono<Patient> findById(final Integer id) {
+    return patientRowRepository.findById(id).flatMap(this::assemble);
+  }
+
+  @Transactional(readOnly = true)
+  public Flux<Patient> search(final LocalDate dateOfBirth, final String lastName) {
+    Flux<PatientRow> patientRows;
+    if (StringUtils.isNotBlank(lastName)) {
+      patientRows = patientRowRepository.findByDateOfBirthAndSurname(dateOfBirth, lastName);
+    } else {
+      patientRows = patientRowRepository.findByDateOfBirth(dateOfBirth);
+    }
+    return patientRows.flatMapSequential(this::assemble);
+  }
+
+  @Transactional
+  public Mono<Integer> create(final Patient patient) {
+    return save(patient);
+  }
+
+  /**
+   * Updates an existing patient graph, completing empty if no patient exists with the given id.
+   * Fails with an {@link OptimisticLockingFailureException} when the patient carries no version or
+   * one that no longer matches the stored row.
+   */
+  @Transactional
+  public Mono<Integer> update(final Patient patient) {
+    if (patient.getId() == null) {
+      return Mono.empty();
+    }
+    return patientRowRepository.existsById(patient.getId())
+        .filter(Boolean::booleanValue)
+        .flatMap(exists -> patient.getVersion() == null
+            ? Mono.error(new OptimisticLockingFailureException(
+                "No version supplied for patient " + patient.getId()))
+            : save(patient));
+  }
+
+  private Mono<Patient> assemble(final PatientRow patientRow) {
+    Patient patient = PatientRowMapper.toPatient(patientRow);
+    Integer patientId = patientRow.getId();
+
+    Mono<Void> currentAddress = Mono.justOrEmpty(patientRow.getCurrentAddressId())
+        .flatMap(currentAddressRowRepository::findById)
+        .doOnNext(row -> patient.setCurrentAddress(PatientRowMapper.toCurrentAddress(row)))
+        .then();
+    Mono<Void> emergencyContact = Mono.justOrEmpty(patientRow.getEmergencyContactId())
+        .flatMap(emergencyContactRowRepository::findById)
+        .doOnNext(row -> patient.setEmergencyContact(PatientRowMapper.toEmergencyContact(row)))
+        .then();
+    Mono<Void> medicalHistory = Mono.justOrEmpty(patientRow.getMedicalHistoryId())
+        .flatMap(medicalHistoryRowRepository::findById)
+        .flatMap(this::assembleMedicalHistory)
+        .doOnNext(patient::setMedicalHistory)
+        .then();
+    Mono<Void> notes = noteRowRepository.findByPatientIdOrderByCreatedDesc(patientId)
+        .map(PatientRowMapper::toNote).collectList()
+        .doOnNext(patient::setNotes)
+        .then();
+    Mono<Void> prescriptions = prescriptionRowRepository
+        .findByPatientIdOrderByLastPrescribedDesc(patientId)
+        .map(PatientRowMapper::toPrescription).collectList()
+        .doOnNext(patient::setPrescriptions)
+        .then();
+    Mono<Void> appointments = appointmentRowRepository.findByPatientIdOrderByDatetimeDesc(patientId)
+        .map(PatientRowMapper::toAppointment).collectList()
+        .doOnNext(patient::setAppointments)
+        .then();
+
+    return Mono.when(currentAddress, emergencyContact, medicalHistory, notes, prescriptions,
+        appointments).thenReturn(patient);
+  }
+
+  private Mono<MedicalHistory> assembleMedicalHistory(final MedicalHistoryRow medicalHistoryRow) {
+    MedicalHistory medicalHistory = PatientRowMapper.toMedicalHistory(medicalHistoryRow);
+    Integer medicalHistoryId = medicalHistoryRow.getId();
+
+    Mono<Void> vaccinations = vaccinationRowRepository
+        .findByPatientIdOrderByDatePerformedDesc(medicalHistoryId)
+        .map(PatientRowMapper::toVaccination).collectList()
+        .doOnNext(medicalHistory::setVaccinations)
+        .then();
+    Mono<Void> operations = operationRowRepository
+        .findByPatientIdOrderByDateOfOperationDesc(medicalHistoryId)
+        .map(PatientRowMapper::toOperation).collectList()
+        .doOnNext(medicalHistory::setOperations)
+        .then();
+    Mono<Void> testResults = testResultRowRepository
+        .findByPatientIdOrderByDateOfTestDesc(medicalHistoryId)
+        .map(PatientRowMapper::toTestResult).collectList()
+        .doOnNext(medicalHistory::setTestResults)
+        .then();
+    Mono<Void> illnesses = illnessRowRepository
+        .findByPatientIdOrderByDiagnosedDateDesc(medicalHistoryId)
+        .map(PatientRowMapper::toIllness).collectList()
+        .doOnNext(medicalHistory::setIllnesses)
+        .then();
+
+    return Mono.when(vaccinations, operations, testResults, illnesses).thenReturn(medicalHistory);
+  }
+
+  private Mono<Integer> save(final Patient patient) {
+    PatientRow patientRow = PatientRowMapper.toPatientRow(patient);
+
+    Mono<Void> currentAddress = Mono.justOrEmpty(patient.getCurrentAddress())
+        .map(PatientRowMapper::toCurrentAddressRow)
+        .flatMap(currentAddressRowRepository::save)
+        .doOnNext(row -> patientRow.setCurrentAddressId(row.getId()))
+        .then();
+    Mono<Void> emergencyContact = Mono.justOrEmpty(patient.getEmergencyContact())
+        .map(PatientRowMapper::toEmergencyContactRow)
+        .flatMap(emergencyContactRowRepository::save)
+        .doOnNext(row -> patientRow.setEmergencyContactId(row.getId()))
+        .then();
+    Mono<Void> medicalHistory = Mono.justOrEmpty(patient.getMedicalHistory())
+        .flatMap(this::saveMedicalHistory)
+        .doOnNext(patientRow::setMedicalHistoryId)
+        .then();
+
+    return currentAddress
+        .then(emergencyContact)
+        .then(medicalHistory)
+        .then(Mono.defer(() -> patientRowRepository.save(patientRow)))
+        .flatMap(savedRow -> savePatientChildren(patient, savedRow.getId())
+            .thenReturn(savedRow.getId()));
+  }
+
+  private Mono<Void> savePatientChildren(final Patient patient, final Integer patientId) {
+    return syncChildren(noteRowRepository.findByPatientIdOrderByCreatedDesc(patientId),
+        patient.getNotes().stream()
+            .map(note -> PatientRowMapper.toNoteRow(note, patientId))
+            .collect(Collectors.toList()),
+        noteRowRepository, NoteRow::getId)
+        .then(syncChildren(prescriptionRowRepository.findByPatientIdOrderByLastPrescribedDesc(patientId),
+            patient.getPrescriptions().stream()
+                .map(prescription -> PatientRowMapper.toPrescriptionRow(prescription, patientId))
+                .collect(Collectors.toList()),
+            prescriptionRowRepository, PrescriptionRow::getId))
+        .then(syncChildren(appointmentRowRepository.findByPatientIdOrderByDatetimeDesc(patientId),
+            patient.getAppointments().stream()
+                .map(appointment -> PatientRowMapper.toAppointmentRow(appointment, patientId))
+                .collect(Collectors.toList()),
+            appointmentRowRepository, AppointmentRow::getId));
+  }
+
+  private Mono<Integer> saveMedicalHistory(final MedicalHistory medicalHistory) {
+    return medicalHistoryRowRepository.save(PatientRowMapper.toMedicalHistoryRow(medicalHistory))
+        .map(MedicalHistoryRow::getId)
+        .flatMap(medicalHistoryId -> syncChildren(
+            vaccinationRowRepository.findByPatientIdOrderByDatePerformedDesc(medicalHistoryId),
+            medicalHistory.getVaccinations().stream()
+                .map(vaccination -> PatientRowMapper.toVaccinationRow(vaccination, medicalHistoryId))
+                .collect(Collectors.toList()),
+            vaccinationRowRepository, VaccinationRow::getId)
+            .then(syncChildren(
+                operationRowRepository.findByPatientIdOrderByDateOfOperationDesc(medicalHistoryId),
+                medicalHistory.getOperations().stream()
+                    .map(operation -> PatientRowMapper.toOperationRow(operation, medicalHistoryId))
+                    .collect(Collectors.toList()),
+                operationRowRepository, OperationRow::getId))
+            .then(syncChildren(
+                testResultRowRepository.findByPatientIdOrderByDateOfTestDesc(medicalHistoryId),
+                medicalHistory.getTestResults().stream()
+                    .map(testResult -> PatientRowMapper.toTestResultRow(testResult, medicalHistoryId))
+                    .collect(Collectors.toList()),
+                testResultRowRepository, TestResultRow::getId))
+            .then(syncChildren(
+                illnessRowRepository.findByPatientIdOrderByDiagnosedDateDesc(medicalHistoryId),
+                medicalHistory.getIllnesses().stream()
+                    .map(illness -> PatientRowMapper.toIllnessRow(illness, medicalHistoryId))
+                    .collect(Collectors.toList()),
+                illnessRowRepository, IllnessRow::getId))
+            .thenReturn(medicalHistoryId));
+  }
+
+  /**
+   * Mirrors {@code orphanRemoval = true}: existing rows missing from the incoming collection are
+   * deleted, rows with an id are updated and the rest inserted.
+   */
+  private <R> Mono<Void> syncChildren(final Flux<R> existingRows, final List<R> incomingRows,
+      final ReactiveCrudRepository<R, Integer> repository, final Function<R, Integer> idFunction) {
+    Set<Integer> retainedIds = incomingRows.stream()
+        .map(idFunction)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+    return existingRows
+        .filter(row -> !retainedIds.contains(idFunction.apply(row)))
+        .concatMap(repository::delete)
+        .thenMany(repository.saveAll(incomingRows))
+        .then();
+  }
+}
@@ -0,0 +1,18 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.dao;
+
+import java.time.LocalDate;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model.PatientRow;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface PatientRowRepository extends ReactiveCrudRepository<PatientRow, Integer> {
+
+  Flux<PatientRow> findByDateOfBirth(final LocalDate dateOfBirth);
+
+  Flux<PatientRow> findByDateOfBirthAndSurname(final LocalDate dateOfBirth, final String surname);
+}
@@ -0,0 +1,38 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Table("appointment")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppointmentRow {
+
+  @Id
+  private Integer id;
+
+  private Integer patientId;
+
+  private String scheduledWith;
+
+  private String seenBy;
+
+  private Boolean attended;
+
+  private Boolean cancelled;
+
+  private LocalDateTime datetime;
+
+  private Integer durationMinutes;
+}
@@ -0,0 +1,36 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model;
+
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Table("current_address")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CurrentAddressRow {
+
+  @Id
+  private Integer id;
+
+  private String addressLine1;
+
+  private String district;
+
+  private String town;
+
+  private String county;
+
+  private String postcode;
+
+  private LocalDate fromDate;
+}
@@ -0,0 +1,34 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Table("emergency_contact")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmergencyContactRow {
+
+  @Id
+  private Integer id;
+
+  private String firstName;
+
+  private String middleName;
+
+  private String surname;
+
+  private String relationship;
+
+  private String contactNumber;
+
+  private String email;
+}
@@ -0,0 +1,34 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model;
+
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Table("illness")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IllnessRow {
+
+  @Id
+  private Integer id;
+
+  private Integer patientId;
+
+  private Integer typeCode;
+
+  private String severity;
+
+  private LocalDate lastReviewed;
+
+  private LocalDate diagnosedDate;
+}
@@ -0,0 +1,24 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Table("medical_history")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MedicalHistoryRow {
+
+  @Id
+  private Integer id;
+
+  private String allergies;
+}
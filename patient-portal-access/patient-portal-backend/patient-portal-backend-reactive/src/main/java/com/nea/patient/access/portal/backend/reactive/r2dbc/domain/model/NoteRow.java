@@ -0,0 +1,30 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model;
+
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Table("note")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NoteRow {
+
+  @Id
+  private Integer id;
+
+  private Integer patientId;
+
+  private String description;
+
+  private LocalDate created;
+}
@@ -0,0 +1,60 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model;
+
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Table("patient")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PatientRow {
+
+  @Id
+  private Integer id;
+
+  @Version
+  private Integer version;
+
+  private String title;
+
+  private String firstName;
+
+  private String middleName;
+
+  private String surname;
+
+  private LocalDate dateOfBirth;
+
+  private String gender;
+
+  private String maritalStatus;
+
+  private String bloodType;
+
+  private String contactNumber;
+
+  private String email;
+
+  private Integer height;
+
+  private Integer weight;
+
+  private String nhsNumber;
+
+  private Integer currentAddressId;
+
+  private Integer emergencyContactId;
+
+  private Integer medicalHistoryId;
+}
@@ -0,0 +1,314 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.Anesthesia;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.Gender;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.MaritalStatus;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.jpa.domain.model.CurrentAddress;
+import com.nea.patient.access.portal.backend.jpa.domain.model.EmergencyContact;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Illness;
+import com.nea.patient.access.portal.backend.jpa.domain.model.MedicalHistory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Operation;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Prescription;
+import com.nea.patient.access.portal.backend.jpa.domain.model.TestResult;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Vaccination;
+
+/**
+ * Converts between the flat R2DBC rows and the shared {@code Patient} model, so the reactive API
+ * serialises exactly the same document shape as the servlet API. Foreign keys live on the rows
+ * only, the model keeps its JPA style object graph.
+ */
+public final class PatientRowMapper {
+
+  private PatientRowMapper() {
+  }
+
+  public static Patient toPatient(final PatientRow row) {
+    return Patient.builder()
+        .id(row.getId())
+        .version(row.getVersion())
+        .title(row.getTitle())
+        .firstName(row.getFirstName())
+        .middleName(row.getMiddleName())
+        .surname(row.getSurname())
+        .dateOfBirth(toDate(row.getDateOfBirth()))
+        .gender(row.getGender() == null ? null : Gender.valueOf(row.getGender()))
+        .maritalStatus(row.getMaritalStatus() == null ? null : MaritalStatus.valueOf(row.getMaritalStatus()))
+        .bloodType(row.getBloodType())
+        .contactNumber(row.getContactNumber())
+        .email(row.getEmail())
+        .height(row.getHeight())
+        .weight(row.getWeight())
+        .nhsNumber(row.getNhsNumber())
+        .build();
+  }
+
+  public static PatientRow toPatientRow(final Patient patient) {
+    return PatientRow.builder()
+        .id(patient.getId())
+        .version(patient.getVersion())
+        .title(patient.getTitle())
+        .firstName(patient.getFirstName())
+        .middleName(patient.getMiddleName())
+        .surname(patient.getSurname())
+        .dateOfBirth(toLocalDate(patient.getDateOfBirth()))
+        .gender(patient.getGender() == null ? null : patient.getGender().name())
+        .maritalStatus(patient.getMaritalStatus() == null ? null : patient.getMaritalStatus().name())
+        .bloodType(patient.getBloodType())
+        .contactNumber(patient.getContactNumber())
+        .email(patient.getEmail())
+        .height(patient.getHeight())
+        .weight(patient.getWeight())
+        .nhsNumber(patient.getNhsNumber())
+        .build();
+  }
+
+  public static CurrentAddress toCurrentAddress(final CurrentAddressRow row) {
+    return CurrentAddress.builder()
+        .id(row.getId())
+        .addressLine1(row.getAddressLine1())
+        .district(row.getDistrict())
+        .town(row.getTown())
+        .county(row.getCounty())
+        .postcode(row.getPostcode())
+        .fromDate(toDate(row.getFromDate()))
+        .build();
+  }
+
+  public static CurrentAddressRow toCurrentAddressRow(final CurrentAddress currentAddress) {
+    return CurrentAddressRow.builder()
+        .id(currentAddress.getId())
+        .addressLine1(currentAddress.getAddressLine1())
+        .district(currentAddress.getDistrict())
+        .town(currentAddress.getTown())
+        .county(currentAddress.getCounty())
+        .postcode(currentAddress.getPostcode())
+        .fromDate(toLocalDate(currentAddress.getFromDate()))
+        .build();
+  }
+
+  public static EmergencyContact toEmergencyContact(final EmergencyContactRow row) {
+    return EmergencyContact.builder()
+        .id(row.getId())
+        .firstName(row.getFirstName())
+        .middleName(row.getMiddleName())
+        .surname(row.getSurname())
+        .relationship(row.getRelationship())
+        .contactNumber(row.getContactNumber())
+        .email(row.getEmail())
+        .build();
+  }
+
+  public static EmergencyContactRow toEmergencyContactRow(final EmergencyContact emergencyContact) {
+    return EmergencyContactRow.builder()
+        .id(emergencyContact.getId())
+        .firstName(emergencyContact.getFirstName())
+        .middleName(emergencyContact.getMiddleName())
+        .surname(emergencyContact.getSurname())
+        .relationship(emergencyContact.getRelationship())
+        .contactNumber(emergencyContact.getContactNumber())
+        .email(emergencyContact.getEmail())
+        .build();
+  }
+
+  public static MedicalHistory toMedicalHistory(final MedicalHistoryRow row) {
+    return MedicalHistory.builder()
+        .id(row.getId())
+        .allergies(row.getAllergies())
+        .build();
+  }
+
+  public static MedicalHistoryRow toMedicalHistoryRow(final MedicalHistory medicalHistory) {
+    return MedicalHistoryRow.builder()
+        .id(medicalHistory.getId())
+        .allergies(medicalHistory.getAllergies())
+        .build();
+  }
+
+  public static Note toNote(final NoteRow row) {
+    return Note.builder()
+        .id(row.getId())
+        .description(row.getDescription())
+        .created(toDate(row.getCreated()))
+        .build();
+  }
+
+  public static NoteRow toNoteRow(final Note note, final Integer patientId) {
+    return NoteRow.builder()
+        .id(note.getId())
+        .patientId(patientId)
+        .description(note.getDescription())
+        .created(toLocalDate(note.getCreated()))
+        .build();
+  }
+
+  public static Prescription toPrescription(final PrescriptionRow row) {
+    return Prescription.builder()
+        .id(row.getId())
+        .item(row.getItem())
+        .recommendedDosage(row.getRecommendedDosage())
+        .preferredPharmacy(row.getPreferredPharmacy())
+        .repeat(row.getRepeat())
+        .lastPrescribed(toDate(row.getLastPrescribed()))
+        .build();
+  }
+
+  public static PrescriptionRow toPrescriptionRow(final Prescription prescription,
+      final Integer patientId) {
+    return PrescriptionRow.builder()
+        .id(prescription.getId())
+        .patientId(patientId)
+        .item(prescription.getItem())
+        .recommendedDosage(prescription.getRecommendedDosage())
+        .preferredPharmacy(prescription.getPreferredPharmacy())
+        .repeat(prescription.getRepeat())
+        .lastPrescribed(toLocalDate(prescription.getLastPrescribed()))
+        .build();
+  }
+
+  public static Appointment toAppointment(final AppointmentRow row) {
+    return Appointment.builder()
+        .id(row.getId())
+        .scheduledWith(row.getScheduledWith())
+        .seenBy(row.getSeenBy())
+        .attended(row.getAttended())
+        .cancelled(row.getCancelled())
+        .datetime(toDate(row.getDatetime()))
+        .durationMinutes(row.getDurationMinutes())
+        .build();
+  }
+
+  public static AppointmentRow toAppointmentRow(final Appointment appointment,
+      final Integer patientId) {
+    return AppointmentRow.builder()
+        .id(appointment.getId())
+        .patientId(patientId)
+        .scheduledWith(appointment.getScheduledWith())
+        .seenBy(appointment.getSeenBy())
+        .attended(appointment.getAttended())
+        .cancelled(appointment.getCancelled())
+        .datetime(toLocalDateTime(appointment.getDatetime()))
+        .durationMinutes(appointment.getDurationMinutes())
+        .build();
+  }
+
+  public static Vaccination toVaccination(final VaccinationRow row) {
+    return Vaccination.builder()
+        .id(row.getId())
+        .typeCode(row.getTypeCode())
+        .location(row.getLocation())
+        .datePerformed(toDate(row.getDatePerformed()))
+        .build();
+  }
+
+  public static VaccinationRow toVaccinationRow(final Vaccination vaccination,
+      final Integer medicalHistoryId) {
+    return VaccinationRow.builder()
+        .id(vaccination.getId())
+        .patientId(medicalHistoryId)
+        .typeCode(vaccination.getTypeCode())
+        .location(vaccination.getLocation())
+        .datePerformed(toLocalDate(vaccination.getDatePerformed()))
+        .build();
+  }
+
+  public static Operation toOperation(final OperationRow row) {
+    return Operation.builder()
+        .id(row.getId())
+        .description(row.getDescription())
+        .location(row.getLocation())
+        .performedBy(row.getPerformedBy())
+        .anesthesia(row.getAnesthesia() == null ? null : Anesthesia.valueOf(row.getAnesthesia()))
+        .dateOfOperation(toDate(row.getDateOfOperation()))
+        .build();
+  }
+
+  public static OperationRow toOperationRow(final Operation operation,
+      final Integer medicalHistoryId) {
+    return OperationRow.builder()
+        .id(operation.getId())
+        .patientId(medicalHistoryId)
+        .description(operation.getDescription())
+        .location(operation.getLocation())
+        .performedBy(operation.getPerformedBy())
+        .anesthesia(operation.getAnesthesia() == null ? null : operation.getAnesthesia().name())
+        .dateOfOperation(toLocalDate(operation.getDateOfOperation()))
+        .build();
+  }
+
+  public static TestResult toTestResult(final TestResultRow row) {
+    return TestResult.builder()
+        .id(row.getId())
+        .typeCode(row.getTypeCode())
+        .additionalNotes(row.getAdditionalNotes())
+        .dateOfTest(toDate(row.getDateOfTest()))
+        .build();
+  }
+
+  public static TestResultRow toTestResultRow(final TestResult testResult,
+      final Integer medicalHistoryId) {
+    return TestResultRow.builder()
+        .id(testResult.getId())
+        .patientId(medicalHistoryId)
+        .typeCode(testResult.getTypeCode())
+        .additionalNotes(testResult.getAdditionalNotes())
+        .dateOfTest(toLocalDate(testResult.getDateOfTest()))
+        .build();
+  }
+
+  public static Illness toIllness(final IllnessRow row) {
+    return Illness.builder()
+        .id(row.getId())
+        .typeCode(row.getTypeCode())
+        .severity(row.getSeverity())
+        .lastReviewed(toDate(row.getLastReviewed()))
+        .diagnosedDate(toDate(row.getDiagnosedDate()))
+        .build();
+  }
+
+  public static IllnessRow toIllnessRow(final Illness illness, final Integer medicalHistoryId) {
+    return IllnessRow.builder()
+        .id(illness.getId())
+        .patientId(medicalHistoryId)
+        .typeCode(illness.getTypeCode())
+        .severity(illness.getSeverity())
+        .lastReviewed(toLocalDate(illness.getLastReviewed()))
+        .diagnosedDate(toLocalDate(illness.getDiagnosedDate()))
+        .build();
+  }
+
+  public static LocalDate toLocalDate(final Date date) {
+    if (date == null) {
+      return null;
+    }
+    return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+  }
+
+  private static LocalDateTime toLocalDateTime(final Date date) {
+    if (date == null) {
+      return null;
+    }
+    return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+  }
+
+  private static Date toDate(final LocalDate localDate) {
+    if (localDate == null) {
+      return null;
+    }
+    return Date.from(localDate.atStartOfDay().atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+  private static Date toDate(final LocalDateTime localDateTime) {
+    if (localDateTime == null) {
+      return null;
+    }
+    return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
+  }
+}
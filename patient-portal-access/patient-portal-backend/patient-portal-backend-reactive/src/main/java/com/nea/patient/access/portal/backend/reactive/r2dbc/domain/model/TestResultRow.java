@@ -0,0 +1,32 @@
+package com.nea.patient.access.portal.backend.reactive.r2dbc.domain.model;
+
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Table("test_result")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TestResultRow {
+
+  @Id
+  private Integer id;
+
+  private Integer patientId;
+
+  private Integer typeCode;
+
+  private String additionalNotes;
+
+  private LocalDate dateOfTest;
+}
@@ -0,0 +1,23 @@
+-- Mirrors the schema Hibernate generates for patient-portal-backend-api so both variants can run
+-- against the same database.
+create table if not exists current_address (id integer generated by default as identity, address_line1 varchar(255), county varchar(255), district varchar(255), from_date date, postcode varchar(255), town varchar(255), primary key (id));
+create table if not exists emergency_contact (id integer generated by default as identity, contact_number varchar(255), email varchar(255), first_name varchar(255), middle_name varchar(255), relationship varchar(255), surname varchar(255), primary key (id));
+create table if not exists medical_history (id integer generated by default as identity, allergies varchar(255), primary key (id));
+create table if not exists patient (id integer generated by default as identity, version integer, blood_type varchar(255), contact_number varchar(255), date_of_birth date, email varchar(255), first_name varchar(255), gender varchar(255), height integer, marital_status varchar(255), middle_name varchar(255), nhs_number varchar(255), surname varchar(255), title varchar(255), weight integer, current_address_id integer not null, emergency_contact_id integer, medical_history_id integer, primary key (id), unique (current_address_id), foreign key (current_address_id) references current_address, foreign key (emergency_contact_id) references emergency_contact, foreign key (medical_history_id) references medical_history);
+create table if not exists appointment (id integer generated by default as identity, attended boolean, cancelled boolean, datetime timestamp, duration_minutes integer, scheduled_with varchar(255), seen_by varchar(255), patient_id integer not null, primary key (id), foreign key (patient_id) references patient);
+create table if not exists note (id integer generated by default as identity, created date, description varchar(255), patient_id integer not null, primary key (id), foreign key (patient_id) references patient);
+create table if not exists prescription (id integer generated by default as identity, item varchar(255), last_prescribed date, preferred_pharmacy varchar(255), recommended_dosage varchar(255), repeat boolean, patient_id integer not null, primary key (id), foreign key (patient_id) references patient);
+create table if not exists reference_term (code integer not null, category varchar(255), label varchar(255), primary key (code), constraint reference_term_category_label unique (category, label));
+create table if not exists illness (id integer generated by default as identity, diagnosed_date date, last_reviewed date, severity varchar(255), type_code integer, patient_id integer not null, primary key (id), foreign key (patient_id) references medical_history);
+create table if not exists operation (id integer generated by default as identity, anesthesia varchar(255), date_of_operation date, description varchar(255), location varchar(255), performed_by varchar(255), patient_id integer not null, primary key (id), foreign key (patient_id) references medical_history);
+create table if not exists test_result (id integer generated by default as identity, additional_notes varchar(255), date_of_test date, type_code integer, patient_id integer not null, primary key (id), foreign key (patient_id) references medical_history);
+create table if not exists vaccination (id integer generated by default as identity, date_performed date, location varchar(255), type_code integer, patient_id integer not null, primary key (id), foreign key (patient_id) references medical_history);
+create index if not exists patient_date_of_birth_surname on patient (date_of_birth, surname);
+create index if not exists appointment_patient_id on appointment (patient_id);
+create index if not exists appointment_scheduled_with_datetime on appointment (scheduled_with, datetime);
+create index if not exists note_patient_id on note (patient_id);
+create index if not exists prescription_patient_id on prescription (patient_id);
+create index if not exists illness_patient_id on illness (patient_id);
+create index if not exists operation_patient_id on operation (patient_id);
+create index if not exists test_result_patient_id on test_result (patient_id);
+create index if not exists vaccination_patient_id on vaccination (patient_id);
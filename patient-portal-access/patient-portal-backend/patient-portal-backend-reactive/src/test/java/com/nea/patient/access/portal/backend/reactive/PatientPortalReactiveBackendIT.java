@@ -0,0 +1,130 @@
+package com.nea.patient.access.portal.backend.reactive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.nea.patient.access.portal.backend.api.model.PatientSearchResponse;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.Gender;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.MaritalStatus;
+import com.nea.patient.access.portal.backend.jpa.domain.model.CurrentAddress;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    classes = {PatientPortalReactiveBackendApplication.class})
+public class PatientPortalReactiveBackendIT {
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @Test
+  public void createPatientAndRetrieveThroughSearchAndId() throws Exception {
+    String firstName = "Gavindeep";
+    String surname = "Sidhu";
+    String noteDescription = "Registered at practice";
+    Date dateOfBirth = generateDate(2004, 12, 6);
+
+    Patient patient = Patient.builder()
+        .title("Mr")
+        .firstName(firstName)
+        .surname(surname)
+        .gender(Gender.MALE)
+        .maritalStatus(MaritalStatus.SINGLE)
+        .dateOfBirth(dateOfBirth)
+        .currentAddress(CurrentAddress.builder()
+            .addressLine1("18 Cockcroft Avenue")
+            .town("Coventry")
+            .postcode("CV2 3QP")
+            .build())
+        .build();
+    patient.getNotes().add(Note.builder()
+        .description(noteDescription)
+        .created(generateDate(2020, 10, 12))
+        .build());
+
+    webTestClient.post().uri("/api/patients")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(patient)
+        .exchange()
+        .expectStatus().isCreated();
+
+    PatientSearchResponse searchResponse = webTestClient.get()
+        .uri("/api/patients/search?dateOfBirth={dateOfBirth}&lastName={lastName}",
+            "06-12-2004", surname)
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(PatientSearchResponse.class)
+        .returnResult().getResponseBody();
+    assertNotNull(searchResponse);
+    assertEquals(1, searchResponse.getPatients().size());
+
+    Integer patientId = searchResponse.getPatients().get(0).getId();
+    Patient returnedPatient = webTestClient.get().uri("/api/patients/{id}", patientId)
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(Patient.class)
+        .returnResult().getResponseBody();
+    assertNotNull(returnedPatient);
+    assertEquals(firstName, returnedPatient.getFirstName());
+    assertEquals(surname, returnedPatient.getSurname());
+    assertEquals(dateOfBirth, returnedPatient.getDateOfBirth());
+    assertEquals("CV2 3QP", returnedPatient.getCurrentAddress().getPostcode());
+    assertEquals(1, returnedPatient.getNotes().size());
+    assertEquals(noteDescription, returnedPatient.getNotes().get(0).getDescription());
+
+    byte[] cborPatient = webTestClient.get().uri("/api/patients/{id}", patientId)
+        .accept(MediaType.APPLICATION_CBOR)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+        .expectBody(byte[].class)
+        .returnResult().getResponseBody();
+    assertNotNull(cborPatient);
+    assertEquals(surname, new ObjectMapper(new CBORFactory()).readTree(cborPatient)
+        .get("surname").asText());
+
+    returnedPatient.getNotes().clear();
+    webTestClient.put().uri("/api/patients")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(returnedPatient)
+        .exchange()
+        .expectStatus().isOk();
+
+    Patient updatedPatient = webTestClient.get().uri("/api/patients/{id}", patientId)
+        .accept(MediaType.APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(Patient.class)
+        .returnResult().getResponseBody();
+    assertNotNull(updatedPatient);
+    assertEquals(0, updatedPatient.getNotes().size());
+
+    webTestClient.get().uri("/api/patients/{id}", Integer.MAX_VALUE)
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  private Date generateDate(final int year, final int month, final int dayOfMonth) {
+    LocalDate dateToConvert = LocalDate.of(year, month, dayOfMonth);
+    return Date.from(dateToConvert.atStartOfDay()
+        .atZone(ZoneId.systemDefault())
+        .toInstant());
+  }
+}
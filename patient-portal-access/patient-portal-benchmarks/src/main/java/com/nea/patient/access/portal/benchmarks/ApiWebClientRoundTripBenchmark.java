@@ -0,0 +1,89 @@
+package com.nea.patient.access.portal.benchmarks;
+
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nea.patient.access.portal.backend.api.model.PatientSearchResponse;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
+import com.nea.patient.access.portal.ui.application.PatientDetails;
+
+/**
+ * Client round trips through {@link ApiWebClient} to the backend running in the same JVM over
+ * loopback HTTP, covering request encoding, the controller and response decoding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiWebClientRoundTripBenchmark {
+
+  private static final int PATIENTS = 1000;
+  private static final int KEYS = 256;
+
+  private BenchmarkBackend backend;
+  private BenchmarkClient client;
+  private ApiWebClient apiWebClient;
+  private Integer[] patientIdKeys;
+  private Date[] dateOfBirthKeys;
+  private String[] surnameKeys;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    backend = BenchmarkBackend.start(true);
+    List<Patient> patients = backend.seed(PATIENTS, new SplittableRandom(BenchmarkPatients.SEED));
+
+    client = BenchmarkClient.start("http://localhost:" + backend.getPort() + "/api");
+    apiWebClient = client.getApiWebClient();
+
+    SplittableRandom random = new SplittableRandom(BenchmarkPatients.SEED + 1);
+    patientIdKeys = new Integer[KEYS];
+    dateOfBirthKeys = new Date[KEYS];
+    surnameKeys = new String[KEYS];
+    for (int index = 0; index < KEYS; index++) {
+      Patient patient = patients.get(random.nextInt(patients.size()));
+      patientIdKeys[index] = patient.getId();
+      dateOfBirthKeys[index] = patient.getDateOfBirth();
+      surnameKeys[index] = patient.getSurname();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.close();
+    backend.close();
+  }
+
+  @Benchmark
+  public Patient getPatient() {
+    return apiWebClient.getPatient(patientIdKeys[nextKey()]);
+  }
+
+  @Benchmark
+  public PatientSearchResponse searchPatientsSummary() {
+    int key = nextKey();
+    return apiWebClient.searchPatients(dateOfBirthKeys[key], surnameKeys[key], PatientDetails.SUMMARY_FIELDS);
+  }
+
+  private int nextKey() {
+    next = (next + 1) & (KEYS - 1);
+    return next;
+  }
+}
@@ -0,0 +1,88 @@
+package com.nea.patient.access.portal.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.nea.patient.access.portal.backend.PatientPortalBackendApplication;
+import com.nea.patient.access.portal.backend.jpa.domain.dao.PatientRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+/**
+ * The backend application started in the benchmark JVM on its own in-memory database, configured
+ * by {@code benchmark.yml} and {@code logback-benchmark.xml} rather than the backend's own
+ * configuration, with the audit log, archive and SQL logging switched off so they do not distort
+ * the measurements.
+ */
+final class BenchmarkBackend implements AutoCloseable {
+
+  private static final int SEED_CHUNK_SIZE = 5000;
+
+  private final ConfigurableApplicationContext context;
+
+  private BenchmarkBackend(final ConfigurableApplicationContext context) {
+    this.context = context;
+  }
+
+  /**
+   * @param web whether to start the embedded web server, on a random port
+   * @param properties further {@code key=value} properties, overriding the benchmark defaults
+   */
+  static BenchmarkBackend start(final boolean web, final String... properties) {
+    List<String> args = new ArrayList<>(Arrays.asList(
+        "spring.config.name=benchmark",
+        "logging.config=classpath:logback-benchmark.xml",
+        "server.port=0",
+        "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+        "logging.level.org.springframework=WARN",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.com.nea.patient.access.portal.backend=WARN"));
+    args.addAll(Arrays.asList(properties));
+    // Passed as command line arguments, which unlike default properties override any config file.
+    return new BenchmarkBackend(new SpringApplicationBuilder(PatientPortalBackendApplication.class)
+        .web(web ? WebApplicationType.SERVLET : WebApplicationType.NONE)
+        .run(args.stream().map(property -> "--" + property).toArray(String[]::new)));
+  }
+
+  PatientRepository getPatientRepository() {
+    return context.getBean(PatientRepository.class);
+  }
+
+  int getPort() {
+    return ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+  }
+
+  /**
+   * Saves {@code count} generated patients in transactions of {@value #SEED_CHUNK_SIZE}.
+   *
+   * @return the saved patients, detached
+   */
+  List<Patient> seed(final int count, final SplittableRandom random) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(
+        context.getBean(PlatformTransactionManager.class));
+    PatientRepository patientRepository = getPatientRepository();
+    List<Patient> saved = new ArrayList<>(count);
+    for (int start = 0; start < count; start += SEED_CHUNK_SIZE) {
+      List<Patient> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+      for (int index = start; index < Math.min(count, start + SEED_CHUNK_SIZE); index++) {
+        chunk.add(BenchmarkPatients.newPatient(random));
+      }
+      transactionTemplate.executeWithoutResult(status -> patientRepository.saveAll(chunk).forEach(saved::add));
+    }
+    return saved;
+  }
+
+  @Override
+  public void close() {
+    context.close();
+  }
+}
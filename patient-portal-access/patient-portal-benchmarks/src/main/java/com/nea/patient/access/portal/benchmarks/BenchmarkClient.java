@@ -0,0 +1,46 @@
+package com.nea.patient.access.portal.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
+
+/**
+ * The client's {@link ApiWebClient}, configured as in the client application but pointed at the
+ * given backend.
+ */
+final class BenchmarkClient implements AutoCloseable {
+
+  private final AnnotationConfigApplicationContext context;
+
+  private BenchmarkClient(final AnnotationConfigApplicationContext context) {
+    this.context = context;
+  }
+
+  /**
+   * @param host base URL of the backend API, e.g. {@code http://localhost:8081/api}
+   */
+  static BenchmarkClient start(final String host) {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("patient.portal.access.api.host", host);
+    properties.put("patient.portal.access.api.connect.timeout", "5000");
+    properties.put("patient.portal.access.api.read.timeout", "10000");
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+    context.register(ApiWebClient.class);
+    context.refresh();
+    return new BenchmarkClient(context);
+  }
+
+  ApiWebClient getApiWebClient() {
+    return context.getBean(ApiWebClient.class);
+  }
+
+  @Override
+  public void close() {
+    context.close();
+  }
+}
@@ -0,0 +1,101 @@
+package com.nea.patient.access.portal.benchmarks;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.SplittableRandom;
+
+import com.nea.patient.access.portal.backend.jpa.domain.enums.Gender;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.jpa.domain.model.CurrentAddress;
+import com.nea.patient.access.portal.backend.jpa.domain.model.MedicalHistory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Prescription;
+
+/**
+ * Patients for the benchmarks, generated from a seed so every run and every fork works on the same
+ * data.
+ */
+final class BenchmarkPatients {
+
+  static final long SEED = 20220601L;
+
+  private static final String[] SURNAMES = {"Singh", "Smith", "Jones", "Patel", "Taylor", "Brown",
+      "Williams", "Wilson", "Khan", "Davies", "Evans", "Thomas", "Johnson", "Roberts", "Walker",
+      "Wright", "Robinson", "Thompson", "White", "Hughes", "Edwards", "Green", "Hall", "Wood",
+      "Harris", "Lewis", "Martin", "Jackson", "Clarke", "Clark", "Turner", "Hill", "Scott", "Cooper",
+      "Morris", "Ward", "Moore", "King", "Watson", "Baker", "Harrison", "Morgan", "Ahmed", "Young",
+      "Allen", "Mitchell", "James", "Anderson", "Phillips", "Lee"};
+  private static final String[] FIRST_NAMES = {"Amrit", "Olivia", "Harjit", "Amelia", "Noah", "Isla",
+      "Priya", "George", "Ava", "Mohammed", "Leo", "Mia", "Arthur", "Ivy", "Oscar", "Freya"};
+  private static final String[] TOWNS = {"Coventry", "Leicester", "Birmingham", "Nottingham", "Derby"};
+  private static final LocalDate FIRST_DATE_OF_BIRTH = LocalDate.of(1930, 1, 1);
+  private static final int DATE_OF_BIRTH_DAYS = 32_000;
+
+  private BenchmarkPatients() {
+  }
+
+  static String randomSurname(final SplittableRandom random) {
+    return SURNAMES[random.nextInt(SURNAMES.length)];
+  }
+
+  static Date randomDateOfBirth(final SplittableRandom random) {
+    return toDate(FIRST_DATE_OF_BIRTH.plusDays(random.nextInt(DATE_OF_BIRTH_DAYS)));
+  }
+
+  /**
+   * A patient with only the one-to-one records, as held by the search benchmarks.
+   */
+  static Patient newPatient(final SplittableRandom random) {
+    return Patient.builder()
+        .title("Mx")
+        .firstName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)])
+        .surname(randomSurname(random))
+        .gender(random.nextBoolean() ? Gender.FEMALE : Gender.MALE)
+        .dateOfBirth(randomDateOfBirth(random))
+        .contactNumber(String.format("07%09d", random.nextInt(1_000_000_000)))
+        .currentAddress(CurrentAddress.builder()
+            .addressLine1(random.nextInt(1, 300) + " High Street")
+            .town(TOWNS[random.nextInt(TOWNS.length)])
+            .postcode(String.format("CV%d %dAB", random.nextInt(1, 50), random.nextInt(1, 10)))
+            .build())
+        .build();
+  }
+
+  /**
+   * A patient with {@code childRecords} notes, prescriptions and appointments and a medical
+   * history, for the serialisation benchmarks.
+   */
+  static Patient newPatientGraph(final SplittableRandom random, final int childRecords) {
+    Patient patient = newPatient(random);
+    patient.setMedicalHistory(MedicalHistory.builder().build());
+    LocalDate today = LocalDate.now();
+    for (int index = 0; index < childRecords; index++) {
+      Date date = toDate(today.minusDays(random.nextInt(3650)));
+      patient.getNotes().add(Note.builder()
+          .description("Follow up note " + index + " recorded after review")
+          .created(date)
+          .build());
+      patient.getPrescriptions().add(Prescription.builder()
+          .item("Item " + index)
+          .recommendedDosage("Twice daily")
+          .preferredPharmacy("Central Pharmacy")
+          .repeat(random.nextBoolean())
+          .lastPrescribed(date)
+          .build());
+      patient.getAppointments().add(Appointment.builder()
+          .scheduledWith("Dr Smith")
+          .attended(random.nextBoolean())
+          .cancelled(false)
+          .datetime(date)
+          .durationMinutes(15)
+          .build());
+    }
+    return patient;
+  }
+
+  private static Date toDate(final LocalDate date) {
+    return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+}
@@ -0,0 +1,278 @@
+package com.nea.patient.access.portal.benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.nea.patient.access.portal.backend.api.model.PatientSearchResponse;
+import com.nea.patient.access.portal.backend.api.model.PatientTimelineResponse;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.population.PatientPopulationGenerator;
+import com.nea.patient.access.portal.backend.population.PatientPopulationLoader;
+import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
+import com.nea.patient.access.portal.ui.api.integration.AppointmentConflictException;
+import com.nea.patient.access.portal.ui.api.integration.PatientVersionConflictException;
+import com.nea.patient.access.portal.ui.application.PatientDetails;
+
+/**
+ * Headless load test of one backend by many clinician workstations. Each virtual user runs on its
+ * own thread and repeats the client workflow through {@link ApiWebClient}: search by date of birth
+ * and surname, open the patient, page the history, add a note and update the contact details,
+ * pausing for an exponentially distributed think time between steps.
+ * <p>
+ * Users are started evenly over the ramp up, only the steady state after it is measured. The
+ * driver reports throughput each interval and, at the end, throughput, error rate and latency
+ * percentiles per operation. Options are {@code key=value} arguments, e.g.
+ * {@code java -cp target/benchmarks.jar com.nea.patient.access.portal.benchmarks.ClientLoadDriver users=2000 durationSeconds=600}:
+ * <ul>
+ * <li>{@code users}, {@code rampUpSeconds}, {@code durationSeconds}, {@code thinkMillis}</li>
+ * <li>{@code population} and {@code seed}: the synthetic population loaded into the local
+ * backend, the searches look up patients of this population</li>
+ * <li>{@code host}: the API of an already running backend started with the same population, e.g.
+ * {@code http://localhost:8081/api}. Without it a backend is started in this JVM, which then
+ * shares the machine with the users.</li>
+ * </ul>
+ * A version conflict on update (409) is counted separately, it is the expected outcome of two
+ * users editing the same patient rather than an error. A rejected double booking (422) and every
+ * other failure are errors, the workflow never books appointments.
+ */
+public final class ClientLoadDriver {
+
+  private static final String SEARCH = "search";
+  private static final String OPEN_PATIENT = "openPatient";
+  private static final String OPEN_HISTORY = "openHistory";
+  private static final String ADD_NOTE = "addNote";
+  private static final String UPDATE_PATIENT = "updatePatient";
+  private static final int HISTORY_PAGE_SIZE = 25;
+  private static final long REPORT_INTERVAL_MILLIS = 10_000;
+
+  private final ApiWebClient apiWebClient;
+  private final PatientPopulationGenerator generator;
+  private final int population;
+  private final long thinkMillis;
+  private final Map<String, OperationStatistics> statistics = new LinkedHashMap<>();
+
+  private volatile boolean running = true;
+  private volatile boolean measuring;
+
+  private ClientLoadDriver(final ApiWebClient apiWebClient, final long seed, final int population,
+      final long thinkMillis) {
+    this.apiWebClient = apiWebClient;
+    // Only names and dates of birth are regenerated, they do not depend on the reference codes.
+    this.generator = new PatientPopulationGenerator(seed, LocalDate.now(), new int[0], new int[0]);
+    this.population = population;
+    this.thinkMillis = thinkMillis;
+    for (String operation : new String[] {SEARCH, OPEN_PATIENT, OPEN_HISTORY, ADD_NOTE, UPDATE_PATIENT}) {
+      statistics.put(operation, new OperationStatistics());
+    }
+  }
+
+  public static void main(final String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      options.put(StringUtils.substringBefore(arg, "="), StringUtils.substringAfter(arg, "="));
+    }
+    int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+    int rampUpSeconds = Integer.parseInt(options.getOrDefault("rampUpSeconds", "60"));
+    int durationSeconds = Integer.parseInt(options.getOrDefault("durationSeconds", "300"));
+    long thinkMillis = Long.parseLong(options.getOrDefault("thinkMillis", "3000"));
+    int population = Integer.parseInt(options.getOrDefault("population", "100000"));
+    long seed = Long.parseLong(options.getOrDefault("seed", "20220601"));
+    String host = options.get("host");
+
+    // HttpURLConnection keeps only 5 idle connections per host by default, one per user is needed.
+    System.setProperty("http.maxConnections", String.valueOf(users));
+    BenchmarkBackend backend = null;
+    if (StringUtils.isBlank(host)) {
+      System.out.println("Starting the backend with " + population + " synthetic patients");
+      backend = BenchmarkBackend.start(true,
+          "spring.profiles.active=" + PatientPopulationLoader.PROFILE,
+          "patient.portal.population.size=" + population,
+          "patient.portal.population.seed=" + seed,
+          "logging.level.com.nea.patient.access.portal.backend.population=INFO");
+      host = "http://localhost:" + backend.getPort() + "/api";
+    }
+    try (BenchmarkClient client = BenchmarkClient.start(host)) {
+      new ClientLoadDriver(client.getApiWebClient(), seed, population, thinkMillis)
+          .run(users, rampUpSeconds, durationSeconds);
+    } finally {
+      if (backend != null) {
+        backend.close();
+      }
+    }
+  }
+
+  private void run(final int users, final int rampUpSeconds, final int durationSeconds)
+      throws InterruptedException {
+    System.out.println("Ramping up " + users + " users over " + rampUpSeconds + " s");
+    long startNanos = System.nanoTime();
+    List<Thread> threads = new ArrayList<>(users);
+    for (int user = 0; user < users; user++) {
+      long startOffsetMillis = TimeUnit.SECONDS.toMillis(rampUpSeconds) * user / users;
+      SplittableRandom random = new SplittableRandom(generatorSeed(user));
+      Thread thread = new Thread(() -> runUser(random, startNanos, startOffsetMillis), "virtual-user-" + user);
+      thread.setDaemon(true);
+      thread.start();
+      threads.add(thread);
+    }
+    sleepUntil(startNanos, TimeUnit.SECONDS.toMillis(rampUpSeconds));
+
+    measuring = true;
+    long measureStartNanos = System.nanoTime();
+    System.out.println("Measuring for " + durationSeconds + " s");
+    long previousOperations = 0;
+    for (long elapsed = REPORT_INTERVAL_MILLIS; elapsed <= TimeUnit.SECONDS.toMillis(durationSeconds);
+        elapsed += REPORT_INTERVAL_MILLIS) {
+      sleepUntil(measureStartNanos, elapsed);
+      long operations = totalOperations();
+      System.out.printf("%5d s  %8.1f ops/s%n", elapsed / 1000,
+          (operations - previousOperations) * 1000.0 / REPORT_INTERVAL_MILLIS);
+      previousOperations = operations;
+    }
+    sleepUntil(measureStartNanos, TimeUnit.SECONDS.toMillis(durationSeconds));
+    measuring = false;
+    double measuredSeconds = (System.nanoTime() - measureStartNanos) / 1e9;
+    running = false;
+    for (Thread thread : threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(15));
+    }
+    report(users, measuredSeconds);
+  }
+
+  private void runUser(final SplittableRandom random, final long startNanos, final long startOffsetMillis) {
+    try {
+      sleepUntil(startNanos, startOffsetMillis);
+      while (running) {
+        Patient generated = generator.generate(random.nextInt(population));
+        PatientSearchResponse searchResponse = measure(SEARCH, () -> apiWebClient.searchPatients(
+            generated.getDateOfBirth(), generated.getSurname(), PatientDetails.SUMMARY_FIELDS));
+        if (searchResponse == null || searchResponse.getPatients().isEmpty()) {
+          think(random);
+          continue;
+        }
+        Integer patientId = searchResponse.getPatients()
+            .get(random.nextInt(searchResponse.getPatients().size())).getId();
+        think(random);
+
+        measure(OPEN_PATIENT, () -> apiWebClient.getPatient(patientId));
+        think(random);
+        PatientTimelineResponse timeline = measure(OPEN_HISTORY,
+            () -> apiWebClient.getPatientTimeline(patientId, null, HISTORY_PAGE_SIZE));
+        if (timeline != null && timeline.getNextCursor() != null && random.nextBoolean()) {
+          think(random);
+          measure(OPEN_HISTORY,
+              () -> apiWebClient.getPatientTimeline(patientId, timeline.getNextCursor(), HISTORY_PAGE_SIZE));
+        }
+        think(random);
+
+        measure(ADD_NOTE, () -> apiWebClient.addPatientNote(patientId, Note.builder()
+            .description("Load test note " + random.nextInt(1_000_000))
+            .created(new Date())
+            .build()) ? Boolean.TRUE : null);
+        think(random);
+
+        if (random.nextInt(100) < 20) {
+          // The update dialog reloads the patient it edits.
+          Patient patient = measure(OPEN_PATIENT, () -> apiWebClient.getPatient(patientId));
+          think(random);
+          if (patient != null) {
+            patient.setContactNumber(String.format("07%09d", random.nextInt(1_000_000_000)));
+            measure(UPDATE_PATIENT, () -> apiWebClient.updatePatient(patient) ? Boolean.TRUE : null);
+            think(random);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Times the call, counting a version conflict as a conflict and a null result or any other
+   * exception as an error.
+   */
+  private <T> T measure(final String operation, final Call<T> call) {
+    long startNanos = System.nanoTime();
+    T result = null;
+    boolean conflict = false;
+    try {
+      result = call.execute();
+    } catch (PatientVersionConflictException e) {
+      conflict = true;
+    } catch (AppointmentConflictException e) {
+      // Counted below as an error, a clinician double booking is not a concurrent edit.
+    } catch (RuntimeException e) {
+      // Counted below, the workflow carries on as a user would after an error dialog.
+    }
+    if (measuring) {
+      OperationStatistics operationStatistics = statistics.get(operation);
+      operationStatistics.latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+      if (conflict) {
+        operationStatistics.conflicts.incrementAndGet();
+      } else if (result == null) {
+        operationStatistics.errors.incrementAndGet();
+      }
+    }
+    return result;
+  }
+
+  private void think(final SplittableRandom random) throws InterruptedException {
+    long pauseMillis = (long) Math.min(10 * thinkMillis, -thinkMillis * Math.log(1 - random.nextDouble()));
+    if (running && pauseMillis > 0) {
+      Thread.sleep(pauseMillis);
+    }
+  }
+
+  private long totalOperations() {
+    return statistics.values().stream().mapToLong(operation -> operation.latencies.getCount()).sum();
+  }
+
+  private void report(final int users, final double measuredSeconds) {
+    System.out.printf("%n%d users, %.0f s measured, %.1f ops/s%n", users, measuredSeconds,
+        totalOperations() / measuredSeconds);
+    System.out.printf("%-14s %9s %8s %8s %10s %9s %9s %9s %9s %9s%n", "Operation", "Count", "Errors", "Error %",
+        "Conflicts", "Ops/s", "p50 ms", "p90 ms", "p99 ms", "Max ms");
+    for (Map.Entry<String, OperationStatistics> entry : statistics.entrySet()) {
+      OperationStatistics operation = entry.getValue();
+      LatencyHistogram latencies = operation.latencies;
+      long count = latencies.getCount();
+      System.out.printf("%-14s %9d %8d %8.2f %10d %9.1f %9.1f %9.1f %9.1f %9.1f%n", entry.getKey(), count,
+          operation.errors.get(), count == 0 ? 0 : operation.errors.get() * 100.0 / count,
+          operation.conflicts.get(), count / measuredSeconds, latencies.getPercentile(50) / 1000.0,
+          latencies.getPercentile(90) / 1000.0, latencies.getPercentile(99) / 1000.0,
+          latencies.getMax() / 1000.0);
+    }
+  }
+
+  private static long generatorSeed(final int user) {
+    return 0x5DEECE66DL * (user + 1);
+  }
+
+  private static void sleepUntil(final long startNanos, final long offsetMillis) throws InterruptedException {
+    long remainingMillis = offsetMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    if (remainingMillis > 0) {
+      Thread.sleep(remainingMillis);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Call<T> {
+    T execute();
+  }
+
+  private static final class OperationStatistics {
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+  }
+}
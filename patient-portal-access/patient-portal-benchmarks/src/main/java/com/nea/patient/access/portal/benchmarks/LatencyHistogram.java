@@ -0,0 +1,76 @@
+package com.nea.patient.access.portal.benchmarks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of latencies in microseconds, recorded from many threads. Values are kept
+ * in log-linear buckets, 64 per power of two, so percentiles are within about 1.6% of the recorded
+ * values up to a little over an hour.
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAGNITUDES = 32;
+
+  private final AtomicLongArray counts = new AtomicLongArray(MAGNITUDES * SUB_BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  void record(final long micros) {
+    long value = Math.max(0, micros);
+    counts.incrementAndGet(bucket(value));
+    count.incrementAndGet();
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  long getCount() {
+    return count.get();
+  }
+
+  long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the upper bound of the bucket holding the percentile, at most the maximum recorded
+   */
+  long getPercentile(final double percentile) {
+    long total = count.get();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int bucket = 0; bucket < counts.length(); bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= rank) {
+        return Math.min(upperBound(bucket), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  private static int bucket(final long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    // Values of magnitude m lie in [64 << (m - 1), 128 << (m - 1)).
+    int magnitude = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    if (magnitude >= MAGNITUDES) {
+      return MAGNITUDES * SUB_BUCKETS - 1;
+    }
+    return magnitude * SUB_BUCKETS + (int) (value >>> (magnitude - 1)) - SUB_BUCKETS;
+  }
+
+  private static long upperBound(final int bucket) {
+    int magnitude = bucket / SUB_BUCKETS;
+    int subBucket = bucket % SUB_BUCKETS;
+    if (magnitude == 0) {
+      return subBucket;
+    }
+    return ((long) (SUB_BUCKETS + subBucket + 1) << (magnitude - 1)) - 1;
+  }
+}
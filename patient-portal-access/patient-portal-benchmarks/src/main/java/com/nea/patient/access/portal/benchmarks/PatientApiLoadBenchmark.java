@@ -0,0 +1,145 @@
+package com.nea.patient.access.portal.benchmarks;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.nea.patient.access.portal.backend.api.model.PatientSearchResponse;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.Gender;
+import com.nea.patient.access.portal.backend.jpa.domain.model.CurrentAddress;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Side by side load benchmark of the servlet ({@code patient-portal-backend-api}) and reactive
+ * ({@code patient-portal-backend-reactive}) patient APIs. Both backends must already be running,
+ * the benchmark seeds each with the same patients and then drives {@code GET /patients/{id}} at a
+ * fixed concurrency, reporting throughput and latency percentiles.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar com.nea.patient.access.portal.benchmarks.PatientApiLoadBenchmark
+ * [servletBaseUrl] [reactiveBaseUrl] [concurrency] [requests]}, defaulting to
+ * {@code http://localhost:8081/api http://localhost:8082/api 256 20000}.
+ */
+public final class PatientApiLoadBenchmark {
+
+  private static final int SEEDED_PATIENTS = 200;
+  private static final int NOTES_PER_PATIENT = 20;
+
+  private PatientApiLoadBenchmark() {
+  }
+
+  public static void main(final String[] args) {
+    String servletBaseUrl = args.length > 0 ? args[0] : "http://localhost:8081/api";
+    String reactiveBaseUrl = args.length > 1 ? args[1] : "http://localhost:8082/api";
+    int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+    int requests = args.length > 3 ? Integer.parseInt(args[3]) : 20000;
+
+    run("servlet", servletBaseUrl, concurrency, requests);
+    run("reactive", reactiveBaseUrl, concurrency, requests);
+  }
+
+  private static void run(final String name, final String baseUrl, final int concurrency,
+      final int requests) {
+    WebClient webClient = WebClient.builder()
+        .baseUrl(baseUrl)
+        .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+        .build();
+    List<Integer> patientIds = seedPatients(webClient);
+
+    // Warm up both JIT and connection pools before measuring.
+    drive(webClient, patientIds, concurrency, requests / 10);
+    long[] latencies = new long[requests];
+    long started = System.nanoTime();
+    drive(webClient, patientIds, concurrency, requests, latencies);
+    long elapsed = System.nanoTime() - started;
+
+    Arrays.sort(latencies);
+    System.out.printf("%-8s requests=%d concurrency=%d throughput=%.0f req/s p50=%.2fms p90=%.2fms "
+        + "p99=%.2fms max=%.2fms%n", name, requests, concurrency,
+        requests / (elapsed / (double) TimeUnit.SECONDS.toNanos(1)),
+        percentile(latencies, 0.50), percentile(latencies, 0.90),
+        percentile(latencies, 0.99), latencies[latencies.length - 1] / 1_000_000d);
+  }
+
+  private static List<Integer> seedPatients(final WebClient webClient) {
+    // A date of birth unique to this run keeps the search below from matching earlier seeds.
+    LocalDate dateOfBirth = LocalDate.of(1900, 1, 1)
+        .plusDays(ThreadLocalRandom.current().nextInt(36500));
+    Date seedDateOfBirth = Date.from(dateOfBirth.atStartOfDay(ZoneId.systemDefault()).toInstant());
+
+    Flux.range(0, SEEDED_PATIENTS)
+        .flatMap(index -> webClient.post().uri("/patients")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(buildPatient(index, seedDateOfBirth))
+            .retrieve()
+            .toBodilessEntity(), 16)
+        .blockLast();
+
+    PatientSearchResponse searchResponse = webClient.get()
+        .uri(uriBuilder -> uriBuilder.path("/patients/search")
+            .queryParam("dateOfBirth", String.format("%02d-%02d-%04d", dateOfBirth.getDayOfMonth(),
+                dateOfBirth.getMonthValue(), dateOfBirth.getYear()))
+            .build())
+        .retrieve()
+        .bodyToMono(PatientSearchResponse.class)
+        .block();
+    return searchResponse.getPatients().stream()
+        .map(Patient::getId)
+        .collect(Collectors.toList());
+  }
+
+  private static Patient buildPatient(final int index, final Date dateOfBirth) {
+    Patient patient = Patient.builder()
+        .title("Mx")
+        .firstName("Load" + index)
+        .surname("Benchmark")
+        .gender(Gender.UNKNOWN)
+        .dateOfBirth(dateOfBirth)
+        .currentAddress(CurrentAddress.builder()
+            .addressLine1(index + " Benchmark Road")
+            .town("Coventry")
+            .postcode("CV1 1AA")
+            .build())
+        .build();
+    for (int note = 0; note < NOTES_PER_PATIENT; note++) {
+      patient.getNotes().add(Note.builder()
+          .description("Benchmark note " + note)
+          .created(dateOfBirth)
+          .build());
+    }
+    return patient;
+  }
+
+  private static void drive(final WebClient webClient, final List<Integer> patientIds,
+      final int concurrency, final int requests) {
+    drive(webClient, patientIds, concurrency, requests, new long[requests]);
+  }
+
+  private static void drive(final WebClient webClient, final List<Integer> patientIds,
+      final int concurrency, final int requests, final long[] latencies) {
+    Flux.range(0, requests)
+        .flatMap(request -> {
+          long started = System.nanoTime();
+          return webClient.get().uri("/patients/{id}", patientIds.get(request % patientIds.size()))
+              .retrieve()
+              .toBodilessEntity()
+              .doOnSuccess(response -> latencies[request] = System.nanoTime() - started);
+        }, concurrency)
+        .blockLast();
+  }
+
+  private static double percentile(final long[] sortedLatencies, final double percentile) {
+    int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+    return sortedLatencies[Math.max(index, 0)] / 1_000_000d;
+  }
+}
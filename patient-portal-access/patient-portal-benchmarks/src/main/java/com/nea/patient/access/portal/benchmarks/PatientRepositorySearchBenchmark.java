@@ -0,0 +1,84 @@
+package com.nea.patient.access.portal.benchmarks;
+
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nea.patient.access.portal.backend.jpa.domain.dao.PatientRepository;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+/**
+ * The patient search queries against H2 holding 10k, 100k and 1M patients. Each invocation looks up
+ * a date of birth (and surname) of a seeded patient, so every search has at least one match.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PatientRepositorySearchBenchmark {
+
+  private static final int SEARCH_KEYS = 1024;
+
+  @Param({"10000", "100000", "1000000"})
+  private int rows;
+
+  private BenchmarkBackend backend;
+  private PatientRepository patientRepository;
+  private Date[] dateOfBirthKeys;
+  private String[] surnameKeys;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    backend = BenchmarkBackend.start(false);
+    patientRepository = backend.getPatientRepository();
+    List<Patient> patients = backend.seed(rows, new SplittableRandom(BenchmarkPatients.SEED));
+
+    SplittableRandom random = new SplittableRandom(BenchmarkPatients.SEED + 1);
+    dateOfBirthKeys = new Date[SEARCH_KEYS];
+    surnameKeys = new String[SEARCH_KEYS];
+    for (int index = 0; index < SEARCH_KEYS; index++) {
+      Patient patient = patients.get(random.nextInt(patients.size()));
+      dateOfBirthKeys[index] = patient.getDateOfBirth();
+      surnameKeys[index] = patient.getSurname();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    backend.close();
+  }
+
+  @Benchmark
+  public List<Patient> findByDateOfBirth() {
+    int key = nextKey();
+    return patientRepository.findByDateOfBirth(dateOfBirthKeys[key]);
+  }
+
+  @Benchmark
+  public List<Patient> findByDateOfBirthAndSurname() {
+    int key = nextKey();
+    return patientRepository.findByDateOfBirthAndSurname(dateOfBirthKeys[key], surnameKeys[key]);
+  }
+
+  private int nextKey() {
+    next = (next + 1) & (SEARCH_KEYS - 1);
+    return next;
+  }
+}
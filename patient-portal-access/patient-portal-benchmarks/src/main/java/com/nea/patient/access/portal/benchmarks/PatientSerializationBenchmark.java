@@ -0,0 +1,77 @@
+package com.nea.patient.access.portal.benchmarks;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+/**
+ * Jackson serialisation of patient documents as the backend writes them, JSON and CBOR, for
+ * patients with none, some and many notes, prescriptions and appointments.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatientSerializationBenchmark {
+
+  @Param({"0", "10", "100"})
+  private int childRecords;
+
+  private ObjectMapper jsonMapper;
+  private ObjectMapper cborMapper;
+  private Patient patient;
+  private byte[] json;
+  private byte[] cbor;
+
+  @Setup
+  public void setUp() throws IOException {
+    // Configured like the backend, see application.yml and PatientPortalBackendWebConfiguration.
+    Jackson2ObjectMapperBuilder objectMapperBuilder = Jackson2ObjectMapperBuilder.json()
+        .featuresToEnable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    jsonMapper = objectMapperBuilder.build();
+    cborMapper = objectMapperBuilder.createXmlMapper(false).factory(new CBORFactory()).build();
+    patient = BenchmarkPatients.newPatientGraph(new SplittableRandom(BenchmarkPatients.SEED), childRecords);
+    json = jsonMapper.writeValueAsBytes(patient);
+    cbor = cborMapper.writeValueAsBytes(patient);
+  }
+
+  @Benchmark
+  public byte[] writeJson() throws IOException {
+    return jsonMapper.writeValueAsBytes(patient);
+  }
+
+  @Benchmark
+  public byte[] writeCbor() throws IOException {
+    return cborMapper.writeValueAsBytes(patient);
+  }
+
+  @Benchmark
+  public Patient readJson() throws IOException {
+    return jsonMapper.readValue(json, Patient.class);
+  }
+
+  @Benchmark
+  public Patient readCbor() throws IOException {
+    return cborMapper.readValue(cbor, Patient.class);
+  }
+}
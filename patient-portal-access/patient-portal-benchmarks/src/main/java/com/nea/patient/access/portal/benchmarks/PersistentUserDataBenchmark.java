@@ -0,0 +1,77 @@
+package com.nea.patient.access.portal.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.DefaultComboBoxModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.PersistentUserData;
+
+/**
+ * Merging the entries of a find/filter combo box into the persisted, sorted container when it
+ * already holds many entries. Half of the supplied entries are already in the container.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class PersistentUserDataBenchmark {
+
+  private static final int SUPPLIED_ENTRIES = 100;
+
+  @Param({"1000", "10000", "100000"})
+  private int containerSize;
+
+  private Vector<String> persistedEntries;
+  private DefaultComboBoxModel<String> suppliedData;
+  private Vector<String> dataContainerToUpdate;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    SplittableRandom random = new SplittableRandom(BenchmarkPatients.SEED);
+    persistedEntries = new Vector<>(containerSize);
+    for (int index = 0; index < containerSize; index++) {
+      persistedEntries.add(randomEntry(random));
+    }
+    persistedEntries.sort(String.CASE_INSENSITIVE_ORDER);
+
+    suppliedData = new DefaultComboBoxModel<>();
+    for (int index = 0; index < SUPPLIED_ENTRIES; index++) {
+      suppliedData.addElement(index % 2 == 0
+          ? persistedEntries.get(random.nextInt(containerSize))
+          : randomEntry(random));
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    // The update inserts into the container, each invocation starts from the same entries.
+    dataContainerToUpdate = new Vector<>(persistedEntries);
+  }
+
+  @Benchmark
+  public Vector<String> updateRequiredDataContainer() {
+    PersistentUserData.updateRequiredDataContainer(dataContainerToUpdate, suppliedData);
+    return dataContainerToUpdate;
+  }
+
+  private static String randomEntry(final SplittableRandom random) {
+    return BenchmarkPatients.randomSurname(random) + " " + random.nextInt(1_000_000);
+  }
+}
@@ -1,23 +1,50 @@
 package com.nea.patient.access.portal.ui.api.integration;
 
+import java.io.File;
 import java.net.URI;
 import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.nea.patient.access.portal.backend.api.model.AppointmentBookingRequest;
+import com.nea.patient.access.portal.backend.api.model.AppointmentDayListResponse;
+import com.nea.patient.access.portal.backend.api.model.AppointmentSlot;
+import com.nea.patient.access.portal.backend.api.model.IllnessPrevalenceResponse;
+import com.nea.patient.access.portal.backend.api.model.MedicalHistoryUpdateRequest;
+import com.nea.patient.access.portal.backend.api.model.PatientArchiveResponse;
+import com.nea.patient.access.portal.backend.api.model.PatientBatchGetRequest;
+import com.nea.patient.access.portal.backend.api.model.PatientBatchGetResponse;
 import com.nea.patient.access.portal.backend.api.model.PatientSearchResponse;
+import com.nea.patient.access.portal.backend.api.model.PatientTimelineResponse;
+import com.nea.patient.access.portal.backend.api.model.PrescriptionVolumeResponse;
+import com.nea.patient.access.portal.backend.api.model.ReferenceDictionaryResponse;
+import com.nea.patient.access.portal.backend.api.model.ThumbnailSize;
+import com.nea.patient.access.portal.backend.api.model.VaccinationCoverageResponse;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ArchivedEntryType;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
 import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
 
 @Service
@@ -26,9 +53,41 @@ public class ApiWebClient {
   private static final String PATIENTS_ROUTE = "/patients";
   private static final String PATIENTS_SEARCH_ROUTE = "/patients/search";
   private static final String GET_PATIENT_ROUTE = "/patients/{id}";
+  private static final String BATCH_GET_PATIENTS_ROUTE = "/patients/batch-get";
+  private static final String PATIENT_NOTES_ROUTE = "/patients/{id}/notes";
+  private static final String PATIENT_MEDICAL_HISTORY_ROUTE = "/patients/{id}/medical-history";
+  private static final String PATIENT_PHOTO_ROUTE = "/patients/{id}/photo";
+  private static final String PATIENT_PHOTO_THUMBNAIL_ROUTE = "/patients/{id}/photo/thumbnails/{size}";
+  private static final String FIELDS_PARAMETER_NAME = "fields";
+  private static final String PATIENT_TIMELINE_ROUTE = "/patients/{id}/timeline";
+  private static final String CURSOR_PARAMETER_NAME = "cursor";
+  private static final String PATIENT_ARCHIVE_ROUTE = "/patients/{id}/archive";
+  private static final String TYPE_PARAMETER_NAME = "type";
+  private static final String LIMIT_PARAMETER_NAME = "limit";
+  private static final String APPOINTMENTS_ROUTE = "/appointments";
+  private static final String REFERENCE_DATA_ROUTE = "/reference-data";
+  private static final String ILLNESS_PREVALENCE_ROUTE = "/analytics/illness-prevalence";
+  private static final String VACCINATION_COVERAGE_ROUTE = "/analytics/vaccination-coverage";
+  private static final String PRESCRIPTION_VOLUME_ROUTE = "/analytics/prescription-volume";
+  private static final String BAND_YEARS_PARAMETER_NAME = "bandYears";
+  private static final String SINCE_DAYS_PARAMETER_NAME = "sinceDays";
+  private static final String ATTEND_APPOINTMENT_ROUTE = "/appointments/{id}/attend";
+  private static final String NEXT_FREE_APPOINTMENT_SLOT_ROUTE = "/appointments/next-free-slot";
+  private static final String CLINICIAN_PARAMETER_NAME = "clinician";
+  private static final String FROM_PARAMETER_NAME = "from";
+  private static final String DURATION_MINUTES_PARAMETER_NAME = "durationMinutes";
+  private static final String TO_PARAMETER_NAME = "to";
+  private static final String PAGE_PARAMETER_NAME = "page";
+  private static final String SIZE_PARAMETER_NAME = "size";
   private static final String DATE_OF_BIRTH_PARAMETER_NAME = "dateOfBirth";
   private static final String LAST_NAME_PARAMETER_NAME = "lastName";
   private static final String DATE_PATTERN = "dd-MM-yyyy";
+  // Attributes patient views and changes in the backend audit log.
+  private static final String AUDIT_USER_HEADER_NAME = "X-Patient-Portal-User";
+  // Prefer the compact CBOR encoding of patient documents, falling back to JSON. Only sent where a
+  // patient document is read, other responses keep the Accept RestTemplate derives from the type.
+  private static final List<MediaType> PATIENT_DOCUMENT_MEDIA_TYPES = Arrays.asList(
+      MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON);
 
   @Value("${patient.portal.access.api.connect.timeout}")
   private int connectTimeout;
@@ -47,27 +106,108 @@ public class ApiWebClient {
 
     restTemplate = new RestTemplate(requestFactory);
     restTemplate.setErrorHandler(new ResponseErrorHandler());
+    restTemplate.getInterceptors().add(new GzipResponseInterceptor());
+    restTemplate.getInterceptors().add((request, body, execution) -> {
+      request.getHeaders().set(AUDIT_USER_HEADER_NAME, System.getProperty("user.name"));
+      return execution.execute(request, body);
+    });
   }
 
+  /**
+   * @throws AppointmentConflictException if one of the patient's appointments double books a clinician
+   */
   public boolean createNewPatient(final Patient newPatient) {
     HttpHeaders headers = new HttpHeaders();
     headers.setContentType(MediaType.APPLICATION_JSON);
     HttpEntity<Patient> request = new HttpEntity<Patient>(newPatient, headers);
     ResponseEntity<?> responseEntity = restTemplate.postForEntity(
         patientPortalAccessApiHost + PATIENTS_ROUTE, request, Void.class);
+    if (HttpStatus.UNPROCESSABLE_ENTITY.equals(responseEntity.getStatusCode())) {
+      throw new AppointmentConflictException(newPatient.getId());
+    }
     if (HttpStatus.CREATED.equals(responseEntity.getStatusCode())) {
       return true;
     }
     return false;
   }
 
+  /**
+   * Updates the patient as of the version it was read at.
+   *
+   * @throws PatientVersionConflictException if the patient has been updated since
+   * @throws AppointmentConflictException if a new or moved appointment double books a clinician
+   */
   public boolean updatePatient(final Patient patient) {
-    HttpHeaders headers = new HttpHeaders();
+    HttpHeaders headers = patientDocumentHeaders();
     headers.setContentType(MediaType.APPLICATION_JSON);
     HttpEntity<Patient> request = new HttpEntity<Patient>(patient, headers);
-    ResponseEntity<?> responseEntity = restTemplate.exchange(
+    ResponseEntity<Patient> responseEntity = restTemplate.exchange(
         patientPortalAccessApiHost + PATIENTS_ROUTE, HttpMethod.PUT, request,
-        Void.class);
+        Patient.class);
+    if (HttpStatus.UNPROCESSABLE_ENTITY.equals(responseEntity.getStatusCode())) {
+      throw new AppointmentConflictException(patient.getId());
+    }
+    if (HttpStatus.CONFLICT.equals(responseEntity.getStatusCode())) {
+      // Conflicts only detected when flushing come back without the current patient.
+      Patient currentPatient = responseEntity.getBody() != null
+          ? responseEntity.getBody() : getPatient(patient.getId());
+      if (currentPatient == null) {
+        return false;
+      }
+      throw new PatientVersionConflictException(currentPatient);
+    }
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return true;
+    }
+    return false;
+  }
+
+  public boolean addPatientNote(final Integer patientId, final Note note) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    HttpEntity<Note> request = new HttpEntity<Note>(note, headers);
+    ResponseEntity<?> responseEntity = restTemplate.postForEntity(
+        patientPortalAccessApiHost + PATIENT_NOTES_ROUTE, request, Void.class, patientId);
+    // Accepted when the backend runs in write-behind mode.
+    if (HttpStatus.CREATED.equals(responseEntity.getStatusCode())
+        || HttpStatus.ACCEPTED.equals(responseEntity.getStatusCode())) {
+      return true;
+    }
+    return false;
+  }
+
+  public boolean markAppointmentAttended(final Integer appointmentId) {
+    ResponseEntity<?> responseEntity = restTemplate.postForEntity(
+        patientPortalAccessApiHost + ATTEND_APPOINTMENT_ROUTE, null, Void.class, appointmentId);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())
+        || HttpStatus.ACCEPTED.equals(responseEntity.getStatusCode())) {
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Updates the patient's medical history as of the patient version in the request.
+   *
+   * @throws PatientVersionConflictException if the patient has been updated since
+   */
+  public boolean updatePatientMedicalHistory(final Integer patientId,
+      final MedicalHistoryUpdateRequest medicalHistoryUpdate) {
+    HttpHeaders headers = patientDocumentHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    HttpEntity<MedicalHistoryUpdateRequest> request = new HttpEntity<MedicalHistoryUpdateRequest>(
+        medicalHistoryUpdate, headers);
+    ResponseEntity<Patient> responseEntity = restTemplate.exchange(
+        patientPortalAccessApiHost + PATIENT_MEDICAL_HISTORY_ROUTE, HttpMethod.PUT, request,
+        Patient.class, patientId);
+    if (HttpStatus.CONFLICT.equals(responseEntity.getStatusCode())) {
+      Patient currentPatient = responseEntity.getBody() != null
+          ? responseEntity.getBody() : getPatient(patientId);
+      if (currentPatient == null) {
+        return false;
+      }
+      throw new PatientVersionConflictException(currentPatient);
+    }
     if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
       return true;
     }
@@ -75,35 +215,289 @@ public class ApiWebClient {
   }
 
   public Patient getPatient(final Integer patientId) {
-    ResponseEntity<Patient> responseEntity = restTemplate.getForEntity(
-        patientPortalAccessApiHost + GET_PATIENT_ROUTE, Patient.class, patientId);
+    return getPatient(patientId, null);
+  }
+
+  /**
+   * Retrieves only the given top level fields of a patient, e.g. {@code "firstName,surname"}. The
+   * id is always populated and unselected collections are left empty.
+   */
+  public Patient getPatient(final Integer patientId, final String fields) {
+    UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(
+        patientPortalAccessApiHost + GET_PATIENT_ROUTE);
+    if (StringUtils.isNotBlank(fields)) {
+      uriBuilder.queryParam(FIELDS_PARAMETER_NAME, fields);
+    }
+    ResponseEntity<Patient> responseEntity = restTemplate.exchange(
+        uriBuilder.encode().buildAndExpand(patientId).toUri(), HttpMethod.GET,
+        new HttpEntity<Void>(patientDocumentHeaders()), Patient.class);
     if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
       return responseEntity.getBody();
     }
     return null;
   }
 
+  /**
+   * Uploads the image file as the patient's photo. The file is streamed, not read into memory.
+   *
+   * @return the patient at its new version, or null if the upload was refused
+   */
+  public Patient uploadPatientPhoto(final Integer patientId, final File photo) {
+    HttpHeaders headers = patientDocumentHeaders();
+    headers.setContentType(MediaTypeFactory.getMediaType(photo.getName())
+        .orElse(MediaType.APPLICATION_OCTET_STREAM));
+    HttpEntity<Resource> request = new HttpEntity<Resource>(new FileSystemResource(photo), headers);
+    ResponseEntity<Patient> responseEntity = restTemplate.exchange(
+        patientPortalAccessApiHost + PATIENT_PHOTO_ROUTE, HttpMethod.PUT, request,
+        Patient.class, patientId);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  /**
+   * Retrieves a JPEG thumbnail of the patient's photo, or null if the patient has no photo or the
+   * thumbnail is still being generated.
+   */
+  public byte[] getPatientPhotoThumbnail(final Integer patientId, final ThumbnailSize size) {
+    ResponseEntity<byte[]> responseEntity = restTemplate.getForEntity(
+        patientPortalAccessApiHost + PATIENT_PHOTO_THUMBNAIL_ROUTE, byte[].class, patientId,
+        size.name().toLowerCase(Locale.ROOT));
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  /**
+   * Retrieves a page of the patient's timeline, newest first. Pass null for the first page and the
+   * previous response's {@code nextCursor} for each following page.
+   */
+  public PatientTimelineResponse getPatientTimeline(final Integer patientId, final String cursor,
+      final int limit) {
+    UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(
+        patientPortalAccessApiHost + PATIENT_TIMELINE_ROUTE)
+        .queryParam(LIMIT_PARAMETER_NAME, limit);
+    if (StringUtils.isNotBlank(cursor)) {
+      uriBuilder.queryParam(CURSOR_PARAMETER_NAME, cursor);
+    }
+    ResponseEntity<PatientTimelineResponse> responseEntity = restTemplate.getForEntity(
+        uriBuilder.encode().buildAndExpand(patientId).toUri(), PatientTimelineResponse.class);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  /**
+   * Retrieves a page of the patient's archived records, newest first. A null type returns archived
+   * records of every type.
+   */
+  public PatientArchiveResponse getPatientArchive(final Integer patientId,
+      final ArchivedEntryType type, final int page, final int size) {
+    UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(
+        patientPortalAccessApiHost + PATIENT_ARCHIVE_ROUTE)
+        .queryParam(PAGE_PARAMETER_NAME, page)
+        .queryParam(SIZE_PARAMETER_NAME, size);
+    if (type != null) {
+      uriBuilder.queryParam(TYPE_PARAMETER_NAME, type.name());
+    }
+    ResponseEntity<PatientArchiveResponse> responseEntity = restTemplate.getForEntity(
+        uriBuilder.encode().buildAndExpand(patientId).toUri(), PatientArchiveResponse.class);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  /**
+   * Retrieves the illness, vaccination and test result dictionary. Returns null when
+   * {@code knownVersion} is still the current version, the backend answering with 304.
+   */
+  public ReferenceDictionaryResponse getReferenceDictionary(final String knownVersion) {
+    HttpHeaders headers = new HttpHeaders();
+    if (knownVersion != null) {
+      headers.setIfNoneMatch("\"" + knownVersion + "\"");
+    }
+    ResponseEntity<ReferenceDictionaryResponse> responseEntity = restTemplate.exchange(
+        patientPortalAccessApiHost + REFERENCE_DATA_ROUTE, HttpMethod.GET,
+        new HttpEntity<Void>(headers), ReferenceDictionaryResponse.class);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  /**
+   * Retrieves distinct patients per illness type in age bands of {@code bandYears}. Returns null
+   * while the backend is still building its first analytics snapshot.
+   */
+  public IllnessPrevalenceResponse getIllnessPrevalence(final int bandYears) {
+    URI uri = UriComponentsBuilder.fromUriString(patientPortalAccessApiHost + ILLNESS_PREVALENCE_ROUTE)
+        .queryParam(BAND_YEARS_PARAMETER_NAME, bandYears)
+        .build().toUri();
+    ResponseEntity<IllnessPrevalenceResponse> responseEntity = restTemplate.getForEntity(uri,
+        IllnessPrevalenceResponse.class);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  /**
+   * Retrieves vaccination coverage, limited to vaccinations in the last {@code sinceDays} days
+   * when given.
+   */
+  public VaccinationCoverageResponse getVaccinationCoverage(final Integer sinceDays) {
+    UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(
+        patientPortalAccessApiHost + VACCINATION_COVERAGE_ROUTE);
+    if (sinceDays != null) {
+      uriBuilder.queryParam(SINCE_DAYS_PARAMETER_NAME, sinceDays);
+    }
+    ResponseEntity<VaccinationCoverageResponse> responseEntity = restTemplate.getForEntity(
+        uriBuilder.build().toUri(), VaccinationCoverageResponse.class);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  /**
+   * Retrieves prescription counts per preferred pharmacy, optionally bounded by last prescribed
+   * date.
+   */
+  public PrescriptionVolumeResponse getPrescriptionVolume(final Date from, final Date to) {
+    UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(
+        patientPortalAccessApiHost + PRESCRIPTION_VOLUME_ROUTE);
+    if (from != null) {
+      uriBuilder.queryParam(FROM_PARAMETER_NAME, new SimpleDateFormat(DATE_PATTERN).format(from));
+    }
+    if (to != null) {
+      uriBuilder.queryParam(TO_PARAMETER_NAME, new SimpleDateFormat(DATE_PATTERN).format(to));
+    }
+    ResponseEntity<PrescriptionVolumeResponse> responseEntity = restTemplate.getForEntity(
+        uriBuilder.build().toUri(), PrescriptionVolumeResponse.class);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  /**
+   * Retrieves many patients in one request. Patients are returned in the order of the supplied ids
+   * and any ids without a matching patient are reported in {@code missingIds}.
+   */
+  public PatientBatchGetResponse getPatients(final Collection<Integer> patientIds) {
+    HttpHeaders headers = patientDocumentHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    HttpEntity<PatientBatchGetRequest> request = new HttpEntity<PatientBatchGetRequest>(
+        PatientBatchGetRequest.builder().ids(new ArrayList<>(patientIds)).build(), headers);
+    ResponseEntity<PatientBatchGetResponse> responseEntity = restTemplate.postForEntity(
+        patientPortalAccessApiHost + BATCH_GET_PATIENTS_ROUTE, request,
+        PatientBatchGetResponse.class);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  /**
+   * Retrieves one page of a clinician's appointments between {@code from} (inclusive) and
+   * {@code to} (exclusive), each with the patient's summary details.
+   */
+  public AppointmentDayListResponse getClinicianDayList(final String clinician,
+      final LocalDateTime from, final LocalDateTime to, final int page, final int size) {
+    URI uri = UriComponentsBuilder.fromUriString(patientPortalAccessApiHost + APPOINTMENTS_ROUTE)
+        .queryParam(CLINICIAN_PARAMETER_NAME, clinician)
+        .queryParam(FROM_PARAMETER_NAME, from.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+        .queryParam(TO_PARAMETER_NAME, to.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+        .queryParam(PAGE_PARAMETER_NAME, page)
+        .queryParam(SIZE_PARAMETER_NAME, size)
+        .encode().build().toUri();
+    ResponseEntity<AppointmentDayListResponse> responseEntity = restTemplate.getForEntity(
+        uri, AppointmentDayListResponse.class);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  public AppointmentSlot findNextFreeAppointmentSlot(final String clinician,
+      final LocalDateTime from, final Integer durationMinutes) {
+    URI uri = UriComponentsBuilder.fromUriString(
+        patientPortalAccessApiHost + NEXT_FREE_APPOINTMENT_SLOT_ROUTE)
+        .queryParam(CLINICIAN_PARAMETER_NAME, clinician)
+        .queryParam(FROM_PARAMETER_NAME, from.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+        .queryParam(DURATION_MINUTES_PARAMETER_NAME, durationMinutes)
+        .encode().build().toUri();
+    ResponseEntity<AppointmentSlot> responseEntity = restTemplate.getForEntity(
+        uri, AppointmentSlot.class);
+    if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
+  /**
+   * Books an appointment, returning null if the slot has been taken in the meantime.
+   */
+  public Appointment bookAppointment(final AppointmentBookingRequest bookingRequest) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    HttpEntity<AppointmentBookingRequest> request = new HttpEntity<AppointmentBookingRequest>(
+        bookingRequest, headers);
+    ResponseEntity<Appointment> responseEntity = restTemplate.postForEntity(
+        patientPortalAccessApiHost + APPOINTMENTS_ROUTE, request, Appointment.class);
+    if (HttpStatus.CREATED.equals(responseEntity.getStatusCode())) {
+      return responseEntity.getBody();
+    }
+    return null;
+  }
+
   public PatientSearchResponse searchPatients(final Date dateOfBirth, final String lastName) {
-    URI uri = null;
+    return searchPatients(dateOfBirth, lastName, null);
+  }
+
+  public PatientSearchResponse searchPatients(final Date dateOfBirth, final String lastName,
+      final String fields) {
+    return searchPatients(dateOfBirth, lastName, fields, null, null);
+  }
+
+  /**
+   * With a size, returns the requested page of matching patients in name order along with the total
+   * number of matches, otherwise every match.
+   */
+  public PatientSearchResponse searchPatients(final Date dateOfBirth, final String lastName,
+      final String fields, final Integer page, final Integer size) {
     String formattedDate = new SimpleDateFormat(DATE_PATTERN).format(dateOfBirth);
 
+    UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUriString(
+        patientPortalAccessApiHost + PATIENTS_SEARCH_ROUTE)
+        .queryParam(DATE_OF_BIRTH_PARAMETER_NAME, formattedDate);
     if (StringUtils.isNotBlank(lastName)) {
-      uri = UriComponentsBuilder.fromUriString(
-          patientPortalAccessApiHost + PATIENTS_SEARCH_ROUTE)
-          .queryParam(DATE_OF_BIRTH_PARAMETER_NAME, formattedDate)
-          .queryParam(LAST_NAME_PARAMETER_NAME, lastName)
-          .encode().build().toUri();
-    } else {
-      uri = UriComponentsBuilder.fromUriString(
-          patientPortalAccessApiHost + PATIENTS_SEARCH_ROUTE)
-          .queryParam(DATE_OF_BIRTH_PARAMETER_NAME, formattedDate)
-          .encode().build().toUri();
-    }
-    ResponseEntity<PatientSearchResponse> responseEntity = restTemplate.getForEntity(
-        uri, PatientSearchResponse.class);
+      uriBuilder.queryParam(LAST_NAME_PARAMETER_NAME, lastName);
+    }
+    if (StringUtils.isNotBlank(fields)) {
+      uriBuilder.queryParam(FIELDS_PARAMETER_NAME, fields);
+    }
+    if (size != null) {
+      uriBuilder.queryParam(PAGE_PARAMETER_NAME, page != null ? page : 0)
+          .queryParam(SIZE_PARAMETER_NAME, size);
+    }
+    URI uri = uriBuilder.encode().build().toUri();
+    ResponseEntity<PatientSearchResponse> responseEntity = restTemplate.exchange(
+        uri, HttpMethod.GET, new HttpEntity<Void>(patientDocumentHeaders()),
+        PatientSearchResponse.class);
     if (HttpStatus.OK.equals(responseEntity.getStatusCode())) {
       return responseEntity.getBody();
     }
     return null;
   }
+
+  private HttpHeaders patientDocumentHeaders() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setAccept(PATIENT_DOCUMENT_MEDIA_TYPES);
+    return headers;
+  }
 }
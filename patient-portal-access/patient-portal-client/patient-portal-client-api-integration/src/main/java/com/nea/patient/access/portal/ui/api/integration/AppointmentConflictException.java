@@ -0,0 +1,15 @@
+package com.nea.patient.access.portal.ui.api.integration;
+
+/**
+ * Thrown when a patient was refused because one of its new or moved appointments overlaps another
+ * booking with the same clinician. Unlike a {@link PatientVersionConflictException} resubmitting
+ * does not help, the appointment has to be moved.
+ */
+public class AppointmentConflictException extends RuntimeException {
+
+  private static final long serialVersionUID = 4087315526419702381L;
+
+  public AppointmentConflictException(final Integer patientId) {
+    super("An appointment of patient " + patientId + " overlaps another booking");
+  }
+}
@@ -0,0 +1,93 @@
+package com.nea.patient.access.portal.ui.api.integration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Asks for gzip compressed responses and decompresses them. {@code HttpURLConnection}, behind
+ * {@code SimpleClientHttpRequestFactory}, neither sends {@code Accept-Encoding} nor decodes the
+ * response.
+ */
+public class GzipResponseInterceptor implements ClientHttpRequestInterceptor {
+
+  private static final String GZIP_ENCODING = "gzip";
+
+  @Override
+  public ClientHttpResponse intercept(final HttpRequest request, final byte[] body,
+      final ClientHttpRequestExecution execution) throws IOException {
+    request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, GZIP_ENCODING);
+    ClientHttpResponse response = execution.execute(request, body);
+    if (GZIP_ENCODING.equalsIgnoreCase(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+      return new GzipDecompressingResponse(response);
+    }
+    return response;
+  }
+
+  private static final class GzipDecompressingResponse implements ClientHttpResponse {
+
+    private final ClientHttpResponse response;
+    private final HttpHeaders headers;
+
+    private InputStream body;
+
+    private GzipDecompressingResponse(final ClientHttpResponse response) {
+      this.response = response;
+      // Describe the decompressed body, its length is not known up front.
+      headers = new HttpHeaders();
+      headers.putAll(response.getHeaders());
+      headers.remove(HttpHeaders.CONTENT_ENCODING);
+      headers.remove(HttpHeaders.CONTENT_LENGTH);
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      if (body == null) {
+        PushbackInputStream compressedBody = new PushbackInputStream(response.getBody(), 1);
+        int firstByte = compressedBody.read();
+        if (firstByte == -1) {
+          // Bodiless responses may still carry the encoding header.
+          body = new ByteArrayInputStream(new byte[0]);
+        } else {
+          compressedBody.unread(firstByte);
+          body = new GZIPInputStream(compressedBody);
+        }
+      }
+      return body;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+
+    @Override
+    public HttpStatus getStatusCode() throws IOException {
+      return response.getStatusCode();
+    }
+
+    @Override
+    public int getRawStatusCode() throws IOException {
+      return response.getRawStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return response.getStatusText();
+    }
+
+    @Override
+    public void close() {
+      response.close();
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.nea.patient.access.portal.ui.api.integration;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+/**
+ * Thrown when a patient update was made against a version that has since been superseded. Carries
+ * the patient as currently stored so the caller can merge its edits onto it and resubmit.
+ */
+public class PatientVersionConflictException extends RuntimeException {
+
+  private static final long serialVersionUID = 2804471562081236305L;
+
+  private final transient Patient currentPatient;
+
+  public PatientVersionConflictException(final Patient currentPatient) {
+    super("Patient " + currentPatient.getId() + " has been updated to version "
+        + currentPatient.getVersion());
+    this.currentPatient = currentPatient;
+  }
+
+  public Patient getCurrentPatient() {
+    return currentPatient;
+  }
+}
@@ -0,0 +1,63 @@
+package com.nea.patient.access.portal.ui.api.integration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.nea.patient.access.portal.backend.api.model.ReferenceDictionaryResponse;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ReferenceCategory;
+import com.nea.patient.access.portal.backend.jpa.domain.model.ReferenceTerm;
+
+/**
+ * Client side copy of the backend reference dictionary. A refresh is a conditional GET on the
+ * cached version, so revalidating an unchanged dictionary costs a 304 without a body.
+ */
+@Service
+public class ReferenceDictionaryCache {
+
+  @Autowired
+  private ApiWebClient apiWebClient;
+
+  private volatile ReferenceDictionaryResponse dictionary;
+  private volatile Map<Integer, ReferenceTerm> termsByCode = Collections.emptyMap();
+
+  /**
+   * Revalidates the cached dictionary against the backend, replacing it if it has changed.
+   */
+  public synchronized void refresh() {
+    ReferenceDictionaryResponse latestDictionary = apiWebClient.getReferenceDictionary(
+        dictionary != null ? dictionary.getVersion() : null);
+    if (latestDictionary != null) {
+      Map<Integer, ReferenceTerm> latestTermsByCode = new HashMap<>();
+      latestDictionary.getTerms().forEach(term -> latestTermsByCode.put(term.getCode(), term));
+      termsByCode = latestTermsByCode;
+      dictionary = latestDictionary;
+    }
+  }
+
+  /**
+   * Terms of the category ordered by label, empty until the dictionary has been loaded.
+   */
+  public List<ReferenceTerm> getTerms(final ReferenceCategory category) {
+    ReferenceDictionaryResponse currentDictionary = dictionary;
+    if (currentDictionary == null) {
+      return Collections.emptyList();
+    }
+    return currentDictionary.getTerms().stream()
+        .filter(term -> term.getCategory() == category)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Label for the code, or null if the code is not in the cached dictionary.
+   */
+  public String getLabel(final Integer code) {
+    ReferenceTerm term = code != null ? termsByCode.get(code) : null;
+    return term != null ? term.getLabel() : null;
+  }
+}
@@ -14,7 +14,10 @@ public class ResponseErrorHandler extends DefaultResponseErrorHandler {
     if (hasError) {
       HttpStatus statusCode = response.getStatusCode();
       if (HttpStatus.BAD_REQUEST.equals(statusCode) ||
-          HttpStatus.NOT_FOUND.equals(statusCode)) {
+          HttpStatus.NOT_FOUND.equals(statusCode) ||
+          HttpStatus.CONFLICT.equals(statusCode) ||
+          HttpStatus.UNPROCESSABLE_ENTITY.equals(statusCode) ||
+          HttpStatus.SERVICE_UNAVAILABLE.equals(statusCode)) {
         return false;
       } else {
         return true;
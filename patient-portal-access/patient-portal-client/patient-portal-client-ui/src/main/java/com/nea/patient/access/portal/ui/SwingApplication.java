@@ -1,8 +1,10 @@
 package com.nea.patient.access.portal.ui;
 
 import java.awt.EventQueue;
+import java.lang.management.ManagementFactory;
 import java.util.Locale;
 
+import javax.swing.JOptionPane;
 import javax.swing.UIManager;
 
 import org.slf4j.Logger;
@@ -19,31 +21,51 @@ public class SwingApplication {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SwingApplication.class);
 
-  public static void main(final String[] args) {
-    ConfigurableApplicationContext applicationContext = new SpringApplicationBuilder(
-        SwingApplication.class).headless(false).run(args);
+  // Only accessed on the event dispatch thread.
+  private static PatientAccessPortalFrame portalFrame;
+  private static long frameShownMillis;
 
+  public static void main(final String[] args) {
     Locale.setDefault(Locale.UK);
 
-    EventQueue.invokeLater(() -> {
-      SwingApplication swingApplication = applicationContext.getBean(SwingApplication.class);
-      swingApplication.initialiseUserInterface();
+    // The frame is shown straight away and stays locked while the Spring context and the API client
+    // start on this thread.
+    EventQueue.invokeLater(SwingApplication::showPortalFrame);
+
+    ConfigurableApplicationContext applicationContext;
+    try {
+      applicationContext = new SpringApplicationBuilder(SwingApplication.class).headless(false)
+          .run(args);
+    } catch (RuntimeException e) {
+      LOGGER.error("Unable to start Patient Portal Access Client", e);
+      EventQueue.invokeLater(() -> {
+        PresentationUtilities.displayMessageDialogOfRequiredType(portalFrame,
+            "Unable to start Patient Portal Access Client", JOptionPane.ERROR_MESSAGE, true);
+        System.exit(1);
+      });
+      return;
+    }
 
-      PatientAccessPortalFrame portalFrame = applicationContext.getBean(PatientAccessPortalFrame.class);
+    EventQueue.invokeLater(() -> {
       portalFrame.setApplicationContext(applicationContext);
-      PresentationUtilities.centerWindowAndClipIfRequired(null, portalFrame);
-      portalFrame.setVisible(true);
+      LOGGER.info("Patient Portal Access Client shown {} ms and interactive {} ms after the JVM started",
+          frameShownMillis, ManagementFactory.getRuntimeMXBean().getUptime());
     });
   }
 
-  private void initialiseUserInterface() {
+  private static void showPortalFrame() {
     LOGGER.info("Starting Patient Portal Access Client...");
 
     // Initialise native Look and Feel for application.
     initialiseNativeUILookAndFeel();
+
+    portalFrame = new PatientAccessPortalFrame();
+    PresentationUtilities.centerWindowAndClipIfRequired(null, portalFrame);
+    portalFrame.setVisible(true);
+    frameShownMillis = ManagementFactory.getRuntimeMXBean().getUptime();
   }
 
-  private void initialiseNativeUILookAndFeel() {
+  private static void initialiseNativeUILookAndFeel() {
     try {
       // Attempt to set the Look And Feel to the native system's Look And Feel
       // if this fails, the cross-platform (Metal) look and feel will be used.
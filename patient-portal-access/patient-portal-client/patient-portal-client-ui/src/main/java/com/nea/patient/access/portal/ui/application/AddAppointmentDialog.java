@@ -0,0 +1,225 @@
+package com.nea.patient.access.portal.ui.application;
+
+import java.awt.BorderLayout;
+import java.awt.Frame;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Properties;
+
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.border.TitledBorder;
+
+import org.jdatepicker.impl.JDatePanelImpl;
+import org.jdatepicker.impl.JDatePickerImpl;
+import org.jdatepicker.impl.UtilDateModel;
+import org.springframework.context.ApplicationContext;
+
+import com.nea.patient.access.portal.backend.api.model.AppointmentBookingRequest;
+import com.nea.patient.access.portal.backend.api.model.AppointmentSlot;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Appointment;
+import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ConfirmationDialog;
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ConstrainedReadOnlyComboBox;
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.FixedLengthTextField;
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ReadOnlyTextField;
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.SpringPacker;
+
+public class AddAppointmentDialog extends ConfirmationDialog {
+
+  private static final long serialVersionUID = -3419582871160395512L;
+
+  private static final int NAME_COMPONENT_DISPLAY_LENGTH = 30;
+  private static final int CLINICIAN_COMPONENT_MAX_LENGTH = 50;
+  private static final String[] DURATION_MINUTES_SELECTION = {"15", "30", "45", "60"};
+  private static final String SLOT_DISPLAY_PATTERN = "EEE dd-MM-yyyy HH:mm";
+
+  private ApplicationContext applicationContext;
+  private ApiWebClient apiWebClient;
+  private PatientDetails patientDetails;
+
+  private ReadOnlyTextField patientNameTF;
+  private FixedLengthTextField clinicianTF;
+  private JDatePickerImpl fromDatePicker;
+  private ConstrainedReadOnlyComboBox durationCB;
+  private ReadOnlyTextField slotTF;
+
+  private AppointmentSlot foundSlot;
+
+  private final JPanel contentsPanel = new JPanel(new BorderLayout());
+
+  public AddAppointmentDialog(final Frame dialogOwner, final String title,
+      final ApplicationContext applicationContext, final PatientDetails patientDetails) {
+    super(dialogOwner, title);
+    this.applicationContext = applicationContext;
+    this.patientDetails = patientDetails;
+    apiWebClient = this.applicationContext.getBean(ApiWebClient.class);
+    initialiseDialog();
+    realize();
+  }
+
+  private void initialiseDialog() {
+    // Set Modality to true.
+    setModal(true);
+
+    patientNameTF = new ReadOnlyTextField(patientDetails.getPatient().getFirstName() + " "
+        + patientDetails.getPatient().getSurname(), NAME_COMPONENT_DISPLAY_LENGTH);
+    clinicianTF = new FixedLengthTextField(NAME_COMPONENT_DISPLAY_LENGTH,
+        CLINICIAN_COMPONENT_MAX_LENGTH);
+    clinicianTF.addKeyListener(new ClinicianKeyListener());
+
+    UtilDateModel utilDateModel = new UtilDateModel(new Date());
+    Properties datePickerProperties = new Properties();
+    datePickerProperties.put("text.today", "Today");
+    datePickerProperties.put("text.month", "Month");
+    datePickerProperties.put("text.year", "Year");
+    JDatePanelImpl datePanel = new JDatePanelImpl(utilDateModel, datePickerProperties);
+    fromDatePicker = new JDatePickerImpl(datePanel, new DateWidgetTextFormatter());
+    fromDatePicker.addActionListener(new SlotCriteriaChangedListener());
+
+    durationCB = new ConstrainedReadOnlyComboBox(DURATION_MINUTES_SELECTION);
+    durationCB.addActionListener(new SlotCriteriaChangedListener());
+
+    JButton findSlotButton = new JButton("Find Next Free Slot");
+    findSlotButton.addActionListener(e -> AddAppointmentDialog.this.findNextFreeSlot());
+    slotTF = new ReadOnlyTextField(NAME_COMPONENT_DISPLAY_LENGTH);
+
+    SpringPacker appointmentPanel = new SpringPacker();
+    appointmentPanel.setBorder(new TitledBorder("Appointment Details"));
+    appointmentPanel.addRow("Patient", new SpringPacker.ComponentField(patientNameTF));
+    appointmentPanel.addRow("Clinician *", new SpringPacker.ComponentField(clinicianTF));
+    appointmentPanel.addRow("From Date *", new SpringPacker.ComponentField(fromDatePicker));
+    appointmentPanel.addRow("Duration (Minutes)", new SpringPacker.ComponentField(durationCB));
+    appointmentPanel.addRow("Slot", new SpringPacker.ComponentField(slotTF),
+        new SpringPacker.ComponentField(findSlotButton));
+    appointmentPanel.pack();
+
+    contentsPanel.add(appointmentPanel, BorderLayout.CENTER);
+
+    // The following call will setup the required window components and make
+    // the dialog resizeable by default, which we need to override.
+    layoutWindow(contentsPanel, ConfirmationDialog.CANCEL_BUTTON, null, true);
+    overrideOKButtonTextAndMnemonic("Book", 'B');
+    setResizable(false);
+
+    // Nothing can be booked until a free slot has been found.
+    greyConfirmation();
+  }
+
+  /**
+   * Callback method for the 'OK/Book' button press. Overridden from super class
+   * {@code ConfirmationDialog}.
+   */
+  @Override
+  protected void doOk() {
+    AppointmentBookingRequest bookingRequest = AppointmentBookingRequest.builder()
+        .patientId(patientDetails.getPatient().getId())
+        .clinician(foundSlot.getClinician())
+        .start(foundSlot.getStart())
+        .durationMinutes(getSelectedDurationMinutes())
+        .build();
+
+    goBusy();
+    boolean requestSuccess = true;
+    Appointment appointment = null;
+    try {
+      appointment = apiWebClient.bookAppointment(bookingRequest);
+    } catch (Exception e) {
+      requestSuccess = false;
+    }
+    unBusy();
+
+    if (!requestSuccess) {
+      setStatusBarInformationText("Issue detected whilst trying to book appointment");
+    } else if (appointment == null) {
+      clearFoundSlot();
+      setStatusBarInformationText("Slot has just been taken, please find another slot");
+    } else {
+      doClose();
+    }
+  }
+
+  @Override
+  public void doAdditionalUILookAndFeelUpdate() {
+    // Nothing to be done for this method.
+  }
+
+  @Override
+  public void doForcedDisposeActionOnSecondaryFrameWindows() {
+    // Nothing to be done for this method.
+  }
+
+  @Override
+  protected int getWindowIdentifier() {
+    return MODAL_DIALOG_TYPE;
+  }
+
+  private void findNextFreeSlot() {
+    clearFoundSlot();
+    Date fromDate = (Date) fromDatePicker.getModel().getValue();
+    if (clinicianTF.getText().trim().length() == 0 || fromDate == null) {
+      setStatusBarInformationText("Clinician and From Date must be supplied");
+      return;
+    }
+
+    // Search from now when looking at today, otherwise from the start of the chosen day.
+    LocalDate fromDay = fromDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    LocalDateTime from = fromDay.isAfter(LocalDate.now()) ? fromDay.atStartOfDay()
+        : LocalDateTime.now();
+
+    goBusy();
+    boolean requestSuccess = true;
+    AppointmentSlot appointmentSlot = null;
+    try {
+      appointmentSlot = apiWebClient.findNextFreeAppointmentSlot(clinicianTF.getText().trim(),
+          from, getSelectedDurationMinutes());
+    } catch (Exception e) {
+      requestSuccess = false;
+    }
+    unBusy();
+
+    if (!requestSuccess) {
+      setStatusBarInformationText("Issue detected whilst trying to find a free slot");
+    } else if (appointmentSlot == null) {
+      setStatusBarInformationText("No free slot found for the clinician");
+    } else {
+      foundSlot = appointmentSlot;
+      slotTF.setText(new SimpleDateFormat(SLOT_DISPLAY_PATTERN).format(appointmentSlot.getStart()));
+      ungreyConfirmation();
+    }
+  }
+
+  private void clearFoundSlot() {
+    clearStatusBarInformationText();
+    foundSlot = null;
+    slotTF.setText("");
+    greyConfirmation();
+  }
+
+  private Integer getSelectedDurationMinutes() {
+    return Integer.valueOf((String) durationCB.getSelectedItem());
+  }
+
+  private class ClinicianKeyListener extends KeyAdapter {
+
+    @Override
+    public void keyReleased(final KeyEvent e) {
+      AddAppointmentDialog.this.clearFoundSlot();
+    }
+  }
+
+  private class SlotCriteriaChangedListener implements ActionListener {
+
+    @Override
+    public void actionPerformed(final ActionEvent e) {
+      AddAppointmentDialog.this.clearFoundSlot();
+    }
+  }
+}
@@ -16,10 +16,12 @@ import javax.swing.JTextArea;
 import org.springframework.context.ApplicationContext;
 
 import com.nea.patient.access.portal.backend.jpa.domain.model.Note;
-import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
 import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ConfirmationDialog;
 
+/**
+ * Built once and reused, {@link #bind} clears the note for the next patient.
+ */
 public class AddNoteDialog extends ConfirmationDialog {
 
   private static final long serialVersionUID = 8472745834043867895L;
@@ -36,18 +38,28 @@ public class AddNoteDialog extends ConfirmationDialog {
   private final JPanel contentsPanel = new JPanel(new BorderLayout());
 
   public AddNoteDialog(final Frame dialogOwner, final String title,
-      final ApplicationContext applicationContext, final PatientDetails patientDetails) {
+      final ApplicationContext applicationContext) {
     super(dialogOwner, title);
     this.applicationContext = applicationContext;
-    this.patientDetails = patientDetails;
     apiWebClient = this.applicationContext.getBean(ApiWebClient.class);
     initialiseDialog();
     realize();
   }
 
+  /**
+   * Prepares the dialog for a note on the patient, before it is shown.
+   */
+  public void bind(final PatientDetails patientDetails) {
+    this.patientDetails = patientDetails;
+    noteTextArea.setText("");
+    clearStatusBarInformationText();
+    greyConfirmation();
+  }
+
   private void initialiseDialog() {
     // Set Modality to true.
     setModal(true);
+    setHideOnClose(true);
 
     noteTextArea.setBorder(BorderFactory.createLoweredBevelBorder());
     noteTextArea.addKeyListener(new NoteAreaKeyListener());
@@ -62,8 +74,6 @@ public class AddNoteDialog extends ConfirmationDialog {
     layoutWindow(contentsPanel, ConfirmationDialog.CANCEL_BUTTON, null, true);
     overrideOKButtonTextAndMnemonic("Submit", 'S');
     setResizable(false);
-
-    greyConfirmation();
   }
 
   /**
@@ -77,13 +87,10 @@ public class AddNoteDialog extends ConfirmationDialog {
         .created(generateCurrentDate())
         .build();
 
-    Patient patient = patientDetails.getPatient();
-    patient.getNotes().add(note);
-
     goBusy();
     boolean requestSuccess = true;
     try {
-      apiWebClient.updatePatient(patient);
+      apiWebClient.addPatientNote(patientDetails.getPatient().getId(), note);
     } catch (Exception e) {
       requestSuccess = false;
     }
@@ -0,0 +1,151 @@
+package com.nea.patient.access.portal.ui.application;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.AbstractListModel;
+import javax.swing.SwingWorker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.nea.patient.access.portal.backend.api.model.PatientSearchResponse;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
+
+/**
+ * Search results read from the backend a page at a time, each page only when one of its rows is
+ * first asked for, in practice when it is scrolled into view. Rows of a page still loading are
+ * {@code null}, and a page arriving fires a single change event covering its rows. Only the most
+ * recently used pages are kept, a page dropped is read again if scrolled back to.
+ * <p>
+ * Must be used on the event dispatch thread.
+ */
+@SuppressWarnings("serial")
+final class PagedPatientSearchListModel extends AbstractListModel<PatientDetails> {
+
+  static final int PAGE_SIZE = 100;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PagedPatientSearchListModel.class);
+
+  private static final int MAX_CACHED_PAGES = 20;
+
+  private final ApiWebClient apiWebClient;
+  private final Date dateOfBirth;
+  private final String lastName;
+  private final int pageSize;
+  private final int size;
+
+  private final Map<Integer, List<PatientDetails>> pages =
+      new LinkedHashMap<Integer, List<PatientDetails>>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Integer, List<PatientDetails>> eldest) {
+          return size() > MAX_CACHED_PAGES;
+        }
+      };
+  private final Map<Integer, SwingWorker<List<Patient>, Void>> pageLoaders = new HashMap<>();
+  // Not requested again for this search, the failure is logged once.
+  private final Set<Integer> failedPages = new HashSet<>();
+  private boolean closed;
+
+  /**
+   * @param firstPage the response to the search for page 0 of {@link #PAGE_SIZE}, which gives the
+   *        number of matches. A backend not paging its search returns every match in it.
+   */
+  PagedPatientSearchListModel(final ApiWebClient apiWebClient, final Date dateOfBirth,
+      final String lastName, final PatientSearchResponse firstPage) {
+    this.apiWebClient = apiWebClient;
+    this.dateOfBirth = dateOfBirth;
+    this.lastName = lastName;
+    List<Patient> firstPatients = firstPage.getPatients();
+    if (firstPage.getTotal() != null) {
+      pageSize = firstPage.getSize();
+      size = firstPage.getTotal().intValue();
+    } else {
+      pageSize = Math.max(firstPatients.size(), 1);
+      size = firstPatients.size();
+    }
+    pages.put(0, toPatientDetails(firstPatients));
+  }
+
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  @Override
+  public PatientDetails getElementAt(final int index) {
+    int page = index / pageSize;
+    List<PatientDetails> pageDetails = pages.get(page);
+    if (pageDetails == null) {
+      loadPage(page);
+      return null;
+    }
+    int pageIndex = index % pageSize;
+    // A page read after other patients were added or removed may be short.
+    return pageIndex < pageDetails.size() ? pageDetails.get(pageIndex) : null;
+  }
+
+  /**
+   * Cancels pages still loading, for when the results are replaced by another search.
+   */
+  void close() {
+    closed = true;
+    pageLoaders.values().forEach(pageLoader -> pageLoader.cancel(true));
+    pageLoaders.clear();
+    pages.clear();
+  }
+
+  private void loadPage(final int page) {
+    if (closed || pageLoaders.containsKey(page) || failedPages.contains(page)) {
+      return;
+    }
+    SwingWorker<List<Patient>, Void> pageLoader = new SwingWorker<List<Patient>, Void>() {
+
+      @Override
+      protected List<Patient> doInBackground() {
+        PatientSearchResponse searchResponse = apiWebClient.searchPatients(dateOfBirth, lastName,
+            PatientDetails.SUMMARY_FIELDS, page, pageSize);
+        return searchResponse != null ? searchResponse.getPatients() : null;
+      }
+
+      @Override
+      protected void done() {
+        if (isCancelled()) {
+          return;
+        }
+        pageLoaders.remove(page);
+        List<Patient> patients = null;
+        try {
+          patients = get();
+        } catch (InterruptedException | ExecutionException e) {
+          LOGGER.warn("Unable to load page {} of the patient search results: {}", page,
+              e.getMessage());
+        }
+        if (patients == null) {
+          failedPages.add(page);
+          return;
+        }
+        pages.put(page, toPatientDetails(patients));
+        int firstIndex = page * pageSize;
+        fireContentsChanged(PagedPatientSearchListModel.this, firstIndex,
+            Math.min(firstIndex + pageSize, size) - 1);
+      }
+    };
+    pageLoaders.put(page, pageLoader);
+    pageLoader.execute();
+  }
+
+  private static List<PatientDetails> toPatientDetails(final List<Patient> patients) {
+    List<PatientDetails> patientDetails = new ArrayList<>(patients.size());
+    patients.forEach(patient -> patientDetails.add(PatientDetails.builder().patient(patient).build()));
+    return patientDetails;
+  }
+}
@@ -1,10 +1,15 @@
 package com.nea.patient.access.portal.ui.application;
 
 import java.awt.BorderLayout;
+import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
+import java.awt.event.ContainerAdapter;
+import java.awt.event.ContainerEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
 import java.util.Date;
 import java.util.Properties;
@@ -12,8 +17,8 @@ import java.util.Properties;
 import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
 import javax.swing.DefaultListModel;
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JOptionPane;
@@ -22,6 +27,8 @@ import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.ListSelectionModel;
 import javax.swing.border.TitledBorder;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
@@ -29,17 +36,27 @@ import org.jdatepicker.impl.JDatePanelImpl;
 import org.jdatepicker.impl.JDatePickerImpl;
 import org.jdatepicker.impl.UtilDateModel;
 import org.springframework.context.ApplicationContext;
-import org.springframework.stereotype.Component;
 
 import com.nea.patient.access.portal.backend.api.model.PatientSearchResponse;
+import com.nea.patient.access.portal.backend.api.model.ThumbnailSize;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
 import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.FixedLengthTextField;
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ImageChooser;
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.LazyImageIcon;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.LockableFrame;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.PresentationUtilities;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.SpringPacker;
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.TabbedPaneWithCloseTabSupport;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.windowinterfaces.WindowDisposeListener;
 
-@Component
+/**
+ * Main application window. It is built and shown before the Spring context has started, with the
+ * window locked until {@link #setApplicationContext} supplies the API client.
+ * <p>
+ * Patients opened from the search results each get a closable workspace tab beside the lookup tab,
+ * see {@link PatientWorkspaceTab}.
+ */
 public class PatientAccessPortalFrame extends LockableFrame {
 
   private static final long serialVersionUID = -3553136175508483298L;
@@ -47,30 +64,46 @@ public class PatientAccessPortalFrame extends LockableFrame {
   private static final int MAX_ROWS_FOR_SEARCH_RESULT_LIST = 5;
   private static final int NAME_COMPONENT_DISPLAY_LENGTH = 30;
   private static final int NAME_COMPONENT_MAX_LENGTH = 50;
+  private static final int SEARCH_RESULT_ROW_PADDING = 4;
+  private static final int LOOKUP_TAB_INDEX = 0;
 
   private NewPatientDialog newPatientDialog = null;
-  private PatientMedicalHistoryDialog newMedicalHistoryDialog = null;
+  private AddAppointmentDialog addAppointmentDialog = null;
+
+  // Built on first use and bound to the selected patient each time they are shown.
+  private PatientMedicalHistoryDialog medicalHistoryDialog = null;
   private UpdatePatientDialog updatePatientDialog = null;
   private AddNoteDialog addNoteDialog = null;
 
   private ApplicationContext applicationContext;
   private ApiWebClient apiWebClient;
 
+  private TabbedPaneWithCloseTabSupport workspaceTabs;
+
   private JDatePickerImpl dateOfBirthDatePicker;
   private FixedLengthTextField lastNameTF;
 
-  private DefaultListModel<PatientDetails> patientsSearchResultsModel;
+  private PagedPatientSearchListModel patientsSearchResultsModel;
   private JList<PatientDetails> patientsSearchResultsList;
 
+  private SearchButtonAction searchButtonAction;
+  private LaunchNewPatientDialogAction newPatientDialogAction;
   private SelectedPatientButtonAction selectedPatientButtonAction;
+  private JButton openPatientButton;
   private JButton updateMedicalHistoryButton;
   private JButton updatePatientDetailsButton;
   private JButton addNoteButton;
   private JButton addAppointmentButton;
+  private JButton uploadPhotoButton;
 
   public PatientAccessPortalFrame() {
     intialise();
     pack();
+
+    // Unlocked once the API client is available.
+    searchButtonAction.setEnabled(false);
+    newPatientDialogAction.setEnabled(false);
+    setWindowBusyCursor();
   }
 
   private void intialise() {
@@ -89,10 +122,10 @@ public class PatientAccessPortalFrame extends LockableFrame {
     lastNameTF = new FixedLengthTextField(NAME_COMPONENT_DISPLAY_LENGTH,
         NAME_COMPONENT_MAX_LENGTH);
 
-    ImageIcon searchIcon = new ImageIcon(getClass().getResource(
-        "/com/nea/patient/access/portal/ui/application/images/Search.gif"));
-    JButton searchButton = new JButton(new SearchButtonAction());
-    searchButton.setIcon(searchIcon);
+    searchButtonAction = new SearchButtonAction();
+    JButton searchButton = new JButton(searchButtonAction);
+    searchButton.setIcon(
+        new LazyImageIcon("/com/nea/patient/access/portal/ui/application/images/Search.gif"));
 
     SpringPacker searchPanel = new SpringPacker();
     searchPanel.addRow("Date Of Birth", new SpringPacker.ComponentField(dateOfBirthDatePicker),
@@ -100,17 +133,23 @@ public class PatientAccessPortalFrame extends LockableFrame {
     searchPanel.addRow("Last Name", new SpringPacker.ComponentField(lastNameTF));
     searchPanel.pack();
 
-    patientsSearchResultsModel = new DefaultListModel<PatientDetails>();
-    patientsSearchResultsList = new JList<PatientDetails>(patientsSearchResultsModel);
+    patientsSearchResultsList = new JList<PatientDetails>(new DefaultListModel<PatientDetails>());
     patientsSearchResultsList.setSelectedIndex(-1);
     patientsSearchResultsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
     patientsSearchResultsList.setVisibleRowCount(MAX_ROWS_FOR_SEARCH_RESULT_LIST);
+    // A fixed height keeps the list from rendering every row to size itself, so only rows in view
+    // are rendered and request their thumbnails.
+    patientsSearchResultsList.setFixedCellHeight(
+        ThumbnailSize.SMALL.getMaxDimension() + SEARCH_RESULT_ROW_PADDING);
     patientsSearchResultsList.addListSelectionListener(new SearchResultSelectionListener());
+    patientsSearchResultsList.addMouseListener(new SearchResultDoubleClickListener());
 
     JScrollPane searchResultListScroller = new JScrollPane(patientsSearchResultsList);
     searchResultListScroller.setBorder(BorderFactory.createTitledBorder("Search Results"));
 
     selectedPatientButtonAction = new SelectedPatientButtonAction();
+    openPatientButton = new JButton(selectedPatientButtonAction);
+    openPatientButton.setText("Open Patient");
     updateMedicalHistoryButton = new JButton(selectedPatientButtonAction);
     updateMedicalHistoryButton.setText("Update Medical History");
     updatePatientDetailsButton = new JButton(selectedPatientButtonAction);
@@ -119,12 +158,16 @@ public class PatientAccessPortalFrame extends LockableFrame {
     addNoteButton.setText("Add Note");
     addAppointmentButton = new JButton(selectedPatientButtonAction);
     addAppointmentButton.setText("Add Appointment");
+    uploadPhotoButton = new JButton(selectedPatientButtonAction);
+    uploadPhotoButton.setText("Upload Photo");
 
     JPanel selectedPatientOptionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+    selectedPatientOptionsPanel.add(openPatientButton);
     selectedPatientOptionsPanel.add(updateMedicalHistoryButton);
     selectedPatientOptionsPanel.add(updatePatientDetailsButton);
     selectedPatientOptionsPanel.add(addNoteButton);
     selectedPatientOptionsPanel.add(addAppointmentButton);
+    selectedPatientOptionsPanel.add(uploadPhotoButton);
 
     searchMainPanel.add(searchPanel, BorderLayout.NORTH);
     searchMainPanel.add(searchResultListScroller, BorderLayout.CENTER);
@@ -132,16 +175,15 @@ public class PatientAccessPortalFrame extends LockableFrame {
 
     JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
 
-    ImageIcon homeIcon = new ImageIcon(getClass().getResource(
-        "/com/nea/patient/access/portal/ui/application/images/HomeIcon.png"));
-    JButton homeOptionButton = new JButton("Home", homeIcon);
+    JButton homeOptionButton = new JButton("Home",
+        new LazyImageIcon("/com/nea/patient/access/portal/ui/application/images/HomeIcon.png"));
     homeOptionButton.setBorderPainted(false);
+    homeOptionButton.addActionListener(e -> workspaceTabs.setSelectedIndex(LOOKUP_TAB_INDEX));
 
-    ImageIcon newPatientIcon = new ImageIcon(getClass().getResource(
-        "/com/nea/patient/access/portal/ui/application/images/NewPatient.gif"));
-    LaunchNewPatientDialogAction newPatientDialogAction = new LaunchNewPatientDialogAction("New Patient");
+    newPatientDialogAction = new LaunchNewPatientDialogAction("New Patient");
     JButton newPatientOptionButton = new JButton(newPatientDialogAction);
-    newPatientOptionButton.setIcon(newPatientIcon);
+    newPatientOptionButton.setIcon(
+        new LazyImageIcon("/com/nea/patient/access/portal/ui/application/images/NewPatient.gif"));
     newPatientOptionButton.setBorderPainted(false);
 
     JPanel optionsPanel = new JPanel(new GridLayout(0, 1));
@@ -150,20 +192,21 @@ public class PatientAccessPortalFrame extends LockableFrame {
 
     splitPane.add(optionsPanel, JSplitPane.LEFT);
     splitPane.setContinuousLayout(true);
-    splitPane.add(searchMainPanel, JSplitPane.RIGHT);
+    workspaceTabs = new TabbedPaneWithCloseTabSupport();
+    workspaceTabs.addTab("Patient Lookup", searchMainPanel);
+    workspaceTabs.addContainerListener(new WorkspaceTabRemovedListener());
+    splitPane.add(workspaceTabs, JSplitPane.RIGHT);
 
-    ImageIcon applicationIcon = new ImageIcon(getClass().getResource(
+    JLabel applicationIconLabel = new JLabel(new LazyImageIcon(
         "/com/nea/patient/access/portal/ui/application/images/PatientPortalAccessLogoTransparent.png"));
-    JLabel applicationIconLabel = new JLabel(applicationIcon);
     JPanel applicationIconPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
     applicationIconPanel.add(applicationIconLabel);
 
     add(applicationIconPanel, BorderLayout.NORTH);
     add(splitPane, BorderLayout.CENTER);
 
-    ImageIcon windowBarIcon = new ImageIcon(getClass().getResource(
-        "/com/nea/patient/access/portal/ui/application/images/WindowBarLogoTransparent.png"));
-    setIconImage(windowBarIcon.getImage());
+    setIconImage(new LazyImageIcon(
+        "/com/nea/patient/access/portal/ui/application/images/WindowBarLogoTransparent.png").getImage());
 
     setPatientSelectedOptions();
   }
@@ -197,7 +240,8 @@ public class PatientAccessPortalFrame extends LockableFrame {
 
   public void setPatientSelectedOptions() {
     boolean patientSelected = false;
-    if (patientsSearchResultsList.getSelectedIndex() != -1) {
+    // The selected row may belong to a results page still loading.
+    if (patientsSearchResultsList.getSelectedValue() != null) {
       patientSelected = true;
     }
     selectedPatientButtonAction.setEnabled(patientSelected);
@@ -206,11 +250,16 @@ public class PatientAccessPortalFrame extends LockableFrame {
   public void setApplicationContext(final ApplicationContext applicationContext) {
     this.applicationContext = applicationContext;
     apiWebClient = this.applicationContext.getBean(ApiWebClient.class);
+    patientsSearchResultsList.setCellRenderer(
+        new PatientSearchResultCellRenderer(new PatientThumbnailLoader(apiWebClient)));
+
+    searchButtonAction.setEnabled(true);
+    newPatientDialogAction.setEnabled(true);
+    setWindowDefaultCursor();
   }
 
   private void performSearchAction() {
-    patientsSearchResultsModel.clear();
-    patientsSearchResultsList.setSelectedIndex(-1);
+    clearSearchResults();
 
     Date selectedDateOfBirth = (Date) dateOfBirthDatePicker.getModel().getValue();
     if (selectedDateOfBirth == null) {
@@ -224,8 +273,10 @@ public class PatientAccessPortalFrame extends LockableFrame {
     boolean requestSuccess = true;
     PatientSearchResponse searchResponse = null;
     try {
+      // Only the first page is read here, the rest as the results are scrolled.
       searchResponse = apiWebClient.searchPatients(selectedDateOfBirth,
-          lastNameTF.getText());
+          lastNameTF.getText(), PatientDetails.SUMMARY_FIELDS, 0,
+          PagedPatientSearchListModel.PAGE_SIZE);
     } catch (Exception e) {
       requestSuccess = false;
     }
@@ -243,38 +294,104 @@ public class PatientAccessPortalFrame extends LockableFrame {
       return;
     }
 
-    searchResponse.getPatients().forEach(patient -> {
-      patientsSearchResultsModel.addElement(
-          PatientDetails.builder().patient(patient).build());
-    });
+    patientsSearchResultsModel = new PagedPatientSearchListModel(apiWebClient,
+        selectedDateOfBirth, lastNameTF.getText(), searchResponse);
+    patientsSearchResultsModel.addListDataListener(new SearchResultPageListener());
+    patientsSearchResultsList.setModel(patientsSearchResultsModel);
+  }
+
+  private void clearSearchResults() {
+    if (patientsSearchResultsModel != null) {
+      patientsSearchResultsModel.close();
+      patientsSearchResultsModel = null;
+    }
+    patientsSearchResultsList.setModel(new DefaultListModel<PatientDetails>());
+    setPatientSelectedOptions();
   }
 
   public void performSelectedPatientAction(final ActionEvent ae) {
     // Display required Dialog as modal.
     PatientDetails patientDetails = patientsSearchResultsList.getSelectedValue();
-    if (ae.getSource() == updateMedicalHistoryButton) {
-      if (newMedicalHistoryDialog == null) {
-        newMedicalHistoryDialog = new PatientMedicalHistoryDialog(
-            this, "Patient Medical History", applicationContext, patientDetails);
-        newMedicalHistoryDialog.setVisible(true);
-        newMedicalHistoryDialog = null;
+    if (ae.getSource() == openPatientButton) {
+      openPatientTab(patientDetails);
+    } else if (ae.getSource() == updateMedicalHistoryButton) {
+      if (medicalHistoryDialog != null && !medicalHistoryDialog.isIllnessListCurrent()) {
+        // Built for an illness list that has since changed.
+        medicalHistoryDialog.dispose();
+        medicalHistoryDialog = null;
       }
+      if (medicalHistoryDialog == null) {
+        medicalHistoryDialog = new PatientMedicalHistoryDialog(
+            this, "Patient Medical History", applicationContext);
+      }
+      medicalHistoryDialog.bind(patientDetails);
+      medicalHistoryDialog.setVisible(true);
     } else if (ae.getSource() == updatePatientDetailsButton) {
       if (updatePatientDialog == null) {
-        updatePatientDialog = new UpdatePatientDialog(this, "Update Patient",
-            applicationContext, patientDetails);
-        updatePatientDialog.setVisible(true);
-        updatePatientDialog = null;
+        updatePatientDialog = new UpdatePatientDialog(this, "Update Patient", applicationContext);
       }
+      updatePatientDialog.bind(patientDetails);
+      updatePatientDialog.setVisible(true);
+      patientsSearchResultsList.repaint();
     } else if (ae.getSource() == addNoteButton) {
       if (addNoteDialog == null) {
-        addNoteDialog = new AddNoteDialog(this, "Add Note", applicationContext, patientDetails);
-        addNoteDialog.setVisible(true);
-        addNoteDialog = null;
+        addNoteDialog = new AddNoteDialog(this, "Add Note", applicationContext);
       }
+      addNoteDialog.bind(patientDetails);
+      addNoteDialog.setVisible(true);
     } else if (ae.getSource() == addAppointmentButton) {
-      // TODO: Add functionality
+      if (addAppointmentDialog == null) {
+        addAppointmentDialog = new AddAppointmentDialog(this, "Add Appointment",
+            applicationContext, patientDetails);
+        addAppointmentDialog.setVisible(true);
+        addAppointmentDialog = null;
+      }
+    } else if (ae.getSource() == uploadPhotoButton) {
+      uploadPatientPhoto(patientDetails);
+    }
+  }
+
+  private void openPatientTab(final PatientDetails patientDetails) {
+    // A patient already open is brought to the front rather than loaded again.
+    for (int tabIndex = 0; tabIndex < workspaceTabs.getTabCount(); tabIndex++) {
+      Component tab = workspaceTabs.getComponentAt(tabIndex);
+      if (tab instanceof PatientWorkspaceTab
+          && ((PatientWorkspaceTab) tab).getPatientId().equals(patientDetails.getPatient().getId())) {
+        workspaceTabs.setSelectedIndex(tabIndex);
+        return;
+      }
     }
+    Patient patient = patientDetails.getPatient();
+    PatientWorkspaceTab patientTab = new PatientWorkspaceTab(apiWebClient, patientDetails);
+    workspaceTabs.addTabWithCloseFacility(patient.getFirstName() + " " + patient.getSurname(),
+        patientTab, patientDetails.toString());
+    workspaceTabs.setSelectedComponent(patientTab);
+  }
+
+  private void uploadPatientPhoto(final PatientDetails patientDetails) {
+    ImageChooser imageChooser = new ImageChooser("Select Patient Photo");
+    if (imageChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+      return;
+    }
+
+    enableWindowLockedState();
+    Patient updatedPatient = null;
+    try {
+      updatedPatient = apiWebClient.uploadPatientPhoto(patientDetails.getPatient().getId(),
+          imageChooser.getSelectedFile());
+    } catch (Exception e) {
+      updatedPatient = null;
+    }
+    disableWindowLockedState();
+
+    if (updatedPatient == null) {
+      PresentationUtilities.displayMessageDialogOfRequiredType(this,
+          "Issue detected whilst uploading patient photo", JOptionPane.ERROR_MESSAGE, true);
+      return;
+    }
+    patientDetails.getPatient().setPhotoHash(updatedPatient.getPhotoHash());
+    patientDetails.getPatient().setVersion(updatedPatient.getVersion());
+    patientsSearchResultsList.repaint();
   }
 
   private class LaunchNewPatientDialogAction extends AbstractAction {
@@ -312,6 +429,45 @@ public class PatientAccessPortalFrame extends LockableFrame {
     }
   }
 
+  private class SearchResultDoubleClickListener extends MouseAdapter {
+
+    @Override
+    public void mouseClicked(final MouseEvent e) {
+      if (e.getClickCount() == 2 && apiWebClient != null
+          && PatientAccessPortalFrame.this.patientsSearchResultsList.getSelectedValue() != null) {
+        PatientAccessPortalFrame.this.openPatientTab(
+            PatientAccessPortalFrame.this.patientsSearchResultsList.getSelectedValue());
+      }
+    }
+  }
+
+  private class WorkspaceTabRemovedListener extends ContainerAdapter {
+
+    @Override
+    public void componentRemoved(final ContainerEvent e) {
+      if (e.getChild() instanceof PatientWorkspaceTab) {
+        ((PatientWorkspaceTab) e.getChild()).close();
+      }
+    }
+  }
+
+  private class SearchResultPageListener implements ListDataListener {
+
+    @Override
+    public void contentsChanged(final ListDataEvent e) {
+      // A page arriving may fill in the selected row.
+      PatientAccessPortalFrame.this.setPatientSelectedOptions();
+    }
+
+    @Override
+    public void intervalAdded(final ListDataEvent e) {
+    }
+
+    @Override
+    public void intervalRemoved(final ListDataEvent e) {
+    }
+  }
+
   private class SearchResultSelectionListener implements ListSelectionListener {
 
     @Override
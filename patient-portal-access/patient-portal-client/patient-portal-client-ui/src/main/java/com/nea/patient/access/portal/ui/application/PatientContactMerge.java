@@ -0,0 +1,133 @@
+package com.nea.patient.access.portal.ui.application;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.nea.patient.access.portal.backend.jpa.domain.model.CurrentAddress;
+import com.nea.patient.access.portal.backend.jpa.domain.model.EmergencyContact;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+
+/**
+ * Three way merge of the contact details edited through {@link UpdatePatientDialog}. Fields edited
+ * locally are replayed onto the patient as currently stored, unless the same field was also changed
+ * there to a different value, in which case it is reported as conflicting and left untouched.
+ */
+final class PatientContactMerge {
+
+  enum ContactField {
+    CONTACT_NUMBER("Mobile/Telephone", Patient::getContactNumber, Patient::setContactNumber),
+    EMAIL("Email", Patient::getEmail, Patient::setEmail),
+    ADDRESS_LINE_1("Address Line 1", address(CurrentAddress::getAddressLine1),
+        address(CurrentAddress::setAddressLine1)),
+    DISTRICT("District", address(CurrentAddress::getDistrict), address(CurrentAddress::setDistrict)),
+    TOWN("Town", address(CurrentAddress::getTown), address(CurrentAddress::setTown)),
+    COUNTY("County", address(CurrentAddress::getCounty), address(CurrentAddress::setCounty)),
+    POSTCODE("Postcode", address(CurrentAddress::getPostcode), address(CurrentAddress::setPostcode)),
+    EMERGENCY_CONTACT_FIRST_NAME("Emergency First Name",
+        emergencyContact(EmergencyContact::getFirstName),
+        emergencyContact(EmergencyContact::setFirstName)),
+    EMERGENCY_CONTACT_SURNAME("Emergency Last Name",
+        emergencyContact(EmergencyContact::getSurname),
+        emergencyContact(EmergencyContact::setSurname)),
+    EMERGENCY_CONTACT_RELATIONSHIP("Emergency Relationship",
+        emergencyContact(EmergencyContact::getRelationship),
+        emergencyContact(EmergencyContact::setRelationship)),
+    EMERGENCY_CONTACT_NUMBER("Emergency Mobile/Telephone",
+        emergencyContact(EmergencyContact::getContactNumber),
+        emergencyContact(EmergencyContact::setContactNumber)),
+    EMERGENCY_CONTACT_EMAIL("Emergency Email",
+        emergencyContact(EmergencyContact::getEmail),
+        emergencyContact(EmergencyContact::setEmail));
+
+    private final String label;
+    private final Function<Patient, String> getter;
+    private final BiConsumer<Patient, String> setter;
+
+    ContactField(final String label, final Function<Patient, String> getter,
+        final BiConsumer<Patient, String> setter) {
+      this.label = label;
+      this.getter = getter;
+      this.setter = setter;
+    }
+
+    String getLabel() {
+      return label;
+    }
+  }
+
+  private PatientContactMerge() {
+  }
+
+  /**
+   * Captures the contact fields of a patient, missing values are captured as empty strings to
+   * match the text fields they are edited through.
+   */
+  static Map<ContactField, String> snapshot(final Patient patient) {
+    Map<ContactField, String> values = new EnumMap<>(ContactField.class);
+    for (ContactField field : ContactField.values()) {
+      values.put(field, StringUtils.defaultString(field.getter.apply(patient)));
+    }
+    return values;
+  }
+
+  /**
+   * Applies the fields changed between {@code base} and {@code edited} onto {@code current}.
+   *
+   * @return the fields changed on both sides to different values, which are not applied
+   */
+  static List<ContactField> merge(final Map<ContactField, String> base,
+      final Map<ContactField, String> edited, final Patient current) {
+    Map<ContactField, String> currentValues = snapshot(current);
+    List<ContactField> conflictingFields = new ArrayList<>();
+    for (ContactField field : ContactField.values()) {
+      String baseValue = base.get(field);
+      String editedValue = edited.get(field);
+      String currentValue = currentValues.get(field);
+      if (editedValue.equals(baseValue) || editedValue.equals(currentValue)) {
+        continue;
+      }
+      if (currentValue.equals(baseValue)) {
+        field.setter.accept(current, editedValue);
+      } else {
+        conflictingFields.add(field);
+      }
+    }
+    return conflictingFields;
+  }
+
+  private static Function<Patient, String> address(final Function<CurrentAddress, String> getter) {
+    return patient -> patient.getCurrentAddress() == null
+        ? null : getter.apply(patient.getCurrentAddress());
+  }
+
+  private static BiConsumer<Patient, String> address(final BiConsumer<CurrentAddress, String> setter) {
+    return (patient, value) -> {
+      if (patient.getCurrentAddress() == null) {
+        patient.setCurrentAddress(new CurrentAddress());
+      }
+      setter.accept(patient.getCurrentAddress(), value);
+    };
+  }
+
+  private static Function<Patient, String> emergencyContact(
+      final Function<EmergencyContact, String> getter) {
+    return patient -> patient.getEmergencyContact() == null
+        ? null : getter.apply(patient.getEmergencyContact());
+  }
+
+  private static BiConsumer<Patient, String> emergencyContact(
+      final BiConsumer<EmergencyContact, String> setter) {
+    return (patient, value) -> {
+      if (patient.getEmergencyContact() == null) {
+        patient.setEmergencyContact(new EmergencyContact());
+      }
+      setter.accept(patient.getEmergencyContact(), value);
+    };
+  }
+}
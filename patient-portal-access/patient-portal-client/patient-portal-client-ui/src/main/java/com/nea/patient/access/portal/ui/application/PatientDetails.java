@@ -5,32 +5,51 @@ import org.apache.commons.lang3.StringUtils;
 import com.nea.patient.access.portal.backend.jpa.domain.model.CurrentAddress;
 import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
 
 @Getter
-@Setter
 @NoArgsConstructor
-@AllArgsConstructor
-@Builder
 public class PatientDetails {
 
+  /**
+   * Patient fields requested by the search results list, enough to render the summary line and its
+   * thumbnail and to identify the patient for the dialogs.
+   */
+  public static final String SUMMARY_FIELDS = "title,firstName,surname,dateOfBirth,currentAddress,photoHash";
+
   private static final String COMMA = ", ";
   
   private Patient patient;
 
+  // Built on first use, the list asks for it every time the row is painted.
+  @Getter(AccessLevel.NONE)
+  private String summary;
+
+  @Builder
+  public PatientDetails(final Patient patient) {
+    this.patient = patient;
+  }
+
+  public void setPatient(final Patient patient) {
+    this.patient = patient;
+    summary = null;
+  }
+
   @Override
   public String toString() {
-    CurrentAddress currentAddress = patient.getCurrentAddress();
-    StringBuilder patientSummary = new StringBuilder(patient.getTitle())
-        .append(StringUtils.SPACE).append(patient.getFirstName())
-        .append(StringUtils.SPACE).append(patient.getSurname())
-        .append(COMMA).append(currentAddress.getAddressLine1())
-        .append(COMMA).append(currentAddress.getTown())
-        .append(COMMA).append(currentAddress.getPostcode());
-    return patientSummary.toString();
+    if (summary == null) {
+      CurrentAddress currentAddress = patient.getCurrentAddress();
+      StringBuilder patientSummary = new StringBuilder(patient.getTitle())
+          .append(StringUtils.SPACE).append(patient.getFirstName())
+          .append(StringUtils.SPACE).append(patient.getSurname())
+          .append(COMMA).append(currentAddress.getAddressLine1())
+          .append(COMMA).append(currentAddress.getTown())
+          .append(COMMA).append(currentAddress.getPostcode());
+      summary = patientSummary.toString();
+    }
+    return summary;
   }
 }
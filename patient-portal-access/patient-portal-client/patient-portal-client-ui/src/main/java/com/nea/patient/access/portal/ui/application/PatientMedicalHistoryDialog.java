@@ -2,7 +2,12 @@ package com.nea.patient.access.portal.ui.application;
 
 import java.awt.BorderLayout;
 import java.awt.Frame;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.swing.BorderFactory;
 import javax.swing.JCheckBox;
@@ -13,10 +18,15 @@ import javax.swing.border.TitledBorder;
 
 import org.springframework.context.ApplicationContext;
 
+import com.nea.patient.access.portal.backend.api.model.MedicalHistoryUpdateRequest;
+import com.nea.patient.access.portal.backend.jpa.domain.enums.ReferenceCategory;
 import com.nea.patient.access.portal.backend.jpa.domain.model.Illness;
 import com.nea.patient.access.portal.backend.jpa.domain.model.MedicalHistory;
 import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.backend.jpa.domain.model.ReferenceTerm;
 import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
+import com.nea.patient.access.portal.ui.api.integration.PatientVersionConflictException;
+import com.nea.patient.access.portal.ui.api.integration.ReferenceDictionaryCache;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ConfirmationDialog;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ConfirmationGreying;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ConfirmationGreyingRule;
@@ -25,6 +35,11 @@ import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ReadO
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.SpringPacker;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.SpringPackerEqualiser;
 
+/**
+ * Built once, with a check box per illness in the reference dictionary, and reused. {@link #bind}
+ * clears the fields and loads the next patient's medical history. The owner rebuilds the dialog
+ * when {@link #isIllnessListCurrent()} reports that the illnesses have changed.
+ */
 public class PatientMedicalHistoryDialog extends ConfirmationDialog {
 
   private static final long serialVersionUID = 2618215593297688821L;
@@ -34,10 +49,13 @@ public class PatientMedicalHistoryDialog extends ConfirmationDialog {
   private static final int NHS_NUMBER_COMPONENT_MAX_LENGTH = 10;
   private static final int HEIGHT_WEIGHT_COMPONENT_MAX_LENGTH = 6;
   private static final int MAX_ROWS_DISPLAY_FOR_ALLERGIES_TEXT_AREA = 3;
+  private static final String MEDICAL_HISTORY_FIELDS = "version,nhsNumber,bloodType,height,weight,medicalHistory";
 
   private ApplicationContext applicationContext;
   private ApiWebClient apiWebClient;
+  private ReferenceDictionaryCache referenceDictionaryCache;
   private PatientDetails patientDetails;
+  private Patient medicalHistoryPatient;
 
   private ReadOnlyTextField firstNameTF;
   private ReadOnlyTextField lastNameTF;
@@ -47,18 +65,11 @@ public class PatientMedicalHistoryDialog extends ConfirmationDialog {
   private FixedLengthTextField heightTF;
   private FixedLengthTextField weightTF;
 
-  private JCheckBox asthmaCheckBox;
-  private JCheckBox arthritisCheckBox;
-  private JCheckBox cancerCheckBox;
-  private JCheckBox eczemaCheckBox;
-  private JCheckBox diabetesCheckBox;
-  private JCheckBox epilepsySeizuresCheckBox;
-  private JCheckBox kidneyStonesCheckBox;
-  private JCheckBox heartDiseaseCheckBox;
-  private JCheckBox highBloodPressureCheckBox;
-  private JCheckBox digestiveProblemsCheckBox;
-  private JCheckBox hepatitisCheckBox;
-  private JCheckBox muscularDystrophyCheckBox;
+  // One check box per illness in the reference dictionary, keyed by its code.
+  private final Map<Integer, JCheckBox> illnessCheckBoxes = new LinkedHashMap<>();
+  // Illness labels the check boxes were built with, in the same order.
+  private final List<String> illnessLabels = new ArrayList<>();
+  private boolean dictionaryLoaded;
 
   private final JTextArea allergiesTextArea = new JTextArea();
   private final JPanel contentsPanel = new JPanel(new BorderLayout());
@@ -66,14 +77,55 @@ public class PatientMedicalHistoryDialog extends ConfirmationDialog {
   private boolean dialogRealized = false;
 
   public PatientMedicalHistoryDialog(final Frame dialogOwner, final String title,
-      final ApplicationContext applicationContext, final PatientDetails patientDetails) {
+      final ApplicationContext applicationContext) {
     super(dialogOwner, title);
     this.applicationContext = applicationContext;
-    this.patientDetails = patientDetails;
     apiWebClient = this.applicationContext.getBean(ApiWebClient.class);
+    referenceDictionaryCache = this.applicationContext.getBean(ReferenceDictionaryCache.class);
+    dictionaryLoaded = refreshReferenceDictionary();
     initialiseDialog();
-    reloadPatientDetails();
     realize();
+  }
+
+  /**
+   * Revalidates the reference dictionary and checks the illness check boxes still match it.
+   *
+   * @return {@code false} if the dialog needs to be rebuilt for a changed list of illnesses.
+   */
+  public boolean isIllnessListCurrent() {
+    dictionaryLoaded = refreshReferenceDictionary();
+    List<String> currentIllnessLabels = new ArrayList<>();
+    List<Integer> currentIllnessCodes = new ArrayList<>();
+    for (ReferenceTerm illnessTerm : referenceDictionaryCache.getTerms(ReferenceCategory.ILLNESS)) {
+      currentIllnessLabels.add(illnessTerm.getLabel());
+      currentIllnessCodes.add(illnessTerm.getCode());
+    }
+    return currentIllnessLabels.equals(illnessLabels)
+        && currentIllnessCodes.equals(new ArrayList<>(illnessCheckBoxes.keySet()));
+  }
+
+  /**
+   * Loads the medical history of the patient into the dialog, before it is shown.
+   */
+  public void bind(final PatientDetails patientDetails) {
+    this.patientDetails = patientDetails;
+    dialogRealized = false;
+    medicalHistoryPatient = null;
+    clearStatusBarInformationText();
+
+    firstNameTF.setText(patientDetails.getPatient().getFirstName());
+    lastNameTF.setText(patientDetails.getPatient().getSurname());
+    nhsNumberTF.setText("");
+    bloodTypeTF.setText("");
+    heightTF.setText("");
+    weightTF.setText("");
+    allergiesTextArea.setText("");
+    illnessCheckBoxes.values().forEach(illnessCheckBox -> illnessCheckBox.setSelected(false));
+
+    if (!dictionaryLoaded) {
+      setStatusBarInformationText("Issue detected whilst trying to retrieve the illness list");
+    }
+    reloadPatientDetails();
     setConfirmationGreyed(isMandatoryPatientDetailsCaptured());
     dialogRealized = true;
   }
@@ -81,11 +133,10 @@ public class PatientMedicalHistoryDialog extends ConfirmationDialog {
   private void initialiseDialog() {
     // Set Modality to true.
     setModal(true);
+    setHideOnClose(true);
 
-    firstNameTF = new ReadOnlyTextField(patientDetails.getPatient().getFirstName(),
-        NAME_COMPONENT_DISPLAY_LENGTH);
-    lastNameTF = new ReadOnlyTextField(patientDetails.getPatient().getSurname(),
-        NAME_COMPONENT_DISPLAY_LENGTH);
+    firstNameTF = new ReadOnlyTextField(NAME_COMPONENT_DISPLAY_LENGTH);
+    lastNameTF = new ReadOnlyTextField(NAME_COMPONENT_DISPLAY_LENGTH);
 
     nhsNumberTF = new FixedLengthTextField(NHS_NUMBER_COMPONENT_MAX_LENGTH,
         NHS_NUMBER_COMPONENT_MAX_LENGTH);
@@ -104,33 +155,14 @@ public class PatientMedicalHistoryDialog extends ConfirmationDialog {
     patientDetailsPanel.addRow("Height (cm's) *", new SpringPacker.ComponentField(heightTF));
     patientDetailsPanel.addRow("Weight (kg's) *", new SpringPacker.ComponentField(weightTF));
 
-    asthmaCheckBox = new JCheckBox();
-    arthritisCheckBox = new JCheckBox();
-    cancerCheckBox = new JCheckBox();
-    eczemaCheckBox = new JCheckBox();
-    diabetesCheckBox = new JCheckBox();
-    epilepsySeizuresCheckBox = new JCheckBox();
-    kidneyStonesCheckBox = new JCheckBox();
-    heartDiseaseCheckBox = new JCheckBox();
-    highBloodPressureCheckBox = new JCheckBox();
-    digestiveProblemsCheckBox = new JCheckBox();
-    hepatitisCheckBox = new JCheckBox();
-    muscularDystrophyCheckBox = new JCheckBox();
-
     SpringPacker illnessConditionsPanel = new SpringPacker();
     illnessConditionsPanel.setBorder(new TitledBorder("Illness/Conditions (Please check all that apply)"));
-    illnessConditionsPanel.addRow("Asthma", new SpringPacker.ComponentField(asthmaCheckBox));
-    illnessConditionsPanel.addRow("Arthritis", new SpringPacker.ComponentField(arthritisCheckBox));
-    illnessConditionsPanel.addRow("Cancer", new SpringPacker.ComponentField(cancerCheckBox));
-    illnessConditionsPanel.addRow("Diabetes", new SpringPacker.ComponentField(diabetesCheckBox));
-    illnessConditionsPanel.addRow("Digestive Problems", new SpringPacker.ComponentField(digestiveProblemsCheckBox));
-    illnessConditionsPanel.addRow("Eczema", new SpringPacker.ComponentField(eczemaCheckBox));
-    illnessConditionsPanel.addRow("Epilepsy Seizures", new SpringPacker.ComponentField(epilepsySeizuresCheckBox));
-    illnessConditionsPanel.addRow("Heart Disease", new SpringPacker.ComponentField(heartDiseaseCheckBox));
-    illnessConditionsPanel.addRow("Hepatitis", new SpringPacker.ComponentField(hepatitisCheckBox));
-    illnessConditionsPanel.addRow("High Blood Pressure", new SpringPacker.ComponentField(highBloodPressureCheckBox));
-    illnessConditionsPanel.addRow("Kidney Stones", new SpringPacker.ComponentField(kidneyStonesCheckBox));
-    illnessConditionsPanel.addRow("Muscular Dystrophy", new SpringPacker.ComponentField(muscularDystrophyCheckBox));
+    for (ReferenceTerm illnessTerm : referenceDictionaryCache.getTerms(ReferenceCategory.ILLNESS)) {
+      JCheckBox illnessCheckBox = new JCheckBox();
+      illnessCheckBoxes.put(illnessTerm.getCode(), illnessCheckBox);
+      illnessLabels.add(illnessTerm.getLabel());
+      illnessConditionsPanel.addRow(illnessTerm.getLabel(), new SpringPacker.ComponentField(illnessCheckBox));
+    }
 
     SpringPackerEqualiser equaliser = new SpringPackerEqualiser();
     equaliser.add(patientDetailsPanel);
@@ -171,114 +203,55 @@ public class PatientMedicalHistoryDialog extends ConfirmationDialog {
    */
   @Override
   protected void doOk() {
-    Patient patient = patientDetails.getPatient();
-    patient.setBloodType(bloodTypeTF.getText());
-    patient.setNhsNumber(nhsNumberTF.getText());
-    patient.setHeight(Integer.valueOf(heightTF.getText()));
-    patient.setWeight(Integer.valueOf(weightTF.getText()));
-
-    MedicalHistory medicalHistory = patient.getMedicalHistory();
+    MedicalHistory medicalHistory = medicalHistoryPatient != null
+        ? medicalHistoryPatient.getMedicalHistory() : null;
     if (medicalHistory == null) {
       medicalHistory = MedicalHistory.builder().build();
-      patient.setMedicalHistory(medicalHistory);
     }
     medicalHistory.setAllergies(allergiesTextArea.getText());
 
-    if (asthmaCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Asthma");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Asthma").build());
-      }
-    }
-    if (arthritisCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Arthritis");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Arthritis").build());
-      }
-    }
-    if (cancerCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Cancer");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Cancer").build());
-      }
-    }
-    if (eczemaCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Eczema");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Eczema").build());
-      }
-    }
-    if (diabetesCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Diabetes");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Diabetes").build());
-      }
-    }
-    if (epilepsySeizuresCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Epilepsy Seizures");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Epilepsy Seizures").build());
-      }
-    }
-    if (kidneyStonesCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Kidney Stones");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Kidney Stones").build());
-      }
-    }
-    if (heartDiseaseCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Heart Disease");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Heart Disease").build());
-      }
-    }
-    if (highBloodPressureCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "High Blood Pressure");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("High Blood Pressure").build());
-      }
-    }
-    if (digestiveProblemsCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Digestive Problems");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Digestive Problems").build());
-      }
-    }
-    if (hepatitisCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Hepatitis");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Hepatitis").build());
-      }
-    }
-    if (muscularDystrophyCheckBox.isSelected()) {
-      Optional<Illness> illness = getExistingIllnessOfType(medicalHistory, "Muscular Dystrophy");
-      if (!illness.isPresent()) {
-        medicalHistory.getIllnesses().add(Illness.builder().type("Muscular Dystrophy").build());
+    Set<Integer> existingIllnessCodes = medicalHistory.getIllnesses().stream()
+        .map(Illness::getTypeCode)
+        .collect(Collectors.toSet());
+    for (Map.Entry<Integer, JCheckBox> illnessCheckBox : illnessCheckBoxes.entrySet()) {
+      if (illnessCheckBox.getValue().isSelected() && !existingIllnessCodes.contains(illnessCheckBox.getKey())) {
+        medicalHistory.getIllnesses().add(Illness.builder().typeCode(illnessCheckBox.getKey()).build());
       }
     }
 
+    MedicalHistoryUpdateRequest medicalHistoryUpdate = MedicalHistoryUpdateRequest.builder()
+        .version(medicalHistoryPatient != null ? medicalHistoryPatient.getVersion() : null)
+        .bloodType(bloodTypeTF.getText())
+        .nhsNumber(nhsNumberTF.getText())
+        .height(Integer.valueOf(heightTF.getText()))
+        .weight(Integer.valueOf(weightTF.getText()))
+        .medicalHistory(medicalHistory)
+        .build();
+
     goBusy();
     boolean requestSuccess = true;
+    boolean conflict = false;
     try {
-      apiWebClient.updatePatient(patient);
+      apiWebClient.updatePatientMedicalHistory(patientDetails.getPatient().getId(),
+          medicalHistoryUpdate);
+    } catch (PatientVersionConflictException e) {
+      conflict = true;
     } catch (Exception e) {
       requestSuccess = false;
     }
     unBusy();
 
-    if (requestSuccess) {
+    if (conflict) {
+      // Someone else saved the patient since it was loaded, show their version to edit again.
+      reloadPatientDetails();
+      setStatusBarInformationText("Medical history was changed by someone else, review and resubmit");
+    } else if (requestSuccess) {
       doClose();
     } else {
       setStatusBarInformationText("Issue detected whilst trying to update patient medical history");
     }
   }
 
-  private Optional<Illness> getExistingIllnessOfType(final MedicalHistory medicalHistory, final String type) {
-    return medicalHistory.getIllnesses().stream()
-        .filter(illness -> type.equals(illness.getType()))
-        .findFirst();
-  }
-
   @Override
   public void doAdditionalUILookAndFeelUpdate() {
     // Nothing to be done for this method.
@@ -298,13 +271,14 @@ public class PatientMedicalHistoryDialog extends ConfirmationDialog {
     boolean requestSuccess = true;
     Patient patient = null;
     try {
-      patient = apiWebClient.getPatient(patientDetails.getPatient().getId());
+      patient = apiWebClient.getPatient(patientDetails.getPatient().getId(), MEDICAL_HISTORY_FIELDS);
     } catch (Exception e) {
       requestSuccess = false;
     }
 
     if (requestSuccess && patient != null) {
-      patientDetails.setPatient(patient);
+      // Only the medical history slice is loaded, so the search result summary is left as it is.
+      medicalHistoryPatient = patient;
 
       nhsNumberTF.setText(patient.getNhsNumber());
       bloodTypeTF.setText(patient.getBloodType());
@@ -320,41 +294,9 @@ public class PatientMedicalHistoryDialog extends ConfirmationDialog {
         allergiesTextArea.setText(medicalHistory.getAllergies());
 
         for (Illness illness : medicalHistory.getIllnesses()) {
-          if ("Asthma".equals(illness.getType())) {
-            asthmaCheckBox.setSelected(true);
-          }
-          if ("Arthritis".equals(illness.getType())) {
-            arthritisCheckBox.setSelected(true);
-          }
-          if ("Cancer".equals(illness.getType())) {
-            cancerCheckBox.setSelected(true);
-          }
-          if ("Eczema".equals(illness.getType())) {
-            eczemaCheckBox.setSelected(true);
-          }
-          if ("Diabetes".equals(illness.getType())) {
-            diabetesCheckBox.setSelected(true);
-          }
-          if ("Epilepsy Seizures".equals(illness.getType())) {
-            epilepsySeizuresCheckBox.setSelected(true);
-          }
-          if ("Kidney Stones".equals(illness.getType())) {
-            kidneyStonesCheckBox.setSelected(true);
-          }
-          if ("Heart Disease".equals(illness.getType())) {
-            heartDiseaseCheckBox.setSelected(true);
-          }
-          if ("High Blood Pressure".equals(illness.getType())) {
-            highBloodPressureCheckBox.setSelected(true);
-          }
-          if ("Digestive Problems".equals(illness.getType())) {
-            digestiveProblemsCheckBox.setSelected(true);
-          }
-          if ("Hepatitis".equals(illness.getType())) {
-            hepatitisCheckBox.setSelected(true);
-          }
-          if ("Muscular Dystrophy".equals(illness.getType())) {
-            muscularDystrophyCheckBox.setSelected(true);
+          JCheckBox illnessCheckBox = illnessCheckBoxes.get(illness.getTypeCode());
+          if (illnessCheckBox != null) {
+            illnessCheckBox.setSelected(true);
           }
         }
       }
@@ -363,6 +305,16 @@ public class PatientMedicalHistoryDialog extends ConfirmationDialog {
     }
   }
 
+  private boolean refreshReferenceDictionary() {
+    try {
+      referenceDictionaryCache.refresh();
+      return true;
+    } catch (Exception e) {
+      // Carry on with whatever dictionary was cached previously.
+      return false;
+    }
+  }
+
   private boolean isMandatoryPatientDetailsCaptured() {
     if (dialogRealized) {
       clearStatusBarInformationText();
@@ -0,0 +1,34 @@
+package com.nea.patient.access.portal.ui.application;
+
+import java.awt.Component;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JList;
+
+/**
+ * Renders a search result as the patient summary with the patient's photo thumbnail.
+ */
+@SuppressWarnings("serial")
+final class PatientSearchResultCellRenderer extends DefaultListCellRenderer {
+
+  private static final String LOADING_TEXT = "Loading...";
+
+  private final PatientThumbnailLoader thumbnailLoader;
+
+  PatientSearchResultCellRenderer(final PatientThumbnailLoader thumbnailLoader) {
+    this.thumbnailLoader = thumbnailLoader;
+  }
+
+  @Override
+  public Component getListCellRendererComponent(final JList<?> list, final Object value, final int index,
+      final boolean isSelected, final boolean cellHasFocus) {
+    super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+    if (value instanceof PatientDetails) {
+      setIcon(thumbnailLoader.getThumbnail(((PatientDetails) value).getPatient(), list));
+    } else if (value == null) {
+      // Row of a results page still being read.
+      setText(LOADING_TEXT);
+    }
+    return this;
+  }
+}
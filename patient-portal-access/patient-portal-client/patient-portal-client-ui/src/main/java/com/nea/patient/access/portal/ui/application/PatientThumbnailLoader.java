@@ -0,0 +1,96 @@
+package com.nea.patient.access.portal.ui.application;
+
+import java.awt.Component;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.nea.patient.access.portal.backend.api.model.ThumbnailSize;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
+
+/**
+ * Small photo thumbnails for the search results list. A thumbnail is only requested when the list
+ * paints its row, so thumbnails load as rows scroll into view. Requests run in the background and
+ * the list is repainted as they arrive, a placeholder of the same size is shown meanwhile.
+ * <p>
+ * Must be used on the event dispatch thread.
+ */
+final class PatientThumbnailLoader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PatientThumbnailLoader.class);
+
+  private static final int LOADER_THREADS = 2;
+  private static final int MAX_CACHED_THUMBNAILS = 500;
+
+  private final ApiWebClient apiWebClient;
+  private final Icon placeholderIcon;
+  private final ExecutorService executor = Executors.newFixedThreadPool(LOADER_THREADS, runnable -> {
+    Thread thread = new Thread(runnable, "thumbnail-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // Keyed by patient id and photo hash, so a new photo is loaded again.
+  private final Map<String, Icon> thumbnails = new LinkedHashMap<String, Icon>(64, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Icon> eldest) {
+      return size() > MAX_CACHED_THUMBNAILS;
+    }
+  };
+  private final Set<String> loading = new HashSet<>();
+
+  PatientThumbnailLoader(final ApiWebClient apiWebClient) {
+    this.apiWebClient = apiWebClient;
+    int size = ThumbnailSize.SMALL.getMaxDimension();
+    placeholderIcon = new ImageIcon(new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB));
+  }
+
+  /**
+   * Returns the patient's thumbnail if it is loaded, otherwise starts loading it and returns the
+   * placeholder. {@code requester} is repainted once the thumbnail arrives.
+   */
+  Icon getThumbnail(final Patient patient, final Component requester) {
+    if (patient.getPhotoHash() == null) {
+      return placeholderIcon;
+    }
+    String key = patient.getId() + ":" + patient.getPhotoHash();
+    Icon thumbnail = thumbnails.get(key);
+    if (thumbnail != null) {
+      return thumbnail;
+    }
+    if (loading.add(key)) {
+      executor.execute(() -> {
+        byte[] thumbnailBytes = null;
+        try {
+          thumbnailBytes = apiWebClient.getPatientPhotoThumbnail(patient.getId(), ThumbnailSize.SMALL);
+        } catch (RuntimeException e) {
+          LOGGER.warn("Unable to load photo thumbnail of patient {}: {}", patient.getId(), e.getMessage());
+        }
+        Icon loadedThumbnail = thumbnailBytes == null ? null : new ImageIcon(thumbnailBytes);
+        SwingUtilities.invokeLater(() -> {
+          // Left out when unavailable, so the next paint of the row asks again.
+          loading.remove(key);
+          if (loadedThumbnail != null) {
+            thumbnails.put(key, loadedThumbnail);
+            requester.repaint();
+          }
+        });
+      });
+    }
+    return placeholderIcon;
+  }
+}
@@ -0,0 +1,222 @@
+package com.nea.patient.access.portal.ui.application;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingWorker;
+import javax.swing.border.TitledBorder;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.nea.patient.access.portal.backend.api.model.PatientTimelineResponse;
+import com.nea.patient.access.portal.backend.api.model.TimelineEntry;
+import com.nea.patient.access.portal.backend.jpa.domain.model.CurrentAddress;
+import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
+import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ReadOnlyTextField;
+import com.nea.patient.access.portal.ui.swingextensions.presentationshared.SpringPacker;
+
+/**
+ * A patient opened in its own workspace tab. The search result summary is shown straight away, the
+ * patient's details and then the timeline load in the background and are filled in as they arrive,
+ * a page of history at a time. {@link #close()} cancels outstanding loads and drops the loaded data
+ * once the tab is closed.
+ * <p>
+ * Must be used on the event dispatch thread.
+ */
+@SuppressWarnings("serial")
+final class PatientWorkspaceTab extends JPanel {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PatientWorkspaceTab.class);
+
+  private static final String DETAILS_FIELDS =
+      "title,firstName,surname,dateOfBirth,nhsNumber,contactNumber,email,currentAddress";
+  private static final int HISTORY_PAGE_SIZE = 25;
+  private static final int FIELD_DISPLAY_LENGTH = 40;
+  private static final int HISTORY_VISIBLE_ROWS = 12;
+  private static final String DATE_PATTERN = "dd-MM-yyyy";
+  private static final String SEPARATOR = "  ";
+
+  private final ApiWebClient apiWebClient;
+  private final Integer patientId;
+  private final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_PATTERN);
+
+  private final ReadOnlyTextField nameTF = new ReadOnlyTextField(FIELD_DISPLAY_LENGTH);
+  private final ReadOnlyTextField dateOfBirthTF = new ReadOnlyTextField(FIELD_DISPLAY_LENGTH);
+  private final ReadOnlyTextField nhsNumberTF = new ReadOnlyTextField(FIELD_DISPLAY_LENGTH);
+  private final ReadOnlyTextField contactTF = new ReadOnlyTextField(FIELD_DISPLAY_LENGTH);
+  private final ReadOnlyTextField addressTF = new ReadOnlyTextField(FIELD_DISPLAY_LENGTH);
+
+  private final DefaultListModel<String> historyModel = new DefaultListModel<>();
+  private final JButton moreHistoryButton = new JButton("More History");
+  private final JLabel statusLabel = new JLabel(" ");
+
+  private SwingWorker<Patient, Void> detailsLoader;
+  private SwingWorker<String, TimelineEntry> historyLoader;
+  private String nextHistoryCursor;
+
+  PatientWorkspaceTab(final ApiWebClient apiWebClient, final PatientDetails patientDetails) {
+    super(new BorderLayout());
+    this.apiWebClient = apiWebClient;
+    this.patientId = patientDetails.getPatient().getId();
+    initialise();
+    showPatient(patientDetails.getPatient());
+    loadDetails();
+  }
+
+  Integer getPatientId() {
+    return patientId;
+  }
+
+  /**
+   * Cancels any load still in progress and releases the loaded history.
+   */
+  void close() {
+    if (detailsLoader != null) {
+      detailsLoader.cancel(true);
+      detailsLoader = null;
+    }
+    if (historyLoader != null) {
+      historyLoader.cancel(true);
+      historyLoader = null;
+    }
+    historyModel.clear();
+    nextHistoryCursor = null;
+  }
+
+  private void initialise() {
+    SpringPacker identityPanel = new SpringPacker();
+    identityPanel.setBorder(new TitledBorder("Patient"));
+    identityPanel.addRow("Name", new SpringPacker.ComponentField(nameTF));
+    identityPanel.addRow("Date Of Birth", new SpringPacker.ComponentField(dateOfBirthTF));
+    identityPanel.addRow("NHS Number", new SpringPacker.ComponentField(nhsNumberTF));
+    identityPanel.addRow("Mobile/Telephone", new SpringPacker.ComponentField(contactTF));
+    identityPanel.addRow("Address", new SpringPacker.ComponentField(addressTF));
+    identityPanel.pack();
+
+    JList<String> historyList = new JList<>(historyModel);
+    historyList.setVisibleRowCount(HISTORY_VISIBLE_ROWS);
+    JScrollPane historyScroller = new JScrollPane(historyList);
+    historyScroller.setBorder(BorderFactory.createTitledBorder("History"));
+
+    moreHistoryButton.setEnabled(false);
+    moreHistoryButton.addActionListener(e -> PatientWorkspaceTab.this.loadHistory());
+    JPanel historyOptionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+    historyOptionsPanel.add(moreHistoryButton);
+    historyOptionsPanel.add(statusLabel);
+
+    add(identityPanel, BorderLayout.NORTH);
+    add(historyScroller, BorderLayout.CENTER);
+    add(historyOptionsPanel, BorderLayout.SOUTH);
+  }
+
+  private void loadDetails() {
+    statusLabel.setText("Loading patient details...");
+    detailsLoader = new SwingWorker<Patient, Void>() {
+
+      @Override
+      protected Patient doInBackground() {
+        return apiWebClient.getPatient(patientId, DETAILS_FIELDS);
+      }
+
+      @Override
+      protected void done() {
+        if (isCancelled()) {
+          return;
+        }
+        detailsLoader = null;
+        try {
+          Patient patient = get();
+          if (patient != null) {
+            showPatient(patient);
+          }
+        } catch (InterruptedException | ExecutionException e) {
+          LOGGER.warn("Unable to load details of patient {}: {}", patientId, e.getMessage());
+          statusLabel.setText("Issue detected whilst retrieving patient details");
+        }
+        // The history follows once the patient is identified.
+        loadHistory();
+      }
+    };
+    detailsLoader.execute();
+  }
+
+  private void loadHistory() {
+    moreHistoryButton.setEnabled(false);
+    statusLabel.setText("Loading history...");
+    String cursor = nextHistoryCursor;
+    historyLoader = new SwingWorker<String, TimelineEntry>() {
+
+      @Override
+      protected String doInBackground() {
+        PatientTimelineResponse timeline = apiWebClient.getPatientTimeline(patientId, cursor,
+            HISTORY_PAGE_SIZE);
+        if (timeline == null) {
+          return null;
+        }
+        publish(timeline.getEntries().toArray(new TimelineEntry[0]));
+        return timeline.getNextCursor();
+      }
+
+      @Override
+      protected void process(final List<TimelineEntry> entries) {
+        if (!isCancelled()) {
+          entries.forEach(entry -> historyModel.addElement(describe(entry)));
+        }
+      }
+
+      @Override
+      protected void done() {
+        if (isCancelled()) {
+          return;
+        }
+        historyLoader = null;
+        try {
+          nextHistoryCursor = get();
+          statusLabel.setText(historyModel.isEmpty() ? "No history recorded" : " ");
+        } catch (InterruptedException | ExecutionException e) {
+          LOGGER.warn("Unable to load history of patient {}: {}", patientId, e.getMessage());
+          statusLabel.setText("Issue detected whilst retrieving patient history");
+        }
+        moreHistoryButton.setEnabled(nextHistoryCursor != null);
+      }
+    };
+    historyLoader.execute();
+  }
+
+  private void showPatient(final Patient patient) {
+    nameTF.setText(StringUtils.joinWith(" ", StringUtils.defaultString(patient.getTitle()),
+        patient.getFirstName(), patient.getSurname()).trim());
+    if (patient.getDateOfBirth() != null) {
+      dateOfBirthTF.setText(dateFormat.format(patient.getDateOfBirth()));
+    }
+    if (patient.getNhsNumber() != null) {
+      nhsNumberTF.setText(patient.getNhsNumber());
+    }
+    if (patient.getContactNumber() != null || patient.getEmail() != null) {
+      contactTF.setText(StringUtils.defaultIfBlank(patient.getContactNumber(), patient.getEmail()));
+    }
+    CurrentAddress currentAddress = patient.getCurrentAddress();
+    if (currentAddress != null) {
+      addressTF.setText(currentAddress.getAddressLine1() + ", " + currentAddress.getTown()
+          + ", " + currentAddress.getPostcode());
+    }
+  }
+
+  private String describe(final TimelineEntry entry) {
+    return dateFormat.format(entry.getDate()) + SEPARATOR + entry.getType() + SEPARATOR
+        + StringUtils.defaultString(entry.getSummary());
+  }
+}
@@ -2,6 +2,11 @@ package com.nea.patient.access.portal.ui.application;
 
 import java.awt.BorderLayout;
 import java.awt.Frame;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.swing.JPanel;
 import javax.swing.border.TitledBorder;
@@ -12,6 +17,9 @@ import com.nea.patient.access.portal.backend.jpa.domain.model.CurrentAddress;
 import com.nea.patient.access.portal.backend.jpa.domain.model.EmergencyContact;
 import com.nea.patient.access.portal.backend.jpa.domain.model.Patient;
 import com.nea.patient.access.portal.ui.api.integration.ApiWebClient;
+import com.nea.patient.access.portal.ui.api.integration.AppointmentConflictException;
+import com.nea.patient.access.portal.ui.api.integration.PatientVersionConflictException;
+import com.nea.patient.access.portal.ui.application.PatientContactMerge.ContactField;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ConfirmationDialog;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ConfirmationGreying;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.ConfirmationGreyingRule;
@@ -19,6 +27,9 @@ import com.nea.patient.access.portal.ui.swingextensions.presentationshared.Fixed
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.SpringPacker;
 import com.nea.patient.access.portal.ui.swingextensions.presentationshared.SpringPackerEqualiser;
 
+/**
+ * Built once and reused, {@link #bind} clears the fields and loads the next patient's details.
+ */
 public class UpdatePatientDialog extends ConfirmationDialog {
 
   private static final long serialVersionUID = -1365806174112580124L;
@@ -50,19 +61,34 @@ public class UpdatePatientDialog extends ConfirmationDialog {
   private FixedLengthTextField emergencyContactEmailContactTF;
   private FixedLengthTextField emergencyContactMobileContactTF;
 
+  private final Map<ContactField, FixedLengthTextField> contactFieldTextFields =
+      new EnumMap<>(ContactField.class);
+  // Contact details as last read from the backend, the base of the merge on a version conflict.
+  private Map<ContactField, String> baseContactFields;
+
   private final JPanel contentsPanel = new JPanel(new BorderLayout());
 
   private boolean dialogRealized = false;
 
   public UpdatePatientDialog(final Frame dialogOwner, final String title,
-      final ApplicationContext applicationContext, final PatientDetails patientDetails) {
+      final ApplicationContext applicationContext) {
     super(dialogOwner, title);
     this.applicationContext = applicationContext;
-    this.patientDetails = patientDetails;
     apiWebClient = this.applicationContext.getBean(ApiWebClient.class);
     initialiseDialog();
-    reloadPatientDetails();
     realize();
+  }
+
+  /**
+   * Loads the latest details of the patient into the dialog, before it is shown.
+   */
+  public void bind(final PatientDetails patientDetails) {
+    this.patientDetails = patientDetails;
+    dialogRealized = false;
+    clearStatusBarInformationText();
+    baseContactFields = null;
+    showContactFields(Collections.emptyMap());
+    reloadPatientDetails();
     setConfirmationGreyed(isMandatoryPatientDetailsCaptured());
     dialogRealized = true;
   }
@@ -70,6 +96,7 @@ public class UpdatePatientDialog extends ConfirmationDialog {
   private void initialiseDialog() {
     // Set Modality to true.
     setModal(true);
+    setHideOnClose(true);
 
     mobileContactTF = new FixedLengthTextField(CONTACT_NUMBER_COMPONENT_MAX_LENGTH,
         CONTACT_NUMBER_COMPONENT_MAX_LENGTH);
@@ -124,6 +151,19 @@ public class UpdatePatientDialog extends ConfirmationDialog {
     addressDetailsPanel.pack();
     emergencyDetailsPanel.pack();
 
+    contactFieldTextFields.put(ContactField.CONTACT_NUMBER, mobileContactTF);
+    contactFieldTextFields.put(ContactField.EMAIL, emailContactTF);
+    contactFieldTextFields.put(ContactField.ADDRESS_LINE_1, addressLine1TF);
+    contactFieldTextFields.put(ContactField.DISTRICT, addressDistrictTF);
+    contactFieldTextFields.put(ContactField.TOWN, addressTownTF);
+    contactFieldTextFields.put(ContactField.COUNTY, addressCountyTF);
+    contactFieldTextFields.put(ContactField.POSTCODE, addressPostcodeTF);
+    contactFieldTextFields.put(ContactField.EMERGENCY_CONTACT_FIRST_NAME, emergencyContactFirstNameTF);
+    contactFieldTextFields.put(ContactField.EMERGENCY_CONTACT_SURNAME, emergencyContactLastNameTF);
+    contactFieldTextFields.put(ContactField.EMERGENCY_CONTACT_RELATIONSHIP, emergencyContactRelationshipTF);
+    contactFieldTextFields.put(ContactField.EMERGENCY_CONTACT_NUMBER, emergencyContactMobileContactTF);
+    contactFieldTextFields.put(ContactField.EMERGENCY_CONTACT_EMAIL, emergencyContactEmailContactTF);
+
     contentsPanel.add(addressDetailsPanel, BorderLayout.CENTER);
     contentsPanel.add(emergencyDetailsPanel, BorderLayout.SOUTH);
 
@@ -153,6 +193,7 @@ public class UpdatePatientDialog extends ConfirmationDialog {
    */
   @Override
   protected void doOk() {
+    Map<ContactField, String> editedContactFields = readContactFields();
     Patient patient = patientDetails.getPatient();
     patient.setContactNumber(mobileContactTF.getText());
     patient.setEmail(emailContactTF.getText());
@@ -179,17 +220,46 @@ public class UpdatePatientDialog extends ConfirmationDialog {
 
     goBusy();
     boolean requestSuccess = true;
+    boolean appointmentConflict = false;
+    List<ContactField> conflictingFields = Collections.emptyList();
     try {
-      apiWebClient.updatePatient(patient);
+      try {
+        apiWebClient.updatePatient(patient);
+        // Edited in place, so drop the summary the search results list has cached for it.
+        patientDetails.setPatient(patient);
+      } catch (PatientVersionConflictException e) {
+        // Someone else saved the patient since it was loaded, replay our edits onto their version
+        // and resubmit if none of them overlap.
+        Patient currentPatient = e.getCurrentPatient();
+        Map<ContactField, String> currentContactFields = PatientContactMerge.snapshot(currentPatient);
+        conflictingFields = PatientContactMerge.merge(baseContactFields, editedContactFields,
+            currentPatient);
+        patientDetails.setPatient(currentPatient);
+        if (conflictingFields.isEmpty()) {
+          apiWebClient.updatePatient(currentPatient);
+        } else {
+          baseContactFields = currentContactFields;
+          showContactFields(PatientContactMerge.snapshot(currentPatient));
+          conflictingFields.forEach(field -> contactFieldTextFields.get(field)
+              .setText(editedContactFields.get(field)));
+        }
+      }
+    } catch (AppointmentConflictException e) {
+      appointmentConflict = true;
     } catch (Exception e) {
       requestSuccess = false;
     }
     unBusy();
 
-    if (requestSuccess) {
-      doClose();
-    } else {
+    if (appointmentConflict) {
+      setStatusBarInformationText("An appointment of this patient overlaps another booking with the same clinician");
+    } else if (!requestSuccess) {
       setStatusBarInformationText("Issue detected whilst trying to update patient details");
+    } else if (!conflictingFields.isEmpty()) {
+      setStatusBarInformationText("Patient details were changed by someone else, review and resubmit: "
+          + conflictingFields.stream().map(ContactField::getLabel).collect(Collectors.joining(", ")));
+    } else {
+      doClose();
     }
   }
 
@@ -204,28 +274,23 @@ public class UpdatePatientDialog extends ConfirmationDialog {
 
     if (requestSuccess && patient != null) {
       patientDetails.setPatient(patient);
-
-      mobileContactTF.setText(patient.getContactNumber());
-      emailContactTF.setText(patient.getEmail());
-      addressLine1TF.setText(patient.getCurrentAddress().getAddressLine1());
-      addressDistrictTF.setText(patient.getCurrentAddress().getDistrict());
-      addressTownTF.setText(patient.getCurrentAddress().getTown());
-      addressCountyTF.setText(patient.getCurrentAddress().getCounty());
-      addressPostcodeTF.setText(patient.getCurrentAddress().getPostcode());
-
-      EmergencyContact emergencyContact = patient.getEmergencyContact();
-      if (emergencyContact != null) {
-        emergencyContactFirstNameTF.setText(emergencyContact.getFirstName());
-        emergencyContactLastNameTF.setText(emergencyContact.getSurname());
-        emergencyContactRelationshipTF.setText(emergencyContact.getRelationship());
-        emergencyContactMobileContactTF.setText(emergencyContact.getContactNumber());
-        emergencyContactEmailContactTF.setText(emergencyContact.getEmail());
-      }
+      baseContactFields = PatientContactMerge.snapshot(patient);
+      showContactFields(baseContactFields);
     } else {
       setStatusBarInformationText("Issue detected whilst trying to retrieve latest patient details");
     }
   }
 
+  private Map<ContactField, String> readContactFields() {
+    Map<ContactField, String> values = new EnumMap<>(ContactField.class);
+    contactFieldTextFields.forEach((field, textField) -> values.put(field, textField.getText()));
+    return values;
+  }
+
+  private void showContactFields(final Map<ContactField, String> values) {
+    contactFieldTextFields.forEach((field, textField) -> textField.setText(values.get(field)));
+  }
+
   @Override
   public void doAdditionalUILookAndFeelUpdate() {
     // Nothing to be done for this method.
@@ -131,6 +131,8 @@ public abstract class ConfirmationDialog extends LockableDialog {
 
   private boolean displayDefaultOkButton = true;
 
+  private boolean hideOnClose = false;
+
   static {
     applyLabel = "Apply";
     okLabel = "OK";
@@ -599,12 +601,30 @@ public abstract class ConfirmationDialog extends LockableDialog {
     }
   }
 
+  /**
+   * Invoke if this dialog is to be kept and shown again, typically bound to different data each
+   * time, rather than being rebuilt. Closing the dialog then hides it instead of disposing of it,
+   * the owner of the dialog disposes of it once it is no longer required.
+   *
+   * @param value {@code true} to hide this dialog on close, {@code false} to dispose of it.
+   */
+  protected final void setHideOnClose(final boolean value) {
+    hideOnClose = value;
+  }
+
   /**
    * Implementation for window close event or 'Cancel' button press. It will dispose of this dialog
-   * window and any of it's child windows that may be launched.
+   * window and any of it's child windows that may be launched, or only hide this dialog if it has
+   * been configured through method {@link #setHideOnClose}.
    */
   protected final void doClose() {
-    doForcedDisposeAction();
+    if (hideOnClose) {
+      PresentationUtilities.forceDisposeOfPostedChildWindows(this);
+      doForcedDisposeActionOnSecondaryFrameWindows();
+      setVisible(false);
+    } else {
+      doForcedDisposeAction();
+    }
   }
 
   /**
@@ -0,0 +1,74 @@
+package com.nea.patient.access.portal.ui.swingextensions.presentationshared;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.net.URL;
+
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@code Icon} for an image resource that is only read and decoded when the icon is first laid
+ * out or painted, rather than when the component using it is built. Icons of windows and dialogs
+ * that are never shown are therefore never decoded.<br>
+ * A missing resource is logged and shown as a transparent pixel rather than failing the component.<br>
+ * Like other Swing components, must be used on the event dispatch thread.
+ */
+public final class LazyImageIcon implements Icon {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LazyImageIcon.class);
+
+  private final String resourceName;
+
+  private ImageIcon imageIcon;
+
+  /**
+   * @param resourceName absolute class path resource name of the image, as passed to
+   *        {@link Class#getResource(String)}.
+   */
+  public LazyImageIcon(final String resourceName) {
+    this.resourceName = resourceName;
+  }
+
+  /**
+   * Decodes the image if it has not been already.
+   *
+   * @return the image, or a transparent single pixel image if the resource does not exist.
+   */
+  public Image getImage() {
+    return getImageIcon().getImage();
+  }
+
+  @Override
+  public void paintIcon(final Component c, final Graphics g, final int x, final int y) {
+    getImageIcon().paintIcon(c, g, x, y);
+  }
+
+  @Override
+  public int getIconWidth() {
+    return getImageIcon().getIconWidth();
+  }
+
+  @Override
+  public int getIconHeight() {
+    return getImageIcon().getIconHeight();
+  }
+
+  private ImageIcon getImageIcon() {
+    if (imageIcon == null) {
+      URL resource = LazyImageIcon.class.getResource(resourceName);
+      if (resource == null) {
+        LOGGER.warn("Image resource {} not found", resourceName);
+        imageIcon = new ImageIcon(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
+      } else {
+        imageIcon = new ImageIcon(resource);
+      }
+    }
+    return imageIcon;
+  }
+}